@@ -0,0 +1,90 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(AdmissionControlProperties.CONFIG_PREFIX)
+@Data
+public class AdmissionControlProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.admission-control";
+
+  /**
+   * Limit the GraphQL requests executed at the same time and shed load when the server is overloaded.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Maximum number of GraphQL requests executed at the same time. Further requests wait in a queue.
+   */
+  private int maxConcurrentRequests = 1000;
+
+  /**
+   * Maximum number of requests waiting for their turn. Requests that find the queue full get a 503.
+   */
+  private int maxQueueSize = 500;
+
+  /**
+   * Maximum time a request waits in the queue before it gets a 503.
+   */
+  private long maxQueueWaitMs = 200;
+
+  /**
+   * Maximum number of GraphQL requests of one client executed at the same time. Further requests of the client get a
+   * 429. 0 for no limit.
+   */
+  private int maxConcurrentRequestsPerClient = 0;
+
+  /**
+   * While the event loops lag behind by more than this, only requests of high priority clients are accepted, the others
+   * get a 503.
+   */
+  private long maxEventLoopLagMs = 500;
+
+  /**
+   * How often the lag of the event loops is measured.
+   */
+  private long eventLoopLagProbeIntervalMs = 100;
+
+  /**
+   * Value of the Retry-After header of rejected requests.
+   */
+  private int retryAfterSeconds = 1;
+
+  /**
+   * Request header identifying the client. If not set, the appId of the transaction context is used.
+   */
+  private String clientHeader;
+
+  /**
+   * Priority of the clients, by client id. Queued requests of higher priority clients are let through first.
+   */
+  private Map<String, Priority> clientPriorities = new HashMap<>();
+
+  /**
+   * Priority of clients without an entry in the client priorities.
+   */
+  private Priority defaultPriority = Priority.NORMAL;
+
+  /**
+   * Order of the admission control filter, it has to run after the logging filter.
+   */
+  private int order = 0;
+
+  public Priority getPriority(String client) {
+    if (client == null) {
+      return defaultPriority;
+    }
+    return clientPriorities.getOrDefault(client, defaultPriority);
+  }
+
+  public enum Priority {
+    HIGH, NORMAL, LOW
+  }
+}
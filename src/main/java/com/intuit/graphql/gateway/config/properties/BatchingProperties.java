@@ -0,0 +1,31 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(BatchingProperties.CONFIG_PREFIX)
+@Data
+public class BatchingProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.batching";
+
+  /**
+   * Accept a JSON array of operations in one POST request, answered by the array of their results in the same order.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Maximum number of operations in one request. Larger batches are rejected with a 400.
+   */
+  private int maxBatchSize = 20;
+
+  /**
+   * Let the operations of a batch share their data loaders, so that downstream queries of operations executing at the
+   * same time are sent together.
+   */
+  private boolean shareDataLoaders = false;
+}
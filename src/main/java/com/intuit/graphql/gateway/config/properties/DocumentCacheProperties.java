@@ -0,0 +1,23 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(DocumentCacheProperties.CONFIG_PREFIX)
+@Data
+public class DocumentCacheProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.document-cache";
+
+  private boolean enabled = true;
+
+  /**
+   * Upper bound of the cache, in characters of the cached query texts. The parsed documents and validation errors are
+   * not weighed, only the query texts they were parsed from.
+   */
+  private long maxQueryCharacters = 16L * 1024 * 1024;
+}
@@ -0,0 +1,27 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(DownstreamCacheProperties.CONFIG_PREFIX)
+@Data
+public class DownstreamCacheProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.downstream-cache";
+
+  private boolean enabled = false;
+
+  /**
+   * Upper bound of the cache, weighed by the serialized size of the cached downstream responses.
+   */
+  private int maxSizeInMbytes = 64;
+
+  /**
+   * Upper bound for the max age of a cached downstream response, regardless of the @cacheControl hints.
+   */
+  private int maxAgeInSeconds = 300;
+}
@@ -0,0 +1,22 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(PersistedQueryProperties.CONFIG_PREFIX)
+@Data
+public class PersistedQueryProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.persisted-queries";
+
+  private boolean enabled = true;
+
+  /**
+   * Upper bound of the local store, in characters of the stored hashes and query texts.
+   */
+  private long maxQueryCharacters = 16L * 1024 * 1024;
+}
@@ -0,0 +1,64 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(QueryCostProperties.CONFIG_PREFIX)
+@Data
+public class QueryCostProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.query-cost";
+
+  /**
+   * Reject operations over the cost, depth or alias limits before any downstream service is called.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Maximum cost of an operation, for clients without an entry in the client max costs.
+   */
+  private int maxCost = 5000;
+
+  /**
+   * Maximum cost of an operation, by client id.
+   */
+  private Map<String, Integer> clientMaxCosts = new HashMap<>();
+
+  /**
+   * Maximum nesting of the selected fields, introspection fields aside.
+   */
+  private int maxDepth = 15;
+
+  /**
+   * Maximum number of aliased fields in an operation.
+   */
+  private int maxAliases = 30;
+
+  /**
+   * Cost of fields returning objects that have no @cost weight.
+   */
+  private int defaultObjectCost = 1;
+
+  /**
+   * Cost of fields returning scalars or enums that have no @cost weight.
+   */
+  private int defaultLeafCost = 0;
+
+  /**
+   * Assumed size of lists that have no @listSize hint, nor a slicing argument set.
+   */
+  private int defaultListSize = 10;
+
+  public int getMaxCost(String client) {
+    if (client == null) {
+      return maxCost;
+    }
+    return clientMaxCosts.getOrDefault(client, maxCost);
+  }
+}
@@ -0,0 +1,61 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(RateLimitProperties.CONFIG_PREFIX)
+@Data
+public class RateLimitProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.rate-limit";
+
+  /**
+   * Throttle clients by the cost of their operations, see @cost and @listSize.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Cost a client may spend in a burst, for clients without an entry in the client limits.
+   */
+  private long capacity = 10000;
+
+  /**
+   * Cost a client may spend per second in the long run, for clients without an entry in the client limits.
+   */
+  private double refillPerSecond = 1000;
+
+  /**
+   * Limits by client id.
+   */
+  private Map<String, Limit> clientLimits = new HashMap<>();
+
+  /**
+   * Upper bound of the clients tracked by the local store. The least recently seen clients are dropped first, and start
+   * again with a full bucket.
+   */
+  private int maxClients = 100000;
+
+  public Limit getLimit(String client) {
+    Limit limit = client == null ? null : clientLimits.get(client);
+    if (limit != null) {
+      return limit;
+    }
+    Limit defaultLimit = new Limit();
+    defaultLimit.setCapacity(capacity);
+    defaultLimit.setRefillPerSecond(refillPerSecond);
+    return defaultLimit;
+  }
+
+  @Data
+  public static class Limit {
+
+    private long capacity;
+    private double refillPerSecond;
+  }
+}
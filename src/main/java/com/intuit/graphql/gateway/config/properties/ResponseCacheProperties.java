@@ -0,0 +1,45 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import com.intuit.graphql.gateway.logging.ContextFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(ResponseCacheProperties.CONFIG_PREFIX)
+@Data
+public class ResponseCacheProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.response-cache";
+
+  private boolean enabled = false;
+
+  /**
+   * Upper bound of the cache, weighed by the serialized size of the cached responses.
+   */
+  private int maxSizeInMbytes = 64;
+
+  /**
+   * Upper bound for the max age of a cached response, regardless of the @cacheControl hints.
+   */
+  private int maxAgeInSeconds = 300;
+
+  /**
+   * Max age of root fields and fields returning objects that have no @cacheControl hint. Leaf fields without a hint
+   * do not restrict the max age of the response.
+   */
+  private int defaultMaxAgeInSeconds = 0;
+
+  /**
+   * Request headers whose values are part of the cache key. These have to include every header that identifies the
+   * caller, since responses may differ per caller.
+   */
+  private List<String> varyHeaders = new ArrayList<>(
+      Arrays.asList(ContextFactory.HEADER_APPID, HttpHeaders.AUTHORIZATION));
+}
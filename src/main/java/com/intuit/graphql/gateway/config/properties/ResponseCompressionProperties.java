@@ -0,0 +1,66 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(ResponseCompressionProperties.CONFIG_PREFIX)
+@Data
+public class ResponseCompressionProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.response-compression";
+
+  /**
+   * Compress responses in the coding negotiated with the Accept-Encoding header of the request, gzip or deflate.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Responses with a smaller Content-Length are sent uncompressed. Streamed responses are always compressed.
+   */
+  private int minSizeInBytes = 2048;
+
+  /**
+   * Deflate compression level, 1 (fastest) to 9 (smallest).
+   */
+  private int level = 6;
+
+  /**
+   * Maximum number of idle deflaters kept for reuse by later responses.
+   */
+  private int maxPooledDeflaters = 64;
+
+  /**
+   * Settings of individual routes, by route name. A route entry replaces the settings above, its unset fields take the
+   * built-in defaults.
+   */
+  private Map<String, Route> routes = new HashMap<>();
+
+  public Route getRoute(String name) {
+    Route route = routes.get(name);
+    if (route != null) {
+      return route;
+    }
+    route = new Route();
+    route.setEnabled(enabled);
+    route.setMinSizeInBytes(minSizeInBytes);
+    route.setLevel(level);
+    return route;
+  }
+
+  /**
+   * Compression settings of a route.
+   */
+  @Data
+  public static class Route {
+
+    private boolean enabled = true;
+    private int minSizeInBytes = 2048;
+    private int level = 6;
+  }
+}
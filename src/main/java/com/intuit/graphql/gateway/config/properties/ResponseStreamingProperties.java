@@ -0,0 +1,26 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(ResponseStreamingProperties.CONFIG_PREFIX)
+@Data
+public class ResponseStreamingProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.response-streaming";
+
+  /**
+   * Serialize responses to the client in chunks instead of encoding the whole response into one buffer.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Size of the chunks written to the client. Responses up to this size are written in one buffer with a
+   * Content-Length, larger responses are written with chunked transfer encoding.
+   */
+  private int flushThresholdInKbytes = 64;
+}
@@ -0,0 +1,27 @@
+package com.intuit.graphql.gateway.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.context.annotation.Configuration;
+
+@RefreshScope
+@Configuration
+@ConfigurationProperties(SchemaSnapshotProperties.CONFIG_PREFIX)
+@Data
+public class SchemaSnapshotProperties {
+
+  public static final String CONFIG_PREFIX = "graphql.schema-snapshot";
+
+  /**
+   * Keep a local snapshot of the registrations of the current graph and start from it. The registrations are then
+   * reconciled with the registries in the background.
+   */
+  private boolean enabled = false;
+
+  /**
+   * File of the snapshot, required if enabled. Use a directory only the gateway can write to, the snapshot decides
+   * which services the gateway calls.
+   */
+  private String path;
+}
@@ -2,7 +2,10 @@ package com.intuit.graphql.gateway.config.properties;
 
 import static com.intuit.graphql.gateway.config.properties.WebClientProperties.CONFIG_PREFIX;
 
+import java.util.HashMap;
+import java.util.Map;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Configuration;
@@ -16,4 +19,116 @@ public class WebClientProperties {
   private int timeout = 10000;
   private int connectTimeout = 2000;
   private int codecMaxInMemorySizeInMbytes = 16;
+  private ConnectionProvider connectionProvider = new ConnectionProvider();
+  private Introspection introspection = new Introspection();
+
+  /**
+   * Introspection of the GRAPHQL services while building the graph.
+   */
+  @Data
+  public static class Introspection {
+
+    /**
+     * Maximum number of attempts to introspect a service. Client errors are not retried.
+     */
+    private int retries = 3;
+
+    /**
+     * Wait before the first retry, doubled on every further retry.
+     */
+    private long minBackoffMs = 100;
+
+    /**
+     * Maximum time of an attempt.
+     */
+    private long timeoutMs = 30000;
+
+    /**
+     * Maximum number of services built, and so introspected, at the same time.
+     */
+    private int maxConcurrency = 32;
+  }
+
+  /**
+   * Settings of a connection pool to a downstream service.
+   */
+  @Data
+  public static class Pool {
+
+    private int maxConnections = 500;
+
+    /**
+     * Maximum number of requests waiting for a connection, -1 for no limit.
+     */
+    private int pendingAcquireMaxCount = 1000;
+    private long pendingAcquireTimeoutMillis = 10000;
+
+    /**
+     * Connections idle for longer are closed, 0 to keep them open.
+     */
+    private long maxIdleTimeSec = 60;
+
+    /**
+     * Connections older than this are closed once released, 0 for no limit.
+     */
+    private long maxLifeSec = 600;
+
+    /**
+     * Interval of the background eviction of idle and expired connections, 0 to only evict on acquire.
+     */
+    private long evictInBackgroundSec = 30;
+    private LeasingStrategy leasingStrategy = LeasingStrategy.FIFO;
+
+    /**
+     * Maximum number of concurrent requests on one HTTP/2 connection. New connections, up to max-connections, are only
+     * opened when all open connections carry this many requests.
+     */
+    private long maxConcurrentStreams = 100;
+
+    public Pool copy() {
+      Pool pool = new Pool();
+      pool.setMaxConnections(maxConnections);
+      pool.setPendingAcquireMaxCount(pendingAcquireMaxCount);
+      pool.setPendingAcquireTimeoutMillis(pendingAcquireTimeoutMillis);
+      pool.setMaxIdleTimeSec(maxIdleTimeSec);
+      pool.setMaxLifeSec(maxLifeSec);
+      pool.setEvictInBackgroundSec(evictInBackgroundSec);
+      pool.setLeasingStrategy(leasingStrategy);
+      pool.setMaxConcurrentStreams(maxConcurrentStreams);
+      return pool;
+    }
+  }
+
+  /**
+   * Connection pools of the downstream services, one per namespace so that a slow service cannot take the connections
+   * of the others.
+   */
+  @Data
+  @EqualsAndHashCode(callSuper = true)
+  public static class ConnectionProvider extends Pool {
+
+    /**
+     * Use one pool per namespace. If disabled, all services share the default pool of the web client.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Pool settings of individual namespaces. A namespace entry replaces the settings above, its unset fields take the
+     * built-in defaults.
+     */
+    private Map<String, Pool> namespaces = new HashMap<>();
+
+    public Pool getPool(String namespace) {
+      Pool pool = namespaces.get(namespace);
+      return pool != null ? pool.copy() : copy();
+    }
+  }
+
+  /**
+   * Order in which idle connections are leased. LIFO reuses the most recently used connections and lets the others
+   * expire, FIFO spreads requests over all open connections.
+   */
+  public enum LeasingStrategy {
+    FIFO, LIFO
+  }
 }
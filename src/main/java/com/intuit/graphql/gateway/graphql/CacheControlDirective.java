@@ -0,0 +1,80 @@
+package com.intuit.graphql.gateway.graphql;
+
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.language.Document;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import java.util.Map;
+
+/**
+ * Reads {@code @cacheControl(maxAge: Int)} hints, declared as {@code directive @cacheControl(maxAge: Int) on
+ * FIELD_DEFINITION | OBJECT} in the provider SDL.
+ *
+ * <p>The max age of an operation is the minimum max age of its selected fields. A field without a hint on itself
+ * uses the hint on the object type it returns. Leaf fields without a hint do not restrict the max age, root fields and
+ * fields returning objects without a hint use the given default.
+ */
+public final class CacheControlDirective {
+
+  public static final String NAME = "cacheControl";
+  public static final String MAX_AGE_ARGUMENT = "maxAge";
+
+  private CacheControlDirective() {
+  }
+
+  /**
+   * @param schema the schema the document is validated against
+   * @param document the operation document
+   * @param operationName the operation to compute the max age of, may be {@code null} for single operation documents
+   * @param variables the operation variables
+   * @param maxAgeInSeconds the upper bound of the result
+   * @param defaultMaxAgeInSeconds the max age of root and object fields without a hint
+   * @return the max age of the operation, in seconds
+   */
+  public static int getMaxAge(final GraphQLSchema schema, final Document document, final String operationName,
+      final Map<String, Object> variables, final int maxAgeInSeconds, final int defaultMaxAgeInSeconds) {
+    return QueryTraverser.newQueryTraverser()
+        .schema(schema)
+        .document(document)
+        .operationName(operationName)
+        .variables(variables)
+        .build()
+        .reducePreOrder((env, maxAge) -> Math.min(maxAge, getMaxAge(env, defaultMaxAgeInSeconds)), maxAgeInSeconds);
+  }
+
+  private static int getMaxAge(final QueryVisitorFieldEnvironment env, final int defaultMaxAgeInSeconds) {
+    if (env.isTypeNameIntrospectionField()) {
+      return Integer.MAX_VALUE;
+    }
+
+    Integer fieldMaxAge = getMaxAge(env.getFieldDefinition());
+    if (fieldMaxAge != null) {
+      return fieldMaxAge;
+    }
+
+    GraphQLType type = GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType());
+    if (type instanceof GraphQLDirectiveContainer) {
+      Integer typeMaxAge = getMaxAge((GraphQLDirectiveContainer) type);
+      if (typeMaxAge != null) {
+        return typeMaxAge;
+      }
+    }
+
+    return GraphQLTypeUtil.isLeaf(type) && env.getParentEnvironment() != null
+        ? Integer.MAX_VALUE
+        : defaultMaxAgeInSeconds;
+  }
+
+  private static Integer getMaxAge(final GraphQLDirectiveContainer directiveContainer) {
+    GraphQLDirective directive = directiveContainer.getDirective(NAME);
+    if (directive == null || directive.getArgument(MAX_AGE_ARGUMENT) == null
+        || !(directive.getArgument(MAX_AGE_ARGUMENT).getValue() instanceof Number)) {
+      return null;
+    }
+    return ((Number) directive.getArgument(MAX_AGE_ARGUMENT).getValue()).intValue();
+  }
+}
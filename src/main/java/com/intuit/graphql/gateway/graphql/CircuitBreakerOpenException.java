@@ -0,0 +1,48 @@
+package com.intuit.graphql.gateway.graphql;
+
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fails a downstream call without sending it, because the circuit breaker of the namespace is open. The error of the
+ * field carries the {@code classification} and {@code namespace} extensions.
+ */
+public class CircuitBreakerOpenException extends DataRetrieverException implements GraphQLError {
+
+  public static final String CLASSIFICATION = "CircuitBreakerOpen";
+
+  private final String namespace;
+
+  public CircuitBreakerOpenException(String namespace) {
+    super(String.format("Circuit breaker is open, downstream service not called. NAMESPACE=%s", namespace));
+    this.namespace = namespace;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  @Override
+  public List<SourceLocation> getLocations() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public ErrorClassification getErrorType() {
+    return ErrorType.DataFetchingException;
+  }
+
+  @Override
+  public Map<String, Object> getExtensions() {
+    Map<String, Object> extensions = new HashMap<>();
+    extensions.put("classification", CLASSIFICATION);
+    extensions.put("namespace", namespace);
+    return extensions;
+  }
+}
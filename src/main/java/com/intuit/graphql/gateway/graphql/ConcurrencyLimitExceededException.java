@@ -0,0 +1,49 @@
+package com.intuit.graphql.gateway.graphql;
+
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fails a downstream call without sending it, because the concurrency limit of the namespace is reached and the call
+ * did not get a turn in time. The error of the field carries the {@code classification} and {@code namespace}
+ * extensions.
+ */
+public class ConcurrencyLimitExceededException extends DataRetrieverException implements GraphQLError {
+
+  public static final String CLASSIFICATION = "ConcurrencyLimitExceeded";
+
+  private final String namespace;
+
+  public ConcurrencyLimitExceededException(String namespace) {
+    super(String.format("Concurrency limit reached, downstream service not called. NAMESPACE=%s", namespace));
+    this.namespace = namespace;
+  }
+
+  public String getNamespace() {
+    return namespace;
+  }
+
+  @Override
+  public List<SourceLocation> getLocations() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public ErrorClassification getErrorType() {
+    return ErrorType.DataFetchingException;
+  }
+
+  @Override
+  public Map<String, Object> getExtensions() {
+    Map<String, Object> extensions = new HashMap<>();
+    extensions.put("classification", CLASSIFICATION);
+    extensions.put("namespace", namespace);
+    return extensions;
+  }
+}
@@ -0,0 +1,55 @@
+package com.intuit.graphql.gateway.graphql;
+
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.language.OperationDefinition.Operation;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Rejects mutations sent with HTTP GET. GET requests may be cached and replayed by browsers and CDNs, so only queries
+ * are executed for them. The check runs once the operation is known, i.e. after the (cached) parse and validation.
+ *
+ * <p>For GET queries, the max age of the response computed from the {@code @cacheControl} hints of the selected fields,
+ * see {@link ResponseCache#getMaxAge(ExecutionContext)}, is put in the {@link GraphQLContext} under {@link
+ * #MAX_AGE_CONTEXT_KEY}, for the {@code Cache-Control} header of the response.
+ */
+public class GetRequestInstrumentation extends SimpleInstrumentation {
+
+  public static final String MAX_AGE_CONTEXT_KEY = "cacheControlMaxAge";
+
+  private final ResponseCache responseCache;
+
+  public GetRequestInstrumentation(final ResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+
+    if (isGetRequest(executionContext.getContext())) {
+      if (executionContext.getOperationDefinition().getOperation() == Operation.MUTATION) {
+        throw new AbortExecutionException("Mutations are not allowed with HTTP GET");
+      }
+      ((GraphQLContext) executionContext.getContext())
+          .put(MAX_AGE_CONTEXT_KEY, responseCache.getMaxAge(executionContext));
+    }
+
+    return super.beginExecuteOperation(parameters);
+  }
+
+  private boolean isGetRequest(Object context) {
+    if (!(context instanceof GraphQLContext) || !((GraphQLContext) context).hasKey(ServerRequest.class)) {
+      return false;
+    }
+    ServerRequest serverRequest = ((GraphQLContext) context).get(ServerRequest.class);
+    return serverRequest.method() == HttpMethod.GET;
+  }
+}
@@ -16,6 +16,10 @@ public interface GraphQLRequest {
   ParameterizedTypeReference<Map<String, Object>> SPECIFICATION_TYPE_REFERENCE = new ParameterizedTypeReference<Map<String, Object>>() {
   };
 
+  /**
+   * The query document. May be omitted when the request refers to a persisted query through {@link #extensions()}.
+   */
+  @Nullable
   String query();
 
   @Nullable
@@ -23,4 +27,11 @@ public interface GraphQLRequest {
 
   @Nullable
   String operationName();
+
+  /**
+   * Protocol extensions, e.g. {@code {"persistedQuery": {"version": 1, "sha256Hash": "..."}}} for automatic persisted
+   * queries.
+   */
+  @Nullable
+  HashMap<String, Object> extensions();
 }
@@ -2,13 +2,28 @@ package com.intuit.graphql.gateway.graphql;
 
 import com.intuit.graphql.gateway.introspection.IntrospectionManager;
 import com.intuit.graphql.gateway.metrics.ExecutionMetricsManager;
+import com.intuit.graphql.gateway.ratelimit.RateLimitManager;
 import com.intuit.graphql.orchestrator.GraphQLOrchestrator;
+import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
-import graphql.execution.AsyncExecutionStrategy;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
 import graphql.execution.DataFetcherExceptionHandler;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.dataloader.BatchLoader;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -20,42 +35,190 @@ public class GraphqlGatewayExecutor implements GraphQLExecutor<ExecutionInput> {
   private final AuthZManager authZManager;
   private final IntrospectionManager introspectionManager;
   private final ExecutionMetricsManager executionMetricsManager;
+  private final PreparsedDocumentCache preparsedDocumentCache;
+  private final ResponseCache responseCache;
+  private final QueryCostManager queryCostManager;
+  private final RateLimitManager rateLimitManager;
+  private final GetRequestInstrumentation getRequestInstrumentation;
+
+  private final AtomicReference<CachedGraphQL> cachedGraphQL = new AtomicReference<>();
 
   public GraphqlGatewayExecutor(final SchemaManager schemaManager, final AuthZManager authZManager,
       final IntrospectionManager introspectionManager,
-      final ExecutionMetricsManager executionMetricsManager, final DataFetcherExceptionHandler dataFetcherExceptionHandler) {
+      final ExecutionMetricsManager executionMetricsManager, final DataFetcherExceptionHandler dataFetcherExceptionHandler,
+      final PreparsedDocumentCache preparsedDocumentCache, final ResponseCache responseCache,
+      final QueryCostManager queryCostManager, final RateLimitManager rateLimitManager) {
     this.schemaManager = schemaManager;
     this.dataFetcherExceptionHandler = dataFetcherExceptionHandler;
     this.authZManager = authZManager;
     this.introspectionManager = introspectionManager;
     this.executionMetricsManager = executionMetricsManager;
+    this.preparsedDocumentCache = preparsedDocumentCache;
+    this.responseCache = responseCache;
+    this.queryCostManager = queryCostManager;
+    this.rateLimitManager = rateLimitManager;
+    this.getRequestInstrumentation = new GetRequestInstrumentation(responseCache);
   }
 
+  /**
+   * Executes the query the same way {@link GraphQLOrchestrator#execute(ExecutionInput)} does, but against a {@link
+   * GraphQL} instance that is reused across requests and that looks documents up in the {@link
+   * PreparsedDocumentCache}. The orchestrator builds a new {@link GraphQL} per execution and offers no way to plug in a
+   * {@link graphql.execution.preparsed.PreparsedDocumentProvider}.
+   *
+   * <p>Cacheable queries are answered from the {@link ResponseCache} when it is enabled, by the {@link
+   * ResponseCachingExecutionStrategy} once the instrumentations began the operation.
+   */
   @Override
   public CompletableFuture<ExecutionResult> execute(final ExecutionInput executionInput) {
+    final CachedGraphQL current = getCachedGraphQL();
+    final ExecutionInput newExecutionInput = executionInput
+        .transform(builder -> builder.dataLoaderRegistry(getDataLoaderRegistry(executionInput, current.runtimeGraph)));
+    if (newExecutionInput.getContext() instanceof GraphQLContext) {
+      ((GraphQLContext) newExecutionInput.getContext()).put(GraphQLOrchestrator.DATA_LOADER_REGISTRY_CONTEXT_KEY,
+          newExecutionInput.getDataLoaderRegistry());
+    }
+    return current.graphQL.executeAsync(newExecutionInput);
+  }
+
+  GraphQL getGraphQL() {
+    return getCachedGraphQL().graphQL;
+  }
+
+  /**
+   * Returns the {@link GraphQL} for the current configuration generation, building a new one only when the {@link
+   * RuntimeGraph}, the AuthZ instrumentation or one of the instrumentation toggles has changed since the last build.
+   *
+   * <p>Generations are compared by identity: {@link SchemaManager} and {@link AuthZManager} swap in new instances when
+   * they rebuild, so a changed reference is what signals a schema change or an AuthZ rebuild.
+   *
+   * @return the {@link GraphQL} to execute the current request with
+   */
+  private CachedGraphQL getCachedGraphQL() {
+    final RuntimeGraph runtimeGraph = schemaManager.getRuntimeGraph();
+    final boolean introspectionNotEnabled = introspectionManager.isIntrospectionNotEnabled();
+    final boolean authZEnabled = authZManager.isAuthZEnabled();
+    final Instrumentation authZInstrumentation = authZEnabled ? authZManager.getInstrumentation() : null;
+    final boolean executionMetricsEnabled = executionMetricsManager.isExecutionMetricsEnabled();
+    final boolean queryCostEnabled = queryCostManager.isQueryCostEnabled();
+    final boolean rateLimitEnabled = rateLimitManager.isRateLimitEnabled();
+
+    CachedGraphQL current = cachedGraphQL.get();
+    if (current != null && current.isBuiltFrom(runtimeGraph, introspectionNotEnabled, authZEnabled,
+        authZInstrumentation, executionMetricsEnabled, queryCostEnabled, rateLimitEnabled)) {
+      return current;
+    }
+
+    // concurrent rebuilds of the same generation are harmless, the last one to be set wins
+    CachedGraphQL rebuilt = new CachedGraphQL(runtimeGraph, introspectionNotEnabled, authZEnabled,
+        authZInstrumentation, executionMetricsEnabled, queryCostEnabled, rateLimitEnabled);
+    cachedGraphQL.set(rebuilt);
+    return rebuilt;
+  }
+
+  private GraphQL buildGraphQL(final RuntimeGraph runtimeGraph,
+      final boolean introspectionNotEnabled, final boolean authZEnabled, final Instrumentation authZInstrumentation,
+      final boolean executionMetricsEnabled, final boolean queryCostEnabled, final boolean rateLimitEnabled) {
+
+    // same order as GraphQLOrchestrator.Builder: gateway instrumentations first, data loader dispatching last
+    List<Instrumentation> instrumentations = new LinkedList<>();
+    instrumentations.add(getRequestInstrumentation);
+
+    if (queryCostEnabled) {
+      instrumentations.add(queryCostManager.getInstrumentation());
+    }
 
-    GraphQLOrchestrator.Builder builder = GraphQLOrchestrator.newOrchestrator()
-        .runtimeGraph(schemaManager.getRuntimeGraph())
-        .queryExecutionStrategy(new AsyncExecutionStrategy(this.dataFetcherExceptionHandler));
+    // after the query cost instrumentation, to take the cost it computed
+    if (rateLimitEnabled) {
+      instrumentations.add(rateLimitManager.getInstrumentation());
+    }
 
-    int instrumentationIdx = 0;
+    if (introspectionNotEnabled) {
+      instrumentations.add(introspectionManager.getInstrumentation());
+    }
 
-    if (introspectionManager.isIntrospectionNotEnabled()) {
-      builder.instrumentation(instrumentationIdx, introspectionManager.getInstrumentation());
-      ++instrumentationIdx;
+    if (authZEnabled) {
+      instrumentations.add(authZInstrumentation);
     }
 
-    if (authZManager.isAuthZEnabled()) {
-      builder.instrumentation(instrumentationIdx, authZManager.getInstrumentation());
-      ++instrumentationIdx;
+    if (executionMetricsEnabled) {
+      instrumentations.add(executionMetricsManager.getInstrumentation());
     }
 
-    if (executionMetricsManager.isExecutionMetricsEnabled()) {
-      builder.instrumentation(instrumentationIdx, executionMetricsManager.getInstrumentation());
-      // increment instrumentationIdx here if adding more or move to a different class
+    instrumentations.add(new DataLoaderDispatcherInstrumentation());
+
+    return GraphQL.newGraphQL(runtimeGraph.getExecutableSchema())
+        .instrumentation(new ChainedInstrumentation(instrumentations))
+        .queryExecutionStrategy(
+            new ResponseCachingExecutionStrategy(responseCache, this.dataFetcherExceptionHandler))
+        .preparsedDocumentProvider(preparsedDocumentCache.forSchema(runtimeGraph.getExecutableSchema()))
+        .build();
+  }
+
+  /**
+   * @return the {@link SharedDataLoaderRegistry} in the context of the execution if there is one, else a new registry
+   */
+  private static DataLoaderRegistry getDataLoaderRegistry(final ExecutionInput executionInput,
+      final RuntimeGraph runtimeGraph) {
+    final Object context = executionInput.getContext();
+    if (context instanceof GraphQLContext && ((GraphQLContext) context).hasKey(SharedDataLoaderRegistry.class)) {
+      return ((GraphQLContext) context).<SharedDataLoaderRegistry>get(SharedDataLoaderRegistry.class)
+          .get(() -> newDataLoaderRegistry(runtimeGraph));
     }
+    return newDataLoaderRegistry(runtimeGraph);
+  }
 
-    return builder.build().execute(executionInput);
+  /**
+   * Same as the orchestrator: one {@link DataLoader} per distinct batch loader, registered under each of its keys.
+   */
+  private static DataLoaderRegistry newDataLoaderRegistry(final RuntimeGraph runtimeGraph) {
+    DataLoaderRegistry dataLoaderRegistry = new DataLoaderRegistry();
+    Map<BatchLoader, DataLoader> dataLoaders = runtimeGraph.getBatchLoaderMap().values().stream()
+        .distinct()
+        .collect(Collectors.toMap(Function.identity(), DataLoader::new));
+    runtimeGraph.getBatchLoaderMap().forEach((key, batchLoader) -> dataLoaderRegistry.register(key,
+        dataLoaders.getOrDefault(batchLoader, new DataLoader(batchLoader))));
+    return dataLoaderRegistry;
   }
 
+  /**
+   * A {@link GraphQL} together with the configuration generation it was built from.
+   */
+  private final class CachedGraphQL {
+
+    private final RuntimeGraph runtimeGraph;
+    private final boolean introspectionNotEnabled;
+    private final boolean authZEnabled;
+    private final Instrumentation authZInstrumentation;
+    private final boolean executionMetricsEnabled;
+    private final boolean queryCostEnabled;
+    private final boolean rateLimitEnabled;
+    private final GraphQL graphQL;
+
+    private CachedGraphQL(final RuntimeGraph runtimeGraph, final boolean introspectionNotEnabled,
+        final boolean authZEnabled, final Instrumentation authZInstrumentation,
+        final boolean executionMetricsEnabled, final boolean queryCostEnabled, final boolean rateLimitEnabled) {
+      this.runtimeGraph = runtimeGraph;
+      this.introspectionNotEnabled = introspectionNotEnabled;
+      this.authZEnabled = authZEnabled;
+      this.authZInstrumentation = authZInstrumentation;
+      this.executionMetricsEnabled = executionMetricsEnabled;
+      this.queryCostEnabled = queryCostEnabled;
+      this.rateLimitEnabled = rateLimitEnabled;
+      this.graphQL = buildGraphQL(runtimeGraph, introspectionNotEnabled, authZEnabled,
+          authZInstrumentation, executionMetricsEnabled, queryCostEnabled, rateLimitEnabled);
+    }
+
+    private boolean isBuiltFrom(final RuntimeGraph runtimeGraph, final boolean introspectionNotEnabled,
+        final boolean authZEnabled, final Instrumentation authZInstrumentation,
+        final boolean executionMetricsEnabled, final boolean queryCostEnabled, final boolean rateLimitEnabled) {
+      return this.runtimeGraph == runtimeGraph
+          && this.introspectionNotEnabled == introspectionNotEnabled
+          && this.authZEnabled == authZEnabled
+          && this.authZInstrumentation == authZInstrumentation
+          && this.executionMetricsEnabled == executionMetricsEnabled
+          && this.queryCostEnabled == queryCostEnabled
+          && this.rateLimitEnabled == rateLimitEnabled;
+    }
+  }
 }
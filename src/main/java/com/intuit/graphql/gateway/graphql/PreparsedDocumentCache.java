@@ -0,0 +1,106 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intuit.graphql.gateway.config.properties.DocumentCacheProperties;
+import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches parsed and validated query documents so that operations sent over and over again by clients are only parsed
+ * and validated once per schema.
+ *
+ * <p>Entries are keyed by query text and the schema they were validated against, and the cache is bounded by the total
+ * number of characters of the cached query texts, see {@link DocumentCacheProperties#getMaxQueryCharacters()}. All
+ * entries are dropped when a new schema is published. Hit, miss, eviction and size metrics are registered under
+ * {@value #METRIC_NAME}.
+ */
+@Component
+@Slf4j
+public class PreparsedDocumentCache {
+
+  static final String METRIC_NAME = "graphql.preparsed.documents";
+
+  private final boolean enabled;
+  private final Cache<DocumentKey, PreparsedDocumentEntry> cache;
+
+  public PreparsedDocumentCache(final DocumentCacheProperties properties, final MeterRegistry meterRegistry) {
+    this.enabled = properties.isEnabled();
+    this.cache = GuavaCacheMetrics.monitor(meterRegistry, CacheBuilder.newBuilder()
+        .maximumWeight(properties.getMaxQueryCharacters())
+        .weigher((DocumentKey key, PreparsedDocumentEntry entry) -> key.query.length())
+        .recordStats()
+        .build(), METRIC_NAME);
+  }
+
+  /**
+   * Returns a {@link PreparsedDocumentProvider} that caches documents validated against the given schema.
+   *
+   * @param schema the schema documents are validated against
+   * @return a caching provider, or a no-op provider if the cache is disabled
+   */
+  public PreparsedDocumentProvider forSchema(final GraphQLSchema schema) {
+    if (!enabled) {
+      return NoOpPreparsedDocumentProvider.INSTANCE;
+    }
+    return (executionInput, parseAndValidateFunction) -> {
+      final DocumentKey key = new DocumentKey(schema, executionInput.getQuery());
+      PreparsedDocumentEntry entry = cache.getIfPresent(key);
+      if (entry == null) {
+        entry = parseAndValidateFunction.apply(executionInput);
+        cache.put(key, entry);
+      }
+      return entry;
+    };
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  @EventListener
+  public void onSchemaChangeEvent(GraphQLSchemaChangedEvent event) {
+    log.info("Received GraphQLSchemaChangeEvent, invalidating preparsed documents");
+    cache.invalidateAll();
+  }
+
+  /**
+   * Schemas are compared by identity, a rebuilt schema never shares entries with the one it replaces.
+   */
+  private static final class DocumentKey {
+
+    private final GraphQLSchema schema;
+    private final String query;
+
+    private DocumentKey(final GraphQLSchema schema, final String query) {
+      this.schema = schema;
+      this.query = query;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof DocumentKey)) {
+        return false;
+      }
+      DocumentKey that = (DocumentKey) o;
+      return schema == that.schema && query.equals(that.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(schema), query);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.google.common.math.LongMath;
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.language.Document;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import graphql.util.TraversalControl;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static cost of an operation, computed from {@code @cost(weight: String!)} and {@code @listSize(assumedSize: Int,
+ * slicingArguments: [String!])} hints on the field definitions of the provider SDL.
+ *
+ * <p>The cost of a field is its weight plus the cost of its selections times the size of the list it returns. The size
+ * of a list is the largest of its slicing arguments set in the query, e.g. {@code first: 50}, else its assumed size,
+ * else the given default. Fields without a weight cost the given default of their kind, {@code __typename} and the
+ * introspection fields are free and do not count for the depth.
+ */
+public final class QueryCost {
+
+  public static final String COST_DIRECTIVE = "cost";
+  public static final String WEIGHT_ARGUMENT = "weight";
+  public static final String LIST_SIZE_DIRECTIVE = "listSize";
+  public static final String ASSUMED_SIZE_ARGUMENT = "assumedSize";
+  public static final String SLICING_ARGUMENTS_ARGUMENT = "slicingArguments";
+
+  private final long cost;
+  private final int depth;
+  private final int aliases;
+
+  private QueryCost(final long cost, final int depth, final int aliases) {
+    this.cost = cost;
+    this.depth = depth;
+    this.aliases = aliases;
+  }
+
+  /**
+   * @param schema the schema the document is validated against
+   * @param document the operation document
+   * @param operationName the operation to compute the cost of, may be {@code null} for single operation documents
+   * @param variables the operation variables
+   * @param properties the default costs and list sizes
+   * @return the cost of the operation
+   */
+  public static QueryCost of(final GraphQLSchema schema, final Document document, final String operationName,
+      final Map<String, Object> variables, final QueryCostProperties properties) {
+    final Selection root = new Selection(null, 0, 0, 1);
+    // in pre-order, so that a selection comes after the one it is nested in
+    final List<Selection> selections = new ArrayList<>();
+    final Map<QueryVisitorFieldEnvironment, Selection> selectionsByEnvironment = new IdentityHashMap<>();
+    final int[] aliases = new int[1];
+
+    QueryTraverser.newQueryTraverser()
+        .schema(schema)
+        .document(document)
+        .operationName(operationName)
+        .variables(variables)
+        .build()
+        .visitPreOrder(new QueryVisitorStub() {
+          @Override
+          public TraversalControl visitFieldWithControl(final QueryVisitorFieldEnvironment env) {
+            if (env.getField().getAlias() != null) {
+              aliases[0]++;
+            }
+            if (env.isTypeNameIntrospectionField() || env.getFieldDefinition().getName().startsWith("__")) {
+              return TraversalControl.ABORT;
+            }
+
+            final Selection parent = env.getParentEnvironment() == null
+                ? root
+                : selectionsByEnvironment.get(env.getParentEnvironment());
+            final Selection selection = new Selection(parent, parent.depth + 1, getWeight(env, properties),
+                getListSize(env, properties));
+            selections.add(selection);
+            selectionsByEnvironment.put(env, selection);
+            return TraversalControl.CONTINUE;
+          }
+        });
+
+    int depth = 0;
+    for (int i = selections.size() - 1; i >= 0; i--) {
+      final Selection selection = selections.get(i);
+      selection.parent.selectionsCost = LongMath.saturatedAdd(selection.parent.selectionsCost, selection.getCost());
+      depth = Math.max(depth, selection.depth);
+    }
+    return new QueryCost(root.selectionsCost, depth, aliases[0]);
+  }
+
+  private static long getWeight(final QueryVisitorFieldEnvironment env, final QueryCostProperties properties) {
+    final Object weight = getArgument(env.getFieldDefinition(), COST_DIRECTIVE, WEIGHT_ARGUMENT);
+    if (weight instanceof Number) {
+      return ((Number) weight).longValue();
+    }
+    if (weight instanceof String) {
+      try {
+        return (long) Double.parseDouble((String) weight);
+      } catch (NumberFormatException e) {
+        // fall back to the default weight
+      }
+    }
+    return GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(env.getFieldDefinition().getType()))
+        ? properties.getDefaultLeafCost()
+        : properties.getDefaultObjectCost();
+  }
+
+  private static long getListSize(final QueryVisitorFieldEnvironment env, final QueryCostProperties properties) {
+    final GraphQLFieldDefinition fieldDefinition = env.getFieldDefinition();
+    final GraphQLDirective listSize = fieldDefinition.getDirective(LIST_SIZE_DIRECTIVE);
+    final GraphQLType type = GraphQLTypeUtil.unwrapNonNull(fieldDefinition.getType());
+    if (listSize == null) {
+      return GraphQLTypeUtil.isList(type) ? properties.getDefaultListSize() : 1;
+    }
+
+    final Object slicingArguments = getArgument(fieldDefinition, LIST_SIZE_DIRECTIVE, SLICING_ARGUMENTS_ARGUMENT);
+    if (slicingArguments instanceof List) {
+      long size = -1;
+      for (Object slicingArgument : (List<?>) slicingArguments) {
+        final Object value = env.getArguments().get(String.valueOf(slicingArgument));
+        if (value instanceof Number) {
+          size = Math.max(size, ((Number) value).longValue());
+        }
+      }
+      if (size >= 0) {
+        return size;
+      }
+    }
+
+    final Object assumedSize = getArgument(fieldDefinition, LIST_SIZE_DIRECTIVE, ASSUMED_SIZE_ARGUMENT);
+    return assumedSize instanceof Number ? ((Number) assumedSize).longValue() : properties.getDefaultListSize();
+  }
+
+  private static Object getArgument(final GraphQLFieldDefinition fieldDefinition, final String directiveName,
+      final String argumentName) {
+    final GraphQLDirective directive = fieldDefinition.getDirective(directiveName);
+    if (directive == null || directive.getArgument(argumentName) == null) {
+      return null;
+    }
+    return directive.getArgument(argumentName).getValue();
+  }
+
+  public long getCost() {
+    return cost;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getAliases() {
+    return aliases;
+  }
+
+  /**
+   * A selected field, with the cost of its own selections summed up once these are known.
+   */
+  private static final class Selection {
+
+    private final Selection parent;
+    private final int depth;
+    private final long weight;
+    private final long listSize;
+    private long selectionsCost;
+
+    private Selection(final Selection parent, final int depth, final long weight, final long listSize) {
+      this.parent = parent;
+      this.depth = depth;
+      this.weight = weight;
+      this.listSize = listSize;
+    }
+
+    private long getCost() {
+      return LongMath.saturatedAdd(weight, LongMath.saturatedMultiply(listSize, selectionsCost));
+    }
+  }
+}
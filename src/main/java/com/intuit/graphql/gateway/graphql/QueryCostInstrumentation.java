@@ -0,0 +1,96 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import reactor.util.context.Context;
+
+/**
+ * Rejects operations whose {@link QueryCost} is over the budget of the client, or whose depth or number of aliases is
+ * over the limits, before any field is fetched. The check runs once the operation is known, i.e. after the (cached)
+ * parse and validation.
+ *
+ * <p>The cost of admitted operations is put in the {@link GraphQLContext}, keyed by {@link QueryCost}.
+ */
+public class QueryCostInstrumentation extends SimpleInstrumentation {
+
+  static final String METRIC_NAME = "graphql.query.cost";
+  static final String CLASSIFICATION = "QueryLimitExceeded";
+
+  private final QueryCostProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final DistributionSummary costs;
+
+  public QueryCostInstrumentation(final QueryCostProperties properties, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.costs = DistributionSummary.builder(METRIC_NAME).register(meterRegistry);
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+    QueryCost queryCost = QueryCost.of(executionContext.getGraphQLSchema(), executionContext.getDocument(),
+        executionContext.getOperationDefinition().getName(), executionContext.getVariables(), properties);
+    costs.record(queryCost.getCost());
+
+    if (queryCost.getDepth() > properties.getMaxDepth()) {
+      throw newLimitExceededException("depth", queryCost.getDepth(), properties.getMaxDepth());
+    }
+    if (queryCost.getAliases() > properties.getMaxAliases()) {
+      throw newLimitExceededException("aliases", queryCost.getAliases(), properties.getMaxAliases());
+    }
+    int maxCost = properties.getMaxCost(getClient(executionContext.getContext()));
+    if (queryCost.getCost() > maxCost) {
+      throw newLimitExceededException("cost", queryCost.getCost(), maxCost);
+    }
+
+    if (executionContext.getContext() instanceof GraphQLContext) {
+      ((GraphQLContext) executionContext.getContext()).put(QueryCost.class, queryCost);
+    }
+    return super.beginExecuteOperation(parameters);
+  }
+
+  private AbortExecutionException newLimitExceededException(String limit, long value, long max) {
+    Counter.builder(METRIC_NAME + ".rejected")
+        .tag("limit", limit)
+        .register(meterRegistry)
+        .increment();
+
+    Map<String, Object> extensions = new HashMap<>();
+    extensions.put("classification", CLASSIFICATION);
+    extensions.put("limit", limit);
+    extensions.put("value", value);
+    extensions.put("max", max);
+    return new AbortExecutionException(Collections.singletonList(GraphqlErrorBuilder.newError()
+        .message("Query %s %d exceeds the maximum of %d", limit, value, max)
+        .errorType(ErrorType.ExecutionAborted)
+        .extensions(extensions)
+        .build()));
+  }
+
+  private static String getClient(Object context) {
+    if (!(context instanceof GraphQLContext) || !((GraphQLContext) context).hasKey(Context.class)) {
+      return null;
+    }
+    Context reactorContext = ((GraphQLContext) context).get(Context.class);
+    return reactorContext.<TransactionContext>getOrEmpty(TransactionContext.class)
+        .map(TransactionContext::getAppId)
+        .orElse(null);
+  }
+}
@@ -0,0 +1,26 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import graphql.execution.instrumentation.Instrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class QueryCostManager {
+
+  private final QueryCostProperties queryCostProperties;
+  private final MeterRegistry meterRegistry;
+
+  public QueryCostManager(final QueryCostProperties queryCostProperties, final MeterRegistry meterRegistry) {
+    this.queryCostProperties = queryCostProperties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public boolean isQueryCostEnabled() {
+    return queryCostProperties.isEnabled();
+  }
+
+  public Instrumentation getInstrumentation() {
+    return new QueryCostInstrumentation(queryCostProperties, meterRegistry);
+  }
+}
@@ -0,0 +1,299 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
+import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.MergedField;
+import graphql.introspection.Introspection;
+import graphql.language.AstPrinter;
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.language.FragmentDefinition;
+import graphql.language.OperationDefinition;
+import graphql.language.OperationDefinition.Operation;
+import graphql.schema.GraphQLSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Opt-in cache of complete responses to query operations.
+ *
+ * <p>Responses are keyed by the executed operation and its fragments printed compactly, the operation name, the
+ * variables and the values of the configured vary headers. How long a response is cached is the minimum
+ * {@code maxAge} of the {@link CacheControlDirective} hints on the selected fields, e.g.
+ * {@code field: String @cacheControl(maxAge: 60)}. A field without a hint uses the hint on the object type it returns,
+ * e.g. {@code type Foo @cacheControl(maxAge: 60)}.
+ *
+ * <p>Mutations, introspection queries, responses with errors and responses with a max age of zero are not cached. The
+ * cache is bounded by an estimate of the serialized size of the responses, see {@link #estimateSize(Object)}, and is
+ * cleared when a new schema is published.
+ *
+ * <p>Responses are looked up by the {@link ResponseCachingExecutionStrategy}, once the document was parsed and
+ * validated through the {@link PreparsedDocumentCache} and the instrumentations began the operation: a cached response
+ * is only returned to callers that pass the query cost, rate limit and AuthZ checks. AuthZ redacts the operation per
+ * caller before it is executed, and the key is made of the redacted operation.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+  static final String METRIC_NAME = "graphql.response.cache";
+
+  private final boolean enabled;
+  private final int maxAgeInSeconds;
+  private final int defaultMaxAgeInSeconds;
+  private final List<String> varyHeaders;
+
+  private final Cache<Key, CachedResponse> responses;
+
+  private final Counter hits;
+  private final Counter misses;
+
+  public ResponseCache(final ResponseCacheProperties properties, final MeterRegistry meterRegistry) {
+    this.enabled = properties.isEnabled();
+    this.maxAgeInSeconds = properties.getMaxAgeInSeconds();
+    this.defaultMaxAgeInSeconds = properties.getDefaultMaxAgeInSeconds();
+    this.varyHeaders = new ArrayList<>(properties.getVaryHeaders());
+
+    this.responses = CacheBuilder.newBuilder()
+        .maximumWeight(properties.getMaxSizeInMbytes() * 1024L * 1024L)
+        .weigher((Key key, CachedResponse response) -> key.document.length() + response.size)
+        .expireAfterWrite(maxAgeInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+
+    this.hits = Counter.builder(METRIC_NAME + ".requests").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder(METRIC_NAME + ".requests").tag("result", "miss").register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".size", responses, Cache::size).register(meterRegistry);
+    FunctionCounter.builder(METRIC_NAME + ".evictions", responses, cache -> cache.stats().evictionCount())
+        .register(meterRegistry);
+  }
+
+  /**
+   * @param executionContext the execution of the request, with the operation as redacted by the instrumentations
+   * @param parameters the parameters of the root fields
+   * @return the cache key of the request, or {@code null} if the request is not a cacheable query
+   */
+  public Key keyFor(final ExecutionContext executionContext, final ExecutionStrategyParameters parameters) {
+    if (!enabled) {
+      return null;
+    }
+    // introspection is checked and redacted while fetching, which a cached response would skip
+    for (MergedField rootField : parameters.getFields().getSubFields().values()) {
+      if (rootField.getName().startsWith("__") && !Introspection.TypeNameMetaFieldDef.getName()
+          .equals(rootField.getName())) {
+        return null;
+      }
+    }
+    return keyFor(executionContext.getGraphQLSchema(), executionContext.getOperationDefinition(),
+        executionContext.getFragmentsByName(), executionContext.getVariables(), executionContext.getContext());
+  }
+
+  Key keyFor(final GraphQLSchema schema, final OperationDefinition operationDefinition,
+      final Map<String, FragmentDefinition> fragmentsByName, final Map<String, Object> variables,
+      final Object context) {
+    if (!enabled || operationDefinition.getOperation() != Operation.QUERY) {
+      return null;
+    }
+
+    final Document document = toDocument(operationDefinition, fragmentsByName);
+    return new Key(schema, document, AstPrinter.printAstCompact(document), operationDefinition.getName(),
+        new HashMap<>(variables), getVaryHeaderValues(context));
+  }
+
+  /**
+   * @param key the key returned by {@link #keyFor(ExecutionContext, ExecutionStrategyParameters)}
+   * @return the cached response, or {@code null} if there is none or it has expired
+   */
+  public ExecutionResult get(final Key key) {
+    CachedResponse cachedResponse = responses.getIfPresent(key);
+    if (cachedResponse != null && cachedResponse.expiresAtNanos - System.nanoTime() <= 0) {
+      responses.invalidate(key);
+      cachedResponse = null;
+    }
+
+    if (cachedResponse == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return cachedResponse.executionResult;
+  }
+
+  /**
+   * Caches the response if it has no errors and its selected fields allow it.
+   *
+   * @param key the key returned by {@link #keyFor(ExecutionContext, ExecutionStrategyParameters)}
+   * @param executionResult the response
+   */
+  public void put(final Key key, final ExecutionResult executionResult) {
+    if (CollectionUtils.isNotEmpty(executionResult.getErrors()) || executionResult.getData() == null) {
+      return;
+    }
+
+    final int maxAge = getMaxAge(key);
+    if (maxAge <= 0) {
+      return;
+    }
+
+    final int size = (int) Math.min(Integer.MAX_VALUE, estimateSize(executionResult.getData()));
+    responses.put(key, new CachedResponse(executionResult, size,
+        System.nanoTime() + TimeUnit.SECONDS.toNanos(maxAge)));
+  }
+
+  /**
+   * Approximate JSON size of the response data, in characters: the lengths of the names and string values plus a few
+   * characters for every other value and separator. Walks the result instead of serializing it only to weigh it.
+   */
+  static long estimateSize(final Object value) {
+    if (value instanceof Map) {
+      long size = 2;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        size += String.valueOf(entry.getKey()).length() + 4 + estimateSize(entry.getValue());
+      }
+      return size;
+    }
+    if (value instanceof Collection) {
+      long size = 2;
+      for (Object element : (Collection<?>) value) {
+        size += 1 + estimateSize(element);
+      }
+      return size;
+    }
+    if (value instanceof CharSequence) {
+      return ((CharSequence) value).length() + 2;
+    }
+    return 8;
+  }
+
+  /**
+   * Minimum max age across the selected fields, capped by the configured max age.
+   */
+  int getMaxAge(final Key key) {
+    return CacheControlDirective.getMaxAge(key.schema, key.parsedDocument, key.operationName,
+        key.variables, maxAgeInSeconds, defaultMaxAgeInSeconds);
+  }
+
+  /**
+   * Minimum max age across the selected fields of the operation, capped by the configured max age, whether or not the
+   * cache is enabled. Used for the {@code Cache-Control} header of GET responses as well.
+   *
+   * @param executionContext the execution of the request, with the operation as redacted by the instrumentations
+   * @return the max age of the response, in seconds
+   */
+  public int getMaxAge(final ExecutionContext executionContext) {
+    final OperationDefinition operationDefinition = executionContext.getOperationDefinition();
+    return CacheControlDirective.getMaxAge(executionContext.getGraphQLSchema(),
+        toDocument(operationDefinition, executionContext.getFragmentsByName()), operationDefinition.getName(),
+        executionContext.getVariables(), maxAgeInSeconds, defaultMaxAgeInSeconds);
+  }
+
+  private static Document toDocument(final OperationDefinition operationDefinition,
+      final Map<String, FragmentDefinition> fragmentsByName) {
+    final List<Definition> definitions = new ArrayList<>(fragmentsByName.values());
+    definitions.add(operationDefinition);
+    return Document.newDocument().definitions(definitions).build();
+  }
+
+  private List<List<String>> getVaryHeaderValues(final Object context) {
+    if (varyHeaders.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (!(context instanceof GraphQLContext) || !((GraphQLContext) context).hasKey(ServerRequest.class)) {
+      return Collections.emptyList();
+    }
+    ServerRequest serverRequest = ((GraphQLContext) context).get(ServerRequest.class);
+    List<List<String>> values = new ArrayList<>(varyHeaders.size());
+    for (String varyHeader : varyHeaders) {
+      values.add(serverRequest.headers().header(varyHeader));
+    }
+    return values;
+  }
+
+  long size() {
+    return responses.size();
+  }
+
+  @EventListener
+  public void onSchemaChangeEvent(GraphQLSchemaChangedEvent event) {
+    log.info("Received GraphQLSchemaChangeEvent, invalidating cached responses");
+    responses.invalidateAll();
+  }
+
+  private static final class CachedResponse {
+
+    private final ExecutionResult executionResult;
+    private final int size;
+    private final long expiresAtNanos;
+
+    private CachedResponse(final ExecutionResult executionResult, final int size, final long expiresAtNanos) {
+      this.executionResult = executionResult;
+      this.size = size;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  /**
+   * Schemas are compared by identity, a rebuilt schema never shares responses with the one it replaces.
+   */
+  public static final class Key {
+
+    private final GraphQLSchema schema;
+    private final Document parsedDocument;
+    private final String document;
+    private final String operationName;
+    private final Map<String, Object> variables;
+    private final List<List<String>> varyHeaderValues;
+
+    private Key(final GraphQLSchema schema, final Document parsedDocument, final String document,
+        final String operationName, final Map<String, Object> variables, final List<List<String>> varyHeaderValues) {
+      this.schema = schema;
+      this.parsedDocument = parsedDocument;
+      this.document = document;
+      this.operationName = operationName;
+      this.variables = variables;
+      this.varyHeaderValues = varyHeaderValues;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return schema == that.schema
+          && document.equals(that.document)
+          && Objects.equals(operationName, that.operationName)
+          && variables.equals(that.variables)
+          && varyHeaderValues.equals(that.varyHeaderValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(schema), document, operationName, variables, varyHeaderValues);
+    }
+  }
+}
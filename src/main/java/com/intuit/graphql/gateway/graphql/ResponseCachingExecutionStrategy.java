@@ -0,0 +1,48 @@
+package com.intuit.graphql.gateway.graphql;
+
+import graphql.ExecutionResult;
+import graphql.execution.AsyncExecutionStrategy;
+import graphql.execution.DataFetcherExceptionHandler;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.NonNullableFieldWasNullException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers cacheable queries from the {@link ResponseCache}. The query strategy runs once the instrumentations began the
+ * operation and AuthZ redacted it, so a cached response is subject to the same checks as an executed one.
+ *
+ * <p>The strategy is also called for the fields of nested objects, only the root fields are looked up.
+ */
+public class ResponseCachingExecutionStrategy extends AsyncExecutionStrategy {
+
+  private final ResponseCache responseCache;
+
+  public ResponseCachingExecutionStrategy(final ResponseCache responseCache,
+      final DataFetcherExceptionHandler dataFetcherExceptionHandler) {
+    super(dataFetcherExceptionHandler);
+    this.responseCache = responseCache;
+  }
+
+  @Override
+  public CompletableFuture<ExecutionResult> execute(final ExecutionContext executionContext,
+      final ExecutionStrategyParameters parameters) throws NonNullableFieldWasNullException {
+    if (!parameters.getPath().isRootPath()) {
+      return super.execute(executionContext, parameters);
+    }
+
+    final ResponseCache.Key cacheKey = responseCache.keyFor(executionContext, parameters);
+    if (cacheKey == null) {
+      return super.execute(executionContext, parameters);
+    }
+
+    final ExecutionResult cachedResult = responseCache.get(cacheKey);
+    if (cachedResult != null) {
+      return CompletableFuture.completedFuture(cachedResult);
+    }
+    return super.execute(executionContext, parameters).thenApply(result -> {
+      responseCache.put(cacheKey, result);
+      return result;
+    });
+  }
+}
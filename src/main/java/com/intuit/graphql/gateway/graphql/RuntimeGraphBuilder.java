@@ -1,23 +1,31 @@
 package com.intuit.graphql.gateway.graphql;
 
 import com.intuit.graphql.gateway.Predicates;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.logging.ContextFactory;
 import com.intuit.graphql.gateway.logging.EventLogger;
 import com.intuit.graphql.gateway.logging.interfaces.ImmutableLogNameValuePair;
 import com.intuit.graphql.gateway.logging.interfaces.SubtaskContext;
 import com.intuit.graphql.gateway.provider.ServiceBuilder;
+import com.intuit.graphql.gateway.provider.ServiceProviderCache;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
 import com.intuit.graphql.gateway.webclient.TxProvider;
+import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.graphql.orchestrator.batch.BatchLoaderExecutionHooks;
 import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
 import com.intuit.graphql.orchestrator.stitching.SchemaStitcher;
 import graphql.execution.DataFetcherResult;
 import graphql.schema.DataFetchingEnvironment;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 
 @Component
@@ -25,16 +33,25 @@ import reactor.core.scheduler.Schedulers;
 public class RuntimeGraphBuilder {
 
   private final ServiceBuilder serviceBuilder;
+  private final ServiceProviderCache serviceProviderCache;
+  private final WebClientProperties webClientProperties;
   private final BatchLoaderExecutionHooks<DataFetchingEnvironment, DataFetcherResult<Object>> batchLoaderExecutionHooks;
 
-  public RuntimeGraphBuilder(final ServiceBuilder serviceBuilder,
+  private volatile StitchedGraph lastStitchedGraph = StitchedGraph.EMPTY;
+
+  public RuntimeGraphBuilder(final ServiceBuilder serviceBuilder, final ServiceProviderCache serviceProviderCache,
+      final WebClientProperties webClientProperties,
       final BatchLoaderExecutionHooks<DataFetchingEnvironment, DataFetcherResult<Object>> batchLoaderExecutionHooks) {
     this.serviceBuilder = serviceBuilder;
+    this.serviceProviderCache = serviceProviderCache;
+    this.webClientProperties = webClientProperties;
     this.batchLoaderExecutionHooks = batchLoaderExecutionHooks;
   }
 
   /**
-   * Build the {@link RuntimeGraph} object by stitching individual service schemas.
+   * Build the {@link RuntimeGraph} object by stitching individual service schemas. Providers of the current graph are
+   * reused for equal registrations, see {@link ServiceProviderCache}. Services are built concurrently, up to the max
+   * concurrency of {@link WebClientProperties#getIntrospection()}, so GRAPHQL services are introspected in parallel.
    *
    * @param serviceRegistrations Flux of {@link ServiceRegistration}
    * @return Stitched/Merged graphql orchestrator instance to be used to make queries
@@ -44,26 +61,125 @@ public class RuntimeGraphBuilder {
   }
 
   public Mono<RuntimeGraph> build(Flux<ServiceRegistration> serviceRegistrations, boolean s3Registration) {
+    return build(serviceRegistrations, s3Registration, true, StitchedGraph.EMPTY, Collections.emptyMap())
+        .map(StitchedGraph::getRuntimeGraph);
+  }
+
+  /**
+   * Rebuild the {@link RuntimeGraph} of the gateway. Registrations that fail to build are skipped, as for S3
+   * registrations.
+   *
+   * <p>If incremental, the service providers of registrations equal to those of the last rebuild are reused and only
+   * new and changed registrations are built, so unchanged GRAPHQL services are not introspected again. If no
+   * registration was added, changed or removed, the last graph is returned without stitching. The providers of the
+   * rebuilt graph replace those in the {@link ServiceProviderCache}.
+   *
+   * <p>Otherwise all providers are stitched again: {@link SchemaStitcher} only takes service providers, and parses,
+   * transforms and merges their schemas itself on every stitch, so their parsed type registries cannot be reused.
+   *
+   * @param serviceRegistrations Flux of {@link ServiceRegistration}
+   * @param incremental false to build every registration again
+   * @return Stitched/Merged graphql orchestrator instance to be used to make queries
+   */
+  public Mono<RuntimeGraph> rebuild(Flux<ServiceRegistration> serviceRegistrations, boolean incremental) {
+    return Mono.defer(() -> build(serviceRegistrations, true, incremental,
+        incremental ? lastStitchedGraph : StitchedGraph.EMPTY, Collections.emptyMap()))
+        .doOnSuccess(this::setLastStitchedGraph)
+        .map(StitchedGraph::getRuntimeGraph);
+  }
+
+  /**
+   * Rebuild the {@link RuntimeGraph} of the gateway from the registrations of a {@link SchemaSnapshot}. GRAPHQL
+   * services with a schema in the snapshot are not introspected, the other registrations are built as on {@link
+   * #rebuild(Flux, boolean)}.
+   *
+   * @param serviceRegistrations Flux of {@link ServiceRegistration}
+   * @param introspectedSchemas schemas of GRAPHQL services, by registration
+   * @return Stitched/Merged graphql orchestrator instance to be used to make queries
+   */
+  public Mono<RuntimeGraph> restore(Flux<ServiceRegistration> serviceRegistrations,
+      Map<ServiceRegistration, String> introspectedSchemas) {
+    return Mono.defer(() -> build(serviceRegistrations, true, false, StitchedGraph.EMPTY, introspectedSchemas))
+        .doOnSuccess(this::setLastStitchedGraph)
+        .map(StitchedGraph::getRuntimeGraph);
+  }
+
+  /**
+   * @param runtimeGraph a graph returned by {@link #rebuild(Flux, boolean)} or {@link #restore(Flux, Map)}
+   * @return the service providers the graph was stitched from, by registration, or none if another graph was rebuilt
+   * since
+   */
+  public Map<ServiceRegistration, ServiceProvider> getServiceProviders(RuntimeGraph runtimeGraph) {
+    final StitchedGraph last = lastStitchedGraph;
+    return last.runtimeGraph == runtimeGraph ? Collections.unmodifiableMap(last.providers) : Collections.emptyMap();
+  }
+
+  private void setLastStitchedGraph(final StitchedGraph stitchedGraph) {
+    serviceProviderCache.replaceAll(stitchedGraph.providers);
+    lastStitchedGraph = stitchedGraph;
+  }
+
+  private Mono<StitchedGraph> build(Flux<ServiceRegistration> serviceRegistrations, boolean s3Registration,
+      boolean reuseProviders, StitchedGraph last, Map<ServiceRegistration, String> introspectedSchemas) {
     return TxProvider.embeddedTx().flatMap(tx -> {
       SubtaskContext subtaskContext = ContextFactory.getSubtaskContext("Stitching schemas");
       return Flux.defer(() -> serviceRegistrations)
           .doOnSubscribe(x -> EventLogger.subtaskStart(log, tx, subtaskContext))
-          .doOnNext(serviceRegistration -> EventLogger
-              .info(log, tx, "Registering provider",
-                  ImmutableLogNameValuePair.of("namespace", serviceRegistration.getServiceDefinition().getNamespace())))
-          .parallel()
-          .runOn(Schedulers.elastic()) // use thread pool since we can't block on a netty thread
-          .map(serviceRegistration -> serviceBuilder.buildService(tx, serviceRegistration))
-          .sequential()
-          .onErrorContinue(Predicates.isSkippableRegistrationError(s3Registration), (t, o) -> EventLogger.error(log, tx, "Ignoring provider", t))
-          .reduce(SchemaStitcher.newBuilder(), SchemaStitcher.Builder::service)
-          .map(builder -> builder.batchLoaderHooks(batchLoaderExecutionHooks)
-              .build()
-              .stitchGraph()
-          )
-          .doOnSuccess(x -> EventLogger.info(log, tx, "Schema stitch ok"))
+          .doOnNext(serviceRegistration -> EventLogger.info(log, tx, "Registering provider",
+              ImmutableLogNameValuePair.of("namespace", serviceRegistration.getServiceDefinition().getNamespace())))
+          .flatMap(serviceRegistration -> Mono.defer(() -> {
+            final ServiceProvider cached = reuseProviders ? serviceProviderCache.get(serviceRegistration) : null;
+            if (cached != null) {
+              return Mono.just(cached);
+            }
+            final String introspectedSchema = introspectedSchemas.get(serviceRegistration);
+            return introspectedSchema != null
+                ? serviceBuilder.build(tx, serviceRegistration, introspectedSchema)
+                : serviceBuilder.build(tx, serviceRegistration);
+          })
+              .map(serviceProvider -> Tuples.of(serviceRegistration, serviceProvider))
+              .onErrorResume(Predicates.isSkippableRegistrationError(s3Registration), t -> {
+                EventLogger.error(log, tx, "Ignoring provider", t);
+                return Mono.empty();
+              }), webClientProperties.getIntrospection().getMaxConcurrency())
+          .collectMap(Tuple2::getT1, Tuple2::getT2, LinkedHashMap::new)
+          // stitch off the http client threads
+          .publishOn(Schedulers.parallel())
+          .map(providers -> {
+            if (last.runtimeGraph != null && providers.keySet().equals(last.providers.keySet())) {
+              EventLogger.info(log, tx, "Registrations unchanged, schema not stitched");
+              return last;
+            }
+            final SchemaStitcher.Builder builder = SchemaStitcher.newBuilder();
+            providers.values().forEach(builder::service);
+            final RuntimeGraph runtimeGraph = builder.batchLoaderHooks(batchLoaderExecutionHooks)
+                .build()
+                .stitchGraph();
+            EventLogger.info(log, tx, "Schema stitch ok");
+            return new StitchedGraph(providers, runtimeGraph);
+          })
           .doOnError(err -> EventLogger.error(log, tx, "Error stitching schemas", err))
           .doFinally(x -> EventLogger.subtaskEnd(log, tx, subtaskContext));
     });
   }
+
+  /**
+   * A stitched graph with the service providers it was stitched from, by registration.
+   */
+  private static final class StitchedGraph {
+
+    private static final StitchedGraph EMPTY = new StitchedGraph(Collections.emptyMap(), null);
+
+    private final Map<ServiceRegistration, ServiceProvider> providers;
+    private final RuntimeGraph runtimeGraph;
+
+    private StitchedGraph(final Map<ServiceRegistration, ServiceProvider> providers, final RuntimeGraph runtimeGraph) {
+      this.providers = providers;
+      this.runtimeGraph = runtimeGraph;
+    }
+
+    private RuntimeGraph getRuntimeGraph() {
+      return runtimeGraph;
+    }
+  }
 }
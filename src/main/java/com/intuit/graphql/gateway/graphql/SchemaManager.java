@@ -1,50 +1,69 @@
 package com.intuit.graphql.gateway.graphql;
 
 import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import com.intuit.graphql.gateway.logging.EventLogger;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableLogNameValuePair;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationProvider;
 import com.intuit.graphql.gateway.registry.ServiceRegistry;
 import com.intuit.graphql.gateway.webclient.TxProvider;
+import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
+@Slf4j
 public class SchemaManager implements ServiceRegistry {
 
   private final RuntimeGraphBuilder runtimeGraphBuilder;
   private final List<ServiceRegistrationProvider> providers;
   private final ApplicationEventPublisher eventPublisher;
   private final TxProvider txProvider;
+  private final SchemaSnapshot schemaSnapshot;
   private final ConcurrentMap<String, Set<ServiceRegistration>> serviceDefinitionRegistry;
 
   private volatile RuntimeGraph runtimeGraph;
 
   public SchemaManager(final TxProvider txProvider, final RuntimeGraphBuilder runtimeGraphBuilder,
       final List<ServiceRegistrationProvider> providers,
-      final ApplicationEventPublisher eventPublisher) {
+      final ApplicationEventPublisher eventPublisher, final SchemaSnapshot schemaSnapshot) {
     this.txProvider = txProvider;
     this.runtimeGraphBuilder = runtimeGraphBuilder;
     this.providers = providers;
     this.eventPublisher = eventPublisher;
+    this.schemaSnapshot = schemaSnapshot;
     this.serviceDefinitionRegistry = new ConcurrentHashMap<>();
   }
 
+  /**
+   * Builds the graph from the registrations of the registries, or from the {@link SchemaSnapshot} if there is one. A
+   * graph restored from the snapshot is then reconciled with the registries in the background.
+   */
   @PostConstruct
   public void initializeRuntimeGraph() {
     TransactionContext tx = txProvider
         .newTx("REGISTRY-" + UUID.randomUUID().toString());
 
+    if (restoreSnapshot(tx)) {
+      return;
+    }
+
     Flux<ServiceRegistration> serviceRegistrations = Flux.fromIterable(providers)
         .doOnNext(registry -> registry.registerServiceRegistry(this))
         .flatMap(reg -> reg.getInitialServiceRegistrations()
@@ -52,19 +71,89 @@ public class SchemaManager implements ServiceRegistry {
         ).distinct();
 
     Mono.defer(() ->
-        runtimeGraphBuilder.build(serviceRegistrations, true)
+        runtimeGraphBuilder.rebuild(serviceRegistrations, true)
             .doOnSuccess(this::updateRuntimeGraph))
         .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx))
         .block();
   }
 
+  private boolean restoreSnapshot(TransactionContext tx) {
+    final Set<String> registryIds = providers.stream()
+        .map(ServiceRegistrationProvider::getRegistryId)
+        .collect(Collectors.toSet());
+    // registrations of registries that are gone are not restored
+    final List<SchemaSnapshot.Entry> entries = schemaSnapshot.load(tx).stream()
+        .filter(entry -> registryIds.contains(entry.getRegistryId()))
+        .collect(Collectors.toList());
+    if (entries.isEmpty()) {
+      return false;
+    }
+
+    final List<ServiceRegistration> serviceRegistrations = new ArrayList<>(entries.size());
+    final Map<ServiceRegistration, String> introspectedSchemas = new HashMap<>();
+    for (SchemaSnapshot.Entry entry : entries) {
+      final ServiceRegistration serviceRegistration = entry.toServiceRegistration();
+      serviceRegistrations.add(serviceRegistration);
+      if (entry.getIntrospectedSchema() != null) {
+        introspectedSchemas.put(serviceRegistration, entry.getIntrospectedSchema());
+      }
+    }
+
+    try {
+      // the restored graph is not saved again, the snapshot already has its registrations
+      this.runtimeGraph = runtimeGraphBuilder
+          .restore(Flux.fromIterable(serviceRegistrations).distinct(), introspectedSchemas)
+          .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx))
+          .block();
+    } catch (RuntimeException e) {
+      EventLogger.warn(log, tx, "Failed to restore schema snapshot, building from the registries", e);
+      return false;
+    }
+    entries.forEach(entry -> syncServiceRegistration(entry.getRegistryId(), entry.toServiceRegistration()));
+
+    providers.forEach(provider -> provider.registerServiceRegistry(this));
+    reconcile(tx);
+    return true;
+  }
+
+  /**
+   * Replaces the restored registrations of every registry with its current registrations, then builds every
+   * registration again, so GRAPHQL services are introspected again instead of keeping the schema of the snapshot.
+   * Registrations of a registry that cannot be read are kept.
+   */
+  private void reconcile(TransactionContext tx) {
+    Flux.fromIterable(providers)
+        .concatMap(provider -> provider.getInitialServiceRegistrations()
+            .collectList()
+            .doOnNext(serviceRegistrations -> {
+              serviceDefinitionRegistry.remove(provider.getRegistryId());
+              serviceRegistrations.forEach(serviceRegistration ->
+                  syncServiceRegistration(provider.getRegistryId(), serviceRegistration));
+            })
+            .onErrorResume(e -> {
+              EventLogger.warn(log, tx, "Failed to reconcile schema snapshot", e,
+                  ImmutableLogNameValuePair.of("registryId", provider.getRegistryId()));
+              return Mono.empty();
+            }))
+        .then(Mono.defer(() -> runtimeGraphBuilder.rebuild(getCachedRegistrations().distinct(), false)))
+        .doOnNext(this::updateRuntimeGraph)
+        .doOnNext(notUsed -> eventPublisher.publishEvent(GraphQLSchemaChangedEvent.INSTANCE))
+        .doOnNext(notUsed -> EventLogger.info(log, tx, "Reconciled schema snapshot"))
+        .onErrorResume(e -> {
+          EventLogger.warn(log, tx, "Failed to rebuild the graph restored from the schema snapshot", e);
+          return Mono.empty();
+        })
+        .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx))
+        .subscribe();
+  }
+
   public RuntimeGraph getRuntimeGraph() {
     return this.runtimeGraph;
   }
 
   public void rebuildGraph(TransactionContext tx) {
     Mono.defer(() ->
-        runtimeGraphBuilder.build(getCachedRegistrations(), true)
+        runtimeGraphBuilder.rebuild(getCachedRegistrations(), false)
             .doOnSuccess(this::updateRuntimeGraph)
             .doOnSuccess(notUsed -> eventPublisher.publishEvent(GraphQLSchemaChangedEvent.INSTANCE))
     )
@@ -88,6 +177,19 @@ public class SchemaManager implements ServiceRegistry {
 
   private void updateRuntimeGraph(RuntimeGraph newRuntimeGraph) {
     this.runtimeGraph = newRuntimeGraph;
+
+    if (schemaSnapshot.isEnabled()) {
+      // only the registrations the graph was stitched from, not those that failed to build
+      final Map<ServiceRegistration, ServiceProvider> providers = runtimeGraphBuilder
+          .getServiceProviders(newRuntimeGraph);
+      if (providers.isEmpty()) {
+        return;
+      }
+      final Map<String, Set<ServiceRegistration>> registrations = new HashMap<>();
+      serviceDefinitionRegistry.forEach((registryId, serviceRegistrations) ->
+          registrations.put(registryId, new HashSet<>(serviceRegistrations)));
+      schemaSnapshot.saveInBackground(txProvider.newTx(), registrations, providers);
+    }
   }
 
   @Override
@@ -95,15 +197,18 @@ public class SchemaManager implements ServiceRegistry {
     //Remove stale {@link ServiceRegistration}s from cache based on registryId
     serviceDefinitionRegistry.remove(registryId);
 
-    return runtimeGraphBuilder.build(
+    return runtimeGraphBuilder.rebuild(
         Flux.concat(getCachedRegistrations(),
             updatedRegistrations.doOnNext(serviceRegistration ->
                 //Store updated {@link ServiceRegistration} in cache
                 syncServiceRegistration(registryId, serviceRegistration))
         ).distinct(), true
-    ).doOnSuccess(this::updateRuntimeGraph)
+    )
+        // the graph is the same if no registration changed
+        .filter(newRuntimeGraph -> newRuntimeGraph != this.runtimeGraph)
+        .doOnNext(this::updateRuntimeGraph)
         //todo: this is not ideal, there are multiple locations where we publish this event in the same class.
-        .doOnSuccess(notUsed -> eventPublisher.publishEvent(GraphQLSchemaChangedEvent.INSTANCE))
+        .doOnNext(notUsed -> eventPublisher.publishEvent(GraphQLSchemaChangedEvent.INSTANCE))
         .then();
   }
 
@@ -0,0 +1,292 @@
+package com.intuit.graphql.gateway.graphql;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.SchemaSnapshotProperties;
+import com.intuit.graphql.gateway.logging.EventLogger;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableLogNameValuePair;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.provider.IntrospectionServiceProvider;
+import com.intuit.graphql.gateway.registry.RestServiceRegistration;
+import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceRegistration;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Local snapshot of the registrations of the current graph, with the schemas of the introspected services, so that the
+ * gateway can start without waiting for the registries and the services, see {@link SchemaManager}.
+ *
+ * <p>The snapshot is gzip compressed JSON with a format version, configured by {@link SchemaSnapshotProperties}.
+ * Unknown fields are ignored and missing ones take their defaults, so fields added to or removed from {@link
+ * ServiceDefinition} keep older snapshots readable; only a change of {@link #VERSION} discards them. It is written to
+ * a temporary file and then moved in place, and memory mapped on load.
+ */
+@Component
+@Slf4j
+public class SchemaSnapshot {
+
+  static final int VERSION = 1;
+
+  private static final ObjectWriter WRITER = Mapper.mapper().writerFor(Contents.class);
+  private static final ObjectReader READER = Mapper.mapper().readerFor(Contents.class)
+      .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private final SchemaSnapshotProperties properties;
+  // a single thread keeps the saves in order
+  private final Scheduler saveScheduler = Schedulers.newSingle("schema-snapshot", true);
+
+  public SchemaSnapshot(final SchemaSnapshotProperties properties) {
+    this.properties = properties;
+    if (properties.isEnabled() && StringUtils.isBlank(properties.getPath())) {
+      log.warn("Schema snapshot is enabled but has no path, not using it");
+    }
+  }
+
+  /**
+   * @return true if the snapshot is enabled and has a path
+   */
+  public boolean isEnabled() {
+    return properties.isEnabled() && StringUtils.isNotBlank(properties.getPath());
+  }
+
+  /**
+   * Writes the registrations without blocking, see {@link #save(TransactionContext, Map, Map)}.
+   */
+  public void saveInBackground(final TransactionContext tx, final Map<String, Set<ServiceRegistration>> registrations,
+      final Map<ServiceRegistration, ServiceProvider> providers) {
+    if (!isEnabled()) {
+      return;
+    }
+    Mono.fromRunnable(() -> save(tx, registrations, providers))
+        .subscribeOn(saveScheduler)
+        .subscribe();
+  }
+
+  @PreDestroy
+  public void dispose() {
+    saveScheduler.dispose();
+  }
+
+  /**
+   * Writes the registrations, by registry ID, that the graph was stitched from to the snapshot. Registrations without
+   * a provider in the graph, e.g. those that failed to build, are not saved. Schemas of introspected services are taken
+   * from their providers.
+   *
+   * @param registrations the registrations by registry ID
+   * @param providers the service providers of the graph, by registration
+   */
+  public void save(final TransactionContext tx, final Map<String, Set<ServiceRegistration>> registrations,
+      final Map<ServiceRegistration, ServiceProvider> providers) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final List<Entry> entries = new ArrayList<>();
+    registrations.forEach((registryId, serviceRegistrations) -> serviceRegistrations.stream()
+        .filter(providers::containsKey)
+        .forEach(serviceRegistration -> entries.add(new Entry(registryId, serviceRegistration,
+            getIntrospectedSchema(serviceRegistration, providers.get(serviceRegistration))))));
+
+    final Path path = Paths.get(properties.getPath()).toAbsolutePath();
+    Path tmp = null;
+    try {
+      Files.createDirectories(path.getParent());
+      tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+      try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+        WRITER.writeValue(out, new Contents(VERSION, entries));
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      EventLogger.info(log, tx, "Saved schema snapshot", ImmutableLogNameValuePair.of("path", path.toString()),
+          ImmutableLogNameValuePair.of("registrations", entries.size()));
+    } catch (IOException | RuntimeException e) {
+      EventLogger.warn(log, tx, "Failed to save schema snapshot", e,
+          ImmutableLogNameValuePair.of("path", path.toString()));
+    } finally {
+      deleteQuietly(tmp);
+    }
+  }
+
+  /**
+   * @return the registrations of the snapshot, none if there is no snapshot or it cannot be read
+   */
+  public List<Entry> load(final TransactionContext tx) {
+    if (!isEnabled()) {
+      return Collections.emptyList();
+    }
+    final Path path = Paths.get(properties.getPath()).toAbsolutePath();
+    if (!Files.isRegularFile(path)) {
+      EventLogger.info(log, tx, "No schema snapshot, building from the registries",
+          ImmutableLogNameValuePair.of("path", path.toString()));
+      return Collections.emptyList();
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final InputStream mapped = new ByteBufInputStream(
+          Unpooled.wrappedBuffer(channel.map(MapMode.READ_ONLY, 0, channel.size())));
+      try (InputStream in = new GZIPInputStream(mapped)) {
+        final Contents contents = READER.readValue(in);
+        if (contents.version != VERSION) {
+          EventLogger.warn(log, tx, "Ignoring schema snapshot of another version, building from the registries",
+              ImmutableLogNameValuePair.of("path", path.toString()),
+              ImmutableLogNameValuePair.of("version", contents.version));
+          return Collections.emptyList();
+        }
+        EventLogger.info(log, tx, "Loaded schema snapshot", ImmutableLogNameValuePair.of("path", path.toString()),
+            ImmutableLogNameValuePair.of("registrations", contents.entries.size()));
+        return contents.entries;
+      }
+    } catch (IOException | RuntimeException e) {
+      EventLogger.warn(log, tx, "Failed to load schema snapshot, building from the registries", e,
+          ImmutableLogNameValuePair.of("path", path.toString()));
+      return Collections.emptyList();
+    }
+  }
+
+  private static String getIntrospectedSchema(final ServiceRegistration serviceRegistration,
+      final ServiceProvider serviceProvider) {
+    if (serviceRegistration instanceof SdlServiceRegistration
+        || serviceRegistration instanceof RestServiceRegistration) {
+      return null;
+    }
+    return serviceProvider.sdlFiles().get(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME);
+  }
+
+  private static void deleteQuietly(final Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.debug("Failed to delete {}", path, e);
+    }
+  }
+
+  /**
+   * The content of the snapshot file.
+   */
+  private static final class Contents {
+
+    @JsonProperty
+    private final int version;
+    @JsonProperty
+    private final List<Entry> entries;
+
+    @JsonCreator
+    private Contents(@JsonProperty("version") final int version, @JsonProperty("entries") final List<Entry> entries) {
+      this.version = version;
+      this.entries = entries == null ? Collections.emptyList() : entries;
+    }
+  }
+
+  /**
+   * A registration of the snapshot.
+   */
+  public static final class Entry {
+
+    @JsonProperty
+    private final String registryId;
+    @JsonProperty
+    private final Kind kind;
+    @JsonProperty
+    private final ServiceDefinition serviceDefinition;
+    @JsonProperty
+    private final Map<String, String> graphqlResources;
+    @JsonProperty
+    private final Map<String, String> flowResources;
+    @JsonProperty
+    private final String introspectedSchema;
+
+    Entry(final String registryId, final ServiceRegistration serviceRegistration, final String introspectedSchema) {
+      this.registryId = registryId;
+      this.serviceDefinition = serviceRegistration.getServiceDefinition();
+      if (serviceRegistration instanceof SdlServiceRegistration) {
+        this.kind = Kind.SDL;
+        this.graphqlResources = ((SdlServiceRegistration) serviceRegistration).getGraphqlResources();
+        this.flowResources = null;
+      } else if (serviceRegistration instanceof RestServiceRegistration) {
+        this.kind = Kind.REST;
+        this.graphqlResources = ((RestServiceRegistration) serviceRegistration).getGraphqlResources();
+        this.flowResources = ((RestServiceRegistration) serviceRegistration).getFlowResources();
+      } else {
+        this.kind = Kind.INTROSPECTION;
+        this.graphqlResources = null;
+        this.flowResources = null;
+      }
+      this.introspectedSchema = introspectedSchema;
+    }
+
+    @JsonCreator
+    private Entry(@JsonProperty("registryId") final String registryId, @JsonProperty("kind") final Kind kind,
+        @JsonProperty("serviceDefinition") final ServiceDefinition serviceDefinition,
+        @JsonProperty("graphqlResources") final Map<String, String> graphqlResources,
+        @JsonProperty("flowResources") final Map<String, String> flowResources,
+        @JsonProperty("introspectedSchema") final String introspectedSchema) {
+      this.registryId = registryId;
+      this.kind = kind;
+      this.serviceDefinition = serviceDefinition;
+      this.graphqlResources = graphqlResources;
+      this.flowResources = flowResources;
+      this.introspectedSchema = introspectedSchema;
+    }
+
+    public String getRegistryId() {
+      return registryId;
+    }
+
+    /**
+     * @return the introspected schema of a GRAPHQL service, or null
+     */
+    public String getIntrospectedSchema() {
+      return introspectedSchema;
+    }
+
+    public ServiceRegistration toServiceRegistration() {
+      switch (kind) {
+        case SDL:
+          return SdlServiceRegistration.builder().serviceDefinition(serviceDefinition)
+              .graphqlResources(graphqlResources).build();
+        case REST:
+          return RestServiceRegistration.builder().serviceDefinition(serviceDefinition)
+              .graphqlResources(graphqlResources).flowResources(flowResources).build();
+        default:
+          return ServiceRegistration.baseBuilder().serviceDefinition(serviceDefinition).build();
+      }
+    }
+
+    private enum Kind {
+      INTROSPECTION, SDL, REST
+    }
+  }
+}
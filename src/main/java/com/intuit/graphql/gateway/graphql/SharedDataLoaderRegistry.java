@@ -0,0 +1,24 @@
+package com.intuit.graphql.gateway.graphql;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.dataloader.DataLoaderRegistry;
+
+/**
+ * A {@link DataLoaderRegistry} shared by several executions, e.g. the operations of a batched request. Put into the
+ * {@link graphql.GraphQLContext} of each execution, keyed by this class, to have {@link GraphqlGatewayExecutor} use it
+ * instead of a registry of their own. The registry is created by the first execution.
+ */
+public class SharedDataLoaderRegistry {
+
+  private final AtomicReference<DataLoaderRegistry> dataLoaderRegistry = new AtomicReference<>();
+
+  DataLoaderRegistry get(final Supplier<DataLoaderRegistry> newDataLoaderRegistry) {
+    final DataLoaderRegistry current = dataLoaderRegistry.get();
+    if (current != null) {
+      return current;
+    }
+    dataLoaderRegistry.compareAndSet(null, newDataLoaderRegistry.get());
+    return dataLoaderRegistry.get();
+  }
+}
@@ -2,10 +2,19 @@ package com.intuit.graphql.gateway.graphql;
 
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.intuit.graphql.gateway.metrics.DownstreamCallEvent;
 import com.intuit.graphql.gateway.metrics.ExecutionMetrics.ExecutionMetricsData;
+import com.intuit.graphql.gateway.provider.ServiceProviderHelper;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationException;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
+import com.intuit.graphql.gateway.webclient.ContentEncodings;
+import com.intuit.graphql.gateway.webclient.HedgingPolicy;
+import com.intuit.graphql.gateway.webclient.JsonBodyInserters;
+import com.intuit.graphql.gateway.webclient.NonBlockingJsonDecoder;
 import com.intuit.graphql.gateway.webclient.RequestType;
 import com.intuit.graphql.gateway.Mapper;
 import com.intuit.graphql.gateway.webfilter.RequestLoggingExchangeFilter;
@@ -14,6 +23,10 @@ import graphql.ExecutionInput;
 import graphql.GraphQLContext;
 import graphql.language.AstPrinter;
 import graphql.language.Document;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
@@ -21,25 +34,100 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.context.Context;
 
+/**
+ * Sends downstream queries to the endpoint of a GraphQL service. Request bodies are serialized straight into the
+ * buffers of the request, see {@link JsonBodyInserters#fromJson(Object)}, and responses are parsed while they
+ * arrive, see {@link NonBlockingJsonDecoder}.
+ *
+ * <p>If {@link ServiceDefinition#isCoalesceRequests()} is set, identical query operations that are in flight at the
+ * same time share a single downstream call. Requests are identical when their query, variables and forwarded headers
+ * are equal. Mutations are never coalesced. Collapsed calls are counted in {@value #COALESCED_METRIC_NAME}.
+ *
+ * <p>If {@link ServiceDefinition#getCompression()} is set, request bodies of at least {@link
+ * ServiceDefinition#getCompressionMinSize()} bytes are compressed and gzip or deflate coded responses are accepted.
+ * The bytes saved are counted in {@value #COMPRESSION_SAVED_METRIC_NAME}, tagged with the direction {@code request}
+ * or {@code response}.
+ *
+ * <p>If a {@link CircuitBreaker} is given, calls are only sent while it permits them. Calls that fail, time out or get
+ * a server error response count as failed. Calls it rejects fail with a {@link CircuitBreakerOpenException} and are
+ * counted in {@value #CIRCUIT_BREAKER_NOT_PERMITTED_METRIC_NAME}.
+ *
+ * <p>If a {@link ConcurrencyLimiter} is given, calls over its limit wait for a turn. The limiter learns from the
+ * response times of the calls, as measured by their {@link DownstreamCallEvent}. Calls it rejects fail with a {@link
+ * ConcurrencyLimitExceededException}. The circuit breaker is checked before the limit.
+ *
+ * <p>If {@link ServiceDefinition#getHedging()} is enabled, a query operation that got no response after the delay of
+ * its {@link HedgingPolicy} is sent a second time. The first response is used and the other call is cancelled. Hedges
+ * sent are counted in {@value #HEDGE_METRIC_NAME}{@code .fired}, hedges that responded first in {@code .won}.
+ */
 @Slf4j
 public class WebClientQueryExecutor implements QueryExecutor {
 
+  static final String COALESCED_METRIC_NAME = "graphql.downstream.requests.coalesced";
+  static final String COMPRESSION_SAVED_METRIC_NAME = "graphql.downstream.compression.saved";
+  static final String HEDGE_METRIC_NAME = "graphql.downstream.hedge";
+  static final String CIRCUIT_BREAKER_NOT_PERMITTED_METRIC_NAME = "graphql.downstream.circuitbreaker.not.permitted";
+
+  private static final TypeReference<Map<String, Object>> RESPONSE_TYPE_REFERENCE =
+      new TypeReference<Map<String, Object>>() {
+      };
+
   private final WebClient webClient;
   private final ServiceDefinition serviceDefinition;
+  private final ConcurrentMap<InFlightRequest, Mono<byte[]>> inFlightRequests = new ConcurrentHashMap<>();
+  private final Counter coalescedRequests;
+  private final Counter requestBytesSaved;
+  private final Counter responseBytesSaved;
+  private final CircuitBreaker circuitBreaker;
+  private final Counter notPermittedCalls;
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final HedgingPolicy hedgingPolicy;
+  private final Counter hedgesFired;
+  private final Counter hedgesWon;
 
   public WebClientQueryExecutor(final WebClient webClient,
       final ServiceDefinition serviceDefinition) {
+    this(webClient, serviceDefinition, null, null);
+  }
+
+  /**
+   * @param circuitBreaker the breaker of the namespace of the service, or {@code null} to always send calls
+   * @param concurrencyLimiter the limiter of the namespace of the service, or {@code null} to not limit calls
+   */
+  public WebClientQueryExecutor(final WebClient webClient,
+      final ServiceDefinition serviceDefinition, final CircuitBreaker circuitBreaker,
+      final ConcurrencyLimiter concurrencyLimiter) {
+    this(webClient, serviceDefinition, circuitBreaker, concurrencyLimiter, Metrics.globalRegistry);
+  }
+
+  WebClientQueryExecutor(final WebClient webClient,
+      final ServiceDefinition serviceDefinition, final MeterRegistry meterRegistry) {
+    this(webClient, serviceDefinition, null, null, meterRegistry);
+  }
+
+  WebClientQueryExecutor(final WebClient webClient,
+      final ServiceDefinition serviceDefinition, final CircuitBreaker circuitBreaker,
+      final ConcurrencyLimiter concurrencyLimiter, final MeterRegistry meterRegistry) {
 
     if (StringUtils.isBlank(serviceDefinition.getEndpoint())) {
       throw new ServiceRegistrationException(
@@ -50,6 +138,42 @@ public class WebClientQueryExecutor implements QueryExecutor {
 
     this.webClient = webClient;
     this.serviceDefinition = serviceDefinition;
+    this.coalescedRequests = serviceDefinition.isCoalesceRequests()
+        ? Counter.builder(COALESCED_METRIC_NAME).tag("namespace", serviceDefinition.getNamespace())
+            .register(meterRegistry)
+        : null;
+    this.requestBytesSaved = serviceDefinition.getCompression() != Compression.NONE
+        ? newCompressionSavedCounter("request", meterRegistry)
+        : null;
+    this.responseBytesSaved = serviceDefinition.getCompression() != Compression.NONE
+        ? newCompressionSavedCounter("response", meterRegistry)
+        : null;
+    this.circuitBreaker = circuitBreaker;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.notPermittedCalls = circuitBreaker != null
+        ? Counter.builder(CIRCUIT_BREAKER_NOT_PERMITTED_METRIC_NAME)
+            .tag("namespace", serviceDefinition.getNamespace())
+            .register(meterRegistry)
+        : null;
+    this.hedgingPolicy = serviceDefinition.getHedging().isEnabled()
+        ? new HedgingPolicy(serviceDefinition.getHedging())
+        : null;
+    this.hedgesFired = hedgingPolicy != null ? newHedgeCounter("fired", meterRegistry) : null;
+    this.hedgesWon = hedgingPolicy != null ? newHedgeCounter("won", meterRegistry) : null;
+  }
+
+  private Counter newHedgeCounter(final String outcome, final MeterRegistry meterRegistry) {
+    return Counter.builder(HEDGE_METRIC_NAME + "." + outcome)
+        .tag("namespace", serviceDefinition.getNamespace())
+        .register(meterRegistry);
+  }
+
+  private Counter newCompressionSavedCounter(final String direction, final MeterRegistry meterRegistry) {
+    return Counter.builder(COMPRESSION_SAVED_METRIC_NAME)
+        .baseUnit("bytes")
+        .tag("namespace", serviceDefinition.getNamespace())
+        .tag("direction", direction)
+        .register(meterRegistry);
   }
 
   @Override
@@ -60,34 +184,123 @@ public class WebClientQueryExecutor implements QueryExecutor {
       log.debug(AstPrinter.printAstCompact((Document) executionInput.getRoot()));
     }
 
-    return Mono.defer(() -> executeDataRequest(executionInput, serviceDefinition, context))
+    final boolean query = (coalescedRequests != null || hedgingPolicy != null)
+        && ServiceProviderHelper.isQuery(executionInput);
+    if (coalescedRequests != null && query) {
+      return Mono.defer(() -> executeCoalescedDataRequest(executionInput, context))
+          .subscriberContext(context.getOrDefault(Context.class, Context.empty()))
+          .toFuture();
+    }
+
+    return Mono.defer(() -> hedgingPolicy != null && query
+        ? hedgingPolicy.hedge(() -> executeDecodedDataRequest(executionInput, context), hedgesFired::increment,
+            hedgesWon::increment)
+        : executeDecodedDataRequest(executionInput, context))
         .subscriberContext(context.getOrDefault(Context.class, Context.empty()))
+        .toFuture();
+  }
+
+  private Mono<Map<String, Object>> executeDecodedDataRequest(final ExecutionInput executionInput,
+      final GraphQLContext context) {
+    return executeDataRequest(executionInput, serviceDefinition, context)
         .flatMap(response -> response.statusCode().isError()
             ? Mono.error(new DataRetrieverException(response.statusCode().getReasonPhrase()))
-            : response.bodyToMono(GraphQLRequest.SPECIFICATION_TYPE_REFERENCE))
-        .toFuture();
+            : NonBlockingJsonDecoder.decodeToMap(getResponseBody(response),
+                NonBlockingJsonDecoder.getMaxInMemorySize(response.strategies())));
+  }
+
+  /**
+   * Joins the identical request in flight, if any, otherwise executes the request and shares its response body with
+   * the identical requests that arrive before it completes. Each caller gets its own deserialized copy of the body.
+   */
+  private Mono<Map<String, Object>> executeCoalescedDataRequest(final ExecutionInput executionInput,
+      final GraphQLContext graphQLContext) {
+
+    final Map<String, Object> body = createRequestBody(executionInput);
+    final Map<String, List<String>> headers = getForwardedHeaders(serviceDefinition, graphQLContext);
+    final InFlightRequest inFlightRequest = new InFlightRequest(body, headers);
+
+    final boolean[] leader = new boolean[1];
+    final Mono<byte[]> response = inFlightRequests.computeIfAbsent(inFlightRequest, key -> {
+      leader[0] = true;
+      final Supplier<Mono<byte[]>> call = () -> executeDataRequest(body, headers, serviceDefinition, graphQLContext)
+          .flatMap(clientResponse -> clientResponse.statusCode().isError()
+              ? Mono.error(new DataRetrieverException(clientResponse.statusCode().getReasonPhrase()))
+              : DataBufferUtils.join(getResponseBody(clientResponse),
+                  NonBlockingJsonDecoder.getMaxInMemorySize(clientResponse.strategies()))
+                  .map(ContentEncodings::toByteArray));
+      final AtomicReference<Mono<byte[]>> cached = new AtomicReference<>();
+      // only removes this request, an identical request may be in flight under the same key once it completed
+      cached.set((hedgingPolicy != null
+          ? hedgingPolicy.hedge(call, hedgesFired::increment, hedgesWon::increment)
+          : call.get())
+          .doFinally(signalType -> inFlightRequests.remove(key, cached.get()))
+          .cache());
+      return cached.get();
+    });
+    if (!leader[0]) {
+      coalescedRequests.increment();
+    }
+
+    return response.map(bytes -> {
+      try {
+        return Mapper.mapper().readValue(bytes, RESPONSE_TYPE_REFERENCE);
+      } catch (IOException e) {
+        throw new DataRetrieverException("Failed to read downstream query response from " +
+            this.serviceDefinition.getEndpoint(), e);
+      }
+    });
+  }
+
+  /**
+   * @return the decompressed body of the response. The bytes saved by compression are counted once it is read.
+   */
+  private Flux<DataBuffer> getResponseBody(final ClientResponse response) {
+    final Flux<DataBuffer> body = response.body(BodyExtractors.toDataBuffers());
+    final String contentEncoding = response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+    if (contentEncoding == null) {
+      return body;
+    }
+    if (responseBytesSaved == null) {
+      return ContentEncodings.decompress(body, contentEncoding);
+    }
+
+    return Flux.defer(() -> {
+      final AtomicLong compressedSize = new AtomicLong();
+      final AtomicLong size = new AtomicLong();
+      return ContentEncodings
+          .decompress(body.doOnNext(buffer -> compressedSize.addAndGet(buffer.readableByteCount())), contentEncoding)
+          .doOnNext(buffer -> size.addAndGet(buffer.readableByteCount()))
+          .doOnComplete(() -> responseBytesSaved.increment(Math.max(0, size.get() - compressedSize.get())));
+    });
   }
 
   private Mono<ClientResponse> executeDataRequest(final ExecutionInput executionInput,
       final ServiceDefinition serviceDefinition, final GraphQLContext graphQLContext) {
+    return executeDataRequest(createRequestBody(executionInput), getForwardedHeaders(serviceDefinition, graphQLContext),
+        serviceDefinition, graphQLContext);
+  }
 
+  private static Map<String, Object> createRequestBody(final ExecutionInput executionInput) {
     Map<String, Object> bodyMap = new HashMap<>();
     bodyMap.put("query", executionInput.getQuery());
     bodyMap.put("variables", executionInput.getVariables());
+    return bodyMap;
+  }
 
-    String graphqlQueryStr;
-    try {
-      graphqlQueryStr = Mapper.mapper().writeValueAsString(bodyMap);
-    } catch (JsonProcessingException e) {
-      throw new DataRetrieverException("Failed to craft downstream query request for " +
-          this.serviceDefinition.getEndpoint(), e);
-    }
-
+  private static Map<String, List<String>> getForwardedHeaders(final ServiceDefinition serviceDefinition,
+      final GraphQLContext graphQLContext) {
     Map<String, List<String>> headers = new HashMap<>();
     Optional<ServerRequest> serverRequest = graphQLContext.getOrEmpty(ServerRequest.class);
 
     serverRequest.ifPresent(sr -> serviceDefinition.getForwardHeaders()
         .forEach(key -> headers.computeIfAbsent(key, sr.headers().asHttpHeaders()::get)));
+    return headers;
+  }
+
+  private Mono<ClientResponse> executeDataRequest(final Map<String, Object> body,
+      final Map<String, List<String>> headers, final ServiceDefinition serviceDefinition,
+      final GraphQLContext graphQLContext) {
 
     Map<String, Object> hints = new HashMap<>(2);
     hints.put("requestType", RequestType.QUERY);
@@ -96,14 +309,22 @@ public class WebClientQueryExecutor implements QueryExecutor {
     DownstreamCallEvent downstreamCallEvent = new DownstreamCallEvent(serviceDefinition.getNamespace(),
         serviceDefinition.getAppId());
 
-    return webClient
+    final Mono<ClientResponse> request = webClient
         .post()
         .uri(this.serviceDefinition.getEndpoint())
         .attribute(RequestLoggingExchangeFilter.REQUEST_LOGGING_HINTS, hints)
         .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-        .headers(httpHeaders -> httpHeaders.putAll(headers))
-        .syncBody(graphqlQueryStr)
+        .headers(httpHeaders -> {
+          httpHeaders.putAll(headers);
+          if (serviceDefinition.getCompression() != Compression.NONE) {
+            httpHeaders.set(HttpHeaders.ACCEPT_ENCODING, ContentEncodings.ACCEPT_ENCODING);
+          }
+        })
+        .body(JsonBodyInserters.fromJson(body, serviceDefinition.getCompression(),
+            serviceDefinition.getCompressionMinSize(), bytesSaved -> requestBytesSaved.increment(bytesSaved)))
         .exchange()
+        .onErrorMap(JsonProcessingException.class, e -> new DataRetrieverException(
+            "Failed to craft downstream query request for " + this.serviceDefinition.getEndpoint(), e))
         .timeout(Duration.ofMillis(serviceDefinition.getTimeout()))
         .doOnSubscribe(subscription -> downstreamCallEvent.getEventStopWatch().start())
         .doOnError(throwable -> {
@@ -115,6 +336,46 @@ public class WebClientQueryExecutor implements QueryExecutor {
         .doFinally(signalType -> {
           completeDownstreamCallEvent(downstreamCallEvent, graphQLContext);
         });
+    final Mono<ClientResponse> limitedRequest = concurrencyLimiter != null
+        ? withConcurrencyLimit(request, downstreamCallEvent)
+        : request;
+    return circuitBreaker != null ? withCircuitBreaker(limitedRequest) : limitedRequest;
+  }
+
+  private Mono<ClientResponse> withConcurrencyLimit(final Mono<ClientResponse> request,
+      final DownstreamCallEvent downstreamCallEvent) {
+    return concurrencyLimiter.acquire()
+        .switchIfEmpty(Mono.error(() -> new ConcurrencyLimitExceededException(serviceDefinition.getNamespace())))
+        .flatMap(permit -> request
+            .doOnNext(response -> permit.onSuccess(downstreamCallEvent.getEventStopWatch().getElapsedNanos()))
+            .doOnError(throwable -> {
+              if (throwable instanceof TimeoutException) {
+                permit.onDropped();
+              } else {
+                permit.release();
+              }
+            })
+            .doOnCancel(permit::release));
+  }
+
+  private Mono<ClientResponse> withCircuitBreaker(final Mono<ClientResponse> request) {
+    return Mono.defer(() -> {
+      final CircuitBreaker.Permit permit = circuitBreaker.tryAcquirePermission();
+      if (permit == null) {
+        notPermittedCalls.increment();
+        return Mono.error(new CircuitBreakerOpenException(serviceDefinition.getNamespace()));
+      }
+      return request
+          .doOnNext(response -> {
+            if (response.statusCode().is5xxServerError()) {
+              permit.onError();
+            } else {
+              permit.onSuccess();
+            }
+          })
+          .doOnError(throwable -> permit.onError())
+          .doOnCancel(permit::release);
+    });
   }
 
   private void completeDownstreamCallEvent(DownstreamCallEvent downstreamCallEvent, GraphQLContext graphQLContext) {
@@ -124,4 +385,35 @@ public class WebClientQueryExecutor implements QueryExecutor {
       executionMetricsData.addDownstreamCallEvent(downstreamCallEvent);
     }
   }
+
+  /**
+   * A downstream request as sent to the endpoint of this executor.
+   */
+  private static final class InFlightRequest {
+
+    private final Map<String, Object> body;
+    private final Map<String, List<String>> headers;
+
+    private InFlightRequest(final Map<String, Object> body, final Map<String, List<String>> headers) {
+      this.body = body;
+      this.headers = headers;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof InFlightRequest)) {
+        return false;
+      }
+      InFlightRequest that = (InFlightRequest) o;
+      return body.equals(that.body) && headers.equals(that.headers);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(body, headers);
+    }
+  }
 }
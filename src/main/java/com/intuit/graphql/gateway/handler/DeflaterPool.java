@@ -0,0 +1,49 @@
+package com.intuit.graphql.gateway.handler;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+
+/**
+ * Keeps idle {@link Deflater}s for reuse, since each allocates native zlib memory and a new deflater per response is
+ * costly. Deflaters are pooled per compression level and format.
+ */
+class DeflaterPool {
+
+  private final int maxIdle;
+  private final ConcurrentMap<Integer, Queue<Deflater>> idle = new ConcurrentHashMap<>();
+
+  DeflaterPool(final int maxIdle) {
+    this.maxIdle = Math.max(1, maxIdle);
+  }
+
+  /**
+   * @param level the compression level
+   * @param nowrap whether to write raw deflate data, as used by gzip, instead of the zlib format
+   * @return an idle deflater, or a new one if there is none
+   */
+  Deflater acquire(final int level, final boolean nowrap) {
+    final Deflater deflater = getIdle(level, nowrap).poll();
+    return deflater != null ? deflater : new Deflater(level, nowrap);
+  }
+
+  /**
+   * Resets the deflater for the next response, or frees it if the pool is full.
+   */
+  void release(final Deflater deflater, final int level, final boolean nowrap) {
+    deflater.reset();
+    if (!getIdle(level, nowrap).offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  int idleCount() {
+    return idle.values().stream().mapToInt(Queue::size).sum();
+  }
+
+  private Queue<Deflater> getIdle(final int level, final boolean nowrap) {
+    return idle.computeIfAbsent(level * 2 + (nowrap ? 1 : 0), key -> new ArrayBlockingQueue<>(maxIdle));
+  }
+}
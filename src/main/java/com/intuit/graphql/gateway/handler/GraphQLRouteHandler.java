@@ -2,23 +2,47 @@ package com.intuit.graphql.gateway.handler;
 
 import static com.intuit.graphql.gateway.graphql.GraphQLRequest.SPECIFICATION_TYPE_REFERENCE;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.BatchingProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseStreamingProperties;
+import com.intuit.graphql.gateway.graphql.GetRequestInstrumentation;
 import com.intuit.graphql.gateway.graphql.GraphQLExecutor;
 import com.intuit.graphql.gateway.graphql.GraphQLRequest;
+import com.intuit.graphql.gateway.graphql.ImmutableGraphQLRequest;
+import com.intuit.graphql.gateway.graphql.SharedDataLoaderRegistry;
 import com.intuit.graphql.gateway.logging.EventLogger;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.persistedquery.PersistedQueryError;
+import com.intuit.graphql.gateway.persistedquery.PersistedQueryManager;
 import graphql.ErrorType;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
 import graphql.GraphQLContext;
 import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.context.Context;
 
@@ -26,31 +50,238 @@ import reactor.util.context.Context;
 @Slf4j
 public class GraphQLRouteHandler {
 
+  private static final TypeReference<HashMap<String, Object>> JSON_OBJECT_TYPE_REFERENCE =
+      new TypeReference<HashMap<String, Object>>() {
+      };
+
+  // clients send fields next to the GraphQL request, e.g. an operation id, which are ignored as by the codecs
+  private static final ObjectReader GRAPHQL_REQUEST_READER = Mapper.mapper().readerFor(GraphQLRequest.class)
+      .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
   private GraphQLExecutor<ExecutionInput> graphQLExecutor;
+  private PersistedQueryManager persistedQueryManager;
+  private ResponseStreamingProperties responseStreamingProperties;
+  private BatchingProperties batchingProperties;
+  private ResponseCacheProperties responseCacheProperties;
 
-  public GraphQLRouteHandler(GraphQLExecutor<ExecutionInput> graphQLExecutor) {
+  public GraphQLRouteHandler(GraphQLExecutor<ExecutionInput> graphQLExecutor,
+      PersistedQueryManager persistedQueryManager, ResponseStreamingProperties responseStreamingProperties,
+      BatchingProperties batchingProperties, ResponseCacheProperties responseCacheProperties) {
     this.graphQLExecutor = graphQLExecutor;
+    this.persistedQueryManager = persistedQueryManager;
+    this.responseStreamingProperties = responseStreamingProperties;
+    this.batchingProperties = batchingProperties;
+    this.responseCacheProperties = responseCacheProperties;
   }
 
+  /**
+   * Handles POST requests, which carry either one request or, if batching is enabled, a JSON array of requests. Only
+   * batches are read into a tree, single requests are read from the body directly.
+   */
   public Mono<ServerResponse> handle(ServerRequest serverRequest) {
+    return Mono.subscriberContext()
+        .flatMap(subscriberContext -> serverRequest.bodyToMono(byte[].class)
+            .doOnError(err -> EventLogger.error(log, subscriberContext.get(TransactionContext.class),
+                "Failed to parse query", err))
+            .flatMap(body -> isBatch(body)
+                ? Mono.fromCallable(() -> readBatch(body))
+                    .doOnError(err -> EventLogger.error(log, subscriberContext.get(TransactionContext.class),
+                        "Failed to parse query", err))
+                    .flatMap(batch -> handleBatch(serverRequest, batch))
+                : handle(serverRequest, Mono.fromCallable(() -> readGraphQLRequest(body)))));
+  }
+
+  /**
+   * @return whether the first non-whitespace character of the JSON body opens an array
+   */
+  static boolean isBatch(byte[] body) {
+    for (byte b : body) {
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+        return b == '[';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Handles GET requests, which carry the request in the {@code query}, {@code operationName}, {@code variables} and
+   * {@code extensions} query parameters. Together with persisted queries this keeps the URL short enough for browsers
+   * and CDNs to cache the response, see {@link #getCacheControl(ServerRequest, GraphQLContext, ExecutionResult)}.
+   */
+  public Mono<ServerResponse> handleGet(ServerRequest serverRequest) {
+    return handle(serverRequest, Mono.fromCallable(() -> fromQueryParams(serverRequest)));
+  }
+
+  private Mono<ServerResponse> handle(ServerRequest serverRequest, Mono<GraphQLRequest> graphQLRequestMono) {
     return Mono.subscriberContext()
         .flatMap(subscriberContext -> {
           TransactionContext tx = subscriberContext.get(TransactionContext.class);
-          return (serverRequest.bodyToMono(GraphQLRequest.class)
+          GraphQLContext graphQLContext = newGraphQLContext(subscriberContext, serverRequest, null);
+          return (graphQLRequestMono
               .doOnError(err -> EventLogger.error(log, tx, "Failed to parse query", err)))
-              .map(graphQLRequest -> this.getExecutionResult(subscriberContext, graphQLRequest, serverRequest))
-              .flatMap(result -> ServerResponse.ok().body(result, SPECIFICATION_TYPE_REFERENCE));
+              .flatMap(graphQLRequest -> persistedQueryManager.resolve(graphQLRequest, tx)
+                  .flatMap(resolved -> this.getExecutionResult(tx, resolved, graphQLContext))
+                  .onErrorResume(PersistedQueryError.class, err -> Mono.just(getErrorResult(err))))
+              .flatMap(executionResult -> toServerResponse(executionResult,
+                  getCacheControl(serverRequest, graphQLContext, executionResult)));
         });
   }
 
-  private Mono<Map<String, Object>> getExecutionResult(final Context subscriberContext,
-      final GraphQLRequest graphQLRequest, final ServerRequest serverRequest) {
-    TransactionContext tx = subscriberContext.get(TransactionContext.class);
+  /**
+   * Executes the operations of a batch concurrently and answers with the array of their results, in the order of the
+   * operations. An operation that fails gets an error result of its own, the other operations are not affected.
+   */
+  private Mono<ServerResponse> handleBatch(ServerRequest serverRequest, JsonNode body) {
+    if (!batchingProperties.isEnabled()) {
+      return Mono.error(new ServerWebInputException("Batched operations are not supported"));
+    }
+    if (body.size() == 0 || body.size() > batchingProperties.getMaxBatchSize()) {
+      return Mono.error(new ServerWebInputException(String.format(
+          "A batch must have between 1 and %d operations", batchingProperties.getMaxBatchSize())));
+    }
+
+    final List<GraphQLRequest> graphQLRequests = new ArrayList<>(body.size());
+    try {
+      for (JsonNode operation : body) {
+        graphQLRequests.add(readGraphQLRequest(operation));
+      }
+    } catch (ServerWebInputException e) {
+      return Mono.error(e);
+    }
 
+    final SharedDataLoaderRegistry sharedDataLoaderRegistry = batchingProperties.isShareDataLoaders()
+        ? new SharedDataLoaderRegistry()
+        : null;
+    return Mono.subscriberContext()
+        .flatMap(subscriberContext -> {
+          TransactionContext tx = subscriberContext.get(TransactionContext.class);
+          return Flux.fromIterable(graphQLRequests)
+              .flatMapSequential(graphQLRequest -> persistedQueryManager.resolve(graphQLRequest, tx)
+                  .flatMap(resolved -> getExecutionResult(tx, resolved,
+                      newGraphQLContext(subscriberContext, serverRequest, sharedDataLoaderRegistry)))
+                  .onErrorResume(PersistedQueryError.class, err -> Mono.just(getErrorResult(err)))
+                  .onErrorResume(err -> Mono.just(getErrorResult(GraphqlErrorBuilder.newError()
+                      .message("Failed to execute query")
+                      .errorType(ErrorType.ExecutionAborted)
+                      .build())))
+                  .map(ExecutionResult::toSpecification), graphQLRequests.size())
+              .collectList();
+        })
+        .flatMap(this::toServerResponse);
+  }
+
+  private GraphQLRequest readGraphQLRequest(JsonNode body) {
+    try {
+      return GRAPHQL_REQUEST_READER.readValue(body);
+    } catch (IOException e) {
+      throw new ServerWebInputException("Invalid GraphQL request", null, e);
+    }
+  }
+
+  private GraphQLRequest readGraphQLRequest(byte[] body) {
+    try {
+      return GRAPHQL_REQUEST_READER.readValue(body);
+    } catch (IOException e) {
+      throw new ServerWebInputException("Invalid GraphQL request", null, e);
+    }
+  }
+
+  private JsonNode readBatch(byte[] body) {
+    try {
+      return Mapper.mapper().readTree(body);
+    } catch (IOException e) {
+      throw new ServerWebInputException("Invalid GraphQL request", null, e);
+    }
+  }
+
+  /**
+   * Streams the result to the client in chunks of the configured flush threshold, see {@link
+   * StreamingJsonBodyInserter}, unless response streaming is disabled.
+   */
+  private Mono<ServerResponse> toServerResponse(ExecutionResult executionResult, CacheControl cacheControl) {
+    final Map<String, Object> specification = executionResult.toSpecification();
+    final ServerResponse.BodyBuilder response = ServerResponse.ok();
+    if (cacheControl != null) {
+      response.cacheControl(cacheControl)
+          .varyBy(responseCacheProperties.getVaryHeaders().toArray(new String[0]));
+    }
+    if (!responseStreamingProperties.isEnabled()) {
+      return response.body(Mono.just(specification), SPECIFICATION_TYPE_REFERENCE);
+    }
+    final int flushThreshold = responseStreamingProperties.getFlushThresholdInKbytes() * 1024;
+    return response
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new StreamingJsonBodyInserter(specification, flushThreshold));
+  }
+
+  /**
+   * GET responses to queries without errors may be cached by browsers and CDNs for the max age of their selected
+   * fields, see {@link GetRequestInstrumentation}, and vary by the headers of the response cache. Other GET responses
+   * are not to be stored.
+   *
+   * @return the {@code Cache-Control} of the response, or {@code null} if it is not a GET request
+   */
+  private CacheControl getCacheControl(ServerRequest serverRequest, GraphQLContext graphQLContext,
+      ExecutionResult executionResult) {
+    if (serverRequest.method() != HttpMethod.GET) {
+      return null;
+    }
+    final Integer maxAge = graphQLContext.get(GetRequestInstrumentation.MAX_AGE_CONTEXT_KEY);
+    if (maxAge == null || maxAge <= 0 || CollectionUtils.isNotEmpty(executionResult.getErrors())
+        || executionResult.getData() == null) {
+      return CacheControl.noStore();
+    }
+    return CacheControl.maxAge(maxAge, TimeUnit.SECONDS);
+  }
+
+  private Mono<ServerResponse> toServerResponse(List<Map<String, Object>> specifications) {
+    if (!responseStreamingProperties.isEnabled()) {
+      return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(specifications);
+    }
+    final int flushThreshold = responseStreamingProperties.getFlushThresholdInKbytes() * 1024;
+    return ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new StreamingJsonBodyInserter(specifications, flushThreshold));
+  }
+
+  private GraphQLRequest fromQueryParams(ServerRequest serverRequest) {
+    return ImmutableGraphQLRequest.builder()
+        .query(serverRequest.queryParam("query").orElse(null))
+        .operationName(serverRequest.queryParam("operationName").orElse(null))
+        .variables(readJsonQueryParam(serverRequest, "variables"))
+        .extensions(readJsonQueryParam(serverRequest, "extensions"))
+        .build();
+  }
+
+  private HashMap<String, Object> readJsonQueryParam(ServerRequest serverRequest, String name) {
+    Optional<String> value = serverRequest.queryParam(name);
+    if (!value.isPresent()) {
+      return null;
+    }
+    try {
+      return Mapper.mapper().readValue(value.get(), JSON_OBJECT_TYPE_REFERENCE);
+    } catch (IOException e) {
+      throw new ServerWebInputException("Invalid JSON in query parameter " + name, null, e);
+    }
+  }
+
+  private ExecutionResult getErrorResult(GraphQLError error) {
+    return ExecutionResultImpl.newExecutionResult().addError(error).build();
+  }
+
+  private GraphQLContext newGraphQLContext(final Context subscriberContext, final ServerRequest serverRequest,
+      final SharedDataLoaderRegistry sharedDataLoaderRegistry) {
     GraphQLContext graphQLContext = GraphQLContext.newContext()
         .of(Context.class, subscriberContext)
         .of(ServerRequest.class, serverRequest).build();
+    if (sharedDataLoaderRegistry != null) {
+      graphQLContext.put(SharedDataLoaderRegistry.class, sharedDataLoaderRegistry);
+    }
+    return graphQLContext;
+  }
 
+  private Mono<ExecutionResult> getExecutionResult(final TransactionContext tx, final GraphQLRequest graphQLRequest,
+      final GraphQLContext graphQLContext) {
     final ExecutionInput executionInput = ExecutionInput.newExecutionInput()
         .query(graphQLRequest.query())
         .variables(graphQLRequest.variables() == null ? new HashMap<>() : graphQLRequest.variables())
@@ -63,8 +294,7 @@ public class GraphQLRouteHandler {
         .map(executionResult -> {
           logQueryValidationErrorsIfAny(executionResult, tx);
           return executionResult;
-        })
-        .map(ExecutionResult::toSpecification);
+        });
   }
 
   private void logQueryValidationErrorsIfAny(ExecutionResult executionResult, TransactionContext tx) {
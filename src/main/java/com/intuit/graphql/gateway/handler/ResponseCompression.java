@@ -0,0 +1,378 @@
+package com.intuit.graphql.gateway.handler;
+
+import com.intuit.graphql.gateway.config.properties.ResponseCompressionProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseCompressionProperties.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Compresses the responses of a route in the coding the client accepts, gzip or deflate, as configured by {@link
+ * ResponseCompressionProperties}.
+ *
+ * <p>Responses with a Content-Length below the min size of the route are sent as they are. Other responses are
+ * compressed while they are written, each chunk of a streamed response, see {@link StreamingJsonBodyInserter}, is
+ * flushed to the client as soon as it is compressed. Deflaters are reused across responses, see {@link DeflaterPool}.
+ *
+ * <p>The bytes saved are counted in {@value #SAVED_METRIC_NAME} and the time spent compressing is recorded in {@value
+ * #TIME_METRIC_NAME}, both tagged with the route and the coding, to weigh the CPU cost against the bandwidth saved.
+ */
+@Component
+public class ResponseCompression {
+
+  static final String SAVED_METRIC_NAME = "graphql.response.compression.saved";
+  static final String TIME_METRIC_NAME = "graphql.response.compression.time";
+
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final ResponseCompressionProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final DeflaterPool deflaterPool;
+
+  public ResponseCompression(final ResponseCompressionProperties properties, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.deflaterPool = new DeflaterPool(properties.getMaxPooledDeflaters());
+  }
+
+  /**
+   * @param route the name of the route, which selects its settings in {@link ResponseCompressionProperties#getRoutes()}
+   * @return the filter compressing the responses of the route
+   */
+  public HandlerFilterFunction<ServerResponse, ServerResponse> forRoute(final String route) {
+    return (request, next) -> {
+      final Route settings = properties.getRoute(route);
+      if (!settings.isEnabled()) {
+        return next.handle(request);
+      }
+      final Coding coding = Coding.negotiate(request.headers().header(HttpHeaders.ACCEPT_ENCODING));
+      return next.handle(request).map(response -> new CompressingServerResponse(response, route, coding, settings));
+    };
+  }
+
+  DeflaterPool getDeflaterPool() {
+    return deflaterPool;
+  }
+
+  /**
+   * Content codings the responses can be compressed in, in the order of preference.
+   */
+  enum Coding {
+    GZIP, DEFLATE;
+
+    private String getContentEncoding() {
+      return name().toLowerCase();
+    }
+
+    /**
+     * @param acceptEncoding the values of the Accept-Encoding headers of the request
+     * @return the preferred coding accepted by the client, or {@code null} if it accepts none of them
+     */
+    static Coding negotiate(final List<String> acceptEncoding) {
+      final Map<String, Double> qualities = new HashMap<>();
+      for (String value : acceptEncoding) {
+        for (String coding : StringUtils.split(value, ',')) {
+          final String[] parts = StringUtils.split(coding, ';');
+          if (parts.length == 0) {
+            continue;
+          }
+          double quality = 1;
+          for (int i = 1; i < parts.length; i++) {
+            final String parameter = StringUtils.deleteWhitespace(parts[i]);
+            if (parameter.startsWith("q=")) {
+              quality = NumberUtils.toDouble(parameter.substring(2), 0);
+            }
+          }
+          qualities.put(StringUtils.trim(parts[0]).toLowerCase(), quality);
+        }
+      }
+
+      final double any = qualities.getOrDefault("*", 0d);
+      for (Coding coding : values()) {
+        if (qualities.getOrDefault(coding.getContentEncoding(), any) > 0) {
+          return coding;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Writes the response of the handler through a {@link CompressingServerHttpResponse}.
+   */
+  private final class CompressingServerResponse implements ServerResponse {
+
+    private final ServerResponse delegate;
+    private final String route;
+    private final Coding coding;
+    private final Route settings;
+
+    private CompressingServerResponse(final ServerResponse delegate, final String route, final Coding coding,
+        final Route settings) {
+      this.delegate = delegate;
+      this.route = route;
+      this.coding = coding;
+      this.settings = settings;
+    }
+
+    @Override
+    public HttpStatus statusCode() {
+      return delegate.statusCode();
+    }
+
+    @Override
+    public int rawStatusCode() {
+      return delegate.rawStatusCode();
+    }
+
+    @Override
+    public HttpHeaders headers() {
+      return delegate.headers();
+    }
+
+    @Override
+    public MultiValueMap<String, ResponseCookie> cookies() {
+      return delegate.cookies();
+    }
+
+    @Override
+    public Mono<Void> writeTo(final ServerWebExchange exchange, final Context context) {
+      final HttpHeaders headers = exchange.getResponse().getHeaders();
+      if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      }
+      if (coding == null) {
+        return delegate.writeTo(exchange, context);
+      }
+      return delegate.writeTo(exchange.mutate()
+          .response(new CompressingServerHttpResponse(exchange.getResponse(), route, coding, settings))
+          .build(), context);
+    }
+  }
+
+  /**
+   * Compresses the body written to the response.
+   */
+  private final class CompressingServerHttpResponse extends ServerHttpResponseDecorator {
+
+    private final String route;
+    private final Coding coding;
+    private final Route settings;
+
+    private CompressingServerHttpResponse(final ServerHttpResponse delegate, final String route, final Coding coding,
+        final Route settings) {
+      super(delegate);
+      this.route = route;
+      this.coding = coding;
+      this.settings = settings;
+    }
+
+    @Override
+    public Mono<Void> writeWith(final Publisher<? extends DataBuffer> body) {
+      final long contentLength = getHeaders().getContentLength();
+      if (getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+          || contentLength >= 0 && contentLength < settings.getMinSizeInBytes()) {
+        return super.writeWith(body);
+      }
+
+      final Encoder encoder = startEncoding();
+      return super.writeWith(Flux.from(body)
+          .map(encoder::encode)
+          .concatWith(Mono.fromCallable(encoder::finish))
+          .filter(ResponseCompression::isReadable)
+          .doFinally(encoder::close));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+      if (getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+        return super.writeAndFlushWith(body);
+      }
+
+      final Encoder encoder = startEncoding();
+      final Flux<Publisher<DataBuffer>> chunks = Flux.from(body)
+          .map(chunk -> Flux.from(chunk)
+              .map(encoder::encode)
+              .concatWith(Mono.fromCallable(encoder::flush))
+              .filter(ResponseCompression::isReadable));
+      return super.writeAndFlushWith(chunks
+          .concatWith(Mono.just(Mono.fromCallable(encoder::finish).filter(ResponseCompression::isReadable)))
+          .doFinally(encoder::close));
+    }
+
+    private Encoder startEncoding() {
+      getHeaders().set(HttpHeaders.CONTENT_ENCODING, coding.getContentEncoding());
+      getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+      return new Encoder(this, route, coding, settings.getLevel());
+    }
+  }
+
+  private static boolean isReadable(final DataBuffer buffer) {
+    if (buffer.readableByteCount() > 0) {
+      return true;
+    }
+    DataBufferUtils.release(buffer);
+    return false;
+  }
+
+  /**
+   * Compresses the body of one response with a pooled {@link Deflater}. The deflater is returned to the pool when the
+   * body is finished, or when writing the body fails or is cancelled.
+   */
+  private final class Encoder {
+
+    private final ServerHttpResponse response;
+    private final String route;
+    private final Coding coding;
+    private final int level;
+    private final boolean gzip;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] output = new byte[8192];
+
+    private boolean headerWritten;
+    private boolean closed;
+    private long inputBytes;
+    private long outputBytes;
+    private long nanos;
+
+    private Encoder(final ServerHttpResponse response, final String route, final Coding coding, final int level) {
+      this.response = response;
+      this.route = route;
+      this.coding = coding;
+      this.level = level;
+      this.gzip = coding == Coding.GZIP;
+      this.deflater = deflaterPool.acquire(level, gzip);
+    }
+
+    private synchronized DataBuffer encode(final DataBuffer input) {
+      final byte[] bytes = new byte[input.readableByteCount()];
+      input.read(bytes);
+      DataBufferUtils.release(input);
+
+      // pre-sized for a compression ratio of 4, the buffer grows if the input compresses less
+      final DataBuffer buffer = response.bufferFactory().allocateBuffer(Math.max(64, bytes.length / 4));
+      if (closed) {
+        return buffer;
+      }
+      final long start = System.nanoTime();
+      writeHeader(buffer);
+      inputBytes += bytes.length;
+      if (gzip) {
+        crc.update(bytes);
+      }
+      deflater.setInput(bytes);
+      while (!deflater.needsInput()) {
+        deflate(buffer, Deflater.NO_FLUSH);
+      }
+      nanos += System.nanoTime() - start;
+      return buffer;
+    }
+
+    /**
+     * @return the compressed data of all input so far, so the client can decompress it
+     */
+    private synchronized DataBuffer flush() {
+      final DataBuffer buffer = response.bufferFactory().allocateBuffer(256);
+      if (closed) {
+        return buffer;
+      }
+      final long start = System.nanoTime();
+      writeHeader(buffer);
+      while (deflate(buffer, Deflater.SYNC_FLUSH) == output.length) {
+        // the output array was filled, there may be more
+      }
+      nanos += System.nanoTime() - start;
+      return buffer;
+    }
+
+    private synchronized DataBuffer finish() {
+      final DataBuffer buffer = response.bufferFactory().allocateBuffer(256);
+      if (closed) {
+        return buffer;
+      }
+      final long start = System.nanoTime();
+      writeHeader(buffer);
+      deflater.finish();
+      while (!deflater.finished()) {
+        deflate(buffer, Deflater.NO_FLUSH);
+      }
+      if (gzip) {
+        writeIntLE(buffer, (int) crc.getValue());
+        writeIntLE(buffer, (int) inputBytes);
+        outputBytes += 8;
+      }
+      nanos += System.nanoTime() - start;
+
+      Counter.builder(SAVED_METRIC_NAME)
+          .baseUnit("bytes")
+          .tag("route", route)
+          .tag("encoding", coding.getContentEncoding())
+          .register(meterRegistry)
+          .increment(Math.max(0, inputBytes - outputBytes));
+      Timer.builder(TIME_METRIC_NAME)
+          .tag("route", route)
+          .tag("encoding", coding.getContentEncoding())
+          .register(meterRegistry)
+          .record(nanos, TimeUnit.NANOSECONDS);
+      close();
+      return buffer;
+    }
+
+    private void close(final SignalType signalType) {
+      if (signalType != SignalType.ON_COMPLETE) {
+        close();
+      }
+    }
+
+    private synchronized void close() {
+      if (!closed) {
+        closed = true;
+        deflaterPool.release(deflater, level, gzip);
+      }
+    }
+
+    private int deflate(final DataBuffer buffer, final int flush) {
+      final int length = deflater.deflate(output, 0, output.length, flush);
+      buffer.write(output, 0, length);
+      outputBytes += length;
+      return length;
+    }
+
+    private void writeHeader(final DataBuffer buffer) {
+      if (gzip && !headerWritten) {
+        headerWritten = true;
+        buffer.write(GZIP_HEADER);
+        outputBytes += GZIP_HEADER.length;
+      }
+    }
+
+    private void writeIntLE(final DataBuffer buffer, final int value) {
+      buffer.write(new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)});
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.intuit.graphql.gateway.handler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.intuit.graphql.gateway.Mapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes a JSON value to the response in chunks of about {@code flushThreshold} bytes, each flushed to the client as
+ * soon as it is serialized.
+ *
+ * <p>Maps and collections are walked without recursion, so the next chunk is only serialized when the connection
+ * asks for it and at most one chunk is held in memory. Other values are serialized by {@link Mapper#mapper()} as a
+ * whole. A value that fits into the first chunk is written in one buffer with a Content-Length.
+ */
+public class StreamingJsonBodyInserter implements BodyInserter<Object, ReactiveHttpOutputMessage> {
+
+  private final Object value;
+  private final int flushThreshold;
+
+  public StreamingJsonBodyInserter(final Object value, final int flushThreshold) {
+    this.value = value;
+    this.flushThreshold = Math.max(1, flushThreshold);
+  }
+
+  @Override
+  public Mono<Void> insert(final ReactiveHttpOutputMessage message, final Context context) {
+    if (message.getHeaders().getContentType() == null) {
+      message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    final ChunkedSerializer serializer;
+    final DataBuffer first;
+    try {
+      serializer = new ChunkedSerializer(value, message.bufferFactory(), flushThreshold);
+      first = serializer.nextChunk();
+    } catch (IOException e) {
+      return Mono.error(e);
+    }
+
+    if (serializer.isDone()) {
+      serializer.close();
+      message.getHeaders().setContentLength(first.readableByteCount());
+      return message.writeWith(Mono.just(first));
+    }
+
+    Flux<DataBuffer> remaining = Flux.generate(() -> serializer,
+        (state, sink) -> {
+          try {
+            sink.next(state.nextChunk());
+            if (state.isDone()) {
+              sink.complete();
+            }
+          } catch (IOException e) {
+            sink.error(e);
+          }
+          return state;
+        },
+        ChunkedSerializer::close);
+
+    return message.writeAndFlushWith(Flux.concat(Mono.just(first), remaining)
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+        .map(Mono::just));
+  }
+
+  /**
+   * Serializes one chunk per call. Containers being written are kept on a stack of iterators.
+   */
+  private static final class ChunkedSerializer {
+
+    private final DataBufferFactory bufferFactory;
+    private final int flushThreshold;
+    private final BufferOutputStream outputStream = new BufferOutputStream();
+    private final JsonGenerator generator;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    private Object root;
+    private boolean started;
+
+    private ChunkedSerializer(final Object root, final DataBufferFactory bufferFactory, final int flushThreshold)
+        throws IOException {
+      this.root = root;
+      this.bufferFactory = bufferFactory;
+      this.flushThreshold = flushThreshold;
+      this.generator = Mapper.mapper().getFactory().createGenerator(outputStream)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+    }
+
+    private boolean isDone() {
+      return started && frames.isEmpty();
+    }
+
+    private DataBuffer nextChunk() throws IOException {
+      final DataBuffer buffer = bufferFactory.allocateBuffer(flushThreshold);
+      outputStream.buffer = buffer;
+      boolean release = true;
+      try {
+        while (!isDone() && buffer.readableByteCount() + Math.max(0, generator.getOutputBuffered()) < flushThreshold) {
+          writeNext();
+        }
+        generator.flush();
+        release = false;
+        return buffer;
+      } finally {
+        outputStream.buffer = null;
+        if (release) {
+          DataBufferUtils.release(buffer);
+        }
+      }
+    }
+
+    private void writeNext() throws IOException {
+      if (!started) {
+        started = true;
+        final Object value = root;
+        root = null;
+        writeValue(value);
+        return;
+      }
+
+      final Frame frame = frames.peek();
+      if (!frame.iterator.hasNext()) {
+        frames.pop();
+        if (frame.object) {
+          generator.writeEndObject();
+        } else {
+          generator.writeEndArray();
+        }
+      } else if (frame.object) {
+        final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) frame.iterator.next();
+        generator.writeFieldName(String.valueOf(entry.getKey()));
+        writeValue(entry.getValue());
+      } else {
+        writeValue(frame.iterator.next());
+      }
+    }
+
+    private void writeValue(final Object value) throws IOException {
+      if (value instanceof Map) {
+        generator.writeStartObject();
+        frames.push(new Frame(((Map<?, ?>) value).entrySet().iterator(), true));
+      } else if (value instanceof Collection) {
+        generator.writeStartArray();
+        frames.push(new Frame(((Collection<?>) value).iterator(), false));
+      } else {
+        generator.writeObject(value);
+      }
+    }
+
+    private void close() {
+      try {
+        generator.close();
+      } catch (IOException e) {
+        // nothing left to write to
+      }
+    }
+  }
+
+  private static final class Frame {
+
+    private final Iterator<?> iterator;
+    private final boolean object;
+
+    private Frame(final Iterator<?> iterator, final boolean object) {
+      this.iterator = iterator;
+      this.object = object;
+    }
+  }
+
+  /**
+   * Writes into the buffer of the chunk being serialized. Output after the last chunk, when the response was cancelled
+   * part way, is dropped.
+   */
+  private static final class BufferOutputStream extends OutputStream {
+
+    private DataBuffer buffer;
+
+    @Override
+    public void write(final int b) {
+      if (buffer != null) {
+        buffer.write((byte) b);
+      }
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) {
+      if (buffer != null) {
+        buffer.write(bytes, offset, length);
+      }
+    }
+  }
+}
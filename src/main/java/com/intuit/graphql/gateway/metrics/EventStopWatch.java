@@ -8,6 +8,7 @@ public class EventStopWatch {
 
   private Instant startTime;
   private Instant endTime;
+  private long startNanos;
 
   public EventStopWatch() {
     this.start();
@@ -16,10 +17,18 @@ public class EventStopWatch {
   public void start() {
     this.startTime = Instant.now();
     this.endTime = Instant.now();
+    this.startNanos = System.nanoTime();
   }
 
   public void stop() {
     this.endTime = Instant.now();
   }
 
+  /**
+   * @return the nanoseconds elapsed since the watch was started, at a finer resolution than the start and end times
+   */
+  public long getElapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
 }
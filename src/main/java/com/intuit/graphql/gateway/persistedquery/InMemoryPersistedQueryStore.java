@@ -0,0 +1,36 @@
+package com.intuit.graphql.gateway.persistedquery;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link PersistedQueryStore} bounded by the total number of characters of the stored hashes and query texts. Least
+ * recently used queries are evicted first.
+ */
+public class InMemoryPersistedQueryStore implements PersistedQueryStore {
+
+  private final Cache<String, String> cache;
+
+  public InMemoryPersistedQueryStore(final long maxQueryCharacters) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxQueryCharacters)
+        .weigher((String hash, String query) -> hash.length() + query.length())
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public Mono<String> get(final String hash) {
+    return Mono.justOrEmpty(cache.getIfPresent(hash));
+  }
+
+  @Override
+  public Mono<Void> put(final String hash, final String query) {
+    return Mono.fromRunnable(() -> cache.put(hash, query));
+  }
+
+  Cache<String, String> getCache() {
+    return cache;
+  }
+}
@@ -0,0 +1,67 @@
+package com.intuit.graphql.gateway.persistedquery;
+
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphqlErrorException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Errors of the automatic persisted query protocol. Messages and codes follow the Apollo implementation, which
+ * clients rely on to decide whether to retry with the full query.
+ */
+public class PersistedQueryError extends GraphqlErrorException {
+
+  public static final String NOT_FOUND_CODE = "PERSISTED_QUERY_NOT_FOUND";
+  public static final String NOT_SUPPORTED_CODE = "PERSISTED_QUERY_NOT_SUPPORTED";
+  public static final String BAD_USER_INPUT_CODE = "BAD_USER_INPUT";
+
+  private PersistedQueryError(PersistedQueryError.Builder builder) {
+    super(builder);
+  }
+
+  @Override
+  public ErrorClassification getErrorType() {
+    return ErrorType.ValidationError;
+  }
+
+  public static PersistedQueryError notFound() {
+    return newError("PersistedQueryNotFound", NOT_FOUND_CODE);
+  }
+
+  public static PersistedQueryError notSupported() {
+    return newError("PersistedQueryNotSupported", NOT_SUPPORTED_CODE);
+  }
+
+  public static PersistedQueryError hashMismatch() {
+    return newError("provided sha does not match query", BAD_USER_INPUT_CODE);
+  }
+
+  public static PersistedQueryError missingQuery() {
+    return newError("Must provide query string", BAD_USER_INPUT_CODE);
+  }
+
+  private static PersistedQueryError newError(String message, String code) {
+    return builder()
+        .message(message)
+        .extensions(Collections.singletonMap("code", code))
+        .build();
+  }
+
+  public static PersistedQueryError.Builder builder() {
+    return new PersistedQueryError.Builder();
+  }
+
+  public static class Builder extends GraphqlErrorException.BuilderBase<PersistedQueryError.Builder, PersistedQueryError> {
+
+    {
+      super.sourceLocations = new ArrayList<>();
+    }
+
+    public PersistedQueryError build() {
+      return new PersistedQueryError(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,121 @@
+package com.intuit.graphql.gateway.persistedquery;
+
+import com.google.common.hash.Hashing;
+import com.intuit.graphql.gateway.config.properties.PersistedQueryProperties;
+import com.intuit.graphql.gateway.graphql.GraphQLRequest;
+import com.intuit.graphql.gateway.graphql.ImmutableGraphQLRequest;
+import com.intuit.graphql.gateway.logging.EventLogger;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves automatic persisted queries (APQ).
+ *
+ * <p>A client first sends only the SHA-256 hash of its query in the {@code persistedQuery} extension. If the hash is
+ * unknown the request fails with {@link PersistedQueryError#notFound()}, and the client retries with both the query
+ * and the hash, which registers the query for subsequent requests.
+ *
+ * <p>Queries are looked up in a bounded local store first and, if a {@link PersistedQueryStore} bean is present, in
+ * that shared store next. Failures of the shared store are logged and treated as a miss. Local store metrics are
+ * registered under {@value #METRIC_NAME}.
+ */
+@Component
+@Slf4j
+public class PersistedQueryManager {
+
+  static final String METRIC_NAME = "graphql.persisted.queries";
+
+  static final String PERSISTED_QUERY_EXTENSION = "persistedQuery";
+  static final String SHA256_HASH = "sha256Hash";
+
+  private final boolean enabled;
+  private final InMemoryPersistedQueryStore localStore;
+  private final PersistedQueryStore sharedStore;
+
+  public PersistedQueryManager(final PersistedQueryProperties properties, final MeterRegistry meterRegistry,
+      final ObjectProvider<PersistedQueryStore> sharedStore) {
+    this.enabled = properties.isEnabled();
+    this.localStore = new InMemoryPersistedQueryStore(properties.getMaxQueryCharacters());
+    this.sharedStore = sharedStore.getIfAvailable();
+    GuavaCacheMetrics.monitor(meterRegistry, localStore.getCache(), METRIC_NAME);
+  }
+
+  /**
+   * Fills in the query of a request that refers to a persisted query, and registers the query of a request that
+   * carries both.
+   *
+   * @param graphQLRequest the request as sent by the client
+   * @param tx the transaction context, used for logging
+   * @return the request with its query, or a {@link PersistedQueryError}
+   */
+  public Mono<GraphQLRequest> resolve(final GraphQLRequest graphQLRequest, final TransactionContext tx) {
+    final String hash = getPersistedQueryHash(graphQLRequest);
+    final String query = graphQLRequest.query();
+
+    if (hash == null) {
+      return query == null ? Mono.error(PersistedQueryError.missingQuery()) : Mono.just(graphQLRequest);
+    }
+
+    if (!enabled) {
+      return Mono.error(PersistedQueryError.notSupported());
+    }
+
+    if (query != null) {
+      if (!hash.equals(sha256(query))) {
+        return Mono.error(PersistedQueryError.hashMismatch());
+      }
+      return register(hash, query, tx).thenReturn(graphQLRequest);
+    }
+
+    return lookup(hash, tx)
+        .<GraphQLRequest>map(persistedQuery -> ImmutableGraphQLRequest.copyOf(graphQLRequest).withQuery(persistedQuery))
+        .switchIfEmpty(Mono.error(PersistedQueryError::notFound));
+  }
+
+  private Mono<Void> register(final String hash, final String query, final TransactionContext tx) {
+    Mono<Void> registered = localStore.put(hash, query);
+    if (sharedStore != null) {
+      registered = registered.then(sharedStore.put(hash, query)
+          .onErrorResume(err -> {
+            EventLogger.warn(log, tx, "Failed to store persisted query in shared store", err);
+            return Mono.empty();
+          }));
+    }
+    return registered;
+  }
+
+  private Mono<String> lookup(final String hash, final TransactionContext tx) {
+    if (sharedStore == null) {
+      return localStore.get(hash);
+    }
+    return localStore.get(hash)
+        .switchIfEmpty(Mono.defer(() -> sharedStore.get(hash)
+            .onErrorResume(err -> {
+              EventLogger.warn(log, tx, "Failed to read persisted query from shared store", err);
+              return Mono.empty();
+            })
+            .flatMap(query -> localStore.put(hash, query).thenReturn(query))));
+  }
+
+  @SuppressWarnings("unchecked")
+  static String getPersistedQueryHash(final GraphQLRequest graphQLRequest) {
+    final Map<String, Object> extensions = graphQLRequest.extensions();
+    if (extensions == null || !(extensions.get(PERSISTED_QUERY_EXTENSION) instanceof Map)) {
+      return null;
+    }
+    final Object hash = ((Map<String, Object>) extensions.get(PERSISTED_QUERY_EXTENSION)).get(SHA256_HASH);
+    return hash instanceof String ? (String) hash : null;
+  }
+
+  @SuppressWarnings("UnstableApiUsage")
+  static String sha256(final String query) {
+    return Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+  }
+}
@@ -0,0 +1,26 @@
+package com.intuit.graphql.gateway.persistedquery;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Storage for automatic persisted queries, keyed by the hex encoded SHA-256 hash of the query text.
+ *
+ * <p>Every gateway instance keeps a bounded {@link InMemoryPersistedQueryStore}. Registering a bean of this type adds
+ * a shared backend (e.g. a distributed cache) behind it, so that a query registered on one instance can be resolved
+ * on all of them.
+ */
+public interface PersistedQueryStore {
+
+  /**
+   * @param hash the hex encoded SHA-256 hash of the query
+   * @return the query text, or an empty {@link Mono} if the hash is unknown
+   */
+  Mono<String> get(String hash);
+
+  /**
+   * @param hash the hex encoded SHA-256 hash of the query
+   * @param query the query text
+   * @return a {@link Mono} that completes once the query is stored
+   */
+  Mono<Void> put(String hash, String query);
+}
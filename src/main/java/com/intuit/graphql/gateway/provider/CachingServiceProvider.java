@@ -0,0 +1,103 @@
+package com.intuit.graphql.gateway.provider;
+
+import static com.intuit.graphql.gateway.provider.ServiceProviderHelper.isQuery;
+import static com.intuit.graphql.gateway.provider.ServiceProviderHelper.validate;
+
+import com.intuit.graphql.gateway.graphql.CacheControlDirective;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import graphql.ExecutionInput;
+import graphql.GraphQLContext;
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Answers downstream queries from the {@link DownstreamResultCache} and caches the responses of the wrapped provider
+ * for the max age of the selected fields, as hinted in the provider SDL.
+ */
+class CachingServiceProvider implements ServiceProvider {
+
+  private final ServiceProvider delegate;
+  private final ServiceDefinition serviceDefinition;
+  private final GraphQLSchema schema;
+  private final DownstreamResultCache cache;
+  private final List<String> forwardHeaders;
+
+  CachingServiceProvider(final ServiceProvider delegate, final ServiceDefinition serviceDefinition,
+      final GraphQLSchema schema, final DownstreamResultCache cache) {
+    this.delegate = delegate;
+    this.serviceDefinition = serviceDefinition;
+    this.schema = schema;
+    this.cache = cache;
+    this.forwardHeaders = new ArrayList<>(new TreeSet<>(serviceDefinition.getForwardHeaders()));
+  }
+
+  @Override
+  public String getNameSpace() {
+    return delegate.getNameSpace();
+  }
+
+  @Override
+  public Map<String, String> sdlFiles() {
+    return delegate.sdlFiles();
+  }
+
+  @Override
+  public Set<String> domainTypes() {
+    return delegate.domainTypes();
+  }
+
+  @Override
+  public ServiceType getSeviceType() {
+    return delegate.getSeviceType();
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Object>> query(final ExecutionInput executionInput,
+      final GraphQLContext context) {
+    if (!isQuery(executionInput)) {
+      return delegate.query(executionInput, context);
+    }
+
+    // the client whitelist has to be checked before answering from the cache
+    validate(serviceDefinition, context);
+
+    final DownstreamResultCache.Key key = new DownstreamResultCache.Key(getNameSpace(), executionInput.getQuery(),
+        new HashMap<>(executionInput.getVariables()), getForwardedHeaderValues(context));
+    final Map<String, Object> cachedResult = cache.get(key);
+    if (cachedResult != null) {
+      return CompletableFuture.completedFuture(cachedResult);
+    }
+
+    return delegate.query(executionInput, context)
+        .thenApply(result -> {
+          if (result != null && result.get("errors") == null && result.get("data") != null) {
+            cache.put(key, result, CacheControlDirective.getMaxAge(schema, (Document) executionInput.getRoot(),
+                executionInput.getOperationName(), executionInput.getVariables(), cache.getMaxAgeInSeconds(), 0));
+          }
+          return result;
+        });
+  }
+
+  private List<List<String>> getForwardedHeaderValues(final GraphQLContext context) {
+    if (forwardHeaders.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Optional<ServerRequest> serverRequest = context.getOrEmpty(ServerRequest.class);
+    List<List<String>> values = new ArrayList<>(forwardHeaders.size());
+    for (String forwardHeader : forwardHeaders) {
+      values.add(serverRequest.map(sr -> sr.headers().header(forwardHeader)).orElse(Collections.emptyList()));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,200 @@
+package com.intuit.graphql.gateway.provider;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.DownstreamCacheProperties;
+import com.intuit.graphql.gateway.graphql.CacheControlDirective;
+import com.intuit.graphql.gateway.logging.EventLogger;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableLogNameValuePair;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import com.intuit.graphql.orchestrator.ServiceProvider.ServiceType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in cache of downstream GraphQL responses, shared by all providers.
+ *
+ * <p>Responses are keyed by namespace, the printed sub-document sent to the provider, its variables and the values
+ * of the headers forwarded to the provider. How long a response is cached is derived from the {@link
+ * CacheControlDirective} hints in the provider SDL, so only providers that declare such hints are wrapped. Responses
+ * are stored serialized: this bounds the cache by size and hands every request its own copy.
+ */
+@Component
+@Slf4j
+public class DownstreamResultCache {
+
+  static final String METRIC_NAME = "graphql.downstream.cache";
+
+  private static final TypeReference<Map<String, Object>> RESULT_TYPE_REFERENCE =
+      new TypeReference<Map<String, Object>>() {
+      };
+
+  private final boolean enabled;
+  private final int maxAgeInSeconds;
+  private final MeterRegistry meterRegistry;
+  private final Cache<Key, CachedResult> results;
+  private final Map<String, Counter> hits = new ConcurrentHashMap<>();
+  private final Map<String, Counter> misses = new ConcurrentHashMap<>();
+
+  public DownstreamResultCache(final DownstreamCacheProperties properties, final MeterRegistry meterRegistry) {
+    this.enabled = properties.isEnabled();
+    this.maxAgeInSeconds = properties.getMaxAgeInSeconds();
+    this.meterRegistry = meterRegistry;
+    this.results = CacheBuilder.newBuilder()
+        .maximumWeight(properties.getMaxSizeInMbytes() * 1024L * 1024L)
+        .weigher((Key key, CachedResult result) -> key.query.length() + result.bytes.length)
+        .expireAfterWrite(maxAgeInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+
+    Gauge.builder(METRIC_NAME + ".size", results, Cache::size).register(meterRegistry);
+    FunctionCounter.builder(METRIC_NAME + ".evictions", results, cache -> cache.stats().evictionCount())
+        .register(meterRegistry);
+  }
+
+  /**
+   * Wraps GraphQL providers whose SDL carries {@code @cacheControl} hints with a caching provider.
+   *
+   * @param tx Transaction context used for logging
+   * @param serviceProvider the provider to wrap
+   * @param serviceDefinition the definition the provider was built from
+   * @return the caching provider, or the given one if it is not cacheable
+   */
+  public ServiceProvider wrap(final TransactionContext tx, final ServiceProvider serviceProvider,
+      final ServiceDefinition serviceDefinition) {
+    if (!enabled || serviceProvider.getSeviceType() != ServiceType.GRAPHQL) {
+      return serviceProvider;
+    }
+
+    final Map<String, String> sdlFiles = serviceProvider.sdlFiles();
+    if (sdlFiles.values().stream().noneMatch(sdl -> sdl.contains("@" + CacheControlDirective.NAME))) {
+      return serviceProvider;
+    }
+
+    try {
+      TypeDefinitionRegistry typeDefinitionRegistry = new TypeDefinitionRegistry();
+      sdlFiles.values().forEach(sdl -> typeDefinitionRegistry.merge(new SchemaParser().parse(sdl)));
+      GraphQLSchema schema = UnExecutableSchemaGenerator.makeUnExecutableSchema(typeDefinitionRegistry);
+      return new CachingServiceProvider(serviceProvider, serviceDefinition, schema, this);
+    } catch (RuntimeException e) {
+      EventLogger.warn(log, tx, "Failed to read cache hints, downstream responses will not be cached", e,
+          ImmutableLogNameValuePair.of("namespace", serviceDefinition.getNamespace()));
+      return serviceProvider;
+    }
+  }
+
+  Map<String, Object> get(final Key key) {
+    CachedResult cachedResult = results.getIfPresent(key);
+    if (cachedResult != null && cachedResult.expiresAtNanos - System.nanoTime() <= 0) {
+      results.invalidate(key);
+      cachedResult = null;
+    }
+
+    if (cachedResult != null) {
+      try {
+        Map<String, Object> result = Mapper.mapper().readValue(cachedResult.bytes, RESULT_TYPE_REFERENCE);
+        hits.computeIfAbsent(key.namespace, namespace -> newRequestCounter(namespace, "hit")).increment();
+        return result;
+      } catch (IOException e) {
+        log.warn("Failed to read cached downstream response", e);
+        results.invalidate(key);
+      }
+    }
+    misses.computeIfAbsent(key.namespace, namespace -> newRequestCounter(namespace, "miss")).increment();
+    return null;
+  }
+
+  void put(final Key key, final Map<String, Object> result, final int maxAge) {
+    final int cappedMaxAge = Math.min(maxAge, maxAgeInSeconds);
+    if (cappedMaxAge <= 0) {
+      return;
+    }
+
+    try {
+      results.put(key, new CachedResult(Mapper.mapper().writeValueAsBytes(result),
+          System.nanoTime() + TimeUnit.SECONDS.toNanos(cappedMaxAge)));
+    } catch (IOException e) {
+      log.warn("Failed to serialize downstream response, not caching it", e);
+    }
+  }
+
+  int getMaxAgeInSeconds() {
+    return maxAgeInSeconds;
+  }
+
+  long size() {
+    return results.size();
+  }
+
+  private Counter newRequestCounter(final String namespace, final String result) {
+    return Counter.builder(METRIC_NAME + ".requests")
+        .tag("namespace", namespace)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  private static final class CachedResult {
+
+    private final byte[] bytes;
+    private final long expiresAtNanos;
+
+    private CachedResult(final byte[] bytes, final long expiresAtNanos) {
+      this.bytes = bytes;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  static final class Key {
+
+    private final String namespace;
+    private final String query;
+    private final Map<String, Object> variables;
+    private final List<List<String>> forwardedHeaderValues;
+
+    Key(final String namespace, final String query, final Map<String, Object> variables,
+        final List<List<String>> forwardedHeaderValues) {
+      this.namespace = namespace;
+      this.query = query;
+      this.variables = variables;
+      this.forwardedHeaderValues = forwardedHeaderValues;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return namespace.equals(that.namespace)
+          && query.equals(that.query)
+          && variables.equals(that.variables)
+          && forwardedHeaderValues.equals(that.forwardedHeaderValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(namespace, query, variables, forwardedHeaderValues);
+    }
+  }
+}
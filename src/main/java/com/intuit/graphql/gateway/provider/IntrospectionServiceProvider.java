@@ -5,6 +5,7 @@ import static com.intuit.graphql.gateway.provider.ServiceProviderHelper.validate
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.common.collect.ImmutableMap;
 import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties.Introspection;
 import com.intuit.graphql.gateway.graphql.WebClientQueryExecutor;
 import com.intuit.graphql.gateway.logging.EventLogger;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
@@ -12,6 +13,8 @@ import com.intuit.graphql.gateway.registry.ServiceDefinition;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationException;
 import com.intuit.graphql.gateway.utils.IntrospectionResultToSchema;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
 import com.intuit.graphql.gateway.webclient.RequestType;
 import com.intuit.graphql.gateway.webfilter.RequestLoggingExchangeFilter;
 import com.intuit.graphql.orchestrator.ServiceProvider;
@@ -24,23 +27,21 @@ import graphql.language.Document;
 import graphql.schema.GraphQLDirective;
 import graphql.schema.idl.SchemaPrinter;
 import graphql.schema.idl.SchemaPrinter.Options;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.reactivestreams.Publisher;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
-import reactor.core.Exceptions;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 
@@ -58,28 +59,25 @@ public class IntrospectionServiceProvider implements ServiceProvider {
   public static final Predicate<GraphQLDirective> SkipDefaultDirectives = directive -> !(directive.getName().equals(
       Directives.IncludeDirective.getName()) || directive.getName().equals(Directives.SkipDirective.getName()));
 
-  @Value("${webclient.introspection.retries}")
-  public static int maxRetryAttempts = 3;
-
   private final ServiceRegistration serviceRegistration;
-  private final WebClient webClient;
-  private final TransactionContext tx;
   private final QueryExecutor queryFunction;
-  private String cache;
-
-  public IntrospectionServiceProvider(final TransactionContext tx, final WebClient webClient,
-      final ServiceRegistration serviceRegistration) {
+  private final String document;
 
-    this.serviceRegistration = ensureValidServiceDefinition(serviceRegistration);
-    this.webClient = webClient;
-    this.tx = tx;
-    this.queryFunction = new WebClientQueryExecutor(this.webClient, serviceRegistration.getServiceDefinition());
-    this.cache = getDocument();
+  /**
+   * @param document the schema of the service, see {@link #introspect(TransactionContext, WebClient,
+   *     ServiceDefinition, Introspection)}
+   */
+  public IntrospectionServiceProvider(final WebClient webClient, final ServiceRegistration serviceRegistration,
+      final CircuitBreaker circuitBreaker, final ConcurrencyLimiter concurrencyLimiter, final String document) {
+    this.serviceRegistration = serviceRegistration;
+    this.queryFunction = new WebClientQueryExecutor(webClient, serviceRegistration.getServiceDefinition(),
+        circuitBreaker, concurrencyLimiter);
+    this.document = document;
   }
 
-  private ServiceRegistration ensureValidServiceDefinition(ServiceRegistration serviceRegistration) {
+  private static void ensureValidServiceDefinition(final TransactionContext tx,
+      final ServiceDefinition serviceDefinition) {
     // verify endpoint is there
-    final ServiceDefinition serviceDefinition = serviceRegistration.getServiceDefinition();
     if (StringUtils.isBlank(serviceDefinition.getEndpoint())) {
       EventLogger.error(log, tx,
           String.format("Failed to register namespace %s", serviceDefinition.getNamespace())
@@ -89,8 +87,6 @@ public class IntrospectionServiceProvider implements ServiceProvider {
               serviceDefinition.getNamespace())
       );
     }
-
-    return serviceRegistration;
   }
 
   public ServiceDefinition serviceDefinition() {
@@ -98,50 +94,61 @@ public class IntrospectionServiceProvider implements ServiceProvider {
   }
 
   /**
-   * retrieves remote schema as TypeDefinitionRegistry
+   * Introspects a remote service. Every attempt times out after {@link Introspection#getTimeoutMs()}, failed attempts
+   * are retried with exponential backoff unless the service answers with a client error.
    *
-   * @return TypeDefinitionRegistry instance representing remote schema
+   * @return the schema of the remote service, or a {@link ServiceRegistrationException}
    */
-  private String getDocument() {
-    if (cache == null) {
-      try {
-        // make remote graphql schema introspection call
-        String schemaStr = loadRemoteGraphqlSchema();
-
-        // parse the schema as a Map
-        Map result = Mapper.mapper().readValue(schemaStr, Map.class);
-
-        // get the 'data' field of the response, which has the schema in it
-        Document document = new IntrospectionResultToSchema()
-            .createSchemaDefinition((Map<String, Object>) result.get("data"));
-        /*
-         * Graphql-java IntrospectionResultToSchema converts descriptions to comments. Using local version of
-         * IntrospectionResultToSchema to preserve descriptions.
-         */
-        cache = new SchemaPrinter(Options.defaultOptions()
-            .includeScalarTypes(true)
-            .includeDirectives(SkipDefaultDirectives)
-            //.includeExtendedScalarTypes(true)
-        ).print(document);
-      } catch (Exception e) {
-        EventLogger.error(log, tx, String.format("Could not load remote schema from %s",
-            this.serviceDefinition().getEndpoint()), e
-        );
-        throw new ServiceRegistrationException("Failed to load schema from remote service.", e);
-      }
-    }
-    return cache;
+  public static Mono<String> introspect(final TransactionContext tx, final WebClient webClient,
+      final ServiceDefinition serviceDefinition, final Introspection introspection) {
+    return Mono.defer(() -> {
+      ensureValidServiceDefinition(tx, serviceDefinition);
+      return loadRemoteGraphqlSchema(tx, webClient, serviceDefinition, introspection)
+          // print the schema off the http client threads
+          .publishOn(Schedulers.parallel())
+          .flatMap(schemaStr -> Mono.fromCallable(() -> toDocument(schemaStr)))
+          .onErrorMap(e -> !(e instanceof ServiceRegistrationException), e -> {
+            EventLogger.error(log, tx, String.format("Could not load remote schema from %s",
+                serviceDefinition.getEndpoint()), e
+            );
+            return new ServiceRegistrationException("Failed to load schema from remote service.", e);
+          });
+    });
   }
 
   /**
-   * Make the introspection query to the remote service. NOTE: This is ~~~ BLOCKING ~~~
+   * Prints the schema of an introspection result
+   *
+   * @return the schema as SDL
+   */
+  private static String toDocument(final String schemaStr) throws IOException {
+    // parse the schema as a Map
+    Map result = Mapper.mapper().readValue(schemaStr, Map.class);
+
+    // get the 'data' field of the response, which has the schema in it
+    Document document = new IntrospectionResultToSchema()
+        .createSchemaDefinition((Map<String, Object>) result.get("data"));
+    /*
+     * Graphql-java IntrospectionResultToSchema converts descriptions to comments. Using local version of
+     * IntrospectionResultToSchema to preserve descriptions.
+     */
+    return new SchemaPrinter(Options.defaultOptions()
+        .includeScalarTypes(true)
+        .includeDirectives(SkipDefaultDirectives)
+        //.includeExtendedScalarTypes(true)
+    ).print(document);
+  }
+
+  /**
+   * Make the introspection query to the remote service.
    *
    * @return Response string from remote introspection query
    */
-  private String loadRemoteGraphqlSchema() {
+  private static Mono<String> loadRemoteGraphqlSchema(final TransactionContext tx, final WebClient webClient,
+      final ServiceDefinition serviceDefinition, final Introspection introspection) {
 
-    String namespace = this.serviceDefinition().getNamespace();
-    String url = this.serviceDefinition().getEndpoint();
+    String namespace = serviceDefinition.getNamespace();
+    String url = serviceDefinition.getEndpoint();
 
     Map<String, Object> hints = new HashMap<>(2);
 
@@ -149,7 +156,7 @@ public class IntrospectionServiceProvider implements ServiceProvider {
     hints.put("namespace", namespace);
 
     // Prepare schema introspection query
-    return this.webClient.post()
+    return webClient.post()
         .uri(url)
         .attribute(RequestLoggingExchangeFilter.REQUEST_LOGGING_HINTS, hints)
         .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -157,37 +164,21 @@ public class IntrospectionServiceProvider implements ServiceProvider {
         .exchange()
         .flatMap(response -> {
           if (response.statusCode().isError()) {
-            return Mono
+            return response.releaseBody().then(Mono
                 .error(new WebClientResponseException(response.rawStatusCode(), response.statusCode().getReasonPhrase(),
-                    null, null, null));
+                    null, null, null)));
           }
-          return Mono.just(response);
+          return response.bodyToMono(String.class);
         })
-        .retryWhen(Retry.withThrowable(this.retryFactory()))
-        .flatMap(response -> response.bodyToMono(String.class))
-        .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx))
-        .block();
-  }
-
-  private Function<Flux<Throwable>, ? extends Publisher<?>> retryFactory() {
-    return eFlux -> eFlux.zipWith(Flux.range(1, maxRetryAttempts + 1), (e, attempts) -> {
-
-      if (e instanceof WebClientResponseException) {
-        WebClientResponseException webClientResponseException = (WebClientResponseException) e;
-        if (webClientResponseException.getStatusCode().is4xxClientError()) {
-          EventLogger.error(log, tx, "Received 4xx error on introspection. Aborting.", e);
-          throw Exceptions.propagate(e);
-        }
-      }
-
-      if (attempts < maxRetryAttempts) {
-        EventLogger.warn(log, tx, "Retrying introspection request. Attempts[" + attempts + "]", e);
-        return attempts;
-      } else {
-        EventLogger.error(log, tx, "Max introspection attempts reached. Aborting.", e);
-        throw Exceptions.propagate(e);
-      }
-    });
+        .timeout(Duration.ofMillis(introspection.getTimeoutMs()))
+        .retryWhen(Retry.backoff(Math.max(0, introspection.getRetries() - 1),
+            Duration.ofMillis(introspection.getMinBackoffMs()))
+            .filter(e -> !(e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is4xxClientError()))
+            .doBeforeRetry(signal -> EventLogger.warn(log, tx,
+                "Retrying introspection request. Attempts[" + (signal.totalRetries() + 1) + "]", signal.failure()))
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+        .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx));
   }
 
   @Override
@@ -197,7 +188,7 @@ public class IntrospectionServiceProvider implements ServiceProvider {
 
   @Override
   public Map<String, String> sdlFiles() {
-    return ImmutableMap.of(INTROSPECTION_FILE_NAME, getDocument());
+    return ImmutableMap.of(INTROSPECTION_FILE_NAME, document);
   }
 
   @Override
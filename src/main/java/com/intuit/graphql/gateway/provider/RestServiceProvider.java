@@ -11,11 +11,13 @@ import com.intuit.graphql.adapter.rest.RestAdapter;
 import com.intuit.graphql.gateway.Predicates;
 import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.exception.RestExecutionException;
+import com.intuit.graphql.gateway.graphql.ConcurrencyLimitExceededException;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.metrics.DownstreamCallEvent;
 import com.intuit.graphql.gateway.metrics.ExecutionMetrics;
 import com.intuit.graphql.gateway.registry.RestServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
 import com.intuit.graphql.gateway.webclient.RequestType;
 import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.service.dsl.evaluator.ServiceConfiguration;
@@ -26,6 +28,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpCookie;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
 import reactor.util.context.Context;
 
 import java.util.HashMap;
@@ -51,9 +54,18 @@ public class RestServiceProvider implements ServiceProvider {
 
   private final RestServiceRegistration restServiceRegistration;
   private final ServiceAdapter serviceAdapter;
+  private final ConcurrencyLimiter concurrencyLimiter;
 
   public RestServiceProvider(final RestServiceRegistration restServiceRegistration,
       final WebClient webClient) {
+    this(restServiceRegistration, webClient, null);
+  }
+
+  /**
+   * @param concurrencyLimiter the limiter of the namespace of the service, or {@code null} to not limit calls
+   */
+  public RestServiceProvider(final RestServiceRegistration restServiceRegistration,
+      final WebClient webClient, final ConcurrencyLimiter concurrencyLimiter) {
     ServiceConfiguration serviceConfiguration = createServiceConfiguration(
         restServiceRegistration.getServiceDefinition());
     this.serviceAdapter = RestAdapter.builder()
@@ -63,6 +75,7 @@ public class RestServiceProvider implements ServiceProvider {
         .webClient(webClient)
         .build();
     this.restServiceRegistration = restServiceRegistration;
+    this.concurrencyLimiter = concurrencyLimiter;
   }
 
   private ServiceConfiguration createServiceConfiguration(ServiceDefinition serviceDefinition) {
@@ -91,9 +104,33 @@ public class RestServiceProvider implements ServiceProvider {
     validate(serviceDefinition, context);
     ServiceAdapterRequest request = ServiceAdapterRequest.from(toInputMap(context), context, RequestType.QUERY.name());
 
+    if (concurrencyLimiter == null) {
+      return execute(request, newDownstreamCallEvent(serviceDefinition), context);
+    }
+    return concurrencyLimiter.acquire()
+        .switchIfEmpty(Mono.error(() -> new ConcurrencyLimitExceededException(serviceDefinition.getNamespace())))
+        .toFuture()
+        .thenCompose(permit -> {
+          final DownstreamCallEvent downstreamCallEvent = newDownstreamCallEvent(serviceDefinition);
+          return execute(request, downstreamCallEvent, context)
+              .whenComplete((data, throwable) -> {
+                if (throwable == null) {
+                  permit.onSuccess(downstreamCallEvent.getEventStopWatch().getElapsedNanos());
+                } else {
+                  permit.release();
+                }
+              });
+        });
+  }
+
+  private static DownstreamCallEvent newDownstreamCallEvent(ServiceDefinition serviceDefinition) {
+    return new DownstreamCallEvent(serviceDefinition.getNamespace(), serviceDefinition.getAppId());
+  }
+
+  private CompletableFuture<Map<String, Object>> execute(ServiceAdapterRequest request,
+      DownstreamCallEvent downstreamCallEvent, GraphQLContext context) {
+    ServiceDefinition serviceDefinition = restServiceRegistration.getServiceDefinition();
     CompletableFuture<ServiceAdapterResponse> futureResponse = serviceAdapter.execute(request);
-    DownstreamCallEvent downstreamCallEvent = new DownstreamCallEvent(serviceDefinition.getNamespace(),
-        serviceDefinition.getAppId());
     return futureResponse
         .handle((response, throwable) -> {
           if (Objects.nonNull(throwable)) {
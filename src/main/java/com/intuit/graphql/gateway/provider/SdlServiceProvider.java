@@ -4,6 +4,8 @@ import static com.intuit.graphql.gateway.provider.ServiceProviderHelper.validate
 
 import com.intuit.graphql.gateway.graphql.WebClientQueryExecutor;
 import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
 import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.graphql.orchestrator.batch.QueryExecutor;
 import graphql.ExecutionInput;
@@ -24,8 +26,14 @@ public class SdlServiceProvider implements ServiceProvider {
   private final QueryExecutor queryFunction;
 
   public SdlServiceProvider(final SdlServiceRegistration sdlServiceRegistration, WebClient webClient) {
+    this(sdlServiceRegistration, webClient, null, null);
+  }
+
+  public SdlServiceProvider(final SdlServiceRegistration sdlServiceRegistration, WebClient webClient,
+      CircuitBreaker circuitBreaker, ConcurrencyLimiter concurrencyLimiter) {
     this.sdlServiceRegistration = sdlServiceRegistration;
-    this.queryFunction = new WebClientQueryExecutor(webClient, sdlServiceRegistration.getServiceDefinition());
+    this.queryFunction = new WebClientQueryExecutor(webClient, sdlServiceRegistration.getServiceDefinition(),
+        circuitBreaker, concurrencyLimiter);
   }
 
   @Override
@@ -1,64 +1,105 @@
 package com.intuit.graphql.gateway.provider;
 
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.logging.EventLogger;
 import com.intuit.graphql.gateway.logging.interfaces.ImmutableLogNameValuePair;
 import com.intuit.graphql.gateway.logging.interfaces.LogNameValuePair;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.registry.*;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker;
+import com.intuit.graphql.gateway.webclient.CircuitBreakers;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiters;
+import com.intuit.graphql.gateway.webclient.DownstreamWebClients;
 import com.intuit.graphql.orchestrator.ServiceProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 @Component
 @Slf4j
 public class ServiceBuilder {
 
-  private final WebClient webClient;
+  private final DownstreamWebClients downstreamWebClients;
+  private final DownstreamResultCache downstreamResultCache;
+  private final CircuitBreakers circuitBreakers;
+  private final ConcurrencyLimiters concurrencyLimiters;
+  private final WebClientProperties webClientProperties;
 
-  public ServiceBuilder(WebClient webClient) {
-    this.webClient = webClient;
+  public ServiceBuilder(DownstreamWebClients downstreamWebClients, DownstreamResultCache downstreamResultCache,
+      CircuitBreakers circuitBreakers, ConcurrencyLimiters concurrencyLimiters,
+      WebClientProperties webClientProperties) {
+    this.downstreamWebClients = downstreamWebClients;
+    this.downstreamResultCache = downstreamResultCache;
+    this.circuitBreakers = circuitBreakers;
+    this.concurrencyLimiters = concurrencyLimiters;
+    this.webClientProperties = webClientProperties;
   }
 
   /**
-   * Build a {@link ServiceProvider} for a single service definition.
+   * Build a {@link ServiceProvider} for a single service definition without blocking. GRAPHQL services are introspected
+   * as configured in {@link WebClientProperties#getIntrospection()}.
    *
    * @param tx Transaction context used for logging
    * @param serviceRegistration Service registration of a single remote GraphQL service
    * @return {@link ServiceProvider} service provider built based on given definitions
    */
-  public ServiceProvider buildService(TransactionContext tx, ServiceRegistration serviceRegistration) {
+  public Mono<ServiceProvider> build(TransactionContext tx, ServiceRegistration serviceRegistration) {
+    return build(tx, serviceRegistration, null);
+  }
+
+  /**
+   * Build a {@link ServiceProvider} for a single service definition without blocking.
+   *
+   * @param tx Transaction context used for logging
+   * @param serviceRegistration Service registration of a single remote GraphQL service
+   * @param introspectedSchema schema of a GRAPHQL service introspected before, null to introspect the service
+   * @return {@link ServiceProvider} service provider built based on given definitions
+   */
+  public Mono<ServiceProvider> build(TransactionContext tx, ServiceRegistration serviceRegistration,
+      String introspectedSchema) {
 
     ServiceDefinition serviceDefinition = serviceRegistration.getServiceDefinition();
 
     // verify we have a namespace
     if (StringUtils.isEmpty(serviceDefinition.getNamespace())) {
       EventLogger.error(log, tx, "Cannot register service without a namespace.");
-      throw new ServiceRegistrationException("Service must have defined namespace.");
+      return Mono.error(new ServiceRegistrationException("Service must have defined namespace."));
     }
 
     final LogNameValuePair namespace = ImmutableLogNameValuePair
         .of("namespace", serviceRegistration.getServiceDefinition().getNamespace());
-    try {
-      ServiceProvider serviceProvider = getServiceProvider(tx, serviceRegistration);
-      EventLogger.info(log, tx, "Successfully built service provider", namespace);
-      return serviceProvider;
-    } catch (Exception e) {
-      EventLogger.error(log, tx, "Failed to build service provider", e, namespace);
-      throw new ServiceRegistrationException("Failed to build service provider" + namespace, e);
-    }
+    return getServiceProvider(tx, serviceRegistration, introspectedSchema)
+        .map(serviceProvider -> downstreamResultCache.wrap(tx, serviceProvider, serviceDefinition))
+        .doOnNext(serviceProvider -> EventLogger.info(log, tx, "Successfully built service provider", namespace))
+        .onErrorMap(e -> {
+          EventLogger.error(log, tx, "Failed to build service provider", e, namespace);
+          return new ServiceRegistrationException("Failed to build service provider" + namespace, e);
+        });
   }
 
-  private ServiceProvider getServiceProvider(final TransactionContext tx,
-      final ServiceRegistration serviceRegistration) {
+  private Mono<ServiceProvider> getServiceProvider(final TransactionContext tx,
+      final ServiceRegistration serviceRegistration, final String introspectedSchema) {
 
+    final WebClient webClient = downstreamWebClients.forService(serviceRegistration.getServiceDefinition());
+    final CircuitBreaker circuitBreaker = circuitBreakers.forService(serviceRegistration.getServiceDefinition());
+    final ConcurrencyLimiter concurrencyLimiter = concurrencyLimiters
+        .forService(serviceRegistration.getServiceDefinition());
     if (serviceRegistration instanceof SdlServiceRegistration) {
-      return new SdlServiceProvider((SdlServiceRegistration) serviceRegistration, webClient);
+      return Mono.fromCallable(() -> new SdlServiceProvider((SdlServiceRegistration) serviceRegistration, webClient,
+          circuitBreaker, concurrencyLimiter));
     } else if (serviceRegistration instanceof RestServiceRegistration) {
-      return new RestServiceProvider((RestServiceRegistration) serviceRegistration, webClient);
+      return Mono.fromCallable(() -> new RestServiceProvider((RestServiceRegistration) serviceRegistration, webClient,
+          concurrencyLimiter));
     } else {
-      return new IntrospectionServiceProvider(tx, webClient, serviceRegistration);
+      return (introspectedSchema != null
+          ? Mono.just(introspectedSchema)
+          : IntrospectionServiceProvider.introspect(tx, webClient, serviceRegistration.getServiceDefinition(),
+              webClientProperties.getIntrospection()))
+          .map(document -> new IntrospectionServiceProvider(webClient, serviceRegistration, circuitBreaker,
+              concurrencyLimiter, document));
     }
   }
 }
@@ -0,0 +1,41 @@
+package com.intuit.graphql.gateway.provider;
+
+import com.intuit.graphql.gateway.registry.ServiceRegistration;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * The service providers of the current graph, by registration, reused as long as their registration does not change.
+ * A reused provider is not introspected again, keeps its compiled REST flows and its query executor.
+ *
+ * <p>Registrations are equal if their service definition and resources are, so any change to a registration builds a
+ * new provider. The cache is replaced with the providers of every graph rebuilt from the registry, which evicts the
+ * providers of registrations no longer registered.
+ */
+@Component
+public class ServiceProviderCache {
+
+  private final ConcurrentMap<ServiceRegistration, ServiceProvider> providers = new ConcurrentHashMap<>();
+
+  /**
+   * @return the provider built for an equal registration, or null
+   */
+  public ServiceProvider get(final ServiceRegistration serviceRegistration) {
+    return providers.get(serviceRegistration);
+  }
+
+  /**
+   * Caches the given providers and evicts those of any other registration.
+   */
+  public void replaceAll(final Map<ServiceRegistration, ServiceProvider> currentProviders) {
+    providers.putAll(currentProviders);
+    providers.keySet().retainAll(currentProviders.keySet());
+  }
+
+  public int size() {
+    return providers.size();
+  }
+}
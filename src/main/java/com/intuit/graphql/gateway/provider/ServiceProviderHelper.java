@@ -3,7 +3,12 @@ package com.intuit.graphql.gateway.provider;
 import com.intuit.graphql.gateway.graphql.DataRetrieverException;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import graphql.ExecutionInput;
 import graphql.GraphQLContext;
+import graphql.GraphQLException;
+import graphql.language.Document;
+import graphql.language.NodeUtil;
+import graphql.language.OperationDefinition.Operation;
 import java.util.Objects;
 import java.util.Optional;
 import org.springframework.http.HttpStatus;
@@ -33,4 +38,21 @@ public class ServiceProviderHelper {
         .map(appId -> serviceDefinition.getClientWhitelist().contains(appId))
         .orElse(Boolean.FALSE);
   }
+
+  /**
+   * @param executionInput a downstream request
+   * @return {@code true} if the request is a query operation, {@code false} if it is a mutation or subscription, or if
+   * its document is not available
+   */
+  public static boolean isQuery(final ExecutionInput executionInput) {
+    if (!(executionInput.getRoot() instanceof Document)) {
+      return false;
+    }
+    try {
+      return NodeUtil.getOperation((Document) executionInput.getRoot(), executionInput.getOperationName())
+          .operationDefinition.getOperation() == Operation.QUERY;
+    } catch (GraphQLException e) {
+      return false;
+    }
+  }
 }
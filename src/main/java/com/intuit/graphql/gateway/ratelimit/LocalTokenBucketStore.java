@@ -0,0 +1,91 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties.Limit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link TokenBucketStore} in memory, bounded by the number of clients.
+ *
+ * <p>The buckets live in a segmented cache, so clients do not contend with each other, and each bucket is updated with
+ * compare-and-set, so requests of the same client do not lock either. Buckets are refilled lazily, by the time passed
+ * since their last update.
+ */
+public class LocalTokenBucketStore implements TokenBucketStore {
+
+  private static final long IDLE_EXPIRY_MINUTES = 60;
+
+  private final Cache<String, TokenBucket> buckets;
+  private final LongSupplier nanoTime;
+
+  public LocalTokenBucketStore(final int maxBuckets) {
+    this(maxBuckets, System::nanoTime);
+  }
+
+  LocalTokenBucketStore(final int maxBuckets, final LongSupplier nanoTime) {
+    this.buckets = CacheBuilder.newBuilder()
+        .maximumSize(maxBuckets)
+        .expireAfterAccess(IDLE_EXPIRY_MINUTES, TimeUnit.MINUTES)
+        .build();
+    this.nanoTime = nanoTime;
+  }
+
+  @Override
+  public boolean tryConsume(final String key, final long tokens, final Limit limit) {
+    return buckets.asMap()
+        .computeIfAbsent(key, k -> new TokenBucket(limit.getCapacity(), nanoTime.getAsLong()))
+        .tryConsume(tokens, limit, nanoTime.getAsLong());
+  }
+
+  /**
+   * @param key the client id
+   * @param limit the capacity and refill rate of the bucket of the client
+   * @return the tokens left in the bucket of the client
+   */
+  double getTokens(final String key, final Limit limit) {
+    final TokenBucket bucket = buckets.getIfPresent(key);
+    return bucket == null ? limit.getCapacity() : bucket.refill(bucket.state.get(), limit, nanoTime.getAsLong());
+  }
+
+  private static final class TokenBucket {
+
+    private final AtomicReference<State> state;
+
+    private TokenBucket(final long capacity, final long nowNanos) {
+      this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    private boolean tryConsume(final long tokens, final Limit limit, final long nowNanos) {
+      while (true) {
+        final State current = state.get();
+        final double available = refill(current, limit, nowNanos);
+        if (available < tokens) {
+          return false;
+        }
+        if (state.compareAndSet(current, new State(available - tokens, Math.max(nowNanos, current.updatedAtNanos)))) {
+          return true;
+        }
+      }
+    }
+
+    private double refill(final State current, final Limit limit, final long nowNanos) {
+      final long elapsedNanos = Math.max(0, nowNanos - current.updatedAtNanos);
+      final double refilled = current.tokens + elapsedNanos * limit.getRefillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+      return Math.min(limit.getCapacity(), refilled);
+    }
+  }
+
+  private static final class State {
+
+    private final double tokens;
+    private final long updatedAtNanos;
+
+    private State(final double tokens, final long updatedAtNanos) {
+      this.tokens = tokens;
+      this.updatedAtNanos = updatedAtNanos;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties;
+import com.intuit.graphql.gateway.graphql.QueryCost;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.GraphQLContext;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import reactor.util.context.Context;
+
+/**
+ * Throttles clients by the {@link QueryCost} of their operations: each operation takes as many tokens from the bucket
+ * of its client as it costs, and is aborted if the bucket does not have them. The cost is the one left in the {@link
+ * GraphQLContext} by the query cost instrumentation when it is enabled, else it is computed here.
+ *
+ * <p>Clients are identified by the appId of the transaction context. Requests without one share a single bucket.
+ * Throttled operations and their cost are counted in {@value #METRIC_NAME}{@code .throttled} and {@code
+ * .throttled.cost}, tagged with the client.
+ */
+public class RateLimitInstrumentation extends SimpleInstrumentation {
+
+  static final String METRIC_NAME = "graphql.ratelimit";
+  static final String CLASSIFICATION = "RateLimited";
+  static final String ANONYMOUS_CLIENT = "anonymous";
+
+  private final RateLimitProperties properties;
+  private final QueryCostProperties queryCostProperties;
+  private final TokenBucketStore tokenBucketStore;
+  private final MeterRegistry meterRegistry;
+
+  public RateLimitInstrumentation(final RateLimitProperties properties,
+      final QueryCostProperties queryCostProperties, final TokenBucketStore tokenBucketStore,
+      final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.queryCostProperties = queryCostProperties;
+    this.tokenBucketStore = tokenBucketStore;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+      InstrumentationExecuteOperationParameters parameters) {
+    ExecutionContext executionContext = parameters.getExecutionContext();
+    long cost = getQueryCost(executionContext).getCost();
+    String client = getClient(executionContext.getContext());
+
+    if (!tokenBucketStore.tryConsume(client, cost, properties.getLimit(client))) {
+      Counter.builder(METRIC_NAME + ".throttled")
+          .tag("client", client)
+          .register(meterRegistry)
+          .increment();
+      Counter.builder(METRIC_NAME + ".throttled.cost")
+          .tag("client", client)
+          .register(meterRegistry)
+          .increment(cost);
+
+      Map<String, Object> extensions = new HashMap<>();
+      extensions.put("classification", CLASSIFICATION);
+      extensions.put("cost", cost);
+      throw new AbortExecutionException(Collections.singletonList(GraphqlErrorBuilder.newError()
+          .message("Rate limit of the client exceeded, try again later")
+          .errorType(ErrorType.ExecutionAborted)
+          .extensions(extensions)
+          .build()));
+    }
+
+    return super.beginExecuteOperation(parameters);
+  }
+
+  private QueryCost getQueryCost(ExecutionContext executionContext) {
+    Object context = executionContext.getContext();
+    if (context instanceof GraphQLContext && ((GraphQLContext) context).hasKey(QueryCost.class)) {
+      return ((GraphQLContext) context).get(QueryCost.class);
+    }
+    return QueryCost.of(executionContext.getGraphQLSchema(), executionContext.getDocument(),
+        executionContext.getOperationDefinition().getName(), executionContext.getVariables(), queryCostProperties);
+  }
+
+  private static String getClient(Object context) {
+    if (!(context instanceof GraphQLContext) || !((GraphQLContext) context).hasKey(Context.class)) {
+      return ANONYMOUS_CLIENT;
+    }
+    Context reactorContext = ((GraphQLContext) context).get(Context.class);
+    return reactorContext.<TransactionContext>getOrEmpty(TransactionContext.class)
+        .map(TransactionContext::getAppId)
+        .orElse(ANONYMOUS_CLIENT);
+  }
+}
@@ -0,0 +1,39 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties;
+import graphql.execution.instrumentation.Instrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the {@link RateLimitInstrumentation}. Tokens are kept in the {@link TokenBucketStore} bean if one is
+ * present, else in a {@link LocalTokenBucketStore} of this instance.
+ */
+@Component
+public class RateLimitManager {
+
+  private final RateLimitProperties rateLimitProperties;
+  private final QueryCostProperties queryCostProperties;
+  private final MeterRegistry meterRegistry;
+  private final TokenBucketStore tokenBucketStore;
+
+  public RateLimitManager(final RateLimitProperties rateLimitProperties,
+      final QueryCostProperties queryCostProperties, final MeterRegistry meterRegistry,
+      final ObjectProvider<TokenBucketStore> tokenBucketStore) {
+    this.rateLimitProperties = rateLimitProperties;
+    this.queryCostProperties = queryCostProperties;
+    this.meterRegistry = meterRegistry;
+    this.tokenBucketStore = tokenBucketStore
+        .getIfAvailable(() -> new LocalTokenBucketStore(rateLimitProperties.getMaxClients()));
+  }
+
+  public boolean isRateLimitEnabled() {
+    return rateLimitProperties.isEnabled();
+  }
+
+  public Instrumentation getInstrumentation() {
+    return new RateLimitInstrumentation(rateLimitProperties, queryCostProperties, tokenBucketStore, meterRegistry);
+  }
+}
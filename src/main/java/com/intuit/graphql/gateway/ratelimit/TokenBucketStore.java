@@ -0,0 +1,22 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties.Limit;
+
+/**
+ * Token buckets of the rate limited clients, keyed by client id.
+ *
+ * <p>By default every gateway instance keeps its own buckets in a {@link LocalTokenBucketStore}. Registering a bean of
+ * this type replaces it, e.g. by a store shared by all instances. The store is called on the request thread before the
+ * operation executes, so implementations must not block: a distributed store would take tokens from an allowance held
+ * locally and settle with the shared state in the background.
+ */
+public interface TokenBucketStore {
+
+  /**
+   * @param key the client id
+   * @param tokens the tokens to take, the cost of the operation
+   * @param limit the capacity and refill rate of the bucket of the client
+   * @return {@code true} if the bucket had enough tokens and they were taken, {@code false} if it is left untouched
+   */
+  boolean tryConsume(String key, long tokens, Limit limit);
+}
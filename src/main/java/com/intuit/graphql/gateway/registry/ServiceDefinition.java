@@ -1,6 +1,8 @@
 package com.intuit.graphql.gateway.registry;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
@@ -23,6 +25,8 @@ public class ServiceDefinition implements Serializable {
   @Value("${webclient.timeout}")
   public static long defaultTimeOut = 10000;
 
+  public static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
+
   private String appId;
   private String namespace;
   private Type type = Type.GRAPHQL;
@@ -31,6 +35,19 @@ public class ServiceDefinition implements Serializable {
   private Set<String> forwardHeaders = Collections.emptySet();
   private Set<String> domainTypes = Collections.emptySet();
   private Set<String> clientWhitelist = Collections.emptySet();
+  private boolean coalesceRequests;
+  private HttpVersion httpVersion = HttpVersion.HTTP11;
+  private Compression compression = Compression.NONE;
+  private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+  private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+  private HedgingConfig hedging = new HedgingConfig();
+  private ConcurrencyLimitConfig concurrencyLimit = new ConcurrencyLimitConfig();
+
+  /**
+   * For Jackson, see {@link com.intuit.graphql.gateway.graphql.SchemaSnapshot}.
+   */
+  private ServiceDefinition() {
+  }
 
   private ServiceDefinition(Builder builder) {
     setAppId(builder.appId);
@@ -41,6 +58,13 @@ public class ServiceDefinition implements Serializable {
     setForwardHeaders(builder.forwardHeaders);
     setDomainTypes(builder.domainTypes);
     setClientWhitelist(builder.clientWhitelist);
+    setCoalesceRequests(builder.coalesceRequests);
+    setHttpVersion(builder.httpVersion);
+    setCompression(builder.compression);
+    setCompressionMinSize(builder.compressionMinSize);
+    setCircuitBreaker(builder.circuitBreaker);
+    setHedging(builder.hedging);
+    setConcurrencyLimit(builder.concurrencyLimit);
   }
 
   public static Builder newBuilder() {
@@ -60,6 +84,12 @@ public class ServiceDefinition implements Serializable {
     map.put("type", this.type);
     map.put("endpoint", this.endpoint);
     map.put("timeout", this.timeout);
+    map.put("coalesceRequests", this.coalesceRequests);
+    map.put("httpVersion", this.httpVersion);
+    map.put("compression", this.compression);
+    map.put("circuitBreaker", this.circuitBreaker.isEnabled());
+    map.put("hedging", this.hedging.isEnabled());
+    map.put("concurrencyLimit", this.concurrencyLimit.isEnabled());
     return map;
   }
 
@@ -77,6 +107,124 @@ public class ServiceDefinition implements Serializable {
 
   }
 
+  /**
+   * HTTP version used to call the service. {@code H2} negotiates HTTP/2 over TLS with ALPN and requires an https
+   * endpoint, {@code H2C} uses cleartext HTTP/2 with prior knowledge. Both fall back to HTTP/1.1 if the service does
+   * not speak HTTP/2.
+   */
+  public enum HttpVersion {
+    HTTP11, H2, H2C;
+
+    @JsonCreator
+    public static HttpVersion fromValue(String value) {
+      return valueOf(StringUtils.replaceChars(
+          StringUtils.upperCase(value), '-', '_'));
+    }
+  }
+
+  /**
+   * Content coding of request bodies sent to the service. Bodies smaller than the compression min size are sent
+   * uncompressed. Unless {@code NONE}, gzip and deflate coded responses are accepted as well.
+   */
+  public enum Compression {
+    NONE, GZIP, DEFLATE;
+
+    @JsonCreator
+    public static Compression fromValue(String value) {
+      return valueOf(StringUtils.replaceChars(
+          StringUtils.upperCase(value), '-', '_'));
+    }
+
+    /**
+     * @return the value of the Content-Encoding header of bodies in this coding
+     */
+    public String getContentEncoding() {
+      return this == NONE ? "identity" : name().toLowerCase();
+    }
+  }
+
+  /**
+   * Circuit breaker settings of the service. Once the failure rate or the slow call rate over the last {@code
+   * slidingWindowSize} calls reaches its threshold, calls fail fast for {@code waitDurationInOpenStateMs}. Then {@code
+   * permittedCallsInHalfOpenState} probe calls decide whether the breaker closes again. Rates are percentages.
+   */
+  @Data
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class CircuitBreakerConfig implements Serializable {
+
+    private boolean enabled;
+
+    @JsonProperty("failure-rate-threshold")
+    private int failureRateThreshold = 50;
+
+    @JsonProperty("slow-call-rate-threshold")
+    private int slowCallRateThreshold = 100;
+
+    @JsonProperty("slow-call-duration-ms")
+    private long slowCallDurationMs = 5000;
+
+    @JsonProperty("sliding-window-size")
+    private int slidingWindowSize = 100;
+
+    @JsonProperty("minimum-number-of-calls")
+    private int minimumNumberOfCalls = 20;
+
+    @JsonProperty("wait-duration-in-open-state-ms")
+    private long waitDurationInOpenStateMs = 30000;
+
+    @JsonProperty("permitted-calls-in-half-open-state")
+    private int permittedCallsInHalfOpenState = 5;
+  }
+
+  /**
+   * Hedging settings of the service. A query that got no response after {@code delayMs} is sent a second time and the
+   * first response is used. With a {@code delayMs} of 0 the delay is the observed 95th percentile response time of the
+   * service. At most {@code maxHedgePercent} percent of the queries are hedged.
+   */
+  @Data
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class HedgingConfig implements Serializable {
+
+    private boolean enabled;
+
+    @JsonProperty("delay-ms")
+    private long delayMs;
+
+    @JsonProperty("max-hedge-percent")
+    private int maxHedgePercent = 10;
+  }
+
+  /**
+   * Adaptive concurrency limit of the calls to the service. The limit starts at {@code initialLimit} and moves between
+   * {@code minLimit} and {@code maxLimit}: it shrinks when response times rise above the long term average by more
+   * than {@code rttTolerance} times, and grows while they do not. Calls over the limit wait up to {@code
+   * maxQueueWaitMs} in a queue of at most {@code maxQueueSize} calls, and are rejected if they get no turn.
+   */
+  @Data
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class ConcurrencyLimitConfig implements Serializable {
+
+    private boolean enabled;
+
+    @JsonProperty("initial-limit")
+    private int initialLimit = 20;
+
+    @JsonProperty("min-limit")
+    private int minLimit = 1;
+
+    @JsonProperty("max-limit")
+    private int maxLimit = 200;
+
+    @JsonProperty("rtt-tolerance")
+    private double rttTolerance = 1.5;
+
+    @JsonProperty("max-queue-size")
+    private int maxQueueSize = 50;
+
+    @JsonProperty("max-queue-wait-ms")
+    private long maxQueueWaitMs = 50;
+  }
+
   public static final class Builder {
 
     private String appId;
@@ -87,7 +235,13 @@ public class ServiceDefinition implements Serializable {
     private Set<String> forwardHeaders = Collections.emptySet();
     private Set<String> domainTypes = Collections.emptySet();
     private Set<String> clientWhitelist = Collections.emptySet();
-
+    private boolean coalesceRequests;
+    private HttpVersion httpVersion = HttpVersion.HTTP11;
+    private Compression compression = Compression.NONE;
+    private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+    private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+    private HedgingConfig hedging = new HedgingConfig();
+    private ConcurrencyLimitConfig concurrencyLimit = new ConcurrencyLimitConfig();
 
     private Builder() {
     }
@@ -132,6 +286,47 @@ public class ServiceDefinition implements Serializable {
       return this;
     }
 
+    /**
+     * Share one downstream call among identical queries in flight at the same time. Mutations are never shared.
+     */
+    public Builder coalesceRequests(boolean val) {
+      coalesceRequests = val;
+      return this;
+    }
+
+    public Builder httpVersion(HttpVersion val) {
+      httpVersion = val;
+      return this;
+    }
+
+    public Builder compression(Compression val) {
+      compression = val;
+      return this;
+    }
+
+    /**
+     * Minimum size in bytes of a request body to be compressed.
+     */
+    public Builder compressionMinSize(int val) {
+      compressionMinSize = val;
+      return this;
+    }
+
+    public Builder circuitBreaker(CircuitBreakerConfig val) {
+      circuitBreaker = val;
+      return this;
+    }
+
+    public Builder hedging(HedgingConfig val) {
+      hedging = val;
+      return this;
+    }
+
+    public Builder concurrencyLimit(ConcurrencyLimitConfig val) {
+      concurrencyLimit = val;
+      return this;
+    }
+
     public ServiceDefinition build() {
       return new ServiceDefinition(this);
     }
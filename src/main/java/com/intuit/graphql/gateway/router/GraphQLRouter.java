@@ -1,12 +1,14 @@
 package com.intuit.graphql.gateway.router;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
 import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
 import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
 import com.intuit.graphql.gateway.handler.GraphQLRouteHandler;
+import com.intuit.graphql.gateway.handler.ResponseCompression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RequestPredicate;
@@ -18,19 +20,33 @@ public class GraphQLRouter {
 
   private static final String GRAPHQL_ENDPOINT = "/graphql";
 
+  /**
+   * Route names for the settings of {@link com.intuit.graphql.gateway.config.properties.ResponseCompressionProperties}.
+   */
+  static final String GRAPHQL_ROUTE_NAME = "graphql";
+  static final String GRAPHQL_GET_ROUTE_NAME = "graphql-get";
+
   static final RequestPredicate graphQLRoute = POST(GRAPHQL_ENDPOINT)
       .and(accept(APPLICATION_JSON)
           .and(contentType(APPLICATION_JSON))
       );
 
+  static final RequestPredicate graphQLGetRoute = GET(GRAPHQL_ENDPOINT)
+      .and(accept(APPLICATION_JSON));
+
   private final GraphQLRouteHandler graphQLRouteHandler;
+  private final ResponseCompression responseCompression;
 
-  public GraphQLRouter(GraphQLRouteHandler graphQLRouteHandler) {
+  public GraphQLRouter(GraphQLRouteHandler graphQLRouteHandler, ResponseCompression responseCompression) {
     this.graphQLRouteHandler = graphQLRouteHandler;
+    this.responseCompression = responseCompression;
   }
 
   @Bean
   public RouterFunction<ServerResponse> graphQlRouterFunction() {
-    return route(graphQLRoute, graphQLRouteHandler::handle);
+    return route(graphQLRoute, graphQLRouteHandler::handle)
+        .filter(responseCompression.forRoute(GRAPHQL_ROUTE_NAME))
+        .and(route(graphQLGetRoute, graphQLRouteHandler::handleGet)
+            .filter(responseCompression.forRoute(GRAPHQL_GET_ROUTE_NAME)));
   }
 }
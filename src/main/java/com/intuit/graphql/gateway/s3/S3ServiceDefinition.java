@@ -7,6 +7,11 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.intuit.graphql.gateway.common.InvalidGatewayEnvironmentException;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.ConcurrencyLimitConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HedgingConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HttpVersion;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.s3.S3Configuration.Region;
 import java.io.Serializable;
@@ -59,6 +64,70 @@ public abstract class S3ServiceDefinition implements Serializable {
     return Type.GRAPHQL;
   }
 
+  /**
+   * HTTP version used to call the service, one of {@code http11}, {@code h2} or {@code h2c}.
+   */
+  @JsonProperty("http-version")
+  @Default
+  public HttpVersion httpVersion() {
+    return HttpVersion.HTTP11;
+  }
+
+  /**
+   * Content coding of request bodies, one of {@code none}, {@code gzip} or {@code deflate}. Also enables compressed
+   * responses.
+   */
+  @JsonProperty("compression")
+  @Default
+  public Compression compression() {
+    return Compression.NONE;
+  }
+
+  /**
+   * Minimum size in bytes of a request body to be compressed.
+   */
+  @JsonProperty("compression-min-size")
+  @Default
+  public int compressionMinSize() {
+    return ServiceDefinition.DEFAULT_COMPRESSION_MIN_SIZE;
+  }
+
+  /**
+   * Whether identical queries in flight at the same time share one downstream call.
+   */
+  @JsonProperty("coalesce-requests")
+  @Default
+  public boolean coalesceRequests() {
+    return false;
+  }
+
+  /**
+   * Circuit breaker of the calls to the service, disabled unless configured with {@code "enabled": true}.
+   */
+  @JsonProperty("circuit-breaker")
+  @Default
+  public CircuitBreakerConfig circuitBreaker() {
+    return new CircuitBreakerConfig();
+  }
+
+  /**
+   * Hedging of the queries to the service, disabled unless configured with {@code "enabled": true}.
+   */
+  @JsonProperty("hedging")
+  @Default
+  public HedgingConfig hedging() {
+    return new HedgingConfig();
+  }
+
+  /**
+   * Adaptive concurrency limit of the calls to the service, disabled unless configured with {@code "enabled": true}.
+   */
+  @JsonProperty("concurrency-limit")
+  @Default
+  public ConcurrencyLimitConfig concurrencyLimit() {
+    return new ConcurrencyLimitConfig();
+  }
+
   /**
    * Get {@link EnvironmentSpecification} based on region specific environment, if configuration is not found use the
    * base region agnostic environment to fetch the environment spec.
@@ -122,6 +191,13 @@ public abstract class S3ServiceDefinition implements Serializable {
         .endpoint(envSpec.endpoint())
         .domainTypes(domainTypes())
         .clientWhitelist(clientWhiteList)
+        .coalesceRequests(coalesceRequests())
+        .httpVersion(httpVersion())
+        .compression(compression())
+        .compressionMinSize(compressionMinSize())
+        .circuitBreaker(circuitBreaker())
+        .hedging(hedging())
+        .concurrencyLimit(concurrencyLimit())
         .build();
   }
 
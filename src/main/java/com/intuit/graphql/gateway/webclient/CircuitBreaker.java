@@ -0,0 +1,244 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of the calls to a downstream service, configured by a {@link CircuitBreakerConfig}.
+ *
+ * <p>The breaker starts {@link State#CLOSED} and records the outcome of the last calls in a sliding window. Once the
+ * window holds the minimum number of calls and the failure rate or the slow call rate reaches its threshold, the
+ * breaker opens and rejects calls. After the wait duration it lets a few probe calls through, {@link State#HALF_OPEN}, and
+ * closes or opens again depending on their outcome.
+ *
+ * <p>The breaker does not lock. Each state holds its own window, and a state change replaces the state with a new
+ * one, so calls that complete after a state change are not recorded against the next state.
+ */
+public class CircuitBreaker {
+
+  /**
+   * State of a breaker. The code is exported as gauge value.
+   */
+  public enum State {
+    CLOSED(0), OPEN(1), HALF_OPEN(2);
+
+    private final int code;
+
+    State(final int code) {
+      this.code = code;
+    }
+
+    public int getCode() {
+      return code;
+    }
+  }
+
+  private final CircuitBreakerConfig config;
+  private final long slowCallDurationNanos;
+  private final long waitDurationNanos;
+  private final LongSupplier nanoTime;
+  private final AtomicReference<Phase> phase;
+
+  public CircuitBreaker(final CircuitBreakerConfig config) {
+    this(config, System::nanoTime);
+  }
+
+  CircuitBreaker(final CircuitBreakerConfig config, final LongSupplier nanoTime) {
+    this.config = config;
+    this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDurationMs());
+    this.waitDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getWaitDurationInOpenStateMs());
+    this.nanoTime = nanoTime;
+    this.phase = new AtomicReference<>(closed());
+  }
+
+  /**
+   * @return a permit to make a call, or {@code null} if the breaker is open or has no probe calls left
+   */
+  public Permit tryAcquirePermission() {
+    while (true) {
+      final Phase current = phase.get();
+      switch (current.state) {
+        case CLOSED:
+          return new Permit(current, nanoTime.getAsLong());
+        case OPEN:
+          if (nanoTime.getAsLong() - current.openUntilNanos < 0) {
+            return null;
+          }
+          phase.compareAndSet(current, halfOpen());
+          break;
+        default:
+          int permits;
+          do {
+            permits = current.permits.get();
+            if (permits <= 0) {
+              return null;
+            }
+          } while (!current.permits.compareAndSet(permits, permits - 1));
+          return new Permit(current, nanoTime.getAsLong());
+      }
+    }
+  }
+
+  public State getState() {
+    return phase.get().state;
+  }
+
+  /**
+   * @return the failure rate in percent over the calls recorded in the current state, or that opened the breaker
+   */
+  public double getFailureRate() {
+    return phase.get().window.getFailureRate();
+  }
+
+  /**
+   * @return the slow call rate in percent over the calls recorded in the current state, or that opened the breaker
+   */
+  public double getSlowCallRate() {
+    return phase.get().window.getSlowCallRate();
+  }
+
+  private void onResult(final Phase current, final long durationNanos, final boolean failed) {
+    if (phase.get() != current) {
+      return;
+    }
+
+    final Window window = current.window;
+    window.record(failed, durationNanos >= slowCallDurationNanos);
+    if (current.state == State.CLOSED) {
+      if (window.getCalls() >= config.getMinimumNumberOfCalls() && exceedsThresholds(window)) {
+        phase.compareAndSet(current, open(window));
+      }
+    } else if (window.getCalls() >= config.getPermittedCallsInHalfOpenState()) {
+      phase.compareAndSet(current, exceedsThresholds(window) ? open(window) : closed());
+    }
+  }
+
+  private boolean exceedsThresholds(final Window window) {
+    return window.getFailureRate() >= config.getFailureRateThreshold()
+        || window.getSlowCallRate() >= config.getSlowCallRateThreshold();
+  }
+
+  private Phase closed() {
+    return new Phase(State.CLOSED, 0, new Window(Math.max(1, config.getSlidingWindowSize())), 0);
+  }
+
+  /**
+   * @param window the window that opened the breaker, kept to export its rates
+   */
+  private Phase open(final Window window) {
+    return new Phase(State.OPEN, nanoTime.getAsLong() + waitDurationNanos, window, 0);
+  }
+
+  private Phase halfOpen() {
+    final int permittedCalls = Math.max(1, config.getPermittedCallsInHalfOpenState());
+    return new Phase(State.HALF_OPEN, 0, new Window(permittedCalls), permittedCalls);
+  }
+
+  /**
+   * Permission to make one call. The outcome of the call is recorded with {@link #onSuccess()} or {@link #onError()},
+   * a call that was cancelled gives its permission back with {@link #release()}. Only the first of these counts.
+   */
+  public final class Permit {
+
+    private final Phase phase;
+    private final long startNanos;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Permit(final Phase phase, final long startNanos) {
+      this.phase = phase;
+      this.startNanos = startNanos;
+    }
+
+    public void onSuccess() {
+      if (done.compareAndSet(false, true)) {
+        onResult(phase, nanoTime.getAsLong() - startNanos, false);
+      }
+    }
+
+    public void onError() {
+      if (done.compareAndSet(false, true)) {
+        onResult(phase, nanoTime.getAsLong() - startNanos, true);
+      }
+    }
+
+    public void release() {
+      if (done.compareAndSet(false, true) && phase.state == State.HALF_OPEN) {
+        phase.permits.incrementAndGet();
+      }
+    }
+  }
+
+  private static final class Phase {
+
+    private final State state;
+    private final long openUntilNanos;
+    private final Window window;
+    private final AtomicInteger permits;
+
+    private Phase(final State state, final long openUntilNanos, final Window window, final int permits) {
+      this.state = state;
+      this.openUntilNanos = openUntilNanos;
+      this.window = window;
+      this.permits = new AtomicInteger(permits);
+    }
+  }
+
+  /**
+   * Ring of the outcomes of the last calls. The counts are kept along with the outcomes, so the rates are read without
+   * scanning the ring.
+   */
+  static final class Window {
+
+    private static final int RECORDED = 1;
+    private static final int FAILED = 2;
+    private static final int SLOW = 4;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    Window(final int size) {
+      this.outcomes = new AtomicIntegerArray(size);
+    }
+
+    void record(final boolean failed, final boolean slow) {
+      final int outcome = RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+      final int slot = (int) (next.getAndIncrement() % outcomes.length());
+      final int replaced = outcomes.getAndSet(slot, outcome);
+      if (replaced == 0) {
+        calls.incrementAndGet();
+      }
+      failedCalls.addAndGet(count(outcome, FAILED) - count(replaced, FAILED));
+      slowCalls.addAndGet(count(outcome, SLOW) - count(replaced, SLOW));
+    }
+
+    int getCalls() {
+      return calls.get();
+    }
+
+    double getFailureRate() {
+      return rate(failedCalls.get());
+    }
+
+    double getSlowCallRate() {
+      return rate(slowCalls.get());
+    }
+
+    private double rate(final int count) {
+      final int total = calls.get();
+      return total == 0 ? 0 : Math.min(100.0, count * 100.0 / total);
+    }
+
+    private static int count(final int outcome, final int flag) {
+      return (outcome & flag) != 0 ? 1 : 0;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the {@link CircuitBreaker} of a downstream service, one per namespace.
+ *
+ * <p>A breaker outlives the providers built for its namespace, so its state is kept when the schema is rebuilt. A
+ * breaker is replaced when the {@link CircuitBreakerConfig} of its namespace changes. The state of the breakers is
+ * exported in {@value #METRIC_NAME}{@code .state} (0 closed, 1 open, 2 half-open), {@code .failure.rate} and {@code
+ * .slow.call.rate}, tagged with the namespace.
+ */
+@Component
+public class CircuitBreakers {
+
+  public static final String METRIC_NAME = "graphql.downstream.circuitbreaker";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, NamespaceCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  public CircuitBreakers(final MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @param serviceDefinition the downstream service
+   * @return the breaker of the namespace of the service, or {@code null} if the service has none enabled
+   */
+  public CircuitBreaker forService(final ServiceDefinition serviceDefinition) {
+    final CircuitBreakerConfig config = serviceDefinition.getCircuitBreaker();
+    if (config == null || !config.isEnabled()) {
+      return null;
+    }
+
+    return circuitBreakers
+        .computeIfAbsent(serviceDefinition.getNamespace(), namespace -> newNamespaceCircuitBreaker(namespace, config))
+        .forConfig(config);
+  }
+
+  private NamespaceCircuitBreaker newNamespaceCircuitBreaker(final String namespace,
+      final CircuitBreakerConfig config) {
+    final NamespaceCircuitBreaker namespaceCircuitBreaker = new NamespaceCircuitBreaker(config);
+    Gauge.builder(METRIC_NAME + ".state", namespaceCircuitBreaker, cb -> cb.circuitBreaker.getState().getCode())
+        .tag("namespace", namespace)
+        .register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".failure.rate", namespaceCircuitBreaker, cb -> cb.circuitBreaker.getFailureRate())
+        .tag("namespace", namespace)
+        .baseUnit("percent")
+        .register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".slow.call.rate", namespaceCircuitBreaker, cb -> cb.circuitBreaker.getSlowCallRate())
+        .tag("namespace", namespace)
+        .baseUnit("percent")
+        .register(meterRegistry);
+    return namespaceCircuitBreaker;
+  }
+
+  /**
+   * The breaker of a namespace, the gauges of the namespace read the current one.
+   */
+  private static final class NamespaceCircuitBreaker {
+
+    private CircuitBreakerConfig config;
+    private volatile CircuitBreaker circuitBreaker;
+
+    private NamespaceCircuitBreaker(final CircuitBreakerConfig config) {
+      this.config = config;
+      this.circuitBreaker = new CircuitBreaker(config);
+    }
+
+    private synchronized CircuitBreaker forConfig(final CircuitBreakerConfig config) {
+      if (!config.equals(this.config)) {
+        this.config = config;
+        this.circuitBreaker = new CircuitBreaker(config);
+      }
+      return circuitBreaker;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.ConcurrencyLimitConfig;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Adaptive limit of the calls in flight to a downstream service, configured by a {@link ConcurrencyLimitConfig}.
+ *
+ * <p>The limit follows the gradient of the response times: each response time is compared to an exponential average
+ * of the previous ones. While responses are not slower than the average by more than the tolerance, the limit grows
+ * by about its square root per sample; once they are, it shrinks by the ratio of the two. Calls that time out shrink
+ * the limit as well. The limit does not grow while less than half of it is in use.
+ *
+ * <p>Calls over the limit wait in a bounded queue and are let through in arrival order as calls complete. A call that
+ * finds the queue full or does not get its turn within the maximum queue wait is rejected.
+ */
+public class ConcurrencyLimiter {
+
+  static final int LONG_RTT_WINDOW = 600;
+  static final double SMOOTHING = 0.2;
+  static final double BACKOFF_RATIO = 0.9;
+
+  private final ConcurrencyLimitConfig config;
+  private final Duration maxQueueWait;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicLong rejected = new AtomicLong();
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+  private volatile double limit;
+  private double longRttNanos;
+
+  public ConcurrencyLimiter(final ConcurrencyLimitConfig config) {
+    this.config = config;
+    this.maxQueueWait = Duration.ofMillis(config.getMaxQueueWaitMs());
+    this.limit = clamp(config.getInitialLimit());
+  }
+
+  /**
+   * @return a permit to make a call, once the limit allows it, or an empty mono if the call is rejected
+   */
+  public Mono<Permit> acquire() {
+    return Mono.defer(() -> {
+      final Permit permit = tryAcquire();
+      if (permit != null) {
+        return Mono.just(permit);
+      }
+      if (queued.incrementAndGet() > config.getMaxQueueSize()) {
+        queued.decrementAndGet();
+        rejected.incrementAndGet();
+        return Mono.empty();
+      }
+
+      final Waiter waiter = new Waiter();
+      waiters.add(waiter);
+      // calls may have completed since the limit was checked, nothing else would hand out their permits then
+      drain();
+      return waiter.sink.asMono()
+          .timeout(maxQueueWait, Mono.defer(() -> {
+            if (waiter.claim()) {
+              rejected.incrementAndGet();
+              return Mono.empty();
+            }
+            return Mono.just(waiter.permit);
+          }))
+          .doOnCancel(() -> {
+            if (!waiter.claim()) {
+              waiter.permit.release();
+            }
+          });
+    });
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public int getQueued() {
+    return queued.get();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  private Permit tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= getLimit()) {
+        return null;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return new Permit(current + 1);
+  }
+
+  private void drain() {
+    while (!waiters.isEmpty()) {
+      final Permit permit = tryAcquire();
+      if (permit == null) {
+        return;
+      }
+      final Waiter waiter = waiters.poll();
+      if (waiter == null || !waiter.grant(permit)) {
+        inFlight.decrementAndGet();
+        if (waiter == null) {
+          return;
+        }
+      }
+    }
+  }
+
+  private synchronized void onSample(final long rttNanos, final int inFlightAtStart, final boolean dropped) {
+    if (dropped) {
+      limit = clamp(limit * BACKOFF_RATIO);
+      return;
+    }
+
+    final double shortRttNanos = Math.max(1, rttNanos);
+    longRttNanos = longRttNanos == 0
+        ? shortRttNanos
+        : longRttNanos + (shortRttNanos - longRttNanos) / LONG_RTT_WINDOW;
+    // let the average recover quickly once a slow period is over
+    if (longRttNanos / shortRttNanos > 2) {
+      longRttNanos *= 0.95;
+    }
+    if (inFlightAtStart < limit / 2) {
+      return;
+    }
+
+    final double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRttNanos / shortRttNanos));
+    final double newLimit = limit * gradient + Math.sqrt(limit);
+    limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+  }
+
+  private double clamp(final double value) {
+    return Math.max(Math.max(1, config.getMinLimit()), Math.min(config.getMaxLimit(), value));
+  }
+
+  /**
+   * Permission to make one call. The call completes with {@link #onSuccess(long)}, {@link #onDropped()} if it timed
+   * out, or {@link #release()} if its outcome says nothing about the service. Only the first of these counts.
+   */
+  public final class Permit {
+
+    private final int inFlightAtStart;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Permit(final int inFlightAtStart) {
+      this.inFlightAtStart = inFlightAtStart;
+    }
+
+    /**
+     * @param rttNanos the response time of the call
+     */
+    public void onSuccess(final long rttNanos) {
+      if (complete()) {
+        onSample(rttNanos, inFlightAtStart, false);
+      }
+    }
+
+    public void onDropped() {
+      if (complete()) {
+        onSample(0, inFlightAtStart, true);
+      }
+    }
+
+    public void release() {
+      complete();
+    }
+
+    private boolean complete() {
+      if (!done.compareAndSet(false, true)) {
+        return false;
+      }
+      inFlight.decrementAndGet();
+      drain();
+      return true;
+    }
+  }
+
+  private final class Waiter {
+
+    private final Sinks.One<Permit> sink = Sinks.one();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile Permit permit;
+
+    private boolean claim() {
+      if (!claimed.compareAndSet(false, true)) {
+        return false;
+      }
+      queued.decrementAndGet();
+      return true;
+    }
+
+    private boolean grant(final Permit permit) {
+      this.permit = permit;
+      if (!claim()) {
+        return false;
+      }
+      sink.tryEmitValue(permit);
+      return true;
+    }
+  }
+}
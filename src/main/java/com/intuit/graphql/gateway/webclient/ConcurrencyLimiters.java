@@ -0,0 +1,93 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.ConcurrencyLimitConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the {@link ConcurrencyLimiter} of a downstream service, one per namespace.
+ *
+ * <p>Like {@link CircuitBreakers}, a limiter outlives the providers built for its namespace and is replaced when the
+ * {@link ConcurrencyLimitConfig} of its namespace changes. The limiters are exported in {@value #METRIC_NAME}{@code
+ * .limit}, {@code .inflight} and {@code .queued}, and rejected calls are counted in {@code .rejected}, all tagged with
+ * the namespace.
+ */
+@Component
+public class ConcurrencyLimiters {
+
+  public static final String METRIC_NAME = "graphql.downstream.concurrency";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, NamespaceConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+
+  public ConcurrencyLimiters(final MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * @param serviceDefinition the downstream service
+   * @return the limiter of the namespace of the service, or {@code null} if the service has none enabled
+   */
+  public ConcurrencyLimiter forService(final ServiceDefinition serviceDefinition) {
+    final ConcurrencyLimitConfig config = serviceDefinition.getConcurrencyLimit();
+    if (config == null || !config.isEnabled()) {
+      return null;
+    }
+
+    return concurrencyLimiters
+        .computeIfAbsent(serviceDefinition.getNamespace(),
+            namespace -> newNamespaceConcurrencyLimiter(namespace, config))
+        .forConfig(config);
+  }
+
+  private NamespaceConcurrencyLimiter newNamespaceConcurrencyLimiter(final String namespace,
+      final ConcurrencyLimitConfig config) {
+    final NamespaceConcurrencyLimiter namespaceLimiter = new NamespaceConcurrencyLimiter(config);
+    Gauge.builder(METRIC_NAME + ".limit", namespaceLimiter, limiter -> limiter.concurrencyLimiter.getLimit())
+        .tag("namespace", namespace)
+        .register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".inflight", namespaceLimiter, limiter -> limiter.concurrencyLimiter.getInFlight())
+        .tag("namespace", namespace)
+        .register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".queued", namespaceLimiter, limiter -> limiter.concurrencyLimiter.getQueued())
+        .tag("namespace", namespace)
+        .register(meterRegistry);
+    FunctionCounter.builder(METRIC_NAME + ".rejected", namespaceLimiter, NamespaceConcurrencyLimiter::getRejected)
+        .tag("namespace", namespace)
+        .register(meterRegistry);
+    return namespaceLimiter;
+  }
+
+  /**
+   * The limiter of a namespace, the meters of the namespace read the current one.
+   */
+  private static final class NamespaceConcurrencyLimiter {
+
+    private ConcurrencyLimitConfig config;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile long rejectedByReplaced;
+
+    private NamespaceConcurrencyLimiter(final ConcurrencyLimitConfig config) {
+      this.config = config;
+      this.concurrencyLimiter = new ConcurrencyLimiter(config);
+    }
+
+    private synchronized ConcurrencyLimiter forConfig(final ConcurrencyLimitConfig config) {
+      if (!config.equals(this.config)) {
+        this.config = config;
+        this.rejectedByReplaced += concurrencyLimiter.getRejected();
+        this.concurrencyLimiter = new ConcurrencyLimiter(config);
+      }
+      return concurrencyLimiter;
+    }
+
+    private long getRejected() {
+      return rejectedByReplaced + concurrencyLimiter.getRejected();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Compresses request bodies and decompresses response bodies in the gzip and deflate content codings.
+ */
+public final class ContentEncodings {
+
+  /**
+   * Value of the Accept-Encoding header for the codings {@link #decompress(Flux, String)} supports.
+   */
+  public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+
+  private ContentEncodings() {
+  }
+
+  /**
+   * Compresses the buffer into a new buffer from the same factory and releases it.
+   *
+   * @param buffer the uncompressed body
+   * @param compression the coding to compress with, not {@link Compression#NONE}
+   * @return the compressed body
+   * @throws IOException if compression fails, both buffers are released
+   */
+  public static DataBuffer compress(final DataBuffer buffer, final Compression compression) throws IOException {
+    final DataBufferFactory bufferFactory = buffer.factory();
+    final byte[] bytes = toByteArray(buffer);
+    final DataBuffer compressed = bufferFactory.allocateBuffer(bytes.length / 4);
+    boolean release = true;
+    try (OutputStream outputStream = compression == Compression.GZIP
+        ? new GZIPOutputStream(compressed.asOutputStream())
+        : new DeflaterOutputStream(compressed.asOutputStream())) {
+      outputStream.write(bytes);
+      release = false;
+    } finally {
+      if (release) {
+        DataBufferUtils.release(compressed);
+      }
+    }
+    return compressed;
+  }
+
+  /**
+   * Decompresses a body while it arrives. Every input buffer is released once it is decoded.
+   *
+   * @param body the body, consumed once
+   * @param contentEncoding the value of the Content-Encoding header of the body, may be null
+   * @return the decompressed body, or the body itself if it is not encoded. Fails with {@link DecodingException} if
+   * the coding is not supported or the body is corrupt.
+   */
+  public static Flux<DataBuffer> decompress(final Flux<DataBuffer> body, final String contentEncoding) {
+    final String coding = StringUtils.trimToEmpty(contentEncoding).toLowerCase();
+    final ZlibWrapper wrapper;
+    switch (coding) {
+      case "":
+      case "identity":
+        return body;
+      case "gzip":
+      case "x-gzip":
+        wrapper = ZlibWrapper.GZIP;
+        break;
+      case "deflate":
+        wrapper = ZlibWrapper.ZLIB_OR_NONE;
+        break;
+      default:
+        return body.doOnNext(DataBufferUtils::release)
+            .thenMany(Flux.error(new DecodingException("Unsupported content encoding " + contentEncoding)));
+    }
+
+    return Flux.using(() -> new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(wrapper)),
+        decoder -> body
+            .concatMapIterable(buffer -> decode(decoder, buffer))
+            .concatWith(Flux.defer(() -> {
+              decoder.finish();
+              return Flux.fromIterable(readAll(decoder));
+            }))
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release),
+        ContentEncodings::close)
+        .onErrorMap(e -> !(e instanceof DecodingException),
+            e -> new DecodingException("Failed to decompress " + coding + " body", e));
+  }
+
+  private static void close(final EmbeddedChannel decoder) {
+    try {
+      decoder.finishAndReleaseAll();
+    } catch (RuntimeException e) {
+      // the failure of the decoder has been signalled already
+    }
+  }
+
+  /**
+   * @param buffer a buffer, released
+   * @return its readable bytes
+   */
+  public static byte[] toByteArray(final DataBuffer buffer) {
+    try {
+      final byte[] bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      return bytes;
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private static List<DataBuffer> decode(final EmbeddedChannel decoder, final DataBuffer buffer) {
+    final ByteBuf byteBuf;
+    if (buffer instanceof NettyDataBuffer) {
+      byteBuf = ((NettyDataBuffer) buffer).getNativeBuffer();
+    } else {
+      byteBuf = Unpooled.copiedBuffer(buffer.asByteBuffer());
+      DataBufferUtils.release(buffer);
+    }
+    decoder.writeInbound(byteBuf);
+    return readAll(decoder);
+  }
+
+  private static List<DataBuffer> readAll(final EmbeddedChannel decoder) {
+    final List<DataBuffer> buffers = new ArrayList<>();
+    ByteBuf byteBuf;
+    while ((byteBuf = decoder.readInbound()) != null) {
+      if (byteBuf.isReadable()) {
+        buffers.add(BUFFER_FACTORY.wrap(byteBuf));
+      } else {
+        byteBuf.release();
+      }
+    }
+    return buffers;
+  }
+}
@@ -0,0 +1,199 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties.LeasingStrategy;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties.Pool;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HttpVersion;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Hands out the {@link WebClient} to call a downstream service with.
+ *
+ * <p>Each namespace gets its own Reactor Netty {@link ConnectionProvider}, configured by {@link
+ * WebClientProperties#getConnectionProvider()}, so a slow service exhausts only its own connections. The clients share
+ * the filters and codecs of the default {@link WebClient}. Pools register the Reactor Netty connection provider gauges
+ * ({@code reactor.netty.connection.provider.active.connections}, {@code .idle.connections}, {@code
+ * .pending.connections}, {@code .total.connections}), tagged with the pool name {@value #POOL_NAME_PREFIX}{@code
+ * <namespace>}.
+ *
+ * <p>Services with {@link HttpVersion#H2} or {@link HttpVersion#H2C} multiplex their requests as HTTP/2 streams over
+ * few connections, at most {@link Pool#getMaxConcurrentStreams()} streams per connection. Such a namespace also gets an
+ * HTTP/1.1 pool named {@value #POOL_NAME_PREFIX}{@code <namespace>}{@value #HTTP11_POOL_NAME_SUFFIX}, used when the
+ * service turns out not to support HTTP/2, see {@link Http2FallbackConnector}.
+ *
+ * <p>Pools are kept for the lifetime of the application. Changed pool settings apply to services built after the
+ * change, the pools with the previous settings stay available to the services still using them.
+ */
+@Component
+@Slf4j
+public class DownstreamWebClients {
+
+  static final String POOL_NAME_PREFIX = "downstream-";
+  static final String HTTP11_POOL_NAME_SUFFIX = "-http11";
+
+  private final WebClient webClient;
+  private final WebClientProperties webClientProperties;
+  private final Map<PoolKey, PooledWebClient> webClients = new ConcurrentHashMap<>();
+
+  public DownstreamWebClients(final WebClient webClient, final WebClientProperties webClientProperties) {
+    this.webClient = webClient;
+    this.webClientProperties = webClientProperties;
+  }
+
+  /**
+   * @param serviceDefinition the downstream service
+   * @return the client using the connection pool of the namespace of the service, or the default client if pools per
+   * namespace are disabled
+   */
+  public WebClient forService(final ServiceDefinition serviceDefinition) {
+    final WebClientProperties.ConnectionProvider connectionProvider = webClientProperties.getConnectionProvider();
+    if (!connectionProvider.isEnabled()) {
+      return webClient;
+    }
+
+    final String namespace = serviceDefinition.getNamespace();
+    final PoolKey poolKey = new PoolKey(namespace, connectionProvider.getPool(namespace),
+        webClientProperties.getConnectTimeout(), serviceDefinition.getHttpVersion());
+    return webClients.computeIfAbsent(poolKey, this::newPooledWebClient).webClient;
+  }
+
+  private PooledWebClient newPooledWebClient(final PoolKey poolKey) {
+    final String poolName = POOL_NAME_PREFIX + poolKey.namespace;
+    final PooledWebClient pooledWebClient;
+    if (poolKey.httpVersion == HttpVersion.HTTP11) {
+      final ConnectionProvider connectionProvider = newConnectionProvider(poolName, poolKey.pool, null);
+      pooledWebClient = new PooledWebClient(newConnector(connectionProvider, poolKey, HttpProtocol.HTTP11),
+          connectionProvider);
+    } else {
+      final ConnectionProvider http2ConnectionProvider = newConnectionProvider(poolName, poolKey.pool,
+          Http2AllocationStrategy.builder()
+              .maxConcurrentStreams(poolKey.pool.getMaxConcurrentStreams())
+              .maxConnections(poolKey.pool.getMaxConnections())
+              .minConnections(1)
+              .build());
+      final ConnectionProvider http11ConnectionProvider = newConnectionProvider(poolName + HTTP11_POOL_NAME_SUFFIX,
+          poolKey.pool, null);
+      final ClientHttpConnector http2Connector = poolKey.httpVersion == HttpVersion.H2
+          ? newConnector(http2ConnectionProvider, poolKey, HttpProtocol.H2, HttpProtocol.HTTP11)
+          : newConnector(http2ConnectionProvider, poolKey, HttpProtocol.H2C);
+      pooledWebClient = new PooledWebClient(new Http2FallbackConnector(poolKey.namespace, http2Connector,
+          newConnector(http11ConnectionProvider, poolKey, HttpProtocol.HTTP11)),
+          http2ConnectionProvider, http11ConnectionProvider);
+    }
+    log.info("Created connection pool for namespace {} using {}: {}", poolKey.namespace, poolKey.httpVersion,
+        poolKey.pool);
+    return pooledWebClient;
+  }
+
+  private ClientHttpConnector newConnector(final ConnectionProvider connectionProvider, final PoolKey poolKey,
+      final HttpProtocol... protocols) {
+    return new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+        .protocol(protocols)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, poolKey.connectTimeout));
+  }
+
+  private static ConnectionProvider newConnectionProvider(final String name, final Pool pool,
+      final Http2AllocationStrategy http2AllocationStrategy) {
+    ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+        .maxConnections(pool.getMaxConnections())
+        .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+        .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMillis()))
+        .metrics(true);
+    if (pool.getMaxIdleTimeSec() > 0) {
+      builder.maxIdleTime(Duration.ofSeconds(pool.getMaxIdleTimeSec()));
+    }
+    if (pool.getMaxLifeSec() > 0) {
+      builder.maxLifeTime(Duration.ofSeconds(pool.getMaxLifeSec()));
+    }
+    if (pool.getEvictInBackgroundSec() > 0) {
+      builder.evictInBackground(Duration.ofSeconds(pool.getEvictInBackgroundSec()));
+    }
+    if (pool.getLeasingStrategy() == LeasingStrategy.LIFO) {
+      builder.lifo();
+    } else {
+      builder.fifo();
+    }
+    if (http2AllocationStrategy != null) {
+      builder.allocationStrategy(http2AllocationStrategy);
+    }
+    return builder.build();
+  }
+
+  int size() {
+    return webClients.size();
+  }
+
+  @PreDestroy
+  public void dispose() {
+    webClients.values().forEach(PooledWebClient::dispose);
+    webClients.clear();
+  }
+
+  private final class PooledWebClient {
+
+    private final ConnectionProvider[] connectionProviders;
+    private final WebClient webClient;
+
+    private PooledWebClient(final ClientHttpConnector connector, final ConnectionProvider... connectionProviders) {
+      this.connectionProviders = connectionProviders;
+      this.webClient = DownstreamWebClients.this.webClient.mutate().clientConnector(connector).build();
+    }
+
+    private void dispose() {
+      for (ConnectionProvider connectionProvider : connectionProviders) {
+        connectionProvider.dispose();
+      }
+    }
+  }
+
+  private static final class PoolKey {
+
+    private final String namespace;
+    private final Pool pool;
+    private final int connectTimeout;
+    private final HttpVersion httpVersion;
+
+    private PoolKey(final String namespace, final Pool pool, final int connectTimeout,
+        final HttpVersion httpVersion) {
+      this.namespace = namespace;
+      this.pool = pool;
+      this.connectTimeout = connectTimeout;
+      this.httpVersion = httpVersion;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PoolKey)) {
+        return false;
+      }
+      PoolKey that = (PoolKey) o;
+      return connectTimeout == that.connectTimeout
+          && namespace.equals(that.namespace)
+          && pool.equals(that.pool)
+          && httpVersion == that.httpVersion;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(namespace, pool, connectTimeout, httpVersion);
+    }
+  }
+}
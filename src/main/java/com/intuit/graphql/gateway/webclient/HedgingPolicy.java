@@ -0,0 +1,149 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HedgingConfig;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Decides when a downstream query is hedged, configured by a {@link HedgingConfig}.
+ *
+ * <p>The hedge delay is either fixed or the 95th percentile of the last {@value #SAMPLES} response times, recomputed
+ * every {@value #RECOMPUTE_INTERVAL} responses. Without a fixed delay, no query is hedged before {@value #SAMPLES}
+ * responses are observed.
+ *
+ * <p>Only the first call of a query is timed, from when it is sent until it responds or is cancelled because the hedge
+ * responded first. Hedges are not timed: they start late and only win when the first call is slow, so their times
+ * would pull the percentile, and with it the delay, down while the service is slow.
+ *
+ * <p>Hedges are paid for from a budget: every query adds {@code maxHedgePercent} hundredths of a hedge and a hedge
+ * takes a whole one, so no more than that share of the queries is hedged when a service slows down. The budget holds
+ * at most {@value #MAX_BURST} hedges.
+ */
+public class HedgingPolicy {
+
+  static final int SAMPLES = 256;
+  static final int RECOMPUTE_INTERVAL = 32;
+  static final int MAX_BURST = 10;
+
+  private static final long HEDGE_COST = 100;
+
+  private final HedgingConfig config;
+  private final AtomicLongArray latencies = new AtomicLongArray(SAMPLES);
+  private final AtomicLong recorded = new AtomicLong();
+  private final AtomicLong budget = new AtomicLong();
+  private volatile long observedDelayNanos = -1;
+
+  public HedgingPolicy(final HedgingConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * @return how long to wait for a response before sending the hedge, or {@code null} if it is not known yet
+   */
+  public Duration getDelay() {
+    if (config.getDelayMs() > 0) {
+      return Duration.ofMillis(config.getDelayMs());
+    }
+    final long delayNanos = observedDelayNanos;
+    return delayNanos < 0 ? null : Duration.ofNanos(delayNanos);
+  }
+
+  /**
+   * Makes the call, and makes it a second time if it did not complete within the hedge delay and the budget allows it.
+   * Errors of the hedge are ignored, the outcome of the first call counts then.
+   *
+   * @param call makes the call when subscribed to
+   * @param onHedgeFired runs when the hedge is sent
+   * @param onHedgeWon runs when the hedge responds before the first call
+   * @return the response of whichever call responds first
+   */
+  public <T> Mono<T> hedge(final Supplier<Mono<T>> call, final Runnable onHedgeFired, final Runnable onHedgeWon) {
+    onQuery();
+    final Duration delay = getDelay();
+    final Mono<T> primary = timed(call.get());
+    if (delay == null) {
+      return primary;
+    }
+
+    final Mono<T> hedge = Mono.delay(delay)
+        .flatMap(tick -> {
+          if (!tryAcquireHedge()) {
+            return Mono.never();
+          }
+          onHedgeFired.run();
+          return call.get().doOnNext(value -> onHedgeWon.run());
+        })
+        .onErrorResume(throwable -> Mono.never());
+    return Mono.firstWithSignal(primary, hedge);
+  }
+
+  /**
+   * Records the time from the subscription until the call responds or is cancelled, timed with the clock of the
+   * scheduler the hedge delay runs on.
+   */
+  private <T> Mono<T> timed(final Mono<T> call) {
+    return Mono.defer(() -> {
+      final long start = Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+      return call.doFinally(signalType -> {
+        if (signalType != SignalType.ON_ERROR) {
+          recordLatency(Schedulers.parallel().now(TimeUnit.NANOSECONDS) - start);
+        }
+      });
+    });
+  }
+
+  /**
+   * Adds the share of a hedge a query earns to the budget.
+   */
+  public void onQuery() {
+    final long maxBudget = MAX_BURST * HEDGE_COST;
+    long current;
+    do {
+      current = budget.get();
+      if (current >= maxBudget) {
+        return;
+      }
+    } while (!budget.compareAndSet(current, Math.min(maxBudget, current + config.getMaxHedgePercent())));
+  }
+
+  /**
+   * @return whether the budget allows another hedge, which is then taken from it
+   */
+  public boolean tryAcquireHedge() {
+    long current;
+    do {
+      current = budget.get();
+      if (current < HEDGE_COST) {
+        return false;
+      }
+    } while (!budget.compareAndSet(current, current - HEDGE_COST));
+    return true;
+  }
+
+  /**
+   * @param latencyNanos the time a downstream query took to complete
+   */
+  public void recordLatency(final long latencyNanos) {
+    final long count = recorded.getAndIncrement();
+    latencies.set((int) (count % SAMPLES), latencyNanos);
+    if (count + 1 >= SAMPLES && (count + 1) % RECOMPUTE_INTERVAL == 0) {
+      final long[] sorted = new long[SAMPLES];
+      for (int i = 0; i < SAMPLES; i++) {
+        sorted[i] = latencies.get(i);
+      }
+      Arrays.sort(sorted);
+      observedDelayNanos = sorted[(int) Math.ceil(SAMPLES * 0.95) - 1];
+    }
+  }
+
+  long getBudget() {
+    return budget.get();
+  }
+}
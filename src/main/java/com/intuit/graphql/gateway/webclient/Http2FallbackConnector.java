@@ -0,0 +1,85 @@
+package com.intuit.graphql.gateway.webclient;
+
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends requests over HTTP/2 and falls back to HTTP/1.1 when the service does not speak HTTP/2.
+ *
+ * <p>A service without HTTP/2 support fails the connection preface with a protocol error, before a request is sent,
+ * so the request is repeated over HTTP/1.1. Subsequent requests go over HTTP/1.1 directly for {@value
+ * #FALLBACK_MINUTES} minutes, after which HTTP/2 is tried again. Any other error, and any error once the request was
+ * handed to the connection, e.g. a stream reset, is not a fallback: the request is not repeated, as it may have been
+ * processed by the service.
+ */
+@Slf4j
+class Http2FallbackConnector implements ClientHttpConnector {
+
+  static final long FALLBACK_MINUTES = 5;
+
+  private final String namespace;
+  private final ClientHttpConnector http2Connector;
+  private final ClientHttpConnector http11Connector;
+
+  private volatile long fallbackUntilNanos;
+  private volatile boolean fallback;
+
+  Http2FallbackConnector(final String namespace, final ClientHttpConnector http2Connector,
+      final ClientHttpConnector http11Connector) {
+    this.namespace = namespace;
+    this.http2Connector = http2Connector;
+    this.http11Connector = http11Connector;
+  }
+
+  @Override
+  public Mono<ClientHttpResponse> connect(final HttpMethod method, final URI uri,
+      final Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+    if (isFallback()) {
+      return http11Connector.connect(method, uri, requestCallback);
+    }
+    final AtomicBoolean sent = new AtomicBoolean();
+    return http2Connector.connect(method, uri, request -> {
+      sent.set(true);
+      return requestCallback.apply(request);
+    })
+        .onErrorResume(e -> !sent.get() && isHttp2NotSupported(e), e -> {
+          if (!fallback) {
+            log.warn("HTTP/2 not supported by namespace {}, falling back to HTTP/1.1 for {} minutes: {}", namespace,
+                FALLBACK_MINUTES, e.toString());
+          }
+          fallbackUntilNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(FALLBACK_MINUTES);
+          fallback = true;
+          return http11Connector.connect(method, uri, requestCallback);
+        });
+  }
+
+  boolean isFallback() {
+    if (fallback && fallbackUntilNanos - System.nanoTime() <= 0) {
+      fallback = false;
+    }
+    return fallback;
+  }
+
+  /**
+   * @return true for a connection error of the HTTP/2 preface, e.g. an HTTP/1.1 response where SETTINGS were expected
+   */
+  private static boolean isHttp2NotSupported(final Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof Http2Exception) {
+        return !(cause instanceof Http2Exception.StreamException)
+            && ((Http2Exception) cause).error() == Http2Error.PROTOCOL_ERROR;
+      }
+    }
+    return false;
+  }
+}
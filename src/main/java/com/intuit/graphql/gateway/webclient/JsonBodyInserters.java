@@ -0,0 +1,85 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link BodyInserter}s that serialize request bodies straight into the buffers of the outgoing request.
+ */
+public final class JsonBodyInserters {
+
+  private JsonBodyInserters() {
+  }
+
+  /**
+   * Writes the value as JSON into a single {@link DataBuffer} allocated from the buffer factory of the request, which
+   * is a pooled Netty buffer for Reactor Netty clients. Unlike {@code syncBody(String)} this does not build an
+   * intermediate {@code String} or {@code byte[]} copy of the body.
+   *
+   * <p>Serialization failures are signalled as an error of the write, the buffer is released.
+   *
+   * @param value the value to serialize with {@link Mapper#mapper()}
+   * @return the inserter
+   */
+  public static BodyInserter<Object, ReactiveHttpOutputMessage> fromJson(final Object value) {
+    return fromJson(value, Compression.NONE, 0, bytesSaved -> {
+    });
+  }
+
+  /**
+   * Like {@link #fromJson(Object)}, but compresses bodies of at least {@code minSize} bytes and sets the
+   * Content-Encoding header accordingly.
+   *
+   * @param value the value to serialize with {@link Mapper#mapper()}
+   * @param compression the coding of compressed bodies, {@link Compression#NONE} to never compress
+   * @param minSize the minimum size in bytes of a body to be compressed
+   * @param bytesSaved called with the number of bytes saved by compression, if the body is compressed
+   * @return the inserter
+   */
+  public static BodyInserter<Object, ReactiveHttpOutputMessage> fromJson(final Object value,
+      final Compression compression, final int minSize, final LongConsumer bytesSaved) {
+    return (message, context) -> {
+      DataBuffer buffer = message.bufferFactory().allocateBuffer();
+      boolean release = true;
+      try {
+        try (OutputStream outputStream = buffer.asOutputStream()) {
+          Mapper.mapper().writeValue(outputStream, value);
+        }
+        release = false;
+      } catch (IOException e) {
+        return Mono.error(e);
+      } finally {
+        if (release) {
+          DataBufferUtils.release(buffer);
+        }
+      }
+
+      if (compression != Compression.NONE && buffer.readableByteCount() >= minSize) {
+        final int size = buffer.readableByteCount();
+        try {
+          buffer = ContentEncodings.compress(buffer, compression);
+        } catch (IOException e) {
+          return Mono.error(e);
+        }
+        message.getHeaders().set(HttpHeaders.CONTENT_ENCODING, compression.getContentEncoding());
+        bytesSaved.accept(size - buffer.readableByteCount());
+      }
+
+      if (message.getHeaders().getContentType() == null) {
+        message.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+      }
+      message.getHeaders().setContentLength(buffer.readableByteCount());
+      return message.writeWith(Mono.just(buffer));
+    };
+  }
+}
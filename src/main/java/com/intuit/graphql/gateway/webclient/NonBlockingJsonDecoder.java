@@ -0,0 +1,202 @@
+package com.intuit.graphql.gateway.webclient;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.intuit.graphql.gateway.Mapper;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decodes a JSON object into a {@link Map} while its bytes arrive, using Jackson's non-blocking parser.
+ *
+ * <p>Unlike {@code bodyToMono(Map.class)}, the body is not aggregated into one buffer before it is parsed: each {@link
+ * DataBuffer} is fed to the parser and released right away, and the map is built from the tokens as they become
+ * available. Objects are decoded to {@link LinkedHashMap}s, arrays to {@link ArrayList}s and numbers to the same types
+ * {@link com.fasterxml.jackson.databind.ObjectMapper} uses for untyped values.
+ */
+public final class NonBlockingJsonDecoder {
+
+  private NonBlockingJsonDecoder() {
+  }
+
+  /**
+   * Decodes the body of the response, limited to the max in-memory size of the JSON decoder in the exchange strategies
+   * of the {@link org.springframework.web.reactive.function.client.WebClient}.
+   *
+   * @param response a response with a JSON object body
+   * @return the decoded object, see {@link #decodeToMap(Flux, int)}
+   */
+  public static Mono<Map<String, Object>> decodeToMap(final ClientResponse response) {
+    return decodeToMap(response.body(BodyExtractors.toDataBuffers()), getMaxInMemorySize(response.strategies()));
+  }
+
+  /**
+   * @param body the body, consumed once
+   * @param maxInMemorySize the maximum number of bytes to read, or -1 for no limit
+   * @return the decoded object, empty if the body is empty. Fails with {@link DecodingException} if the body is not a
+   * single JSON object, and with {@link DataBufferLimitException} if it is larger than the limit.
+   */
+  public static Mono<Map<String, Object>> decodeToMap(final Flux<DataBuffer> body, final int maxInMemorySize) {
+    return Mono.defer(() -> {
+      final MapBuilder mapBuilder;
+      try {
+        mapBuilder = new MapBuilder(maxInMemorySize);
+      } catch (IOException e) {
+        return Mono.error(new DecodingException("Failed to create JSON parser", e));
+      }
+      return body
+          .<Void>handle((buffer, sink) -> {
+            try {
+              mapBuilder.feed(buffer);
+            } catch (JsonProcessingException e) {
+              sink.error(new DecodingException("JSON decoding error: " + e.getOriginalMessage(), e));
+            } catch (IOException e) {
+              sink.error(new DecodingException("I/O error while parsing input stream", e));
+            } finally {
+              DataBufferUtils.release(buffer);
+            }
+          })
+          .then(Mono.fromCallable(mapBuilder::endOfInput))
+          .onErrorMap(JsonProcessingException.class,
+              e -> new DecodingException("JSON decoding error: " + e.getOriginalMessage(), e));
+    });
+  }
+
+  /**
+   * @param strategies the exchange strategies of a {@link org.springframework.web.reactive.function.client.WebClient}
+   * @return the max in-memory size of its JSON decoder, or -1 if there is none
+   */
+  public static int getMaxInMemorySize(final ExchangeStrategies strategies) {
+    return strategies.messageReaders().stream()
+        .filter(DecoderHttpMessageReader.class::isInstance)
+        .map(reader -> ((DecoderHttpMessageReader<?>) reader).getDecoder())
+        .filter(AbstractJackson2Decoder.class::isInstance)
+        .mapToInt(decoder -> ((AbstractJackson2Decoder) decoder).getMaxInMemorySize())
+        .findFirst()
+        .orElse(-1);
+  }
+
+  /**
+   * Builds the object from the tokens of a non-blocking parser. Containers being built are kept on a stack together
+   * with the field name their next value goes to.
+   */
+  private static final class MapBuilder {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final int maxInMemorySize;
+    private final Deque<Object> containers = new ArrayDeque<>();
+    private final Deque<String> fieldNames = new ArrayDeque<>();
+
+    private int byteCount;
+    private Map<String, Object> result;
+
+    private MapBuilder(final int maxInMemorySize) throws IOException {
+      this.parser = Mapper.mapper().getFactory().createNonBlockingByteArrayParser();
+      this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+      this.maxInMemorySize = maxInMemorySize;
+    }
+
+    private void feed(final DataBuffer buffer) throws IOException {
+      final int length = buffer.readableByteCount();
+      if (maxInMemorySize >= 0 && (long) byteCount + length > maxInMemorySize) {
+        throw new DataBufferLimitException("Exceeded limit on max bytes to buffer : " + maxInMemorySize);
+      }
+      byteCount += length;
+
+      final byte[] bytes = new byte[length];
+      buffer.read(bytes);
+      feeder.feedInput(bytes, 0, length);
+      parseAvailableTokens();
+    }
+
+    private Map<String, Object> endOfInput() throws IOException {
+      feeder.endOfInput();
+      parseAvailableTokens();
+      if (!containers.isEmpty()) {
+        throw new DecodingException("Incomplete JSON object");
+      }
+      return result;
+    }
+
+    private void parseAvailableTokens() throws IOException {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+        if (result != null) {
+          throw new DecodingException("Expected a single JSON object, found more content");
+        }
+        switch (token) {
+          case START_OBJECT:
+            containers.push(new LinkedHashMap<String, Object>());
+            break;
+          case START_ARRAY:
+            if (containers.isEmpty()) {
+              throw new DecodingException("Expected a JSON object, found an array");
+            }
+            containers.push(new ArrayList<>());
+            break;
+          case FIELD_NAME:
+            fieldNames.push(parser.getCurrentName());
+            break;
+          case END_OBJECT:
+          case END_ARRAY:
+            addValue(containers.pop());
+            break;
+          default:
+            addValue(getScalarValue(token));
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addValue(final Object value) {
+      if (containers.isEmpty()) {
+        if (!(value instanceof Map)) {
+          throw new DecodingException("Expected a JSON object");
+        }
+        result = (Map<String, Object>) value;
+      } else if (containers.peek() instanceof Map) {
+        ((Map<String, Object>) containers.peek()).put(fieldNames.pop(), value);
+      } else {
+        ((List<Object>) containers.peek()).add(value);
+      }
+    }
+
+    private Object getScalarValue(final JsonToken token) throws IOException {
+      switch (token) {
+        case VALUE_STRING:
+          return parser.getText();
+        case VALUE_NUMBER_INT:
+          return parser.getNumberValue();
+        case VALUE_NUMBER_FLOAT:
+          return parser.getDoubleValue();
+        case VALUE_TRUE:
+          return Boolean.TRUE;
+        case VALUE_FALSE:
+          return Boolean.FALSE;
+        case VALUE_NULL:
+          return null;
+        default:
+          throw new DecodingException("Unexpected JSON token " + token);
+      }
+    }
+  }
+}
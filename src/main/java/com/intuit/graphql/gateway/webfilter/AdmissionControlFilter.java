@@ -0,0 +1,261 @@
+package com.intuit.graphql.gateway.webfilter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.AdmissionControlProperties;
+import com.intuit.graphql.gateway.config.properties.AdmissionControlProperties.Priority;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+/**
+ * Admission control of the GraphQL requests, configured by {@link AdmissionControlProperties}.
+ *
+ * <p>At most {@link AdmissionControlProperties#getMaxConcurrentRequests()} requests are executed at the same time.
+ * Further requests wait in a bounded queue and are let through as requests complete, those of higher priority clients
+ * first. Requests that find the queue full or wait too long get a 503. While the event loops lag behind, see {@link
+ * EventLoopLagMonitor}, only requests of high priority clients are accepted. A client over its own limit of requests
+ * gets a 429. Rejected requests carry a Retry-After header.
+ *
+ * <p>Requests executed and queued are exported in {@value #METRIC_NAME}{@code .inflight} and {@code .queued}, rejected
+ * requests are counted in {@code .rejected}, tagged with the reason and the priority of the client.
+ */
+@Component
+@Slf4j
+public class AdmissionControlFilter implements WebFilter, Ordered {
+
+  static final String METRIC_NAME = "graphql.admission";
+  static final String GRAPHQL_PATH = "/graphql";
+
+  private final AdmissionControlProperties properties;
+  private final EventLoopLagMonitor eventLoopLagMonitor;
+  private final MeterRegistry meterRegistry;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Map<Priority, Queue<Waiter>> waiters = new EnumMap<>(Priority.class);
+  private final Map<String, Integer> inFlightByClient = new ConcurrentHashMap<>();
+
+  public AdmissionControlFilter(final AdmissionControlProperties properties,
+      final EventLoopLagMonitor eventLoopLagMonitor, final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.eventLoopLagMonitor = eventLoopLagMonitor;
+    this.meterRegistry = meterRegistry;
+    for (Priority priority : Priority.values()) {
+      waiters.put(priority, new ConcurrentLinkedQueue<>());
+    }
+
+    Gauge.builder(METRIC_NAME + ".inflight", inFlight, AtomicInteger::get).register(meterRegistry);
+    Gauge.builder(METRIC_NAME + ".queued", queued, AtomicInteger::get).register(meterRegistry);
+  }
+
+  @Override
+  public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+    if (!properties.isEnabled()
+        || !GRAPHQL_PATH.equals(exchange.getRequest().getPath().pathWithinApplication().value())) {
+      return chain.filter(exchange);
+    }
+
+    return Mono.subscriberContext().flatMap(context -> {
+      final String client = getClient(exchange, context);
+      final Priority priority = properties.getPriority(client);
+      final boolean clientLimited = client != null && properties.getMaxConcurrentRequestsPerClient() > 0;
+      if (clientLimited && !acquireClient(client, properties.getMaxConcurrentRequestsPerClient())) {
+        return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, Admission.CLIENT_LIMIT, priority);
+      }
+
+      return admit(priority)
+          .flatMap(admission -> admission == Admission.ADMITTED
+              ? chain.filter(exchange).doFinally(signalType -> release())
+              : reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, admission, priority))
+          .doFinally(signalType -> {
+            if (clientLimited) {
+              releaseClient(client);
+            }
+          });
+    });
+  }
+
+  private String getClient(final ServerWebExchange exchange, final Context context) {
+    if (properties.getClientHeader() != null) {
+      return exchange.getRequest().getHeaders().getFirst(properties.getClientHeader());
+    }
+    return context.<TransactionContext>getOrEmpty(TransactionContext.class)
+        .map(TransactionContext::getAppId)
+        .orElse(null);
+  }
+
+  private Mono<Admission> admit(final Priority priority) {
+    if (priority != Priority.HIGH && eventLoopLagMonitor.getLagMillis() > properties.getMaxEventLoopLagMs()) {
+      return Mono.just(Admission.EVENT_LOOP_LAG);
+    }
+    if (tryAcquire()) {
+      return Mono.just(Admission.ADMITTED);
+    }
+    if (queued.incrementAndGet() > properties.getMaxQueueSize()) {
+      queued.decrementAndGet();
+      return Mono.just(Admission.QUEUE_FULL);
+    }
+
+    final Waiter waiter = new Waiter();
+    waiters.get(priority).add(waiter);
+    // requests may have completed since the limit was checked, nothing else would let the waiter through then
+    drain();
+    return waiter.sink.asMono()
+        .timeout(Duration.ofMillis(properties.getMaxQueueWaitMs()),
+            Mono.fromSupplier(() -> waiter.claim() ? Admission.QUEUE_TIMEOUT : Admission.ADMITTED))
+        .doOnCancel(() -> {
+          if (!waiter.claim()) {
+            release();
+          }
+        });
+  }
+
+  private boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= properties.getMaxConcurrentRequests()) {
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  private void release() {
+    inFlight.decrementAndGet();
+    drain();
+  }
+
+  private void drain() {
+    while (queued.get() > 0) {
+      if (!tryAcquire()) {
+        return;
+      }
+      final Waiter waiter = pollWaiter();
+      if (waiter == null || !waiter.grant()) {
+        inFlight.decrementAndGet();
+        if (waiter == null) {
+          return;
+        }
+      }
+    }
+  }
+
+  private Waiter pollWaiter() {
+    for (Priority priority : Priority.values()) {
+      final Waiter waiter = waiters.get(priority).poll();
+      if (waiter != null) {
+        return waiter;
+      }
+    }
+    return null;
+  }
+
+  private boolean acquireClient(final String client, final int maxConcurrentRequests) {
+    final boolean[] acquired = new boolean[1];
+    inFlightByClient.compute(client, (key, count) -> {
+      final int current = count == null ? 0 : count;
+      acquired[0] = current < maxConcurrentRequests;
+      return acquired[0] ? current + 1 : count;
+    });
+    return acquired[0];
+  }
+
+  private void releaseClient(final String client) {
+    inFlightByClient.computeIfPresent(client, (key, count) -> count > 1 ? count - 1 : null);
+  }
+
+  private Mono<Void> reject(final ServerWebExchange exchange, final HttpStatus status, final Admission admission,
+      final Priority priority) {
+    Counter.builder(METRIC_NAME + ".rejected")
+        .tag("reason", admission.name().toLowerCase())
+        .tag("priority", priority.name().toLowerCase())
+        .register(meterRegistry)
+        .increment();
+
+    final ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(status);
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+    final Map<String, Object> error = new HashMap<>();
+    error.put("message", admission.message);
+    error.put("extensions", Collections.singletonMap("classification", admission.name()));
+    try {
+      final byte[] body = Mapper.mapper()
+          .writeValueAsBytes(Collections.singletonMap("errors", Collections.singletonList(error)));
+      return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    } catch (JsonProcessingException e) {
+      log.warn("Failed to write rejection body", e);
+      return response.setComplete();
+    }
+  }
+
+  @Override
+  public int getOrder() {
+    return properties.getOrder();
+  }
+
+  enum Admission {
+    ADMITTED(null),
+    QUEUE_FULL("Too many requests in progress, try again later"),
+    QUEUE_TIMEOUT("Too many requests in progress, try again later"),
+    EVENT_LOOP_LAG("Server overloaded, try again later"),
+    CLIENT_LIMIT("Too many requests of the client in progress, try again later");
+
+    private final String message;
+
+    Admission(final String message) {
+      this.message = message;
+    }
+  }
+
+  /**
+   * A queued request. Either the request is let through or its wait ends, whichever claims it first.
+   */
+  private final class Waiter {
+
+    private final Sinks.One<Admission> sink = Sinks.one();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    private boolean claim() {
+      if (!claimed.compareAndSet(false, true)) {
+        return false;
+      }
+      queued.decrementAndGet();
+      return true;
+    }
+
+    private boolean grant() {
+      if (!claim()) {
+        return false;
+      }
+      sink.tryEmitValue(Admission.ADMITTED);
+      return true;
+    }
+  }
+}
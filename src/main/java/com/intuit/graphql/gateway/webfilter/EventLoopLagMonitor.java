@@ -0,0 +1,100 @@
+package com.intuit.graphql.gateway.webfilter;
+
+import com.intuit.graphql.gateway.config.properties.AdmissionControlProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpResources;
+
+/**
+ * Measures how far the server event loops lag behind, exported in {@value #METRIC_NAME}.
+ *
+ * <p>Each probe interval a task is submitted to every event loop, its lag is the time it waited to run. A loop whose
+ * task did not run yet lags by the time since it was submitted, so a blocked loop shows. The lag is the largest lag of
+ * the loops.
+ */
+@Component
+public class EventLoopLagMonitor {
+
+  static final String METRIC_NAME = "graphql.server.eventloop.lag";
+
+  private final Supplier<EventLoopGroup> eventLoopGroup;
+  private final Map<EventExecutor, Probe> probesByLoop = new ConcurrentHashMap<>();
+  private final Disposable probes;
+
+  @Autowired
+  public EventLoopLagMonitor(final AdmissionControlProperties properties, final MeterRegistry meterRegistry) {
+    this(() -> HttpResources.get().onServer(true), Duration.ofMillis(properties.getEventLoopLagProbeIntervalMs()),
+        meterRegistry);
+  }
+
+  EventLoopLagMonitor(final Supplier<EventLoopGroup> eventLoopGroup, final Duration probeInterval,
+      final MeterRegistry meterRegistry) {
+    this.eventLoopGroup = eventLoopGroup;
+    Gauge.builder(METRIC_NAME, this, monitor -> monitor.getLagNanos() / 1e6)
+        .baseUnit("milliseconds")
+        .register(meterRegistry);
+    this.probes = Flux.interval(probeInterval, probeInterval).subscribe(tick -> probe());
+  }
+
+  /**
+   * @return the current lag of the most lagging event loop
+   */
+  public long getLagNanos() {
+    final long now = System.nanoTime();
+    long lag = 0;
+    for (Probe probe : probesByLoop.values()) {
+      final long submittedAt = probe.submittedAtNanos.get();
+      lag = Math.max(lag, submittedAt != 0 ? now - submittedAt : probe.lagNanos);
+    }
+    return lag;
+  }
+
+  public long getLagMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(getLagNanos());
+  }
+
+  void probe() {
+    for (EventExecutor executor : eventLoopGroup.get()) {
+      final Probe probe = probesByLoop.computeIfAbsent(executor, key -> new Probe());
+      final long now = System.nanoTime();
+      // skip loops still busy with the previous probe
+      if (!probe.submittedAtNanos.compareAndSet(0, now)) {
+        continue;
+      }
+      try {
+        executor.execute(() -> {
+          probe.lagNanos = System.nanoTime() - now;
+          probe.submittedAtNanos.set(0);
+        });
+      } catch (RejectedExecutionException e) {
+        // the loop shuts down
+        probesByLoop.remove(executor);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void dispose() {
+    probes.dispose();
+  }
+
+  private static final class Probe {
+
+    private final AtomicLong submittedAtNanos = new AtomicLong();
+    private volatile long lagNanos;
+  }
+}
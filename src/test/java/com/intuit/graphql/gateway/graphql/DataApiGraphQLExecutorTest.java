@@ -1,18 +1,32 @@
 package com.intuit.graphql.gateway.graphql;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.intuit.graphql.gateway.config.properties.DocumentCacheProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
 import com.intuit.graphql.gateway.introspection.IntrospectionManager;
 import com.intuit.graphql.gateway.metrics.ExecutionMetricsManager;
+import com.intuit.graphql.gateway.ratelimit.RateLimitManager;
+import com.intuit.graphql.orchestrator.GraphQLOrchestrator;
 import com.intuit.graphql.orchestrator.stitching.SchemaStitcher;
 import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
+import graphql.GraphQLError;
+import graphql.execution.AbortExecutionException;
 import graphql.execution.DataFetcherExceptionHandler;
 import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.InstrumentationContext;
 import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -35,9 +49,21 @@ public class DataApiGraphQLExecutorTest {
   @Mock
   IntrospectionManager introspectionManager;
 
+  @Mock
+  QueryCostManager queryCostManager;
+
+  @Mock
+  RateLimitManager rateLimitManager;
+
+  PreparsedDocumentCache documentCache;
+
+  ResponseCache responseCache;
+
   @Before
   public void init() {
     MockitoAnnotations.initMocks(this);
+    documentCache = new PreparsedDocumentCache(new DocumentCacheProperties(), new SimpleMeterRegistry());
+    responseCache = new ResponseCache(new ResponseCacheProperties(), new SimpleMeterRegistry());
     when(schemaManager.getRuntimeGraph()).thenReturn(SchemaStitcher.newBuilder().build().stitchGraph());
   }
 
@@ -45,7 +71,8 @@ public class DataApiGraphQLExecutorTest {
   @Test
   public void canRunEmptyExecutionTest() {
     GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
-        introspectionManager, executionMetricsManager, exceptionHandler);
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
     executor.execute(ExecutionInput.newExecutionInput().query("").build());
   }
 
@@ -58,7 +85,8 @@ public class DataApiGraphQLExecutorTest {
     when(introspectionManager.getInstrumentation()).thenReturn(mockInstrumentation);
 
     GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
-        introspectionManager, executionMetricsManager, exceptionHandler);
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
 
     executor.execute(ExecutionInput.newExecutionInput().query("").build());
 
@@ -73,7 +101,8 @@ public class DataApiGraphQLExecutorTest {
     when(introspectionManager.getInstrumentation()).thenReturn(mockInstrumentation);
 
     GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
-        introspectionManager, executionMetricsManager, exceptionHandler);
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
 
     executor.execute(ExecutionInput.newExecutionInput().query("").build());
 
@@ -87,7 +116,8 @@ public class DataApiGraphQLExecutorTest {
     when(executionMetricsManager.getInstrumentation()).thenReturn(mockInstrumentation);
 
     GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
-        introspectionManager, executionMetricsManager, exceptionHandler);
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
 
     executor.execute(ExecutionInput.newExecutionInput().query("").build());
 
@@ -102,10 +132,158 @@ public class DataApiGraphQLExecutorTest {
     when(executionMetricsManager.getInstrumentation()).thenReturn(mockInstrumentation);
 
     GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
-        introspectionManager, executionMetricsManager, exceptionHandler);
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
 
     executor.execute(ExecutionInput.newExecutionInput().query("").build());
     verify(executionMetricsManager, never()).getInstrumentation();
   }
 
+  @Test
+  public void addsQueryCostInstrumentation() {
+    when(queryCostManager.isQueryCostEnabled()).thenReturn(true);
+    when(queryCostManager.getInstrumentation()).thenReturn(spy(SimpleInstrumentation.class));
+
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+
+    executor.execute(ExecutionInput.newExecutionInput().query("").build());
+
+    verify(queryCostManager, times(1)).getInstrumentation();
+  }
+
+  @Test
+  public void reusesGraphQLAcrossExecutions() {
+    Instrumentation mockInstrumentation = spy(SimpleInstrumentation.class);
+    when(executionMetricsManager.isExecutionMetricsEnabled()).thenReturn(true);
+    when(executionMetricsManager.getInstrumentation()).thenReturn(mockInstrumentation);
+
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+
+    GraphQL graphQL = executor.getGraphQL();
+    executor.execute(ExecutionInput.newExecutionInput().query("").build());
+    executor.execute(ExecutionInput.newExecutionInput().query("").build());
+
+    assertThat(executor.getGraphQL()).isSameAs(graphQL);
+    verify(executionMetricsManager, times(1)).getInstrumentation();
+  }
+
+  @Test
+  public void rebuildsGraphQLWhenRuntimeGraphChanges() {
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+
+    GraphQL graphQL = executor.getGraphQL();
+    when(schemaManager.getRuntimeGraph()).thenReturn(SchemaStitcher.newBuilder().build().stitchGraph());
+
+    assertThat(executor.getGraphQL()).isNotSameAs(graphQL);
+  }
+
+  @Test
+  public void rebuildsGraphQLWhenAuthZInstrumentationChanges() {
+    when(authZManager.isAuthZEnabled()).thenReturn(true);
+    when(authZManager.getInstrumentation()).thenReturn(spy(SimpleInstrumentation.class));
+
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+
+    GraphQL graphQL = executor.getGraphQL();
+    assertThat(executor.getGraphQL()).isSameAs(graphQL);
+
+    when(authZManager.getInstrumentation()).thenReturn(spy(SimpleInstrumentation.class));
+
+    assertThat(executor.getGraphQL()).isNotSameAs(graphQL);
+  }
+
+  @Test
+  public void reusesParsedDocumentAcrossExecutions() {
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+
+    ExecutionResult first = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build()).join();
+    ExecutionResult second = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build())
+        .join();
+
+    assertThat(first.getErrors()).isEmpty();
+    assertThat(second.<Object>getData()).isEqualTo(first.getData());
+    assertThat(documentCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void sharesDataLoaderRegistryInContext() {
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache, responseCache,
+        queryCostManager, rateLimitManager);
+    SharedDataLoaderRegistry sharedDataLoaderRegistry = new SharedDataLoaderRegistry();
+
+    GraphQLContext first = newContext(sharedDataLoaderRegistry);
+    GraphQLContext second = newContext(sharedDataLoaderRegistry);
+    GraphQLContext unshared = newContext(null);
+    executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").context(first).build()).join();
+    executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").context(second).build()).join();
+    executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").context(unshared).build()).join();
+
+    Object registry = first.get(GraphQLOrchestrator.DATA_LOADER_REGISTRY_CONTEXT_KEY);
+    assertThat(second.<Object>get(GraphQLOrchestrator.DATA_LOADER_REGISTRY_CONTEXT_KEY)).isSameAs(registry);
+    assertThat(unshared.<Object>get(GraphQLOrchestrator.DATA_LOADER_REGISTRY_CONTEXT_KEY)).isNotSameAs(registry);
+  }
+
+  private static GraphQLContext newContext(SharedDataLoaderRegistry sharedDataLoaderRegistry) {
+    GraphQLContext context = GraphQLContext.newContext().build();
+    if (sharedDataLoaderRegistry != null) {
+      context.put(SharedDataLoaderRegistry.class, sharedDataLoaderRegistry);
+    }
+    return context;
+  }
+
+  @Test
+  public void answersCacheableQueryFromResponseCache() {
+    ResponseCacheProperties responseCacheProperties = new ResponseCacheProperties();
+    responseCacheProperties.setEnabled(true);
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache,
+        new ResponseCache(responseCacheProperties, new SimpleMeterRegistry()), queryCostManager, rateLimitManager);
+
+    ExecutionResult first = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build()).join();
+    ExecutionResult second = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build())
+        .join();
+
+    assertThat(second.<Object>getData()).isSameAs(first.getData());
+  }
+
+  @Test
+  public void rateLimitsCachedQueries() {
+    ResponseCacheProperties responseCacheProperties = new ResponseCacheProperties();
+    responseCacheProperties.setEnabled(true);
+    AtomicInteger remaining = new AtomicInteger(1);
+    when(rateLimitManager.isRateLimitEnabled()).thenReturn(true);
+    when(rateLimitManager.getInstrumentation()).thenReturn(new SimpleInstrumentation() {
+      @Override
+      public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+          InstrumentationExecuteOperationParameters parameters) {
+        if (remaining.getAndDecrement() <= 0) {
+          throw new AbortExecutionException("Rate limit exceeded");
+        }
+        return super.beginExecuteOperation(parameters);
+      }
+    });
+    GraphqlGatewayExecutor executor = new GraphqlGatewayExecutor(schemaManager, authZManager,
+        introspectionManager, executionMetricsManager, exceptionHandler, documentCache,
+        new ResponseCache(responseCacheProperties, new SimpleMeterRegistry()), queryCostManager, rateLimitManager);
+
+    ExecutionResult first = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build()).join();
+    ExecutionResult second = executor.execute(ExecutionInput.newExecutionInput().query("{ __typename }").build())
+        .join();
+
+    assertThat(first.getErrors()).isEmpty();
+    assertThat(second.<Object>getData()).isNull();
+    assertThat(second.getErrors()).extracting(GraphQLError::getMessage).containsExactly("Rate limit exceeded");
+  }
+
 }
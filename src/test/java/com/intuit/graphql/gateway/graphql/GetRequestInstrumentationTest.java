@@ -0,0 +1,71 @@
+package com.intuit.graphql.gateway.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+public class GetRequestInstrumentationTest {
+
+  private final GraphQL graphQL = GraphQL.newGraphQL(new SchemaGenerator().makeExecutableSchema(
+      new SchemaParser().parse("directive @cacheControl(maxAge: Int) on FIELD_DEFINITION "
+          + "type Query { a: String @cacheControl(maxAge: 30) c: String } type Mutation { b: String }"),
+      RuntimeWiring.newRuntimeWiring().build()))
+      .instrumentation(new GetRequestInstrumentation(
+          new ResponseCache(new ResponseCacheProperties(), new SimpleMeterRegistry())))
+      .build();
+
+  private GraphQLContext context;
+
+  @Test
+  public void rejectsMutationOverGet() {
+    ExecutionResult result = execute("mutation { b }", HttpMethod.GET);
+
+    assertThat(result.getErrors()).hasSize(1);
+    assertThat(result.getErrors().get(0).getMessage()).contains("Mutations are not allowed with HTTP GET");
+  }
+
+  @Test
+  public void allowsQueryOverGet() {
+    assertThat(execute("{ a }", HttpMethod.GET).getErrors()).isEmpty();
+  }
+
+  @Test
+  public void allowsMutationOverPost() {
+    assertThat(execute("mutation { b }", HttpMethod.POST).getErrors()).isEmpty();
+  }
+
+  @Test
+  public void putsMaxAgeOfQueryOverGet() {
+    execute("{ a }", HttpMethod.GET);
+    assertThat(context.<Integer>get(GetRequestInstrumentation.MAX_AGE_CONTEXT_KEY)).isEqualTo(30);
+
+    execute("{ a c }", HttpMethod.GET);
+    assertThat(context.<Integer>get(GetRequestInstrumentation.MAX_AGE_CONTEXT_KEY)).isZero();
+  }
+
+  @Test
+  public void putsNoMaxAgeOverPost() {
+    execute("{ a }", HttpMethod.POST);
+
+    assertThat(context.hasKey(GetRequestInstrumentation.MAX_AGE_CONTEXT_KEY)).isFalse();
+  }
+
+  private ExecutionResult execute(String query, HttpMethod method) {
+    context = GraphQLContext.newContext()
+        .of(ServerRequest.class, MockServerRequest.builder().method(method).build())
+        .build();
+    return graphQL.execute(ExecutionInput.newExecutionInput().query(query).context(context).build());
+  }
+}
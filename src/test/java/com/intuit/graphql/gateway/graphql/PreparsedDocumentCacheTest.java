@@ -0,0 +1,90 @@
+package com.intuit.graphql.gateway.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.DocumentCacheProperties;
+import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PreparsedDocumentCacheTest {
+
+  private static final ExecutionInput INPUT = ExecutionInput.newExecutionInput().query("{ a }").build();
+
+  private MeterRegistry meterRegistry;
+  private DocumentCacheProperties properties;
+  private AtomicInteger parseCount;
+  private Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    properties = new DocumentCacheProperties();
+    parseCount = new AtomicInteger();
+    parseAndValidate = input -> {
+      parseCount.incrementAndGet();
+      return new PreparsedDocumentEntry(new Parser().parseDocument(input.getQuery()));
+    };
+  }
+
+  @Test
+  public void parsesDocumentOnlyOnce() {
+    PreparsedDocumentCache cache = new PreparsedDocumentCache(properties, meterRegistry);
+    PreparsedDocumentProvider provider = cache.forSchema(newSchema());
+
+    PreparsedDocumentEntry first = provider.getDocument(INPUT, parseAndValidate);
+    PreparsedDocumentEntry second = provider.getDocument(INPUT, parseAndValidate);
+
+    assertThat(second).isSameAs(first);
+    assertThat(parseCount.get()).isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("cache", PreparsedDocumentCache.METRIC_NAME)
+        .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotShareDocumentsAcrossSchemas() {
+    PreparsedDocumentCache cache = new PreparsedDocumentCache(properties, meterRegistry);
+
+    cache.forSchema(newSchema()).getDocument(INPUT, parseAndValidate);
+    cache.forSchema(newSchema()).getDocument(INPUT, parseAndValidate);
+
+    assertThat(parseCount.get()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidatesOnSchemaChange() {
+    PreparsedDocumentCache cache = new PreparsedDocumentCache(properties, meterRegistry);
+    cache.forSchema(newSchema()).getDocument(INPUT, parseAndValidate);
+
+    cache.onSchemaChangeEvent(GraphQLSchemaChangedEvent.INSTANCE);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void returnsNoOpProviderWhenDisabled() {
+    properties.setEnabled(false);
+    PreparsedDocumentCache cache = new PreparsedDocumentCache(properties, meterRegistry);
+
+    assertThat(cache.forSchema(newSchema())).isSameAs(NoOpPreparsedDocumentProvider.INSTANCE);
+  }
+
+  private static GraphQLSchema newSchema() {
+    return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse("type Query { a: String }"),
+        RuntimeWiring.newRuntimeWiring().build());
+  }
+}
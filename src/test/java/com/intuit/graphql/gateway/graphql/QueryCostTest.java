@@ -0,0 +1,135 @@
+package com.intuit.graphql.gateway.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import reactor.util.context.Context;
+
+public class QueryCostTest {
+
+  private static final String SDL = "directive @cost(weight: String!) on FIELD_DEFINITION "
+      + "directive @listSize(assumedSize: Int, slicingArguments: [String!]) on FIELD_DEFINITION "
+      + "type Query { users(first: Int): [User] @listSize(assumedSize: 50, slicingArguments: [\"first\"]) "
+      + "user: User search: [User] @cost(weight: \"10\") } "
+      + "type User { id: ID friends: [User] orders: [Order] @listSize(assumedSize: 5) } "
+      + "type Order { id: ID total: Int @cost(weight: \"2\") }";
+
+  private static final GraphQLSchema SCHEMA = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL),
+      RuntimeWiring.newRuntimeWiring().build());
+
+  private final QueryCostProperties properties = new QueryCostProperties();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  public void multipliesCostOfSelectionsByListSize() {
+    assertThat(cost("{ user { id } }").getCost()).isEqualTo(1);
+    // users: 1 + 3 * (orders: 1 + 5 * total: 2)
+    assertThat(cost("{ users(first: 3) { orders { total } } }").getCost()).isEqualTo(34);
+    // assumed size without slicing argument
+    assertThat(cost("{ users { orders { id } } }").getCost()).isEqualTo(51);
+    // search: 10 + default list size * friends: 1
+    assertThat(cost("{ search { friends { id } } }").getCost()).isEqualTo(20);
+  }
+
+  @Test
+  public void readsSlicingArgumentsFromVariables() {
+    QueryCost queryCost = QueryCost.of(SCHEMA,
+        new Parser().parseDocument("query Q($n: Int) { users(first: $n) { orders { total } } }"), "Q",
+        Collections.singletonMap("n", 2), properties);
+
+    assertThat(queryCost.getCost()).isEqualTo(23);
+    assertThat(queryCost.getDepth()).isEqualTo(3);
+  }
+
+  @Test
+  public void countsAliasesAndIgnoresIntrospection() {
+    QueryCost queryCost = cost("{ a: user { id } b: user { id } __typename }");
+    assertThat(queryCost.getAliases()).isEqualTo(2);
+    assertThat(queryCost.getCost()).isEqualTo(2);
+
+    QueryCost introspection = cost("{ __schema { types { fields { type { ofType { ofType { name } } } } } } }");
+    assertThat(introspection.getCost()).isZero();
+    assertThat(introspection.getDepth()).isZero();
+  }
+
+  @Test
+  public void rejectsOperationsOverLimitsBeforeFetching() {
+    properties.setMaxCost(30);
+    properties.setMaxDepth(3);
+    properties.setMaxAliases(1);
+    AtomicInteger fetches = new AtomicInteger();
+    GraphQL graphQL = newGraphQL(fetches);
+
+    assertRejected(graphQL.execute(input("{ users(first: 3) { orders { total } } }", null)), "cost");
+    assertRejected(graphQL.execute(input("{ user { friends { friends { id } } } }", null)), "depth");
+    assertRejected(graphQL.execute(input("{ a: user { id } b: user { id } }", null)), "aliases");
+    assertThat(fetches).hasValue(0);
+    assertThat(meterRegistry.get(QueryCostInstrumentation.METRIC_NAME + ".rejected").tag("limit", "cost").counter()
+        .count()).isEqualTo(1);
+
+    ExecutionInput input = input("{ users(first: 2) { orders { total } } }", null);
+    assertThat(graphQL.execute(input).getErrors()).isEmpty();
+    assertThat(fetches).hasValue(1);
+    assertThat(((GraphQLContext) input.getContext()).<QueryCost>get(QueryCost.class).getCost()).isEqualTo(23);
+  }
+
+  @Test
+  public void appliesBudgetOfClient() {
+    properties.setMaxCost(30);
+    properties.getClientMaxCosts().put("big", 100);
+    GraphQL graphQL = newGraphQL(new AtomicInteger());
+
+    assertRejected(graphQL.execute(input("{ users(first: 3) { orders { total } } }", "small")), "cost");
+    assertThat(graphQL.execute(input("{ users(first: 3) { orders { total } } }", "big")).getErrors()).isEmpty();
+  }
+
+  private QueryCost cost(String query) {
+    return QueryCost.of(SCHEMA, new Parser().parseDocument(query), null, Collections.emptyMap(), properties);
+  }
+
+  private GraphQL newGraphQL(AtomicInteger fetches) {
+    GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL),
+        RuntimeWiring.newRuntimeWiring()
+            .type("Query", builder -> builder.defaultDataFetcher(env -> {
+              fetches.incrementAndGet();
+              return null;
+            }))
+            .build());
+    return GraphQL.newGraphQL(schema)
+        .instrumentation(new QueryCostInstrumentation(properties, meterRegistry))
+        .build();
+  }
+
+  private static ExecutionInput input(String query, String appId) {
+    TransactionContext tx = ImmutableTransactionContext.builder().appId(appId).build();
+    return ExecutionInput.newExecutionInput()
+        .query(query)
+        .context(GraphQLContext.newContext().of(Context.class, Context.of(TransactionContext.class, tx)).build())
+        .build();
+  }
+
+  private static void assertRejected(ExecutionResult result, String limit) {
+    assertThat(result.getErrors()).hasSize(1);
+    Map<String, Object> extensions = result.getErrors().get(0).getExtensions();
+    assertThat(extensions).containsEntry("classification", QueryCostInstrumentation.CLASSIFICATION)
+        .containsEntry("limit", limit);
+    assertThat(result.<Object>getData()).isNull();
+  }
+}
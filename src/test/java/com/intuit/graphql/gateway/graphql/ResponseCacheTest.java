@@ -0,0 +1,201 @@
+package com.intuit.graphql.gateway.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
+import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.SimpleDataFetcherExceptionHandler;
+import graphql.language.NodeUtil;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+public class ResponseCacheTest {
+
+  private static final String SDL = "directive @cacheControl(maxAge: Int) on FIELD_DEFINITION | OBJECT "
+      + "type Query { short: Foo @cacheControl(maxAge: 10) long: Foo @cacheControl(maxAge: 60) uncached: Foo "
+      + "name: String @cacheControl(maxAge: 30) typed: Bar overridden: Bar @cacheControl(maxAge: 5) } "
+      + "type Foo { id: String } "
+      + "type Bar @cacheControl(maxAge: 20) { id: String } "
+      + "type Mutation { update: String }";
+
+  private static final GraphQLSchema SCHEMA = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL),
+      RuntimeWiring.newRuntimeWiring().build());
+
+  private static final ExecutionResult RESULT = ExecutionResultImpl.newExecutionResult()
+      .data(Collections.singletonMap("long", Collections.singletonMap("id", "1"))).build();
+
+  private MeterRegistry meterRegistry;
+  private ResponseCacheProperties properties;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    properties = new ResponseCacheProperties();
+    properties.setEnabled(true);
+  }
+
+  @Test
+  public void usesMinimumMaxAgeOfSelectedFields() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+
+    assertThat(cache.getMaxAge(keyFor(cache, "{ long { id } }", "app"))).isEqualTo(60);
+    assertThat(cache.getMaxAge(keyFor(cache, "{ long { id } short { id } }", "app"))).isEqualTo(10);
+    assertThat(cache.getMaxAge(keyFor(cache, "{ long { id } uncached { id } }", "app"))).isZero();
+  }
+
+  @Test
+  public void usesMaxAgeOfReturnedTypeWithoutFieldHint() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+
+    assertThat(cache.getMaxAge(keyFor(cache, "{ typed { id } }", "app"))).isEqualTo(20);
+    assertThat(cache.getMaxAge(keyFor(cache, "{ typed { id } long { id } }", "app"))).isEqualTo(20);
+    assertThat(cache.getMaxAge(keyFor(cache, "{ overridden { id } }", "app"))).isEqualTo(5);
+  }
+
+  @Test
+  public void estimatesSizeOfResponseData() {
+    Map<String, Object> data = new LinkedHashMap<>();
+    data.put("long", Collections.singletonMap("id", "1"));
+    data.put("list", Arrays.asList(1, null));
+
+    assertThat(ResponseCache.estimateSize(data))
+        .isGreaterThanOrEqualTo("{\"long\":{\"id\":\"1\"},\"list\":[1,null]}".length());
+  }
+
+  @Test
+  public void capsMaxAge() {
+    properties.setMaxAgeInSeconds(20);
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+
+    assertThat(cache.getMaxAge(keyFor(cache, "{ long { id } }", "app"))).isEqualTo(20);
+  }
+
+  @Test
+  public void cachesResponse() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    ResponseCache.Key key = keyFor(cache, "{ long { id } }", "app");
+
+    assertThat(cache.get(key)).isNull();
+    cache.put(key, RESULT);
+
+    assertThat(cache.get(keyFor(cache, "query {long {id}}", "app"))).isSameAs(RESULT);
+    assertThat(meterRegistry.get(ResponseCache.METRIC_NAME + ".requests").tag("result", "hit").counter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get(ResponseCache.METRIC_NAME + ".requests").tag("result", "miss").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void variesByHeaders() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    cache.put(keyFor(cache, "{ long { id } }", "app"), RESULT);
+
+    assertThat(cache.get(keyFor(cache, "{ long { id } }", "other-app"))).isNull();
+  }
+
+  @Test
+  public void doesNotCacheUncacheableResponses() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    ResponseCache.Key key = keyFor(cache, "{ long { id } uncached { id } }", "app");
+    cache.put(key, RESULT);
+
+    ResponseCache.Key otherKey = keyFor(cache, "{ long { id } }", "app");
+    cache.put(otherKey, ExecutionResultImpl.newExecutionResult()
+        .addError(GraphqlErrorBuilder.newError().message("boom").build()).build());
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void doesNotCacheMutations() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+
+    assertThat(keyFor(cache, "mutation { update }", "app")).isNull();
+  }
+
+  @Test
+  public void doesNotCacheWhenDisabled() {
+    properties.setEnabled(false);
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+
+    assertThat(keyFor(cache, "{ long { id } }", "app")).isNull();
+  }
+
+  @Test
+  public void invalidatesOnSchemaChange() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    cache.put(keyFor(cache, "{ long { id } }", "app"), RESULT);
+
+    cache.onSchemaChangeEvent(GraphQLSchemaChangedEvent.INSTANCE);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void answersRootFieldsFromCache() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    AtomicInteger fetches = new AtomicInteger();
+    GraphQL graphQL = graphQL(cache, fetches);
+
+    assertThat(graphQL.execute(input("{ long { id } }", "app")).<Object>getData()).isEqualTo(RESULT.getData());
+    assertThat(graphQL.execute(input("{ long { id } }", "app")).<Object>getData()).isEqualTo(RESULT.getData());
+
+    assertThat(fetches).hasValue(1);
+  }
+
+  @Test
+  public void doesNotCacheIntrospectionQueries() {
+    ResponseCache cache = new ResponseCache(properties, meterRegistry);
+    GraphQL graphQL = graphQL(cache, new AtomicInteger());
+
+    graphQL.execute(input("{ __schema { queryType { name } } long { id } }", "app"));
+    graphQL.execute(input("{ ... on Query { __type(name: \"Foo\") { name } } long { id } }", "app"));
+
+    assertThat(cache.size()).isZero();
+  }
+
+  private static GraphQL graphQL(ResponseCache cache, AtomicInteger fetches) {
+    GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL),
+        RuntimeWiring.newRuntimeWiring().type("Query", builder -> builder.dataFetcher("long", environment -> {
+          fetches.incrementAndGet();
+          return Collections.singletonMap("id", "1");
+        })).build());
+    return GraphQL.newGraphQL(schema)
+        .queryExecutionStrategy(new ResponseCachingExecutionStrategy(cache, new SimpleDataFetcherExceptionHandler()))
+        .build();
+  }
+
+  private static ResponseCache.Key keyFor(ResponseCache cache, String query, String appId) {
+    NodeUtil.GetOperationResult operation = NodeUtil.getOperation(new Parser().parseDocument(query), null);
+    ExecutionInput executionInput = input(query, appId);
+    return cache.keyFor(SCHEMA, operation.operationDefinition, operation.fragmentsByName,
+        executionInput.getVariables(), executionInput.getContext());
+  }
+
+  private static ExecutionInput input(String query, String appId) {
+    GraphQLContext context = GraphQLContext.newContext()
+        .of(ServerRequest.class, MockServerRequest.builder().header("appid", appId).build())
+        .build();
+    return ExecutionInput.newExecutionInput().query(query).context(context).build();
+  }
+}
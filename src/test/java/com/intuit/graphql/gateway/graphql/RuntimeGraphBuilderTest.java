@@ -10,10 +10,12 @@ import static org.mockito.Mockito.when;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.provider.SdlServiceProvider;
 import com.intuit.graphql.gateway.provider.ServiceBuilder;
+import com.intuit.graphql.gateway.provider.ServiceProviderCache;
 import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
@@ -23,6 +25,8 @@ import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.graphql.orchestrator.batch.BatchLoaderExecutionHooks;
 import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
 import graphql.schema.GraphQLNamedType;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -34,6 +38,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 @Slf4j
@@ -48,6 +53,8 @@ public class RuntimeGraphBuilderTest {
   @Mock
   ServiceBuilder serviceBuilder;
 
+  ServiceProviderCache serviceProviderCache = new ServiceProviderCache();
+
   public RuntimeGraphBuilderTest() throws Exception {
 
     this.SDL_SCHEMA_V4OS = Resources
@@ -65,7 +72,8 @@ public class RuntimeGraphBuilderTest {
 
   @Test
   public void returnsEmptySchemaWithNoServiceDefinitionsTest() {
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
     Mono<RuntimeGraph> runtimeGraphMono = builder.build(Flux.empty())
         .subscriberContext(context -> context.putNonNull(TransactionContext.class, tx));
     RuntimeGraph runtimeGraph = runtimeGraphMono.block();
@@ -80,14 +88,15 @@ public class RuntimeGraphBuilderTest {
     when(sp1.getNameSpace()).thenReturn("1");
     when(sp2.getNameSpace()).thenReturn("2");
 
-    when(serviceBuilder.buildService(any(), any())).thenReturn(sp1, sp1, sp2);
+    when(serviceBuilder.build(any(), any())).thenReturn(Mono.just(sp1), Mono.just(sp1), Mono.just(sp2));
 
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
 
-    verify(serviceBuilder, times(0)).buildService(any(), any());
+    verify(serviceBuilder, times(0)).build(any(), any());
     ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("1").type(Type.GRAPHQL).build();
     builder.build(Flux.just(ServiceRegistration.baseBuilder().serviceDefinition(serviceDefinition).build())).block();
-    verify(serviceBuilder, times(1)).buildService(any(), any());
+    verify(serviceBuilder, times(1)).build(any(), any());
 
     ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("1").type(Type.GRAPHQL).build();
     ServiceDefinition sd2 = ServiceDefinition.newBuilder().namespace("2").type(Type.GRAPHQL).build();
@@ -96,7 +105,7 @@ public class RuntimeGraphBuilderTest {
         ServiceRegistration.baseBuilder().serviceDefinition(sd1).build(),
         ServiceRegistration.baseBuilder().serviceDefinition(sd2).build()
     )).block();
-    verify(serviceBuilder, times(3)).buildService(any(), any());
+    verify(serviceBuilder, times(3)).build(any(), any());
   }
 
 
@@ -113,12 +122,13 @@ public class RuntimeGraphBuilderTest {
     ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
         .graphqlResources(graphqlResources2).build();
 
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage1)))
-        .thenThrow(new ServiceRegistrationException("Failed to build service provider"));
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage2)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage1)))
+        .thenReturn(Mono.error(new ServiceRegistrationException("Failed to build service provider")));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage2)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null)));
 
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
     Mono<RuntimeGraph> runtimeGraphMono = builder.build(Flux.just(registrationPackage1, registrationPackage2));
 
     StepVerifier.create(runtimeGraphMono)
@@ -138,12 +148,13 @@ public class RuntimeGraphBuilderTest {
     ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
         .graphqlResources(graphqlResources2).build();
 
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage1)))
-        .thenThrow(new ServiceRegistrationException("Failed to build service provider"));
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage2)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage1)))
+        .thenReturn(Mono.error(new ServiceRegistrationException("Failed to build service provider")));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage2)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null)));
 
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
     RuntimeGraph runtimeGraph = builder.build(Flux.just(registrationPackage1, registrationPackage2), true).block();
 
     assertThat(runtimeGraph.getExecutableSchema().getAllTypesAsList().size()).isGreaterThan(12);
@@ -166,12 +177,13 @@ public class RuntimeGraphBuilderTest {
     ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
         .graphqlResources(graphqlResources).build();
 
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage1)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage1, null));
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage2)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage1)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage1, null)));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage2)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null)));
 
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
     RuntimeGraph runtimeGraph = builder.build(Flux.just(registrationPackage1, registrationPackage2))
         .block();
 
@@ -202,12 +214,13 @@ public class RuntimeGraphBuilderTest {
     ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
         .graphqlResources(graphqlResources).build();
 
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage1)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage1, null));
-    when(serviceBuilder.buildService(any(TransactionContext.class), eq(registrationPackage2)))
-        .thenReturn(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage1)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage1, null)));
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage2)))
+        .thenReturn(Mono.just(new SdlServiceProvider((SdlServiceRegistration) registrationPackage2, null)));
 
-    Mono<RuntimeGraph> runtimeGraphMono = new RuntimeGraphBuilder(serviceBuilder, mock(BatchLoaderExecutionHooks.class))
+    Mono<RuntimeGraph> runtimeGraphMono = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class))
         .build(Flux.just(registrationPackage1, registrationPackage2));
 
     StepVerifier.create(runtimeGraphMono)
@@ -215,6 +228,117 @@ public class RuntimeGraphBuilderTest {
         .verify();
   }
 
+  @Test
+  public void rebuildReusesProvidersOfUnchangedRegistrations() {
+    ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test1").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    ServiceRegistration registrationPackage1 = SdlServiceRegistration.builder().serviceDefinition(sd1)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_V4OS)).build();
+    ServiceDefinition sd2 = ServiceDefinition.newBuilder().namespace("test2").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_EPS)).build();
+    ServiceRegistration changedRegistrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_EPS + "\n")).build();
+
+    when(serviceBuilder.build(any(TransactionContext.class), any(ServiceRegistration.class)))
+        .thenAnswer(invocation -> Mono.just(new SdlServiceProvider(invocation.getArgument(1), null)));
+
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraph runtimeGraph = builder.rebuild(Flux.just(registrationPackage1, registrationPackage2), true).block();
+    verify(serviceBuilder, times(2)).build(any(), any());
+
+    assertThat(builder.rebuild(Flux.just(registrationPackage2, registrationPackage1), true).block())
+        .isSameAs(runtimeGraph);
+    verify(serviceBuilder, times(2)).build(any(), any());
+
+    RuntimeGraph changedRuntimeGraph = builder
+        .rebuild(Flux.just(registrationPackage1, changedRegistrationPackage2), true).block();
+    assertThat(changedRuntimeGraph).isNotSameAs(runtimeGraph);
+    verify(serviceBuilder, times(3)).build(any(), any());
+    verify(serviceBuilder).build(any(), eq(changedRegistrationPackage2));
+
+    assertThat(builder.rebuild(Flux.just(registrationPackage1), true).block()).isNotSameAs(changedRuntimeGraph);
+    verify(serviceBuilder, times(3)).build(any(), any());
+    assertThat(serviceProviderCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void buildReusesProvidersOfCurrentGraph() {
+    ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test1").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    ServiceRegistration registrationPackage1 = SdlServiceRegistration.builder().serviceDefinition(sd1)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_V4OS)).build();
+    ServiceDefinition sd2 = ServiceDefinition.newBuilder().namespace("test2").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    ServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_EPS)).build();
+
+    when(serviceBuilder.build(any(TransactionContext.class), any(ServiceRegistration.class)))
+        .thenAnswer(invocation -> Mono.just(new SdlServiceProvider(invocation.getArgument(1), null)));
+
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
+    builder.rebuild(Flux.just(registrationPackage1), true).block();
+    builder.build(Flux.just(registrationPackage1, registrationPackage2)).block();
+
+    verify(serviceBuilder, times(1)).build(any(), eq(registrationPackage1));
+    verify(serviceBuilder, times(1)).build(any(), eq(registrationPackage2));
+    assertThat(serviceProviderCache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void nonIncrementalRebuildBuildsAllRegistrations() {
+    ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test1").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    ServiceRegistration registrationPackage1 = SdlServiceRegistration.builder().serviceDefinition(sd1)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_V4OS)).build();
+
+    when(serviceBuilder.build(any(TransactionContext.class), any(ServiceRegistration.class)))
+        .thenAnswer(invocation -> Mono.just(new SdlServiceProvider(invocation.getArgument(1), null)));
+
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraph runtimeGraph = builder.rebuild(Flux.just(registrationPackage1), true).block();
+
+    assertThat(builder.rebuild(Flux.just(registrationPackage1), false).block()).isNotSameAs(runtimeGraph);
+    verify(serviceBuilder, times(2)).build(any(), any());
+  }
+
+  @Test
+  public void buildsServicesConcurrently() {
+    ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test1").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    SdlServiceRegistration registrationPackage1 = SdlServiceRegistration.builder().serviceDefinition(sd1)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_V4OS)).build();
+    ServiceDefinition sd2 = ServiceDefinition.newBuilder().namespace("test2").endpoint("test").type(Type.GRAPHQL_SDL)
+        .build();
+    SdlServiceRegistration registrationPackage2 = SdlServiceRegistration.builder().serviceDefinition(sd2)
+        .graphqlResources(Collections.singletonMap("test-path", SDL_SCHEMA_EPS)).build();
+
+    // the first build only completes once the second one started
+    Sinks.One<ServiceProvider> firstProvider = Sinks.one();
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage1)))
+        .thenReturn(firstProvider.asMono());
+    when(serviceBuilder.build(any(TransactionContext.class), eq(registrationPackage2)))
+        .thenReturn(Mono.fromCallable(() -> {
+          firstProvider.tryEmitValue(new SdlServiceProvider(registrationPackage1, null));
+          return new SdlServiceProvider(registrationPackage2, null);
+        }));
+
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(serviceBuilder, serviceProviderCache,
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraph runtimeGraph = builder.build(Flux.just(registrationPackage1, registrationPackage2))
+        .block(Duration.ofSeconds(10));
+
+    assertThat(runtimeGraph.getExecutableSchema().getAllTypesAsList()
+        .stream()
+        .map(GraphQLNamedType::getName)
+        .collect(Collectors.toList())
+    ).contains("TaxType", "ProfilePhoto");
+  }
+
   //TODO: Add tests case for schema build with introspection
 
 }
\ No newline at end of file
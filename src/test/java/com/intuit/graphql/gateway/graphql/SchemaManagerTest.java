@@ -3,24 +3,35 @@ package com.intuit.graphql.gateway.graphql;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.intuit.graphql.gateway.config.properties.SchemaSnapshotProperties;
 import com.intuit.graphql.gateway.config.properties.StitchingProperties;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.events.GraphQLSchemaChangedEvent;
+import com.intuit.graphql.gateway.provider.SdlServiceProvider;
+import com.intuit.graphql.gateway.provider.ServiceBuilder;
+import com.intuit.graphql.gateway.provider.ServiceProviderCache;
 import com.intuit.graphql.gateway.registry.S3ServiceRegistrationProvider;
+import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationProvider;
 import com.intuit.graphql.gateway.TestHelper;
+import com.intuit.graphql.orchestrator.ServiceProvider;
 import com.intuit.graphql.orchestrator.batch.BatchLoaderExecutionHooks;
 import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
 import com.intuit.graphql.orchestrator.stitching.SchemaStitcher;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -42,11 +53,14 @@ public class SchemaManagerTest {
   @Mock
   public RuntimeGraphBuilder mockRuntimeGraphBuilder;
 
+  private final SchemaSnapshot schemaSnapshot = new SchemaSnapshot(new SchemaSnapshotProperties());
+
   @Before
   public void setUp() {
     MockitoAnnotations.initMocks(this);
 
-    when(mockRuntimeGraphBuilder.build(any(), anyBoolean())).thenReturn(Mono.just(SchemaStitcher.newBuilder().build().stitchGraph()));
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean()))
+        .thenReturn(Mono.fromCallable(() -> SchemaStitcher.newBuilder().build().stitchGraph()));
   }
 
   @Test
@@ -56,10 +70,11 @@ public class SchemaManagerTest {
 
     when(provider1.getInitialServiceRegistrations()).thenReturn(Flux.empty());
 
-    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(null, mock(BatchLoaderExecutionHooks.class));
+    RuntimeGraphBuilder builder = new RuntimeGraphBuilder(null, new ServiceProviderCache(),
+        new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
 
     SchemaManager managerUnderTest = new SchemaManager(TestHelper.testTxProvider(), builder,
-        Arrays.asList(provider1), eventPublisher);
+        Arrays.asList(provider1), eventPublisher, schemaSnapshot);
 
     managerUnderTest.initializeRuntimeGraph();
 
@@ -71,7 +86,7 @@ public class SchemaManagerTest {
     ServiceRegistrationProvider provider1 = mock(S3ServiceRegistrationProvider.class);
 
     SchemaManager managerUnderTest = new SchemaManager(TestHelper.testTxProvider(),
-        mockRuntimeGraphBuilder, Arrays.asList(provider1), eventPublisher);
+        mockRuntimeGraphBuilder, Arrays.asList(provider1), eventPublisher, schemaSnapshot);
 
     ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test-namespace").type(Type.REST)
         .appId("test-appId")
@@ -87,7 +102,7 @@ public class SchemaManagerTest {
     ArgumentCaptor<Boolean> booleanArgumentCaptor = ArgumentCaptor.forClass(Boolean.class);
 
     managerUnderTest.updateRegistry(provider1.getClass().getName(), Flux.just(sr1, sr2));
-    verify(mockRuntimeGraphBuilder).build(fluxArgCaptor.capture(), booleanArgumentCaptor.capture());
+    verify(mockRuntimeGraphBuilder).rebuild(fluxArgCaptor.capture(), booleanArgumentCaptor.capture());
     StepVerifier.create(fluxArgCaptor.getValue()).expectNext(sr1).verifyComplete();
   }
 
@@ -96,7 +111,7 @@ public class SchemaManagerTest {
     ServiceRegistrationProvider provider1 = mock(S3ServiceRegistrationProvider.class);
 
     SchemaManager schemaManager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder,
-        Arrays.asList(provider1), eventPublisher);
+        Arrays.asList(provider1), eventPublisher, schemaSnapshot);
 
     ServiceDefinition sd1 = ServiceDefinition.newBuilder().namespace("test-namespace1")
         .type(Type.REST).appId("test-appId1").endpoint("endpoint1").build();
@@ -110,7 +125,7 @@ public class SchemaManagerTest {
     ArgumentCaptor<Boolean> booleanArgumentCaptor = ArgumentCaptor.forClass(Boolean.class);
 
     schemaManager.updateRegistry(provider1.getClass().getName(), Flux.just(sr1));
-    verify(mockRuntimeGraphBuilder).build(fluxArgCaptor.capture(), booleanArgumentCaptor.capture());
+    verify(mockRuntimeGraphBuilder).rebuild(fluxArgCaptor.capture(), booleanArgumentCaptor.capture());
     StepVerifier.create(fluxArgCaptor.getValue()).expectNext(sr1).verifyComplete();
   }
 
@@ -121,15 +136,15 @@ public class SchemaManagerTest {
     ServiceRegistration sr = ServiceRegistration.baseBuilder().serviceDefinition(sd1).build();
 
     SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
-        eventPublisher);
+        eventPublisher, schemaSnapshot);
 
     manager.initializeRuntimeGraph();
 
-    verify(mockRuntimeGraphBuilder, times(1)).build(any(Flux.class), anyBoolean());
+    verify(mockRuntimeGraphBuilder, times(1)).rebuild(any(Flux.class), anyBoolean());
 
     manager.updateRegistry("", Flux.just(sr));
 
-    verify(mockRuntimeGraphBuilder, times(2)).build(any(Flux.class), anyBoolean());
+    verify(mockRuntimeGraphBuilder, times(2)).rebuild(any(Flux.class), anyBoolean());
   }
 
   @Test
@@ -141,14 +156,14 @@ public class SchemaManagerTest {
     ServiceRegistration sr2 = ServiceRegistration.baseBuilder().serviceDefinition(sd2).build();
 
     SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
-        eventPublisher);
+        eventPublisher, schemaSnapshot);
 
     manager.initializeRuntimeGraph();
 
     manager.updateRegistry("test", Flux.just(sr1));
     manager.updateRegistry("test", Flux.just(sr2));
 
-    verify(mockRuntimeGraphBuilder, times(3)).build(any(Flux.class), anyBoolean());
+    verify(mockRuntimeGraphBuilder, times(3)).rebuild(any(Flux.class), anyBoolean());
   }
 
   @Test
@@ -158,21 +173,21 @@ public class SchemaManagerTest {
     ServiceRegistration sr1 = ServiceRegistration.baseBuilder().serviceDefinition(sd1).build();
 
     SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
-        eventPublisher);
+        eventPublisher, schemaSnapshot);
 
     manager.initializeRuntimeGraph();
 
     manager.updateRegistry("test", Flux.just(sr1));
     manager.updateRegistry("test", Flux.empty());
 
-    verify(mockRuntimeGraphBuilder, times(3)).build(any(Flux.class), anyBoolean());
+    verify(mockRuntimeGraphBuilder, times(3)).rebuild(any(Flux.class), anyBoolean());
   }
 
   @Test
   public void testRebuildsGraph() {
-    when(mockRuntimeGraphBuilder.build(any())).thenReturn(Mono.just(mock(RuntimeGraph.class)));
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean())).thenReturn(Mono.just(mock(RuntimeGraph.class)));
     SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
-        eventPublisher);
+        eventPublisher, schemaSnapshot);
     final RuntimeGraph initialRuntimeGraph = manager.getRuntimeGraph();
 
     manager.rebuildGraph(TestHelper.testTx());
@@ -182,13 +197,144 @@ public class SchemaManagerTest {
 
   @Test
   public void testEmitsSchemaChangeEvent() {
-    when(mockRuntimeGraphBuilder.build(any())).thenReturn(Mono.just(mock(RuntimeGraph.class)));
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean()))
+        .thenReturn(Mono.fromCallable(() -> mock(RuntimeGraph.class)));
     SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
-        eventPublisher);
+        eventPublisher, schemaSnapshot);
 
     manager.rebuildGraph(TestHelper.testTx());
     manager.updateRegistry("notUsed", Flux.empty()).block();
 
     verify(eventPublisher, times(2)).publishEvent(any(GraphQLSchemaChangedEvent.class));
   }
+
+  @Test
+  public void doesNotEmitSchemaChangeEventIfGraphUnchanged() {
+    final RuntimeGraph runtimeGraph = mock(RuntimeGraph.class);
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean())).thenReturn(Mono.just(runtimeGraph));
+    SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder, Collections.emptyList(),
+        eventPublisher, schemaSnapshot);
+
+    manager.initializeRuntimeGraph();
+    manager.updateRegistry("notUsed", Flux.empty()).block();
+
+    assertThat(manager.getRuntimeGraph()).isSameAs(runtimeGraph);
+    verify(eventPublisher, times(0)).publishEvent(any(GraphQLSchemaChangedEvent.class));
+  }
+
+  @Test
+  public void restoresGraphFromSnapshotAndReconcilesWithRegistries() {
+    final ServiceRegistration restored = ServiceRegistration.baseBuilder().serviceDefinition(
+        ServiceDefinition.newBuilder().namespace("restored").type(Type.GRAPHQL).endpoint("endpoint").build()).build();
+    final ServiceRegistration current = ServiceRegistration.baseBuilder().serviceDefinition(
+        ServiceDefinition.newBuilder().namespace("current").type(Type.GRAPHQL).endpoint("endpoint").build()).build();
+    final SchemaSnapshot mockSchemaSnapshot = mock(SchemaSnapshot.class);
+    when(mockSchemaSnapshot.load(any())).thenReturn(Arrays.asList(
+        new SchemaSnapshot.Entry("registry", restored, "type Query { a: String }"),
+        new SchemaSnapshot.Entry("removed-registry", current, null)));
+    final ServiceRegistrationProvider provider = mock(ServiceRegistrationProvider.class);
+    when(provider.getRegistryId()).thenReturn("registry");
+    when(provider.getInitialServiceRegistrations()).thenReturn(Flux.just(current));
+    final RuntimeGraph restoredRuntimeGraph = mock(RuntimeGraph.class);
+    when(mockRuntimeGraphBuilder.restore(any(), any())).thenReturn(Mono.just(restoredRuntimeGraph));
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean())).thenReturn(Mono.empty());
+
+    SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder,
+        Collections.singletonList(provider), eventPublisher, mockSchemaSnapshot);
+    manager.initializeRuntimeGraph();
+
+    ArgumentCaptor<Flux> restoredCaptor = ArgumentCaptor.forClass(Flux.class);
+    verify(mockRuntimeGraphBuilder).restore(restoredCaptor.capture(),
+        eq(Collections.singletonMap(restored, "type Query { a: String }")));
+    StepVerifier.create(restoredCaptor.getValue()).expectNext(restored).verifyComplete();
+    verify(provider).registerServiceRegistry(manager);
+
+    ArgumentCaptor<Flux> reconciledCaptor = ArgumentCaptor.forClass(Flux.class);
+    verify(mockRuntimeGraphBuilder).rebuild(reconciledCaptor.capture(), eq(false));
+    StepVerifier.create(reconciledCaptor.getValue()).expectNext(current).verifyComplete();
+    assertThat(manager.getRuntimeGraph()).isSameAs(restoredRuntimeGraph);
+  }
+
+  @Test
+  public void savesSnapshotWithProvidersOfTheGraph() {
+    final ServiceRegistration stitched = ServiceRegistration.baseBuilder().serviceDefinition(
+        ServiceDefinition.newBuilder().namespace("stitched").type(Type.GRAPHQL).endpoint("endpoint").build()).build();
+    final ServiceRegistration failed = ServiceRegistration.baseBuilder().serviceDefinition(
+        ServiceDefinition.newBuilder().namespace("failed").type(Type.GRAPHQL).endpoint("endpoint").build()).build();
+    final ServiceRegistrationProvider provider = mock(ServiceRegistrationProvider.class);
+    when(provider.getRegistryId()).thenReturn("registry");
+    when(provider.getInitialServiceRegistrations()).thenReturn(Flux.just(stitched, failed));
+    final SchemaSnapshot mockSchemaSnapshot = mock(SchemaSnapshot.class);
+    when(mockSchemaSnapshot.isEnabled()).thenReturn(true);
+    final Map<ServiceRegistration, ServiceProvider> providers = Collections.singletonMap(stitched,
+        mock(ServiceProvider.class));
+    when(mockRuntimeGraphBuilder.getServiceProviders(any())).thenReturn(providers);
+    when(mockRuntimeGraphBuilder.rebuild(any(), anyBoolean())).thenAnswer(invocation ->
+        invocation.<Flux<ServiceRegistration>>getArgument(0).then(Mono.just(mock(RuntimeGraph.class))));
+
+    SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder,
+        Collections.singletonList(provider), eventPublisher, mockSchemaSnapshot);
+    manager.initializeRuntimeGraph();
+
+    verify(mockRuntimeGraphBuilder).getServiceProviders(manager.getRuntimeGraph());
+    verify(mockSchemaSnapshot).saveInBackground(any(),
+        eq(Collections.singletonMap("registry", new HashSet<>(Arrays.asList(stitched, failed)))), eq(providers));
+  }
+
+  @Test
+  public void introspectsRestoredServicesAgainOnReconcile() {
+    final ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("restored")
+        .type(Type.GRAPHQL).endpoint("endpoint").build();
+    final ServiceRegistration restored = ServiceRegistration.baseBuilder().serviceDefinition(serviceDefinition)
+        .build();
+    final SchemaSnapshot mockSchemaSnapshot = mock(SchemaSnapshot.class);
+    when(mockSchemaSnapshot.load(any())).thenReturn(Collections.singletonList(
+        new SchemaSnapshot.Entry("registry", restored, "type Query { a: String }")));
+    final ServiceRegistrationProvider provider = mock(ServiceRegistrationProvider.class);
+    when(provider.getRegistryId()).thenReturn("registry");
+    when(provider.getInitialServiceRegistrations()).thenReturn(Flux.just(restored));
+
+    // the schema of the service changed after the snapshot was taken
+    final ServiceBuilder serviceBuilder = mock(ServiceBuilder.class);
+    when(serviceBuilder.build(any(), eq(restored), eq("type Query { a: String }")))
+        .thenReturn(Mono.just(sdlServiceProvider(serviceDefinition, "type Query { a: String }")));
+    when(serviceBuilder.build(any(), eq(restored)))
+        .thenReturn(Mono.just(sdlServiceProvider(serviceDefinition, "type Query { b: String }")));
+    final RuntimeGraphBuilder runtimeGraphBuilder = new RuntimeGraphBuilder(serviceBuilder,
+        new ServiceProviderCache(), new WebClientProperties(), mock(BatchLoaderExecutionHooks.class));
+
+    SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), runtimeGraphBuilder,
+        Collections.singletonList(provider), eventPublisher, mockSchemaSnapshot);
+    manager.initializeRuntimeGraph();
+
+    verify(eventPublisher, timeout(5000)).publishEvent(GraphQLSchemaChangedEvent.INSTANCE);
+    assertThat(manager.getRuntimeGraph().getExecutableSchema().getQueryType().getFieldDefinition("a")).isNull();
+    assertThat(manager.getRuntimeGraph().getExecutableSchema().getQueryType().getFieldDefinition("b")).isNotNull();
+  }
+
+  private static SdlServiceProvider sdlServiceProvider(ServiceDefinition serviceDefinition, String sdl) {
+    return new SdlServiceProvider(SdlServiceRegistration.builder().serviceDefinition(serviceDefinition)
+        .graphqlResources(Collections.singletonMap("schema.graphqls", sdl)).build(), null);
+  }
+
+  @Test
+  public void buildsFromRegistriesIfSnapshotCannotBeRestored() {
+    final ServiceRegistration restored = ServiceRegistration.baseBuilder().serviceDefinition(
+        ServiceDefinition.newBuilder().namespace("restored").type(Type.GRAPHQL).endpoint("endpoint").build()).build();
+    final SchemaSnapshot mockSchemaSnapshot = mock(SchemaSnapshot.class);
+    when(mockSchemaSnapshot.load(any()))
+        .thenReturn(Collections.singletonList(new SchemaSnapshot.Entry("registry", restored, null)));
+    final ServiceRegistrationProvider provider = mock(ServiceRegistrationProvider.class);
+    when(provider.getRegistryId()).thenReturn("registry");
+    when(provider.getInitialServiceRegistrations()).thenReturn(Flux.empty());
+    when(mockRuntimeGraphBuilder.restore(any(), any())).thenReturn(Mono.error(new IllegalStateException("failed")));
+
+    SchemaManager manager = new SchemaManager(TestHelper.testTxProvider(), mockRuntimeGraphBuilder,
+        Collections.singletonList(provider), eventPublisher, mockSchemaSnapshot);
+    manager.initializeRuntimeGraph();
+
+    verify(mockRuntimeGraphBuilder).rebuild(any(), eq(true));
+    assertThat(manager.getRuntimeGraph()).isNotNull();
+    StepVerifier.create(manager.getCachedRegistrations()).verifyComplete();
+  }
 }
@@ -0,0 +1,168 @@
+package com.intuit.graphql.gateway.graphql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intuit.graphql.gateway.config.properties.SchemaSnapshotProperties;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.provider.IntrospectionServiceProvider;
+import com.intuit.graphql.gateway.registry.RestServiceRegistration;
+import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
+import com.intuit.graphql.gateway.registry.ServiceRegistration;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaSnapshotTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final TransactionContext tx = ImmutableTransactionContext.builder().build();
+
+  private SchemaSnapshotProperties properties;
+
+  private SchemaSnapshot schemaSnapshot;
+
+  @Before
+  public void setUp() throws Exception {
+    properties = new SchemaSnapshotProperties();
+    properties.setEnabled(true);
+    properties.setPath(new File(temporaryFolder.getRoot(), "snapshot/schema-snapshot.json.gz").getPath());
+    schemaSnapshot = new SchemaSnapshot(properties);
+  }
+
+  @Test
+  public void savesAndLoadsRegistrations() {
+    final ServiceRegistration introspection = ServiceRegistration.baseBuilder()
+        .serviceDefinition(serviceDefinition("introspection", Type.GRAPHQL)).build();
+    final ServiceRegistration sdl = SdlServiceRegistration.builder()
+        .serviceDefinition(serviceDefinition("sdl", Type.GRAPHQL_SDL))
+        .graphqlResources(Collections.singletonMap("schema.graphqls", "type Query { a: String }")).build();
+    final ServiceRegistration rest = RestServiceRegistration.builder()
+        .serviceDefinition(serviceDefinition("rest", Type.REST))
+        .graphqlResources(Collections.singletonMap("schema.graphqls", "type Query { b: String }"))
+        .flowResources(Collections.singletonMap("main.flow", "flow")).build();
+
+    final ServiceProvider introspectionProvider = mock(ServiceProvider.class);
+    when(introspectionProvider.sdlFiles()).thenReturn(
+        Collections.singletonMap(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME, "type Query { c: String }"));
+    final Map<ServiceRegistration, ServiceProvider> providers = new HashMap<>();
+    providers.put(introspection, introspectionProvider);
+    providers.put(sdl, mock(ServiceProvider.class));
+    providers.put(rest, mock(ServiceProvider.class));
+
+    final Map<String, Set<ServiceRegistration>> registrations = new HashMap<>();
+    registrations.put("registry-1", new HashSet<>(Arrays.asList(introspection, sdl)));
+    registrations.put("registry-2", Collections.singleton(rest));
+    schemaSnapshot.save(tx, registrations, providers);
+
+    final List<SchemaSnapshot.Entry> entries = schemaSnapshot.load(tx);
+
+    assertThat(entries).hasSize(3);
+    final Map<ServiceRegistration, SchemaSnapshot.Entry> byRegistration = new HashMap<>();
+    entries.forEach(entry -> byRegistration.put(entry.toServiceRegistration(), entry));
+    assertThat(byRegistration).containsOnlyKeys(introspection, sdl, rest);
+    assertThat(byRegistration.get(introspection).getRegistryId()).isEqualTo("registry-1");
+    assertThat(byRegistration.get(introspection).getIntrospectedSchema()).isEqualTo("type Query { c: String }");
+    assertThat(byRegistration.get(sdl).getRegistryId()).isEqualTo("registry-1");
+    assertThat(byRegistration.get(sdl).getIntrospectedSchema()).isNull();
+    assertThat(byRegistration.get(rest).getRegistryId()).isEqualTo("registry-2");
+  }
+
+  @Test
+  public void savesOnlyRegistrationsOfTheGraph() {
+    final ServiceRegistration stitched = ServiceRegistration.baseBuilder()
+        .serviceDefinition(serviceDefinition("stitched", Type.GRAPHQL)).build();
+    final ServiceRegistration failed = ServiceRegistration.baseBuilder()
+        .serviceDefinition(serviceDefinition("failed", Type.GRAPHQL)).build();
+
+    schemaSnapshot.save(tx, Collections.singletonMap("registry", new HashSet<>(Arrays.asList(stitched, failed))),
+        Collections.singletonMap(stitched, mock(ServiceProvider.class)));
+
+    assertThat(schemaSnapshot.load(tx)).extracting(SchemaSnapshot.Entry::toServiceRegistration)
+        .containsExactly(stitched);
+  }
+
+  @Test
+  public void loadsSnapshotWithUnknownAndMissingFields() throws Exception {
+    final File file = new File(properties.getPath());
+    file.getParentFile().mkdirs();
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(("{\"version\":1,\"entries\":[{\"registryId\":\"registry\",\"kind\":\"INTROSPECTION\","
+          + "\"serviceDefinition\":{\"namespace\":\"a\",\"endpoint\":\"http://localhost:4000/graphql\","
+          + "\"removedField\":true},\"unknown\":1}]}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    final List<SchemaSnapshot.Entry> entries = schemaSnapshot.load(tx);
+
+    assertThat(entries).hasSize(1);
+    final ServiceDefinition serviceDefinition = entries.get(0).toServiceRegistration().getServiceDefinition();
+    assertThat(serviceDefinition.getNamespace()).isEqualTo("a");
+    assertThat(serviceDefinition.getType()).isEqualTo(Type.GRAPHQL);
+    assertThat(serviceDefinition.getCircuitBreaker()).isEqualTo(new ServiceDefinition.CircuitBreakerConfig());
+  }
+
+  @Test
+  public void loadsNothingFromSnapshotOfAnotherVersion() throws Exception {
+    final File file = new File(properties.getPath());
+    file.getParentFile().mkdirs();
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write("{\"version\":0,\"entries\":[]}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    assertThat(schemaSnapshot.load(tx)).isEmpty();
+  }
+
+  @Test
+  public void isDisabledWithoutPath() {
+    properties.setPath(null);
+
+    assertThat(schemaSnapshot.isEnabled()).isFalse();
+    assertThat(schemaSnapshot.load(tx)).isEmpty();
+  }
+
+  @Test
+  public void loadsNothingFromCorruptSnapshot() throws Exception {
+    final File file = new File(properties.getPath());
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), "not a snapshot".getBytes());
+
+    assertThat(schemaSnapshot.load(tx)).isEmpty();
+  }
+
+  @Test
+  public void loadsNothingIfDisabled() {
+    final ServiceRegistration serviceRegistration = ServiceRegistration.baseBuilder()
+        .serviceDefinition(serviceDefinition("a", Type.GRAPHQL)).build();
+    schemaSnapshot.save(tx, Collections.singletonMap("registry-1", Collections.singleton(serviceRegistration)),
+        Collections.singletonMap(serviceRegistration, mock(ServiceProvider.class)));
+    properties.setEnabled(false);
+
+    assertThat(schemaSnapshot.load(tx)).isEmpty();
+  }
+
+  private ServiceDefinition serviceDefinition(String namespace, Type type) {
+    return ServiceDefinition.newBuilder().namespace(namespace).type(type).appId("test-appId")
+        .endpoint("http://localhost:4000/graphql").build();
+  }
+}
@@ -1,8 +1,11 @@
 package com.intuit.graphql.gateway.graphql;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.core.Options.DYNAMIC_PORT;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -10,16 +13,42 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.intuit.graphql.gateway.Mapper;
 import com.intuit.graphql.gateway.metrics.DownstreamCallEvent;
 import com.intuit.graphql.gateway.metrics.ExecutionMetrics.ExecutionMetricsData;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.ConcurrencyLimitConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HedgingConfig;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationException;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter;
+import com.intuit.graphql.gateway.webclient.ContentEncodings;
+import graphql.ExceptionWhileDataFetching;
 import graphql.ExecutionInput;
 import graphql.GraphQLContext;
+import graphql.execution.ExecutionPath;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.collections4.map.HashedMap;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,8 +56,14 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
 import reactor.test.StepVerifier;
 import reactor.util.context.Context;
 
@@ -149,4 +184,279 @@ public class WebClientQueryExecutorTest {
     //     .addDownstreamCallEvent(ArgumentMatchers.any(DownstreamCallEvent.class));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void coalescesIdenticalQueriesInFlight() {
+    stubDelayedResponse();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient,
+        newCoalescingServiceDefinition(), meterRegistry);
+
+    StepVerifier.create(Flux.range(0, 5)
+        .flatMap(i -> Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .collectList())
+        .consumeNextWith(results -> {
+          assertThat(results).hasSize(5).allSatisfy(map -> assertThat(map.get("a")).isEqualTo(1));
+          // each caller gets its own copy of the response
+          assertThat(results.get(0)).isNotSameAs(results.get(1));
+        })
+        .verifyComplete();
+
+    wireMockRule.verify(1, postRequestedFor(urlEqualTo("/")));
+    assertThat(meterRegistry.get(WebClientQueryExecutor.COALESCED_METRIC_NAME).tag("namespace", "test").counter()
+        .count()).isEqualTo(4);
+
+    // completed requests are not shared with later ones
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .expectNextCount(1)
+        .verifyComplete();
+    wireMockRule.verify(2, postRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  public void neverCoalescesMutations() {
+    stubDelayedResponse();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient,
+        newCoalescingServiceDefinition(), new SimpleMeterRegistry());
+
+    StepVerifier.create(Flux.range(0, 3)
+        .flatMap(i -> Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("mutation { a }"), newContext())))
+        .collectList())
+        .consumeNextWith(results -> assertThat(results).hasSize(3))
+        .verifyComplete();
+
+    wireMockRule.verify(3, postRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  public void doesNotCoalesceUnlessEnabled() {
+    stubDelayedResponse();
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL)
+        .endpoint("localhost:" + wireMockRule.port()).build();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient, serviceDefinition);
+
+    StepVerifier.create(Flux.range(0, 3)
+        .flatMap(i -> Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .collectList())
+        .consumeNextWith(results -> assertThat(results).hasSize(3))
+        .verifyComplete();
+
+    wireMockRule.verify(3, postRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  public void compressesRequestsAndDecompressesResponses() throws IOException {
+    String responseBody = "{\"a\": \"" + StringUtils.repeat("b", 1000) + "\"}";
+    byte[] response = gzip(responseBody);
+    Map<String, String> requestHeaders = new ConcurrentHashMap<>();
+    AtomicReference<byte[]> requestBody = new AtomicReference<>();
+    DisposableServer server = HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .handle((request, serverResponse) -> {
+          request.requestHeaders().forEach(header -> requestHeaders.put(header.getKey(), header.getValue()));
+          return request.receive().aggregate().asByteArray()
+              .flatMap(body -> {
+                requestBody.set(body);
+                return serverResponse.header(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .sendByteArray(Mono.just(response))
+                    .then();
+              });
+        })
+        .bindNow();
+    try {
+      ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL)
+          .endpoint("http://localhost:" + server.port()).compression(Compression.GZIP).compressionMinSize(100)
+          .build();
+      MeterRegistry meterRegistry = new SimpleMeterRegistry();
+      // like the clients of the gateway, unlike WebClient.create(), does not decompress responses in Netty
+      WebClient webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(HttpClient.create()))
+          .build();
+      final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient, serviceDefinition,
+          meterRegistry);
+
+      String query = "query { a(b: \"" + StringUtils.repeat("c", 1000) + "\") }";
+      StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput(query), newContext())))
+          .consumeNextWith(result -> assertThat(result.get("a")).isEqualTo(StringUtils.repeat("b", 1000)))
+          .verifyComplete();
+
+      assertThat(requestHeaders).containsEntry(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .containsEntry(HttpHeaders.ACCEPT_ENCODING, ContentEncodings.ACCEPT_ENCODING);
+      Map<?, ?> request = Mapper.mapper().readValue(new GZIPInputStream(new ByteArrayInputStream(requestBody.get())),
+          Map.class);
+      assertThat(request.get("query")).isEqualTo(query);
+      assertThat(meterRegistry.get(WebClientQueryExecutor.COMPRESSION_SAVED_METRIC_NAME).tag("direction", "request")
+          .counter().count()).isGreaterThan(900);
+      assertThat(meterRegistry.get(WebClientQueryExecutor.COMPRESSION_SAVED_METRIC_NAME).tag("direction", "response")
+          .counter().count()).isEqualTo(responseBody.length() - response.length);
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void doesNotCompressSmallRequests() {
+    wireMockRule.addStubMapping(
+        stubFor(post("/")
+            .withHeader(HttpHeaders.CONTENT_ENCODING, absent())
+            .willReturn(aResponse()
+                .withHeader("Content-Type", APPLICATION_JSON)
+                .withStatus(200)
+                .withBody("{\"a\": 1}"))
+        )
+    );
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL)
+        .endpoint("localhost:" + wireMockRule.port()).compression(Compression.DEFLATE).build();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient, serviceDefinition,
+        new SimpleMeterRegistry());
+
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .consumeNextWith(result -> assertThat(result.get("a")).isEqualTo(1))
+        .verifyComplete();
+  }
+
+  @Test
+  public void failsFastWhileCircuitBreakerIsOpen() {
+    wireMockRule.addStubMapping(stubFor(post("/").willReturn(aResponse().withStatus(503))));
+    CircuitBreakerConfig config = new CircuitBreakerConfig();
+    config.setEnabled(true);
+    config.setMinimumNumberOfCalls(2);
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL)
+        .endpoint("localhost:" + wireMockRule.port()).circuitBreaker(config).build();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient, serviceDefinition,
+        new CircuitBreaker(config), null, meterRegistry);
+
+    for (int i = 0; i < 2; i++) {
+      StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+          .expectError(DataRetrieverException.class)
+          .verify();
+    }
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .expectErrorSatisfies(e -> {
+          assertThat(e).isInstanceOf(CircuitBreakerOpenException.class);
+          assertThat(new ExceptionWhileDataFetching(ExecutionPath.parse("/a"), e, null).getExtensions())
+              .containsEntry("classification", CircuitBreakerOpenException.CLASSIFICATION)
+              .containsEntry("namespace", "test");
+        })
+        .verify();
+
+    wireMockRule.verify(2, postRequestedFor(urlEqualTo("/")));
+    assertThat(meterRegistry.get(WebClientQueryExecutor.CIRCUIT_BREAKER_NOT_PERMITTED_METRIC_NAME)
+        .tag("namespace", "test").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsCallsOverConcurrencyLimit() {
+    stubDelayedResponse();
+    ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+    config.setEnabled(true);
+    config.setInitialLimit(1);
+    config.setMaxQueueSize(0);
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL)
+        .endpoint("localhost:" + wireMockRule.port()).concurrencyLimit(config).build();
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(config);
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient, serviceDefinition,
+        null, concurrencyLimiter, new SimpleMeterRegistry());
+
+    CompletableFuture<Map<String, Object>> first = webClientQueryExecutor.query(newExecutionInput("query { a }"),
+        newContext());
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .expectError(ConcurrencyLimitExceededException.class)
+        .verify();
+    StepVerifier.create(Mono.fromFuture(first))
+        .consumeNextWith(result -> assertThat(result.get("a")).isEqualTo(1))
+        .verifyComplete();
+
+    wireMockRule.verify(1, postRequestedFor(urlEqualTo("/")));
+    assertThat(concurrencyLimiter.getInFlight()).isZero();
+  }
+
+  @Test
+  public void hedgesSlowQuery() {
+    wireMockRule.addStubMapping(stubFor(post("/").inScenario("hedging").whenScenarioStateIs(Scenario.STARTED)
+        .willSetStateTo("hedged")
+        .willReturn(aResponse().withFixedDelay(3000)
+            .withHeader("Content-Type", APPLICATION_JSON)
+            .withBody("{\"a\": \"slow\"}"))));
+    wireMockRule.addStubMapping(stubFor(post("/").inScenario("hedging").whenScenarioStateIs("hedged")
+        .willReturn(aResponse()
+            .withHeader("Content-Type", APPLICATION_JSON)
+            .withBody("{\"a\": \"hedge\"}"))));
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient,
+        newHedgingServiceDefinition(), meterRegistry);
+
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("query { a }"), newContext())))
+        .consumeNextWith(result -> assertThat(result.get("a")).isEqualTo("hedge"))
+        .expectComplete()
+        .verify(Duration.ofSeconds(2));
+
+    wireMockRule.verify(2, postRequestedFor(urlEqualTo("/")));
+    assertThat(meterRegistry.get(WebClientQueryExecutor.HEDGE_METRIC_NAME + ".fired").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get(WebClientQueryExecutor.HEDGE_METRIC_NAME + ".won").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotHedgeMutations() {
+    stubDelayedResponse();
+    final WebClientQueryExecutor webClientQueryExecutor = new WebClientQueryExecutor(webClient,
+        newHedgingServiceDefinition(), new SimpleMeterRegistry());
+
+    StepVerifier.create(Mono.fromFuture(webClientQueryExecutor.query(newExecutionInput("mutation { a }"),
+        newContext())))
+        .consumeNextWith(result -> assertThat(result.get("a")).isEqualTo(1))
+        .verifyComplete();
+
+    wireMockRule.verify(1, postRequestedFor(urlEqualTo("/")));
+  }
+
+  private static byte[] gzip(String value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream outputStream = new GZIPOutputStream(bytes)) {
+      outputStream.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private void stubDelayedResponse() {
+    wireMockRule.addStubMapping(
+        stubFor(post("/")
+            .willReturn(aResponse().withFixedDelay(300)
+                .withHeader("Content-Type", APPLICATION_JSON)
+                .withStatus(200)
+                .withBody("{\"a\": 1}"))
+        )
+    );
+  }
+
+  private ServiceDefinition newHedgingServiceDefinition() {
+    HedgingConfig hedging = new HedgingConfig();
+    hedging.setEnabled(true);
+    hedging.setDelayMs(50);
+    hedging.setMaxHedgePercent(100);
+    return ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL).hedging(hedging)
+        .endpoint("localhost:" + wireMockRule.port()).build();
+  }
+
+  private ServiceDefinition newCoalescingServiceDefinition() {
+    return ServiceDefinition.newBuilder().namespace("test").type(Type.GRAPHQL).coalesceRequests(true)
+        .endpoint("localhost:" + wireMockRule.port()).build();
+  }
+
+  private static ExecutionInput newExecutionInput(String query) {
+    Map<String, Object> variables = new HashMap<>();
+    return ExecutionInput.newExecutionInput()
+        .query(query)
+        .root(new Parser().parseDocument(query))
+        .variables(variables)
+        .build();
+  }
+
+  private GraphQLContext newContext() {
+    return GraphQLContext.newContext()
+        .of(Context.class, Context.empty())
+        .of(ExecutionMetricsData.class, mockExecutionMetricsData)
+        .build();
+  }
+}
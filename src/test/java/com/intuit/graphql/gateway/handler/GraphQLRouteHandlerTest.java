@@ -0,0 +1,134 @@
+package com.intuit.graphql.gateway.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intuit.graphql.gateway.TestHelper;
+import com.intuit.graphql.gateway.config.properties.BatchingProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseCacheProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseStreamingProperties;
+import com.intuit.graphql.gateway.graphql.GetRequestInstrumentation;
+import com.intuit.graphql.gateway.graphql.GraphQLRequest;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.persistedquery.PersistedQueryManager;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLContext;
+import graphql.GraphqlErrorBuilder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+public class GraphQLRouteHandlerTest {
+
+  private static final ExecutionResult DATA = ExecutionResultImpl.newExecutionResult()
+      .data(Collections.singletonMap("a", "1")).build();
+
+  private PersistedQueryManager persistedQueryManager;
+  private ExecutionResult result;
+  private Integer maxAge;
+  private GraphQLRouteHandler handler;
+
+  @Before
+  public void setUp() {
+    persistedQueryManager = mock(PersistedQueryManager.class);
+    when(persistedQueryManager.resolve(any(GraphQLRequest.class), any(TransactionContext.class)))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    ResponseStreamingProperties responseStreamingProperties = new ResponseStreamingProperties();
+    responseStreamingProperties.setEnabled(false);
+    handler = new GraphQLRouteHandler(executionInput -> {
+      if (maxAge != null) {
+        ((GraphQLContext) executionInput.getContext()).put(GetRequestInstrumentation.MAX_AGE_CONTEXT_KEY, maxAge);
+      }
+      return CompletableFuture.completedFuture(result);
+    }, persistedQueryManager, responseStreamingProperties, new BatchingProperties(), new ResponseCacheProperties());
+  }
+
+  @Test
+  public void setsMaxAgeOnGetWithoutErrors() {
+    result = DATA;
+    maxAge = 30;
+
+    HttpHeaders headers = handle(get()).headers();
+
+    assertThat(headers.getCacheControl()).isEqualTo("max-age=30");
+    assertThat(headers.getVary()).containsExactly("appid", "Authorization");
+  }
+
+  @Test
+  public void setsNoStoreOnGetWithErrors() {
+    result = ExecutionResultImpl.newExecutionResult()
+        .data(Collections.singletonMap("a", null))
+        .addError(GraphqlErrorBuilder.newError().message("boom").build())
+        .build();
+    maxAge = 30;
+
+    assertThat(handle(get()).headers().getCacheControl()).isEqualTo("no-store");
+  }
+
+  @Test
+  public void setsNoStoreOnGetWithoutMaxAge() {
+    result = DATA;
+    maxAge = 0;
+
+    assertThat(handle(get()).headers().getCacheControl()).isEqualTo("no-store");
+  }
+
+  @Test
+  public void setsNoStoreOnRejectedGet() {
+    result = ExecutionResultImpl.newExecutionResult()
+        .addError(GraphqlErrorBuilder.newError().message("Mutations are not allowed with HTTP GET").build())
+        .build();
+
+    assertThat(handle(get()).headers().getCacheControl()).isEqualTo("no-store");
+  }
+
+  @Test
+  public void setsNoCacheControlOnPost() {
+    result = DATA;
+    maxAge = 30;
+    byte[] body = "{\"query\":\"{ a }\"}".getBytes(StandardCharsets.UTF_8);
+
+    ServerResponse response = Mono.defer(() -> handler.handle(MockServerRequest.builder()
+        .method(HttpMethod.POST)
+        .body(Mono.just(body))))
+        .subscriberContext(Context.of(TransactionContext.class, TestHelper.testTx()))
+        .block();
+
+    assertThat(response.headers().getCacheControl()).isNull();
+    assertThat(response.headers().getVary()).isEmpty();
+  }
+
+  @Test
+  public void detectsBatchByFirstNonWhitespaceCharacter() {
+    assertThat(GraphQLRouteHandler.isBatch(" \r\n\t[{\"query\":\"{ a }\"}]".getBytes(StandardCharsets.UTF_8)))
+        .isTrue();
+    assertThat(GraphQLRouteHandler.isBatch(" {\"query\":\"{ a }\",\"b\":[1]}".getBytes(StandardCharsets.UTF_8)))
+        .isFalse();
+    assertThat(GraphQLRouteHandler.isBatch(new byte[0])).isFalse();
+  }
+
+  private static ServerRequest get() {
+    return MockServerRequest.builder()
+        .method(HttpMethod.GET)
+        .queryParam("query", "{ a }")
+        .build();
+  }
+
+  private ServerResponse handle(ServerRequest serverRequest) {
+    return Mono.defer(() -> handler.handleGet(serverRequest))
+        .subscriberContext(Context.of(TransactionContext.class, TestHelper.testTx()))
+        .block();
+  }
+}
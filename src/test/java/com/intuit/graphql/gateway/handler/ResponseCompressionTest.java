@@ -0,0 +1,189 @@
+package com.intuit.graphql.gateway.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.Mapper;
+import com.intuit.graphql.gateway.config.properties.ResponseCompressionProperties;
+import com.intuit.graphql.gateway.config.properties.ResponseCompressionProperties.Route;
+import com.intuit.graphql.gateway.handler.ResponseCompression.Coding;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+
+public class ResponseCompressionTest {
+
+  private static final ServerResponse.Context CONTEXT = new ServerResponse.Context() {
+    @Override
+    public List<HttpMessageWriter<?>> messageWriters() {
+      return HandlerStrategies.withDefaults().messageWriters();
+    }
+
+    @Override
+    public List<ViewResolver> viewResolvers() {
+      return Collections.emptyList();
+    }
+  };
+
+  private final ResponseCompressionProperties properties = new ResponseCompressionProperties();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ResponseCompression responseCompression = new ResponseCompression(properties, meterRegistry);
+
+  @Test
+  public void compressesStreamedResponseInChunks() throws IOException {
+    Map<String, Object> result = newResult(2000);
+    MockServerWebExchange exchange = newExchange("gzip, deflate");
+
+    write(exchange, result, 1024);
+
+    HttpHeaders headers = exchange.getResponse().getHeaders();
+    assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(headers.getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(headers.getContentLength()).isEqualTo(-1);
+    byte[] body = getBody(exchange);
+    assertThat(Mapper.mapper().readValue(new GZIPInputStream(new ByteArrayInputStream(body)), Map.class))
+        .isEqualTo(result);
+
+    double saved = meterRegistry.get(ResponseCompression.SAVED_METRIC_NAME).tag("route", "graphql")
+        .tag("encoding", "gzip").counter().count();
+    assertThat(saved).isEqualTo(Mapper.mapper().writeValueAsBytes(result).length - body.length);
+    assertThat(meterRegistry.get(ResponseCompression.TIME_METRIC_NAME).tag("route", "graphql").timer().count())
+        .isEqualTo(1);
+    assertThat(responseCompression.getDeflaterPool().idleCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void compressesResponseWithContentLength() throws IOException {
+    Map<String, Object> result = newResult(100);
+    MockServerWebExchange exchange = newExchange("deflate");
+
+    write(exchange, result, 64 * 1024);
+
+    assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+    assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(-1);
+    InputStream body = new InflaterInputStream(new ByteArrayInputStream(getBody(exchange)));
+    assertThat(Mapper.mapper().readValue(body, Map.class)).isEqualTo(result);
+  }
+
+  @Test
+  public void sendsSmallResponseUncompressed() throws IOException {
+    Map<String, Object> result = newResult(1);
+    MockServerWebExchange exchange = newExchange("gzip");
+
+    write(exchange, result, 64 * 1024);
+
+    HttpHeaders headers = exchange.getResponse().getHeaders();
+    assertThat(headers.containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    assertThat(headers.getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(Mapper.mapper().readValue(getBody(exchange), Map.class)).isEqualTo(result);
+  }
+
+  @Test
+  public void sendsUncompressedWithoutAcceptEncoding() throws IOException {
+    Map<String, Object> result = newResult(100);
+    MockServerWebExchange exchange = newExchange(null);
+
+    write(exchange, result, 1024);
+
+    assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    assertThat(Mapper.mapper().readValue(getBody(exchange), Map.class)).isEqualTo(result);
+  }
+
+  @Test
+  public void routeCanBeDisabled() throws IOException {
+    Route route = new Route();
+    route.setEnabled(false);
+    properties.getRoutes().put("graphql", route);
+    Map<String, Object> result = newResult(100);
+    MockServerWebExchange exchange = newExchange("gzip");
+
+    write(exchange, result, 1024);
+
+    HttpHeaders headers = exchange.getResponse().getHeaders();
+    assertThat(headers.containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    assertThat(headers.containsKey(HttpHeaders.VARY)).isFalse();
+    assertThat(Mapper.mapper().readValue(getBody(exchange), Map.class)).isEqualTo(result);
+  }
+
+  @Test
+  public void negotiatesPreferredAcceptedCoding() {
+    assertThat(Coding.negotiate(Collections.singletonList("gzip, deflate, br"))).isEqualTo(Coding.GZIP);
+    assertThat(Coding.negotiate(Collections.singletonList("gzip;q=0, deflate;q=0.5"))).isEqualTo(Coding.DEFLATE);
+    assertThat(Coding.negotiate(Arrays.asList("br", "*"))).isEqualTo(Coding.GZIP);
+    assertThat(Coding.negotiate(Collections.singletonList("identity"))).isNull();
+    assertThat(Coding.negotiate(Collections.emptyList())).isNull();
+  }
+
+  @Test
+  public void reusesDeflaters() {
+    DeflaterPool pool = new DeflaterPool(1);
+    Deflater deflater = pool.acquire(6, true);
+    pool.release(deflater, 6, true);
+
+    assertThat(pool.acquire(6, true)).isSameAs(deflater);
+    assertThat(pool.acquire(6, false)).isNotSameAs(deflater);
+  }
+
+  private void write(MockServerWebExchange exchange, Map<String, Object> result, int flushThreshold) {
+    HandlerFunction<ServerResponse> handler = request -> ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new StreamingJsonBodyInserter(result, flushThreshold));
+    ServerRequest request = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
+
+    responseCompression.forRoute("graphql").apply(handler).handle(request)
+        .flatMap(response -> response.writeTo(exchange, CONTEXT))
+        .block();
+  }
+
+  private static MockServerWebExchange newExchange(String acceptEncoding) {
+    MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/graphql");
+    if (acceptEncoding != null) {
+      request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    }
+    return MockServerWebExchange.from(request);
+  }
+
+  private static byte[] getBody(MockServerWebExchange exchange) {
+    return DataBufferUtils.join(exchange.getResponse().getBody())
+        .map(buffer -> {
+          byte[] bytes = new byte[buffer.readableByteCount()];
+          buffer.read(bytes);
+          DataBufferUtils.release(buffer);
+          return bytes;
+        })
+        .block();
+  }
+
+  private static Map<String, Object> newResult(int size) {
+    List<Object> items = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      Map<String, Object> item = new LinkedHashMap<>();
+      item.put("id", i);
+      item.put("name", "item-" + i);
+      items.add(item);
+    }
+    return Collections.singletonMap("data", Collections.singletonMap("items", items));
+  }
+}
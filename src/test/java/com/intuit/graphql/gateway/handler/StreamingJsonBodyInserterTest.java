@@ -0,0 +1,106 @@
+package com.intuit.graphql.gateway.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.Mapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.test.StepVerifier;
+
+public class StreamingJsonBodyInserterTest {
+
+  private static final BodyInserter.Context CONTEXT = new BodyInserter.Context() {
+    @Override
+    public List<HttpMessageWriter<?>> messageWriters() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<ServerHttpRequest> serverRequest() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Map<String, Object> hints() {
+      return Collections.emptyMap();
+    }
+  };
+
+  private final List<byte[]> chunks = new ArrayList<>();
+  private final MockServerHttpResponse response = new MockServerHttpResponse();
+
+  {
+    response.setWriteHandler(body -> body
+        .doOnNext(buffer -> {
+          byte[] bytes = new byte[buffer.readableByteCount()];
+          buffer.read(bytes);
+          DataBufferUtils.release(buffer);
+          chunks.add(bytes);
+        })
+        .then());
+  }
+
+  @Test
+  public void writesSmallResultInOneBuffer() throws IOException {
+    Map<String, Object> result = Collections.singletonMap("data", Collections.singletonMap("a", 1));
+
+    new StreamingJsonBodyInserter(result, 1024).insert(response, CONTEXT).block();
+
+    assertThat(chunks).hasSize(1);
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(chunks.get(0).length);
+    assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    assertThat(Mapper.mapper().readValue(chunks.get(0), Map.class)).isEqualTo(result);
+  }
+
+  @Test
+  public void writesLargeResultInChunks() throws IOException {
+    List<Object> items = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, Object> item = new LinkedHashMap<>();
+      item.put("id", i);
+      item.put("name", "item-" + i);
+      item.put("tags", Collections.singletonList("tag"));
+      item.put("empty", new HashMap<>());
+      item.put("missing", null);
+      items.add(item);
+    }
+    Map<String, Object> result = Collections.singletonMap("data", Collections.singletonMap("items", items));
+
+    new StreamingJsonBodyInserter(result, 1024).insert(response, CONTEXT).block();
+
+    assertThat(chunks.size()).isGreaterThan(10);
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    for (byte[] chunk : chunks) {
+      // a chunk ends at the first value that reaches the threshold
+      assertThat(chunk.length).isLessThan(1024 + 100);
+      body.write(chunk);
+    }
+    assertThat(Mapper.mapper().readValue(body.toByteArray(), Map.class))
+        .isEqualTo(Mapper.mapper().readValue(Mapper.mapper().writeValueAsBytes(result), Map.class));
+  }
+
+  @Test
+  public void failsOnUnserializableValue() {
+    StepVerifier.create(new StreamingJsonBodyInserter(Collections.singletonMap("a", new Object()), 1024)
+        .insert(response, CONTEXT))
+        .expectError(IOException.class)
+        .verify();
+
+    assertThat(chunks).isEmpty();
+  }
+}
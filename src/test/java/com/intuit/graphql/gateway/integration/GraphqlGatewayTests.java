@@ -15,7 +15,9 @@ import static org.skyscreamer.jsonassert.JSONAssert.assertEquals;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.intuit.graphql.gateway.GraphqlGatewayApplication;
+import com.intuit.graphql.gateway.Mapper;
 import com.intuit.graphql.gateway.beans.TestBeans;
 import com.intuit.graphql.gateway.config.properties.RegistrationBreakingChangeProperties;
 import com.intuit.graphql.gateway.graphql.GraphQLExecutor;
@@ -27,8 +29,11 @@ import com.intuit.graphql.gateway.s3.S3Configuration;
 import com.intuit.graphql.gateway.s3.S3Configuration.S3Upload;
 import com.intuit.graphql.orchestrator.GraphQLOrchestrator;
 import graphql.ExecutionInput;
+import com.google.common.hash.Hashing;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import org.apache.commons.io.IOUtils;
 import org.json.JSONException;
 import org.junit.Before;
@@ -48,6 +53,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @SuppressWarnings("UnstableApiUsage")
 @SpringBootTest(classes = {GraphqlGatewayApplication.class,
@@ -325,6 +331,63 @@ public class GraphqlGatewayTests extends IntegrationTestCase {
     verify(1, postRequestedFor(urlPathMatching("/v4os/graphql")));
   }
 
+  @Test
+  public void canMakeBatchedGraphQLQueriesTest() throws IOException {
+    stubFor(any(urlPathMatching("/dos/graphql"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody(simpleQueryResponse)
+            .withHeader("Content-Type", "application/json;charset=UTF-8")));
+
+    String invalidQueryRequest = "{\"query\": \"query { unknownField }\"}";
+    HttpEntity<String> entity = new HttpEntity<>("[" + simpleQueryRequest + "," + invalidQueryRequest + "]", headers);
+    ResponseEntity<String> response = restTemplate.exchange(graphqlUrl, HttpMethod.POST, entity, String.class);
+
+    assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    JsonNode results = Mapper.mapper().readTree(response.getBody());
+    assertThat(results.isArray()).isTrue();
+    assertThat(results.size()).isEqualTo(2);
+    assertThat(results.get(0).has("errors")).isFalse();
+    assertThat(results.get(0).get("data").has("allCasesAssignedToMe")).isTrue();
+    assertThat(results.get(1).get("errors").get(0).get("message").asText()).contains("unknownField");
+
+    verify(1, postRequestedFor(urlPathMatching("/dos/graphql")));
+  }
+
+  @Test
+  public void ignoresUnknownFieldsOfGraphQLRequestsTest() throws IOException {
+    stubFor(any(urlPathMatching("/dos/graphql"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody(simpleQueryResponse)
+            .withHeader("Content-Type", "application/json;charset=UTF-8")));
+    String requestWithId = simpleQueryRequest.replaceFirst("\\{", "{\"id\": \"x\",");
+
+    ResponseEntity<String> response = restTemplate.exchange(graphqlUrl, HttpMethod.POST,
+        new HttpEntity<>(requestWithId, headers), String.class);
+
+    assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    assertThat(Mapper.mapper().readTree(response.getBody()).get("data").has("allCasesAssignedToMe")).isTrue();
+
+    ResponseEntity<String> batchResponse = restTemplate.exchange(graphqlUrl, HttpMethod.POST,
+        new HttpEntity<>("[" + requestWithId + "]", headers), String.class);
+
+    assertThat(batchResponse.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    JsonNode results = Mapper.mapper().readTree(batchResponse.getBody());
+    assertThat(results.size()).isEqualTo(1);
+    assertThat(results.get(0).get("data").has("allCasesAssignedToMe")).isTrue();
+  }
+
+  @Test
+  public void rejectsBatchOverMaxBatchSizeTest() {
+    String batch = "[" + String.join(",", Collections.nCopies(21, simpleQueryRequest)) + "]";
+    HttpEntity<String> entity = new HttpEntity<>(batch, headers);
+    ResponseEntity<String> response = restTemplate.exchange(graphqlUrl, HttpMethod.POST, entity, String.class);
+
+    assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.BAD_REQUEST);
+    verify(0, postRequestedFor(urlPathMatching("/dos/graphql")));
+  }
+
   @Test
   public void readTimeOutOnProviderResponseDelayTest() throws JSONException {
 
@@ -375,4 +438,40 @@ public class GraphqlGatewayTests extends IntegrationTestCase {
     verify(postRequestedFor(urlPathMatching("/v4os/graphql")).withoutHeader("bar"));
   }
 
+  @Test
+  public void canMakePersistedQueryWithGetTest() {
+
+    stubFor(any(urlPathMatching("/dos/graphql"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody(simpleQueryResponse)
+            .withHeader("Content-Type", "application/json;charset=UTF-8")));
+
+    String query = "query { allCasesAssignedToMe { id } }";
+    String extensions = String.format("{\"persistedQuery\":{\"version\":1,\"sha256Hash\":\"%s\"}}",
+        Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString());
+    URI hashOnlyUri = UriComponentsBuilder.fromHttpUrl(graphqlUrl)
+        .queryParam("extensions", "{extensions}")
+        .encode().buildAndExpand(extensions).toUri();
+    URI registeringUri = UriComponentsBuilder.fromHttpUrl(graphqlUrl)
+        .queryParam("query", "{query}")
+        .queryParam("extensions", "{extensions}")
+        .encode().buildAndExpand(query, extensions).toUri();
+    HttpEntity<String> entity = new HttpEntity<>(headers);
+
+    ResponseEntity<String> notFound = restTemplate.exchange(hashOnlyUri, HttpMethod.GET, entity, String.class);
+    assertThat(notFound.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    assertThat(notFound.getBody()).contains("PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND");
+
+    ResponseEntity<String> registered = restTemplate.exchange(registeringUri, HttpMethod.GET, entity, String.class);
+    assertThat(registered.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    assertThat(registered.getBody()).doesNotContain("errors");
+
+    ResponseEntity<String> response = restTemplate.exchange(hashOnlyUri, HttpMethod.GET, entity, String.class);
+    assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+    assertThat(response.getBody()).isEqualTo(registered.getBody());
+
+    verify(2, postRequestedFor(urlPathMatching("/dos/graphql")));
+  }
+
 }
@@ -0,0 +1,123 @@
+package com.intuit.graphql.gateway.persistedquery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intuit.graphql.gateway.config.properties.PersistedQueryProperties;
+import com.intuit.graphql.gateway.graphql.GraphQLRequest;
+import com.intuit.graphql.gateway.graphql.ImmutableGraphQLRequest;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.webclient.TxProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class PersistedQueryManagerTest {
+
+  private static final String QUERY = "{ a }";
+  private static final String HASH = PersistedQueryManager.sha256(QUERY);
+
+  private final TransactionContext tx = TxProvider.emptyTx();
+
+  private PersistedQueryProperties properties;
+  private InMemoryPersistedQueryStore sharedStore;
+
+  @Before
+  public void setUp() {
+    properties = new PersistedQueryProperties();
+    sharedStore = new InMemoryPersistedQueryStore(1024);
+  }
+
+  @Test
+  public void passesThroughRequestsWithoutHash() {
+    GraphQLRequest request = ImmutableGraphQLRequest.builder().query(QUERY).build();
+
+    StepVerifier.create(newManager(null).resolve(request, tx))
+        .expectNext(request)
+        .verifyComplete();
+  }
+
+  @Test
+  public void failsWithoutQueryOrHash() {
+    StepVerifier.create(newManager(null).resolve(ImmutableGraphQLRequest.builder().build(), tx))
+        .verifyErrorMatches(err -> err.getMessage().equals("Must provide query string"));
+  }
+
+  @Test
+  public void failsForUnknownHash() {
+    StepVerifier.create(newManager(null).resolve(hashOnly(HASH), tx))
+        .verifyErrorMatches(err -> isPersistedQueryError(err, PersistedQueryError.NOT_FOUND_CODE));
+  }
+
+  @Test
+  public void resolvesRegisteredQuery() {
+    PersistedQueryManager manager = newManager(null);
+
+    StepVerifier.create(manager.resolve(ImmutableGraphQLRequest.copyOf(hashOnly(HASH)).withQuery(QUERY), tx))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    StepVerifier.create(manager.resolve(hashOnly(HASH), tx))
+        .assertNext(resolved -> assertThat(resolved.query()).isEqualTo(QUERY))
+        .verifyComplete();
+  }
+
+  @Test
+  public void rejectsQueryNotMatchingHash() {
+    GraphQLRequest request = ImmutableGraphQLRequest.copyOf(hashOnly(HASH)).withQuery("{ b }");
+
+    StepVerifier.create(newManager(null).resolve(request, tx))
+        .verifyErrorMatches(err -> isPersistedQueryError(err, PersistedQueryError.BAD_USER_INPUT_CODE));
+  }
+
+  @Test
+  public void failsWhenDisabled() {
+    properties.setEnabled(false);
+
+    StepVerifier.create(newManager(null).resolve(hashOnly(HASH), tx))
+        .verifyErrorMatches(err -> isPersistedQueryError(err, PersistedQueryError.NOT_SUPPORTED_CODE));
+  }
+
+  @Test
+  public void resolvesQueryRegisteredOnAnotherInstance() {
+    newManager(sharedStore).resolve(ImmutableGraphQLRequest.copyOf(hashOnly(HASH)).withQuery(QUERY), tx).block();
+
+    StepVerifier.create(newManager(sharedStore).resolve(hashOnly(HASH), tx))
+        .assertNext(resolved -> assertThat(resolved.query()).isEqualTo(QUERY))
+        .verifyComplete();
+  }
+
+  @Test
+  public void treatsSharedStoreFailureAsMiss() {
+    PersistedQueryStore failingStore = mock(PersistedQueryStore.class);
+    when(failingStore.get(HASH)).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+    StepVerifier.create(newManager(failingStore).resolve(hashOnly(HASH), tx))
+        .verifyErrorMatches(err -> isPersistedQueryError(err, PersistedQueryError.NOT_FOUND_CODE));
+  }
+
+  @SuppressWarnings("unchecked")
+  private PersistedQueryManager newManager(PersistedQueryStore sharedStore) {
+    ObjectProvider<PersistedQueryStore> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(sharedStore);
+    return new PersistedQueryManager(properties, new SimpleMeterRegistry(), provider);
+  }
+
+  private static GraphQLRequest hashOnly(String hash) {
+    HashMap<String, Object> extensions = new HashMap<>();
+    extensions.put(PersistedQueryManager.PERSISTED_QUERY_EXTENSION,
+        Collections.singletonMap(PersistedQueryManager.SHA256_HASH, hash));
+    return ImmutableGraphQLRequest.builder().extensions(extensions).build();
+  }
+
+  private static boolean isPersistedQueryError(Throwable err, String code) {
+    return err instanceof PersistedQueryError
+        && code.equals(((PersistedQueryError) err).getExtensions().get("code"));
+  }
+}
@@ -0,0 +1,170 @@
+package com.intuit.graphql.gateway.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.DownstreamCacheProperties;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.webclient.TxProvider;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import graphql.ExecutionInput;
+import graphql.GraphQLContext;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.util.context.Context;
+
+public class DownstreamResultCacheTest {
+
+  private static final String SDL = "directive @cacheControl(maxAge: Int) on FIELD_DEFINITION | OBJECT "
+      + "type Query { cached: Foo @cacheControl(maxAge: 60) cachedByType: Bar uncached: Foo } "
+      + "type Mutation { update: String } "
+      + "type Foo { id: String } "
+      + "type Bar @cacheControl(maxAge: 30) { id: String }";
+
+  private static final ServiceDefinition SERVICE_DEFINITION = ServiceDefinition.newBuilder()
+      .namespace("FOO")
+      .endpoint("http://localhost/graphql")
+      .forwardHeaders(Collections.singleton("bar"))
+      .build();
+
+  private final TransactionContext tx = TxProvider.emptyTx();
+
+  private DownstreamCacheProperties properties;
+  private MeterRegistry meterRegistry;
+  private StubServiceProvider stubServiceProvider;
+
+  @Before
+  public void setUp() {
+    properties = new DownstreamCacheProperties();
+    properties.setEnabled(true);
+    meterRegistry = new SimpleMeterRegistry();
+    stubServiceProvider = new StubServiceProvider(SDL);
+  }
+
+  @Test
+  public void answersRepeatedQueryFromCache() {
+    ServiceProvider serviceProvider = newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION);
+
+    Map<String, Object> first = serviceProvider.query(input("{ cached { id } }"), context("1")).join();
+    Map<String, Object> second = serviceProvider.query(input("{ cached { id } }"), context("1")).join();
+
+    assertThat(stubServiceProvider.calls.get()).isEqualTo(1);
+    assertThat(second).isEqualTo(first).isNotSameAs(first);
+    assertThat(meterRegistry.get(DownstreamResultCache.METRIC_NAME + ".requests").tag("namespace", "FOO")
+        .tag("result", "hit").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void usesTypeHints() {
+    ServiceProvider serviceProvider = newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION);
+
+    serviceProvider.query(input("{ cachedByType { id } }"), context("1")).join();
+    serviceProvider.query(input("{ cachedByType { id } }"), context("1")).join();
+
+    assertThat(stubServiceProvider.calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotCacheFieldsWithoutHints() {
+    ServiceProvider serviceProvider = newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION);
+
+    serviceProvider.query(input("{ cached { id } uncached { id } }"), context("1")).join();
+    serviceProvider.query(input("{ cached { id } uncached { id } }"), context("1")).join();
+
+    assertThat(stubServiceProvider.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotCacheMutations() {
+    ServiceProvider serviceProvider = newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION);
+
+    serviceProvider.query(input("mutation { update }"), context("1")).join();
+    serviceProvider.query(input("mutation { update }"), context("1")).join();
+
+    assertThat(stubServiceProvider.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void variesByForwardedHeaders() {
+    ServiceProvider serviceProvider = newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION);
+
+    serviceProvider.query(input("{ cached { id } }"), context("1")).join();
+    serviceProvider.query(input("{ cached { id } }"), context("2")).join();
+
+    assertThat(stubServiceProvider.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotWrapProvidersWithoutHints() {
+    ServiceProvider serviceProvider = new StubServiceProvider("type Query { a: String }");
+
+    assertThat(newCache().wrap(tx, serviceProvider, SERVICE_DEFINITION)).isSameAs(serviceProvider);
+  }
+
+  @Test
+  public void doesNotWrapWhenDisabled() {
+    properties.setEnabled(false);
+
+    assertThat(newCache().wrap(tx, stubServiceProvider, SERVICE_DEFINITION)).isSameAs(stubServiceProvider);
+  }
+
+  private DownstreamResultCache newCache() {
+    return new DownstreamResultCache(properties, meterRegistry);
+  }
+
+  private static ExecutionInput input(String query) {
+    return ExecutionInput.newExecutionInput()
+        .query(query)
+        .root(new Parser().parseDocument(query))
+        .build();
+  }
+
+  private GraphQLContext context(String bar) {
+    return GraphQLContext.newContext()
+        .of(Context.class, Context.of(TransactionContext.class, tx))
+        .of(ServerRequest.class, MockServerRequest.builder().header("bar", bar).build())
+        .build();
+  }
+
+  private static class StubServiceProvider implements ServiceProvider {
+
+    private final String sdl;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private StubServiceProvider(String sdl) {
+      this.sdl = sdl;
+    }
+
+    @Override
+    public String getNameSpace() {
+      return "FOO";
+    }
+
+    @Override
+    public Map<String, String> sdlFiles() {
+      return Collections.singletonMap("schema.graphqls", sdl);
+    }
+
+    @Override
+    public Set<String> domainTypes() {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> query(ExecutionInput executionInput, GraphQLContext context) {
+      calls.incrementAndGet();
+      return CompletableFuture.completedFuture(Collections.singletonMap("data",
+          Collections.singletonMap("cached", Collections.singletonMap("id", "1"))));
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties.Introspection;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
@@ -17,6 +18,7 @@ import graphql.language.ObjectTypeDefinition;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.After;
@@ -24,6 +26,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 public class IntrospectionServiceProviderTest {
 
@@ -67,20 +71,19 @@ public class IntrospectionServiceProviderTest {
 
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA));
 
-    IntrospectionServiceProvider introspectionServiceProvider = new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
-    assertThat(introspectionServiceProvider.getNameSpace()).isEqualTo(serviceDefinition.getNamespace());
-    assertThat(introspectionServiceProvider.domainTypes()).isEqualTo(serviceDefinition.getDomainTypes());
+    StepVerifier.create(introspect(serviceRegistration))
+        .assertNext(introspectionServiceProvider -> {
+          assertThat(introspectionServiceProvider.getNameSpace()).isEqualTo(serviceDefinition.getNamespace());
+          assertThat(introspectionServiceProvider.domainTypes()).isEqualTo(serviceDefinition.getDomainTypes());
 
-    Map<String, String> sdlFiles = introspectionServiceProvider.sdlFiles();
-    assertThat(sdlFiles.containsKey(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME)).isTrue();
-    TypeDefinitionRegistry tdr = new SchemaParser()
-        .parse(sdlFiles.get(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME));
+          Map<String, String> sdlFiles = introspectionServiceProvider.sdlFiles();
+          assertThat(sdlFiles.containsKey(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME)).isTrue();
+          TypeDefinitionRegistry tdr = new SchemaParser()
+              .parse(sdlFiles.get(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME));
 
-    assertThat(tdr.types().keySet()).contains("AccountType");
+          assertThat(tdr.types().keySet()).contains("AccountType");
+        })
+        .verifyComplete();
   }
 
   @Test
@@ -88,11 +91,7 @@ public class IntrospectionServiceProviderTest {
 
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA));
 
-    IntrospectionServiceProvider introspectionServiceProvider = new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
+    IntrospectionServiceProvider introspectionServiceProvider = introspect(serviceRegistration).block();
 
     @SuppressWarnings("unused")
 
@@ -106,19 +105,16 @@ public class IntrospectionServiceProviderTest {
     assertThat(tdr.types().keySet()).contains("AccountType");
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void loadThrowsExceptionOnInvalidSchemaResponseTest() {
 
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA_INVALID));
 
-    new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    ).sdlFiles();
+    StepVerifier.create(introspect(serviceRegistration))
+        .verifyError(ServiceRegistrationException.class);
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void requiresNonEmptyEndpointTest() {
 
     ServiceDefinition tServiceDefinition = ServiceDefinition.newBuilder().namespace("test-namespace").endpoint(" ")
@@ -127,15 +123,12 @@ public class IntrospectionServiceProviderTest {
     ServiceRegistration tServiceRegistration = ServiceRegistration.baseBuilder()
         .serviceDefinition(tServiceDefinition)
         .build();
-    new IntrospectionServiceProvider(
-        null,
-        webClient,
-        tServiceRegistration
-    ).sdlFiles();
 
+    StepVerifier.create(introspect(tServiceRegistration))
+        .verifyError(ServiceRegistrationException.class);
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void requiresNonNullEndpointTest() {
 
     ServiceDefinition tServiceDefinition = ServiceDefinition.newBuilder().namespace("test-namespace").endpoint(null)
@@ -145,15 +138,11 @@ public class IntrospectionServiceProviderTest {
         .serviceDefinition(tServiceDefinition)
         .build();
 
-    new IntrospectionServiceProvider(
-        null,
-        webClient,
-        tServiceRegistration
-    ).sdlFiles();
-
+    StepVerifier.create(introspect(tServiceRegistration))
+        .verifyError(ServiceRegistrationException.class);
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void testRetryMaxAttempts() {
 
     MockResponse failedResponse = new MockResponse().setResponseCode(502);
@@ -161,11 +150,9 @@ public class IntrospectionServiceProviderTest {
     mockWebServer.enqueue(failedResponse);
     mockWebServer.enqueue(failedResponse);
 
-    new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
+    StepVerifier.create(introspect(serviceRegistration))
+        .verifyError(ServiceRegistrationException.class);
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(3);
   }
 
   @Test
@@ -176,42 +163,50 @@ public class IntrospectionServiceProviderTest {
     mockWebServer.enqueue(failedResponse);
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA));
 
-    IntrospectionServiceProvider introspectionServiceProvider = new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
+    StepVerifier.create(introspect(serviceRegistration))
+        .assertNext(introspectionServiceProvider -> {
+          Map<String, String> sdlFiles = introspectionServiceProvider.sdlFiles();
+          assertThat(sdlFiles.containsKey(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME)).isTrue();
+          TypeDefinitionRegistry tdr = new SchemaParser()
+              .parse(sdlFiles.get(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME));
 
-    Map<String, String> sdlFiles = introspectionServiceProvider.sdlFiles();
-    assertThat(sdlFiles.containsKey(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME)).isTrue();
-    TypeDefinitionRegistry tdr = new SchemaParser()
-        .parse(sdlFiles.get(IntrospectionServiceProvider.INTROSPECTION_FILE_NAME));
+          assertThat(tdr.types().keySet()).contains("AccountType");
+        })
+        .verifyComplete();
+  }
 
-    assertThat(tdr.types().keySet()).contains("AccountType");
+  @Test
+  public void introspectRetriesAttemptsThatTimeOut() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA)
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA));
+
+    Introspection introspection = new Introspection();
+    introspection.setTimeoutMs(500);
+    introspection.setMinBackoffMs(10);
+
+    StepVerifier.create(IntrospectionServiceProvider.introspect(null, webClient, serviceDefinition, introspection))
+        .assertNext(document -> assertThat(new SchemaParser().parse(document).types().keySet()).contains("AccountType"))
+        .verifyComplete();
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void testRetryPropagatesError() {
 
     MockResponse failedResponse = new MockResponse().setResponseCode(404);
     mockWebServer.enqueue(failedResponse);
 
-    new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
+    StepVerifier.create(introspect(serviceRegistration))
+        .verifyError(ServiceRegistrationException.class);
+    assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
   }
 
   @Test
   public void loadDocumentRetainsDescriptions() {
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTION_WITH_DESCRIPTION));
 
-    IntrospectionServiceProvider introspectionServiceProvider = new IntrospectionServiceProvider(
-        null,
-        webClient,
-        serviceRegistration
-    );
+    IntrospectionServiceProvider introspectionServiceProvider = introspect(serviceRegistration).block();
 
     Map<String, String> sdlFiles = introspectionServiceProvider.sdlFiles();
     TypeDefinitionRegistry tdr = new SchemaParser()
@@ -260,4 +255,11 @@ public class IntrospectionServiceProviderTest {
     //TODO: Test descriptions for Union, Interface, Scalars
   }
 
+  private Mono<IntrospectionServiceProvider> introspect(ServiceRegistration serviceRegistration) {
+    Introspection introspection = new Introspection();
+    introspection.setMinBackoffMs(10);
+    return IntrospectionServiceProvider.introspect(null, webClient, serviceRegistration.getServiceDefinition(),
+        introspection)
+        .map(document -> new IntrospectionServiceProvider(webClient, serviceRegistration, null, null, document));
+  }
 }
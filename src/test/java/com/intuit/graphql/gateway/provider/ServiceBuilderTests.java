@@ -6,12 +6,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import com.intuit.graphql.gateway.TestHelper;
+import com.intuit.graphql.gateway.config.properties.DownstreamCacheProperties;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.registry.SdlServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.registry.ServiceRegistration;
 import com.intuit.graphql.gateway.registry.ServiceRegistrationException;
-import com.intuit.graphql.orchestrator.ServiceProvider;
+import com.intuit.graphql.gateway.webclient.CircuitBreakers;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiters;
+import com.intuit.graphql.gateway.webclient.DownstreamWebClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -24,6 +29,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
 
 public class ServiceBuilderTests {
 
@@ -56,7 +62,11 @@ public class ServiceBuilderTests {
     this.webClient = WebClient.builder().build();
     mockWebServer = new MockWebServer();
     mockWebServer.start();
-    serviceBuilder = new ServiceBuilder(webClient);
+    WebClientProperties webClientProperties = new WebClientProperties();
+    serviceBuilder = new ServiceBuilder(new DownstreamWebClients(webClient, webClientProperties),
+        new DownstreamResultCache(new DownstreamCacheProperties(), new SimpleMeterRegistry()),
+        new CircuitBreakers(new SimpleMeterRegistry()), new ConcurrencyLimiters(new SimpleMeterRegistry()),
+        webClientProperties);
     serviceDefinition = ServiceDefinition.newBuilder().namespace("1").endpoint(mockWebServer.url("/test").toString())
         .type(Type.GRAPHQL).build();
   }
@@ -78,17 +88,18 @@ public class ServiceBuilderTests {
 //    ServiceRegistration serviceRegistration = ServiceRegistration.baseBuilder()
 //        .serviceDefinition(serviceDefinition)
 //        .build();
-//    serviceBuilder.buildService(TestHelper.testTx(), serviceRegistration);
+//    serviceBuilder.build(TestHelper.testTx(), serviceRegistration).block();
 //  }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void buildServiceRequiresNonEmptyNamespaceTest() {
     ServiceDefinition tServiceDefinition = ServiceDefinition.newBuilder()
         .namespace("").type(Type.GRAPHQL).build();
     ServiceRegistration registrationPackage = ServiceRegistration.baseBuilder()
         .serviceDefinition(tServiceDefinition)
         .build();
-    serviceBuilder.buildService(TestHelper.testTx(), registrationPackage);
+    StepVerifier.create(serviceBuilder.build(TestHelper.testTx(), registrationPackage))
+        .verifyError(ServiceRegistrationException.class);
   }
 
 
@@ -100,8 +111,9 @@ public class ServiceBuilderTests {
         .serviceDefinition(serviceDefinition)
         .build();
 
-    ServiceProvider source = serviceBuilder.buildService(TestHelper.testTx(), serviceRegistration);
-    assertThat(source.sdlFiles().size()).isEqualTo(1);
+    StepVerifier.create(serviceBuilder.build(TestHelper.testTx(), serviceRegistration))
+        .assertNext(source -> assertThat(source.sdlFiles().size()).isEqualTo(1))
+        .verifyComplete();
   }
 
   @Test
@@ -114,8 +126,9 @@ public class ServiceBuilderTests {
         .serviceDefinition(serviceDefinition).graphqlResources(graphqlResources)
         .build();
 
-    ServiceProvider source = serviceBuilder.buildService(TestHelper.testTx(), serviceRegistration);
-    assertThat(source.sdlFiles().size()).isEqualTo(1);
+    StepVerifier.create(serviceBuilder.build(TestHelper.testTx(), serviceRegistration))
+        .assertNext(source -> assertThat(source.sdlFiles().size()).isEqualTo(1))
+        .verifyComplete();
   }
 
 /*  This test case is failing as we no longer parse the SDL files to convert them into TDR.
@@ -132,10 +145,10 @@ public class ServiceBuilderTests {
         .serviceDefinition(serviceDefinition).graphqlResources(graphqlResources)
         .build();
 
-    serviceBuilder.buildService(testTx(), serviceRegistration).sdlFiles();
+    serviceBuilder.build(testTx(), serviceRegistration).block().sdlFiles();
   }*/
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void buildSchemaSourceThrowsExceptionOnInvalidIntrospectionTest() {
     mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(INTROSPECTED_SCHEMA_INVALID));
 
@@ -143,17 +156,19 @@ public class ServiceBuilderTests {
         .serviceDefinition(serviceDefinition)
         .build();
 
-    serviceBuilder.buildService(TestHelper.testTx(), serviceRegistration).sdlFiles();
+    StepVerifier.create(serviceBuilder.build(TestHelper.testTx(), serviceRegistration))
+        .verifyError(ServiceRegistrationException.class);
   }
 
-  @Test(expected = ServiceRegistrationException.class)
+  @Test
   public void buildSchemaSourceThrowsExceptionOnIntrospectionFailureTest() {
     mockWebServer.enqueue(new MockResponse().setResponseCode(404));
     ServiceRegistration serviceRegistration = ServiceRegistration.baseBuilder()
         .serviceDefinition(serviceDefinition)
         .build();
 
-    serviceBuilder.buildService(TestHelper.testTx(), serviceRegistration).sdlFiles();
+    StepVerifier.create(serviceBuilder.build(TestHelper.testTx(), serviceRegistration))
+        .verifyError(ServiceRegistrationException.class);
   }
 
 }
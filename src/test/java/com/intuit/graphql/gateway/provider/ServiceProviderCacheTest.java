@@ -0,0 +1,50 @@
+package com.intuit.graphql.gateway.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
+import com.intuit.graphql.gateway.registry.ServiceRegistration;
+import com.intuit.graphql.orchestrator.ServiceProvider;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class ServiceProviderCacheTest {
+
+  private final ServiceProviderCache serviceProviderCache = new ServiceProviderCache();
+
+  @Test
+  public void getsProvidersOfEqualRegistrations() {
+    final ServiceProvider serviceProvider = mock(ServiceProvider.class);
+    serviceProviderCache.replaceAll(Collections.singletonMap(registration("a", "endpoint"), serviceProvider));
+
+    assertThat(serviceProviderCache.get(registration("a", "endpoint"))).isSameAs(serviceProvider);
+    assertThat(serviceProviderCache.get(registration("a", "changed-endpoint"))).isNull();
+  }
+
+  @Test
+  public void evictsProvidersOfOtherRegistrations() {
+    final ServiceProvider a = mock(ServiceProvider.class);
+    final ServiceProvider b = mock(ServiceProvider.class);
+    final Map<ServiceRegistration, ServiceProvider> providers = new HashMap<>();
+    providers.put(registration("a", "endpoint"), a);
+    providers.put(registration("b", "endpoint"), b);
+    serviceProviderCache.replaceAll(providers);
+
+    serviceProviderCache.replaceAll(Collections.singletonMap(registration("b", "endpoint"), b));
+
+    assertThat(serviceProviderCache.size()).isEqualTo(1);
+    assertThat(serviceProviderCache.get(registration("a", "endpoint"))).isNull();
+    assertThat(serviceProviderCache.get(registration("b", "endpoint"))).isSameAs(b);
+  }
+
+  private ServiceRegistration registration(String namespace, String endpoint) {
+    return ServiceRegistration.baseBuilder()
+        .serviceDefinition(ServiceDefinition.newBuilder().namespace(namespace).endpoint(endpoint).type(Type.GRAPHQL)
+            .build())
+        .build();
+  }
+}
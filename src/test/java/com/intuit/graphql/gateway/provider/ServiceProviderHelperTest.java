@@ -1,10 +1,14 @@
 package com.intuit.graphql.gateway.provider;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.intuit.graphql.gateway.graphql.DataRetrieverException;
 import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
 import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import graphql.ExecutionInput;
 import graphql.GraphQLContext;
+import graphql.parser.Parser;
 import java.util.Collections;
 import java.util.NoSuchElementException;
 import org.junit.Test;
@@ -89,4 +93,16 @@ public class ServiceProviderHelperTest {
         .build();
     ServiceProviderHelper.validate(sd, context);
   }
+
+  @Test
+  public void isQueryOnlyForQueryOperations() {
+    assertThat(ServiceProviderHelper.isQuery(newExecutionInput("query { a }"))).isTrue();
+    assertThat(ServiceProviderHelper.isQuery(newExecutionInput("{ a }"))).isTrue();
+    assertThat(ServiceProviderHelper.isQuery(newExecutionInput("mutation { a }"))).isFalse();
+    assertThat(ServiceProviderHelper.isQuery(ExecutionInput.newExecutionInput().query("{ a }").build())).isFalse();
+  }
+
+  private static ExecutionInput newExecutionInput(String query) {
+    return ExecutionInput.newExecutionInput().query(query).root(new Parser().parseDocument(query)).build();
+  }
 }
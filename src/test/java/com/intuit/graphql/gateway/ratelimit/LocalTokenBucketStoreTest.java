@@ -0,0 +1,58 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties.Limit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class LocalTokenBucketStoreTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final LocalTokenBucketStore store = new LocalTokenBucketStore(10, nanoTime::get);
+
+  @Test
+  public void takesTokensUpToCapacity() {
+    Limit limit = newLimit(100, 10);
+
+    assertThat(store.tryConsume("app", 60, limit)).isTrue();
+    assertThat(store.tryConsume("app", 60, limit)).isFalse();
+    assertThat(store.getTokens("app", limit)).isEqualTo(40);
+    assertThat(store.tryConsume("app", 40, limit)).isTrue();
+    assertThat(store.tryConsume("other", 100, limit)).isTrue();
+  }
+
+  @Test
+  public void refillsByElapsedTimeUpToCapacity() {
+    Limit limit = newLimit(100, 10);
+    store.tryConsume("app", 100, limit);
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertThat(store.getTokens("app", limit)).isEqualTo(20);
+    assertThat(store.tryConsume("app", 30, limit)).isFalse();
+    assertThat(store.tryConsume("app", 20, limit)).isTrue();
+
+    nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    assertThat(store.getTokens("app", limit)).isEqualTo(100);
+  }
+
+  @Test
+  public void takesEachTokenOnceUnderContention() {
+    Limit limit = newLimit(1000, 0);
+
+    long consumed = IntStream.range(0, 2000).parallel()
+        .filter(i -> store.tryConsume("app", 1, limit))
+        .count();
+
+    assertThat(consumed).isEqualTo(1000);
+  }
+
+  private static Limit newLimit(long capacity, double refillPerSecond) {
+    Limit limit = new Limit();
+    limit.setCapacity(capacity);
+    limit.setRefillPerSecond(refillPerSecond);
+    return limit;
+  }
+}
@@ -0,0 +1,100 @@
+package com.intuit.graphql.gateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.config.properties.QueryCostProperties;
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties;
+import com.intuit.graphql.gateway.config.properties.RateLimitProperties.Limit;
+import com.intuit.graphql.gateway.graphql.QueryCostInstrumentation;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLContext;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import org.junit.Test;
+import reactor.util.context.Context;
+
+public class RateLimitInstrumentationTest {
+
+  private static final GraphQLSchema SCHEMA = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(
+      "directive @cost(weight: String!) on FIELD_DEFINITION "
+          + "type Query { cheap: String @cost(weight: \"1\") expensive: String @cost(weight: \"40\") "
+          + "unweighted: String }"),
+      RuntimeWiring.newRuntimeWiring().build());
+
+  private final RateLimitProperties properties = new RateLimitProperties();
+  private final QueryCostProperties queryCostProperties = new QueryCostProperties();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final GraphQL graphQL = GraphQL.newGraphQL(SCHEMA)
+      .instrumentation(new RateLimitInstrumentation(properties, queryCostProperties,
+          new LocalTokenBucketStore(10), meterRegistry))
+      .build();
+
+  @Test
+  public void throttlesClientByCost() {
+    properties.setCapacity(100);
+    properties.setRefillPerSecond(0);
+
+    assertThat(graphQL.execute(input("{ expensive }", "app")).getErrors()).isEmpty();
+    assertThat(graphQL.execute(input("{ expensive }", "app")).getErrors()).isEmpty();
+    ExecutionResult throttled = graphQL.execute(input("{ expensive }", "app"));
+    assertThat(graphQL.execute(input("{ cheap }", "app")).getErrors()).isEmpty();
+    assertThat(graphQL.execute(input("{ expensive }", "other")).getErrors()).isEmpty();
+
+    assertThat(throttled.getErrors()).hasSize(1);
+    assertThat(throttled.getErrors().get(0).getExtensions())
+        .containsEntry("classification", RateLimitInstrumentation.CLASSIFICATION)
+        .containsEntry("cost", 40L);
+    assertThat(meterRegistry.get(RateLimitInstrumentation.METRIC_NAME + ".throttled.cost").tag("client", "app")
+        .counter().count()).isEqualTo(40);
+  }
+
+  @Test
+  public void appliesLimitOfClient() {
+    properties.setCapacity(10);
+    properties.setRefillPerSecond(0);
+    Limit limit = new Limit();
+    limit.setCapacity(100);
+    properties.getClientLimits().put("big", limit);
+
+    assertThat(graphQL.execute(input("{ expensive }", "small")).getErrors()).hasSize(1);
+    assertThat(graphQL.execute(input("{ expensive }", "big")).getErrors()).isEmpty();
+    assertThat(graphQL.execute(input("{ expensive }", null)).getErrors()).hasSize(1);
+    assertThat(meterRegistry.get(RateLimitInstrumentation.METRIC_NAME + ".throttled")
+        .tag("client", RateLimitInstrumentation.ANONYMOUS_CLIENT).counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void takesCostComputedByQueryCostInstrumentation() {
+    properties.setCapacity(50);
+    properties.setRefillPerSecond(0);
+    queryCostProperties.setDefaultLeafCost(30);
+    GraphQL chained = GraphQL.newGraphQL(SCHEMA)
+        .instrumentation(new ChainedInstrumentation(Arrays.asList(
+            new QueryCostInstrumentation(queryCostProperties, meterRegistry),
+            new RateLimitInstrumentation(properties, new QueryCostProperties(), new LocalTokenBucketStore(10),
+                meterRegistry))))
+        .build();
+
+    // the rate limit's own query cost properties would make this free
+    assertThat(chained.execute(input("{ unweighted }", "app")).getErrors()).isEmpty();
+    assertThat(chained.execute(input("{ unweighted }", "app")).getErrors()).hasSize(1);
+  }
+
+  private static ExecutionInput input(String query, String appId) {
+    TransactionContext tx = ImmutableTransactionContext.builder().appId(appId).build();
+    return ExecutionInput.newExecutionInput()
+        .query(query)
+        .context(GraphQLContext.newContext().of(Context.class, Context.of(TransactionContext.class, tx)).build())
+        .build();
+  }
+}
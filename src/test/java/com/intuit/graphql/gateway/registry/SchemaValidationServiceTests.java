@@ -3,11 +3,18 @@ package com.intuit.graphql.gateway.registry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.intuit.graphql.gateway.config.properties.DownstreamCacheProperties;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
 import com.intuit.graphql.gateway.graphql.RuntimeGraphBuilder;
 import com.intuit.graphql.gateway.graphql.SchemaManager;
+import com.intuit.graphql.gateway.provider.DownstreamResultCache;
 import com.intuit.graphql.gateway.provider.ServiceBuilder;
+import com.intuit.graphql.gateway.provider.ServiceProviderCache;
 import com.intuit.graphql.gateway.registry.ServiceDefinition.Type;
 import com.intuit.graphql.gateway.TestHelper;
+import com.intuit.graphql.gateway.webclient.CircuitBreakers;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiters;
+import com.intuit.graphql.gateway.webclient.DownstreamWebClients;
 import com.intuit.graphql.orchestrator.batch.BatchLoaderExecutionHooks;
 import com.intuit.graphql.orchestrator.schema.RuntimeGraph;
 import graphql.schema.GraphQLSchema;
@@ -16,6 +23,7 @@ import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Objects;
 import org.junit.Before;
@@ -62,9 +70,14 @@ public class SchemaValidationServiceTests {
 
   @Before
   public void setup() {
-    ServiceBuilder serviceBuilder = new ServiceBuilder(webClient);
+    WebClientProperties webClientProperties = new WebClientProperties();
+    webClientProperties.getConnectionProvider().setEnabled(false);
+    ServiceBuilder serviceBuilder = new ServiceBuilder(new DownstreamWebClients(webClient, webClientProperties),
+        new DownstreamResultCache(new DownstreamCacheProperties(), new SimpleMeterRegistry()),
+        new CircuitBreakers(new SimpleMeterRegistry()), new ConcurrencyLimiters(new SimpleMeterRegistry()),
+        webClientProperties);
     RuntimeGraphBuilder runtimeGraphBuilder = new RuntimeGraphBuilder(serviceBuilder,
-        mock(BatchLoaderExecutionHooks.class));
+        new ServiceProviderCache(), webClientProperties, mock(BatchLoaderExecutionHooks.class));
     ServiceRegistration firstapp = TestHelper.createTestSDLRegistration(firstAppSchema, "FirstApp.Id", "FIRSTAPP",
         Type.GRAPHQL_SDL);
     when(runtimeGraph.getExecutableSchema()).thenReturn(buildSchema(firstAppSchema));
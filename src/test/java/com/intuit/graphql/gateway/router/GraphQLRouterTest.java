@@ -1,6 +1,7 @@
 package com.intuit.graphql.gateway.router;
 
 
+import static com.intuit.graphql.gateway.router.GraphQLRouter.graphQLGetRoute;
 import static com.intuit.graphql.gateway.router.GraphQLRouter.graphQLRoute;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.HttpHeaders.ACCEPT;
@@ -60,4 +61,10 @@ public class GraphQLRouterTest {
     assertThat(graphQLRoute.test(postWithoutContentType)).isFalse();
     assertThat(graphQLRoute.test(validRequest)).isTrue();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetRoute() {
+    assertThat(graphQLGetRoute.test(simpleGetRequest)).isTrue();
+    assertThat(graphQLGetRoute.test(validRequest)).isFalse();
+  }
+}
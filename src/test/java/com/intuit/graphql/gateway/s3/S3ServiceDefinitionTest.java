@@ -8,6 +8,9 @@ import com.google.common.io.Resources;
 import com.intuit.graphql.gateway.Mapper;
 import com.intuit.graphql.gateway.common.InvalidGatewayEnvironmentException;
 import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HttpVersion;
 import com.intuit.graphql.gateway.s3.S3Configuration.Region;
 import com.intuit.graphql.gateway.s3.S3ServiceDefinition.GatewayEnvironment;
 import java.io.IOException;
@@ -102,4 +105,66 @@ public class S3ServiceDefinitionTest {
     S3ServiceDefinition s3ServiceDefinition = Mapper.mapper().readValue(contents, S3ServiceDefinition.class);
     s3ServiceDefinition.toServiceDefinition("prod-stg", Region.US_WEST_2);
   }
+
+  @Test
+  public void coalesceRequestsIsOptIn() throws IOException {
+    String contents = Resources.toString(Resources.getResource(
+        "provider-configs/config_v4os_with_regions.json"), Charsets.UTF_8);
+    S3ServiceDefinition s3ServiceDefinition = Mapper.mapper().readValue(contents, S3ServiceDefinition.class);
+    assertThat(s3ServiceDefinition.toServiceDefinition("dev", Region.US_WEST_2).isCoalesceRequests()).isFalse();
+
+    S3ServiceDefinition coalescing = Mapper.mapper()
+        .readValue(contents.replaceFirst("\\{", "{ \"coalesce-requests\": true,"), S3ServiceDefinition.class);
+    assertThat(coalescing.toServiceDefinition("dev", Region.US_WEST_2).isCoalesceRequests()).isTrue();
+  }
+
+  @Test
+  public void httpVersionDefaultsToHttp11() throws IOException {
+    String contents = Resources.toString(Resources.getResource(
+        "provider-configs/config_v4os_with_regions.json"), Charsets.UTF_8);
+    S3ServiceDefinition s3ServiceDefinition = Mapper.mapper().readValue(contents, S3ServiceDefinition.class);
+    assertThat(s3ServiceDefinition.toServiceDefinition("dev", Region.US_WEST_2).getHttpVersion())
+        .isEqualTo(HttpVersion.HTTP11);
+
+    S3ServiceDefinition h2c = Mapper.mapper()
+        .readValue(contents.replaceFirst("\\{", "{ \"http-version\": \"h2c\","), S3ServiceDefinition.class);
+    assertThat(h2c.toServiceDefinition("dev", Region.US_WEST_2).getHttpVersion()).isEqualTo(HttpVersion.H2C);
+  }
+
+  @Test
+  public void compressionIsOptIn() throws IOException {
+    String contents = Resources.toString(Resources.getResource(
+        "provider-configs/config_v4os_with_regions.json"), Charsets.UTF_8);
+    ServiceDefinition serviceDefinition = Mapper.mapper().readValue(contents, S3ServiceDefinition.class)
+        .toServiceDefinition("dev", Region.US_WEST_2);
+    assertThat(serviceDefinition.getCompression()).isEqualTo(Compression.NONE);
+    assertThat(serviceDefinition.getCompressionMinSize()).isEqualTo(ServiceDefinition.DEFAULT_COMPRESSION_MIN_SIZE);
+
+    ServiceDefinition compressing = Mapper.mapper()
+        .readValue(contents.replaceFirst("\\{", "{ \"compression\": \"gzip\", \"compression-min-size\": 512,"),
+            S3ServiceDefinition.class)
+        .toServiceDefinition("dev", Region.US_WEST_2);
+    assertThat(compressing.getCompression()).isEqualTo(Compression.GZIP);
+    assertThat(compressing.getCompressionMinSize()).isEqualTo(512);
+  }
+
+  @Test
+  public void readsCircuitBreakerConfig() throws IOException {
+    String contents = Resources.toString(Resources.getResource(
+        "provider-configs/config_v4os_with_regions.json"), Charsets.UTF_8);
+    ServiceDefinition serviceDefinition = Mapper.mapper().readValue(contents, S3ServiceDefinition.class)
+        .toServiceDefinition("dev", Region.US_WEST_2);
+    assertThat(serviceDefinition.getCircuitBreaker().isEnabled()).isFalse();
+
+    ServiceDefinition breaking = Mapper.mapper()
+        .readValue(contents.replaceFirst("\\{", "{ \"circuit-breaker\": { \"enabled\": true, "
+            + "\"failure-rate-threshold\": 25, \"wait-duration-in-open-state-ms\": 1000 },"),
+            S3ServiceDefinition.class)
+        .toServiceDefinition("dev", Region.US_WEST_2);
+    CircuitBreakerConfig circuitBreaker = breaking.getCircuitBreaker();
+    assertThat(circuitBreaker.isEnabled()).isTrue();
+    assertThat(circuitBreaker.getFailureRateThreshold()).isEqualTo(25);
+    assertThat(circuitBreaker.getWaitDurationInOpenStateMs()).isEqualTo(1000);
+    assertThat(circuitBreaker.getSlidingWindowSize()).isEqualTo(100);
+  }
 }
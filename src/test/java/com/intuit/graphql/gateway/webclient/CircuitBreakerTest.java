@@ -0,0 +1,149 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.CircuitBreakerConfig;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker.Permit;
+import com.intuit.graphql.gateway.webclient.CircuitBreaker.State;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Test
+  public void opensOnFailureRateAndClosesAfterSuccessfulProbes() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(newConfig(), nanoTime::get);
+
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.tryAcquirePermission().onSuccess();
+    }
+    circuitBreaker.tryAcquirePermission().onError();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.getFailureRate()).isEqualTo(20);
+
+    for (int i = 0; i < 3; i++) {
+      circuitBreaker.tryAcquirePermission().onError();
+    }
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.getFailureRate()).isEqualTo(50);
+    assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    Permit first = circuitBreaker.tryAcquirePermission();
+    Permit second = circuitBreaker.tryAcquirePermission();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+
+    first.onSuccess();
+    second.onSuccess();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.getFailureRate()).isZero();
+  }
+
+  @Test
+  public void reopensOnFailedProbe() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(newConfig(), nanoTime::get);
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.tryAcquirePermission().onError();
+    }
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    Permit first = circuitBreaker.tryAcquirePermission();
+    Permit second = circuitBreaker.tryAcquirePermission();
+    first.onSuccess();
+    second.onError();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+  }
+
+  @Test
+  public void opensOnSlowCallRate() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(newConfig(), nanoTime::get);
+    for (int i = 0; i < 10; i++) {
+      Permit permit = circuitBreaker.tryAcquirePermission();
+      nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(i < 5 ? 10 : 200));
+      permit.onSuccess();
+    }
+
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void countsOnlyTheLastCallsOfTheWindow() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(newConfig(), nanoTime::get);
+    for (int i = 0; i < 2; i++) {
+      circuitBreaker.tryAcquirePermission().onError();
+    }
+    for (int i = 0; i < 10; i++) {
+      circuitBreaker.tryAcquirePermission().onSuccess();
+    }
+
+    assertThat(circuitBreaker.getFailureRate()).isZero();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  public void cancelledProbeGivesBackItsPermission() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(newConfig(), nanoTime::get);
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.tryAcquirePermission().onError();
+    }
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    Permit first = circuitBreaker.tryAcquirePermission();
+    circuitBreaker.tryAcquirePermission();
+    first.release();
+    first.onError();
+
+    assertThat(circuitBreaker.tryAcquirePermission()).isNotNull();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+  }
+
+  @Test
+  public void keepsBreakerPerNamespaceAndExportsState() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CircuitBreakers circuitBreakers = new CircuitBreakers(meterRegistry);
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test").circuitBreaker(newConfig())
+        .build();
+
+    CircuitBreaker circuitBreaker = circuitBreakers.forService(serviceDefinition);
+    assertThat(circuitBreakers.forService(serviceDefinition)).isSameAs(circuitBreaker);
+    assertThat(circuitBreakers.forService(ServiceDefinition.newBuilder().namespace("other").build())).isNull();
+
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.tryAcquirePermission().onError();
+    }
+    assertThat(meterRegistry.get(CircuitBreakers.METRIC_NAME + ".state").tag("namespace", "test").gauge().value())
+        .isEqualTo(State.OPEN.getCode());
+    assertThat(meterRegistry.get(CircuitBreakers.METRIC_NAME + ".failure.rate").tag("namespace", "test").gauge()
+        .value()).isEqualTo(100);
+
+    CircuitBreakerConfig changedConfig = newConfig();
+    changedConfig.setFailureRateThreshold(80);
+    CircuitBreaker changed = circuitBreakers
+        .forService(ServiceDefinition.newBuilder().namespace("test").circuitBreaker(changedConfig).build());
+    assertThat(changed).isNotSameAs(circuitBreaker);
+    assertThat(meterRegistry.get(CircuitBreakers.METRIC_NAME + ".state").tag("namespace", "test").gauge().value())
+        .isEqualTo(State.CLOSED.getCode());
+  }
+
+  private static CircuitBreakerConfig newConfig() {
+    CircuitBreakerConfig config = new CircuitBreakerConfig();
+    config.setEnabled(true);
+    config.setSlidingWindowSize(10);
+    config.setMinimumNumberOfCalls(5);
+    config.setFailureRateThreshold(50);
+    config.setSlowCallRateThreshold(50);
+    config.setSlowCallDurationMs(100);
+    config.setWaitDurationInOpenStateMs(1000);
+    config.setPermittedCallsInHalfOpenState(2);
+    return config;
+  }
+}
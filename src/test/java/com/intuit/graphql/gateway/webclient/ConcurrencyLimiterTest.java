@@ -0,0 +1,126 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.ConcurrencyLimitConfig;
+import com.intuit.graphql.gateway.webclient.ConcurrencyLimiter.Permit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import reactor.test.StepVerifier;
+
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void rejectsCallsOverTheLimitWhenQueueIsFull() {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(newConfig(2, 0));
+
+    Permit first = concurrencyLimiter.acquire().block();
+    Permit second = concurrencyLimiter.acquire().block();
+    StepVerifier.create(concurrencyLimiter.acquire()).verifyComplete();
+
+    assertThat(first).isNotNull();
+    assertThat(second).isNotNull();
+    assertThat(concurrencyLimiter.getInFlight()).isEqualTo(2);
+    assertThat(concurrencyLimiter.getRejected()).isEqualTo(1);
+
+    first.release();
+    assertThat(concurrencyLimiter.acquire().block()).isNotNull();
+  }
+
+  @Test
+  public void queuedCallGetsTurnOnceACallCompletes() {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(newConfig(1, 1));
+    Permit first = concurrencyLimiter.acquire().block();
+
+    StepVerifier.create(concurrencyLimiter.acquire())
+        .then(() -> {
+          assertThat(concurrencyLimiter.getQueued()).isEqualTo(1);
+          first.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        })
+        .expectNextCount(1)
+        .verifyComplete();
+
+    assertThat(concurrencyLimiter.getQueued()).isZero();
+    assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsQueuedCallWithoutTurnInTime() {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(newConfig(1, 1));
+    concurrencyLimiter.acquire().block();
+
+    StepVerifier.create(concurrencyLimiter.acquire())
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(concurrencyLimiter.getQueued()).isZero();
+    assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+    assertThat(concurrencyLimiter.getRejected()).isEqualTo(1);
+  }
+
+  @Test
+  public void adaptsLimitToResponseTimes() {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(newConfig(10, 0));
+
+    runAtLimit(concurrencyLimiter, 10, 20);
+    int grownLimit = concurrencyLimiter.getLimit();
+    assertThat(grownLimit).isGreaterThan(10);
+
+    runAtLimit(concurrencyLimiter, 100, 20);
+    assertThat(concurrencyLimiter.getLimit()).isLessThan(grownLimit);
+  }
+
+  @Test
+  public void shrinksLimitOnDroppedCalls() {
+    ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(newConfig(10, 0));
+
+    concurrencyLimiter.acquire().block().onDropped();
+
+    assertThat(concurrencyLimiter.getLimit()).isEqualTo(9);
+    assertThat(concurrencyLimiter.getInFlight()).isZero();
+  }
+
+  @Test
+  public void keepsLimiterPerNamespaceAndExportsIt() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ConcurrencyLimiters concurrencyLimiters = new ConcurrencyLimiters(meterRegistry);
+    ServiceDefinition serviceDefinition = ServiceDefinition.newBuilder().namespace("test")
+        .concurrencyLimit(newConfig(5, 0)).build();
+
+    ConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.forService(serviceDefinition);
+    assertThat(concurrencyLimiters.forService(serviceDefinition)).isSameAs(concurrencyLimiter);
+    assertThat(concurrencyLimiters.forService(ServiceDefinition.newBuilder().namespace("other").build())).isNull();
+
+    concurrencyLimiter.acquire().block();
+    assertThat(meterRegistry.get(ConcurrencyLimiters.METRIC_NAME + ".limit").tag("namespace", "test").gauge().value())
+        .isEqualTo(5);
+    assertThat(meterRegistry.get(ConcurrencyLimiters.METRIC_NAME + ".inflight").tag("namespace", "test").gauge()
+        .value()).isEqualTo(1);
+  }
+
+  private static void runAtLimit(ConcurrencyLimiter concurrencyLimiter, long rttMillis, int rounds) {
+    for (int round = 0; round < rounds; round++) {
+      List<Permit> permits = new ArrayList<>();
+      Permit permit;
+      while ((permit = concurrencyLimiter.acquire().block()) != null) {
+        permits.add(permit);
+      }
+      permits.forEach(p -> p.onSuccess(TimeUnit.MILLISECONDS.toNanos(rttMillis)));
+    }
+  }
+
+  private static ConcurrencyLimitConfig newConfig(int initialLimit, int maxQueueSize) {
+    ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+    config.setEnabled(true);
+    config.setInitialLimit(initialLimit);
+    config.setMaxQueueSize(maxQueueSize);
+    config.setMaxQueueWaitMs(50);
+    return config;
+  }
+}
@@ -0,0 +1,79 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.Compression;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class ContentEncodingsTest {
+
+  private static final String BODY = "{\"query\": \"" + StringUtils.repeat("query { a }", 200) + "\"}";
+
+  private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+  @Test
+  public void decompressesGzipInChunks() throws IOException {
+    assertRoundTrip(Compression.GZIP, "gzip");
+  }
+
+  @Test
+  public void decompressesDeflateInChunks() throws IOException {
+    assertRoundTrip(Compression.DEFLATE, "deflate");
+  }
+
+  @Test
+  public void passesThroughIdentity() {
+    StepVerifier.create(ContentEncodings.decompress(Flux.just(toBuffer(BODY.getBytes(StandardCharsets.UTF_8))),
+        "identity").map(ContentEncodings::toByteArray))
+        .consumeNextWith(bytes -> assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo(BODY))
+        .verifyComplete();
+  }
+
+  @Test
+  public void failsOnUnsupportedEncoding() {
+    StepVerifier.create(ContentEncodings.decompress(Flux.just(toBuffer(new byte[]{1, 2, 3})), "br"))
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  @Test
+  public void failsOnCorruptBody() {
+    StepVerifier.create(ContentEncodings.decompress(Flux.just(toBuffer(BODY.getBytes(StandardCharsets.UTF_8))),
+        "gzip"))
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  private void assertRoundTrip(Compression compression, String contentEncoding) throws IOException {
+    byte[] compressed = ContentEncodings.toByteArray(
+        ContentEncodings.compress(toBuffer(BODY.getBytes(StandardCharsets.UTF_8)), compression));
+    assertThat(compressed.length).isLessThan(BODY.length() / 10);
+
+    List<DataBuffer> chunks = new ArrayList<>();
+    for (int i = 0; i < compressed.length; i += 7) {
+      byte[] chunk = new byte[Math.min(7, compressed.length - i)];
+      System.arraycopy(compressed, i, chunk, 0, chunk.length);
+      chunks.add(toBuffer(chunk));
+    }
+
+    StepVerifier.create(DataBufferUtils.join(ContentEncodings.decompress(Flux.fromIterable(chunks), contentEncoding))
+        .map(ContentEncodings::toByteArray))
+        .consumeNextWith(bytes -> assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo(BODY))
+        .verifyComplete();
+  }
+
+  private DataBuffer toBuffer(byte[] bytes) {
+    return bufferFactory.wrap(bytes);
+  }
+}
@@ -0,0 +1,194 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.core.Options.DYNAMIC_PORT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties;
+import com.intuit.graphql.gateway.config.properties.WebClientProperties.Pool;
+import com.intuit.graphql.gateway.registry.ServiceDefinition;
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HttpVersion;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.concurrent.TimeoutException;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+public class DownstreamWebClientsTest {
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(DYNAMIC_PORT);
+
+  private final WebClient webClient = WebClient.create();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private WebClientProperties webClientProperties;
+  private DownstreamWebClients downstreamWebClients;
+
+  @Before
+  public void setUp() {
+    Metrics.addRegistry(meterRegistry);
+    webClientProperties = new WebClientProperties();
+    downstreamWebClients = new DownstreamWebClients(webClient, webClientProperties);
+  }
+
+  @After
+  public void tearDown() {
+    downstreamWebClients.dispose();
+    Metrics.removeRegistry(meterRegistry);
+  }
+
+  @Test
+  public void usesOnePoolPerNamespace() {
+    WebClient first = downstreamWebClients.forService(newServiceDefinition("first"));
+
+    assertThat(downstreamWebClients.forService(newServiceDefinition("first"))).isSameAs(first);
+    assertThat(downstreamWebClients.forService(newServiceDefinition("second"))).isNotSameAs(first);
+    assertThat(downstreamWebClients.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void usesNewPoolWhenSettingsChange() {
+    WebClient before = downstreamWebClients.forService(newServiceDefinition("first"));
+
+    webClientProperties.getConnectionProvider().setMaxConnections(10);
+
+    assertThat(downstreamWebClients.forService(newServiceDefinition("first"))).isNotSameAs(before);
+  }
+
+  @Test
+  public void usesDefaultClientWhenDisabled() {
+    webClientProperties.getConnectionProvider().setEnabled(false);
+
+    assertThat(downstreamWebClients.forService(newServiceDefinition("first"))).isSameAs(webClient);
+    assertThat(downstreamWebClients.size()).isZero();
+  }
+
+  @Test
+  public void slowNamespaceDoesNotTakeConnectionsOfOthers() {
+    wireMockRule.addStubMapping(stubFor(get("/slow").willReturn(aResponse().withFixedDelay(1000).withBody("slow"))));
+    wireMockRule.addStubMapping(stubFor(get("/fast").willReturn(aResponse().withBody("fast"))));
+    Pool slowPool = new Pool();
+    slowPool.setMaxConnections(1);
+    slowPool.setPendingAcquireTimeoutMillis(200);
+    webClientProperties.getConnectionProvider().getNamespaces().put("slow", slowPool);
+
+    WebClient slow = downstreamWebClients.forService(newServiceDefinition("slow"));
+    WebClient fast = downstreamWebClients.forService(newServiceDefinition("fast"));
+
+    Mono<String> inFlight = request(slow, "/slow").cache();
+    inFlight.subscribe();
+
+    StepVerifier.create(request(slow, "/slow"))
+        .expectErrorSatisfies(e -> assertThat(e).hasRootCauseInstanceOf(TimeoutException.class))
+        .verify();
+    StepVerifier.create(request(fast, "/fast"))
+        .expectNext("fast")
+        .verifyComplete();
+    StepVerifier.create(inFlight)
+        .expectNext("slow")
+        .verifyComplete();
+
+    assertThat(meterRegistry.find("reactor.netty.connection.provider.active.connections")
+        .tag("name", DownstreamWebClients.POOL_NAME_PREFIX + "fast").gauge()).isNotNull();
+  }
+
+  @Test
+  public void multiplexesH2cRequestsOverOneConnection() {
+    Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    Set<String> streamIds = ConcurrentHashMap.newKeySet();
+    DisposableServer server = startEchoServer(HttpProtocol.H2C, clientPorts, streamIds);
+    try {
+      WebClient h2c = downstreamWebClients.forService(newServiceDefinition("h2c", HttpVersion.H2C));
+
+      List<String> responses = Flux.range(0, 20)
+          .flatMap(i -> post(h2c, server.port(), "request-" + i))
+          .collectList()
+          .block();
+
+      assertThat(responses).hasSize(20).allMatch(response -> response.startsWith("request-"));
+      assertThat(clientPorts).hasSize(1);
+      assertThat(streamIds).hasSize(20);
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void fallsBackToHttp11WhenH2cIsNotSupported() {
+    Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    Set<String> streamIds = ConcurrentHashMap.newKeySet();
+    DisposableServer server = startEchoServer(HttpProtocol.HTTP11, clientPorts, streamIds);
+    try {
+      WebClient h2c = downstreamWebClients.forService(newServiceDefinition("h2c", HttpVersion.H2C));
+
+      StepVerifier.create(post(h2c, server.port(), "first"))
+          .expectNext("first")
+          .verifyComplete();
+      StepVerifier.create(post(h2c, server.port(), "second"))
+          .expectNext("second")
+          .verifyComplete();
+
+      assertThat(streamIds).isEmpty();
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+  @Test
+  public void usesOnePoolPerHttpVersion() {
+    WebClient http11 = downstreamWebClients.forService(newServiceDefinition("first"));
+
+    assertThat(downstreamWebClients.forService(newServiceDefinition("first", HttpVersion.H2C))).isNotSameAs(http11);
+    assertThat(downstreamWebClients.size()).isEqualTo(2);
+  }
+
+  private static DisposableServer startEchoServer(HttpProtocol protocol, Set<Integer> clientPorts,
+      Set<String> streamIds) {
+    return HttpServer.create()
+        .host("localhost")
+        .port(0)
+        .protocol(protocol)
+        .handle((request, response) -> {
+          clientPorts.add(request.remoteAddress().getPort());
+          String streamId = request.requestHeaders().get("x-http2-stream-id");
+          if (streamId != null) {
+            streamIds.add(streamId);
+          }
+          return response.send(request.receive().retain());
+        })
+        .bindNow();
+  }
+
+  private static Mono<String> post(WebClient client, int port, String body) {
+    return client.post().uri("http://localhost:" + port + "/graphql").bodyValue(body).retrieve()
+        .bodyToMono(String.class);
+  }
+
+  private Mono<String> request(WebClient client, String path) {
+    return client.get().uri("http://localhost:" + wireMockRule.port() + path).retrieve().bodyToMono(String.class);
+  }
+
+  private static ServiceDefinition newServiceDefinition(String namespace) {
+    return newServiceDefinition(namespace, HttpVersion.HTTP11);
+  }
+
+  private static ServiceDefinition newServiceDefinition(String namespace, HttpVersion httpVersion) {
+    return ServiceDefinition.newBuilder().namespace(namespace).endpoint("http://localhost").httpVersion(httpVersion)
+        .build();
+  }
+}
@@ -0,0 +1,94 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.registry.ServiceDefinition.HedgingConfig;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class HedgingPolicyTest {
+
+  @Test
+  public void hedgesAtMostTheBudgetedShareOfQueries() {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(newConfig(0, 10));
+
+    int hedges = 0;
+    for (int i = 0; i < 100; i++) {
+      hedgingPolicy.onQuery();
+      if (hedgingPolicy.tryAcquireHedge()) {
+        hedges++;
+      }
+    }
+
+    assertThat(hedges).isEqualTo(10);
+  }
+
+  @Test
+  public void capsBudgetAtMaxBurst() {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(newConfig(0, 50));
+    for (int i = 0; i < 1000; i++) {
+      hedgingPolicy.onQuery();
+    }
+
+    int hedges = 0;
+    while (hedgingPolicy.tryAcquireHedge()) {
+      hedges++;
+    }
+    assertThat(hedges).isEqualTo(HedgingPolicy.MAX_BURST);
+  }
+
+  @Test
+  public void usesObservedPercentileAsDelay() {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(newConfig(0, 10));
+    for (int i = 1; i < HedgingPolicy.SAMPLES; i++) {
+      hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    assertThat(hedgingPolicy.getDelay()).isNull();
+
+    hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(HedgingPolicy.SAMPLES));
+    assertThat(hedgingPolicy.getDelay()).isEqualTo(Duration.ofMillis(244));
+  }
+
+  @Test
+  public void doesNotLowerDelayWhileHedgesWin() {
+    HedgingPolicy hedgingPolicy = new HedgingPolicy(newConfig(0, 100));
+    for (int i = 0; i < HedgingPolicy.SAMPLES; i++) {
+      hedgingPolicy.recordLatency(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    // the service slows down: every first call takes 200ms and loses to a hedge answering 10ms after it was sent
+    AtomicInteger hedgesFired = new AtomicInteger();
+    AtomicInteger hedgesWon = new AtomicInteger();
+    for (int i = 0; i < HedgingPolicy.SAMPLES; i++) {
+      AtomicInteger calls = new AtomicInteger();
+      StepVerifier.withVirtualTime(() -> hedgingPolicy.hedge(() -> calls.getAndIncrement() == 0
+          ? Mono.delay(Duration.ofMillis(200)).thenReturn("primary")
+          : Mono.delay(Duration.ofMillis(10)).thenReturn("hedge"), hedgesFired::incrementAndGet,
+          hedgesWon::incrementAndGet))
+          .thenAwait(Duration.ofSeconds(1))
+          .expectNext("hedge")
+          .verifyComplete();
+    }
+
+    assertThat(hedgesFired).hasValue(HedgingPolicy.SAMPLES);
+    assertThat(hedgesWon).hasValue(HedgingPolicy.SAMPLES);
+    assertThat(hedgingPolicy.getDelay()).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+  }
+
+  @Test
+  public void usesConfiguredDelay() {
+    assertThat(new HedgingPolicy(newConfig(25, 10)).getDelay()).isEqualTo(Duration.ofMillis(25));
+  }
+
+  private static HedgingConfig newConfig(long delayMs, int maxHedgePercent) {
+    HedgingConfig config = new HedgingConfig();
+    config.setEnabled(true);
+    config.setDelayMs(delayMs);
+    config.setMaxHedgePercent(maxHedgePercent);
+    return config;
+  }
+}
@@ -0,0 +1,85 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import java.net.URI;
+import java.util.function.Function;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class Http2FallbackConnectorTest {
+
+  private static final URI ENDPOINT = URI.create("http://localhost/graphql");
+
+  private final ClientHttpConnector http2Connector = mock(ClientHttpConnector.class);
+  private final ClientHttpConnector http11Connector = mock(ClientHttpConnector.class);
+  private final Http2FallbackConnector connector = new Http2FallbackConnector("test", http2Connector,
+      http11Connector);
+  private final ClientHttpResponse response = mock(ClientHttpResponse.class);
+
+  @Test
+  public void fallsBackOnPrefaceErrorBeforeRequestIsSent() {
+    when(http2Connector.connect(any(), any(), any())).thenReturn(Mono.error(
+        Http2Exception.connectionError(Http2Error.PROTOCOL_ERROR, "First received frame was not SETTINGS")));
+    when(http11Connector.connect(any(), any(), any())).thenReturn(Mono.just(response));
+
+    StepVerifier.create(connector.connect(HttpMethod.POST, ENDPOINT, request -> Mono.empty()))
+        .expectNext(response)
+        .verifyComplete();
+    assertThat(connector.isFallback()).isTrue();
+  }
+
+  @Test
+  public void doesNotReplayStreamResetAfterRequestIsSent() {
+    when(http2Connector.connect(any(), any(), any())).thenAnswer(invocation -> {
+      Function<ClientHttpRequest, Mono<Void>> requestCallback = invocation.getArgument(2);
+      return requestCallback.apply(mock(ClientHttpRequest.class))
+          .then(Mono.error(Http2Exception.streamError(1, Http2Error.CANCEL, "Stream reset")));
+    });
+
+    StepVerifier.create(connector.connect(HttpMethod.POST, ENDPOINT, request -> Mono.empty()))
+        .expectError(Http2Exception.class)
+        .verify();
+    verify(http11Connector, never()).connect(any(), any(), any());
+    assertThat(connector.isFallback()).isFalse();
+  }
+
+  @Test
+  public void doesNotReplayProtocolErrorAfterRequestIsSent() {
+    when(http2Connector.connect(any(), any(), any())).thenAnswer(invocation -> {
+      Function<ClientHttpRequest, Mono<Void>> requestCallback = invocation.getArgument(2);
+      return requestCallback.apply(mock(ClientHttpRequest.class))
+          .then(Mono.error(Http2Exception.connectionError(Http2Error.PROTOCOL_ERROR, "GOAWAY")));
+    });
+
+    StepVerifier.create(connector.connect(HttpMethod.POST, ENDPOINT, request -> Mono.empty()))
+        .expectError(Http2Exception.class)
+        .verify();
+    verify(http11Connector, never()).connect(any(), any(), any());
+    assertThat(connector.isFallback()).isFalse();
+  }
+
+  @Test
+  public void doesNotFallBackOnOtherHttp2Errors() {
+    when(http2Connector.connect(any(), any(), any())).thenReturn(Mono.error(
+        Http2Exception.connectionError(Http2Error.FLOW_CONTROL_ERROR, "Flow control")));
+
+    StepVerifier.create(connector.connect(HttpMethod.POST, ENDPOINT, request -> Mono.empty()))
+        .expectError(Http2Exception.class)
+        .verify();
+    verify(http11Connector, never()).connect(any(), any(), any());
+    assertThat(connector.isFallback()).isFalse();
+  }
+}
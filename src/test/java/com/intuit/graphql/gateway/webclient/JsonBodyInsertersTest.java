@@ -0,0 +1,94 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.intuit.graphql.gateway.Mapper;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Test;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.test.StepVerifier;
+
+public class JsonBodyInsertersTest {
+
+  private static final BodyInserter.Context CONTEXT = new BodyInserter.Context() {
+    @Override
+    public List<HttpMessageWriter<?>> messageWriters() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<ServerHttpRequest> serverRequest() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Map<String, Object> hints() {
+      return Collections.emptyMap();
+    }
+  };
+
+  @Test
+  public void writesJsonBody() throws IOException {
+    Map<String, Object> body = new HashMap<>();
+    body.put("query", "{ a }");
+    body.put("variables", Collections.singletonMap("b", 1));
+    MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, "/");
+
+    StepVerifier.create(JsonBodyInserters.fromJson(body).insert(request, CONTEXT)).verifyComplete();
+
+    String written = request.getBodyAsString().block();
+    assertThat(Mapper.mapper().readValue(written, Map.class)).isEqualTo(body);
+    assertThat(request.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    assertThat(request.getHeaders().getContentLength()).isEqualTo(written.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  public void releasesBufferOnSerializationFailure() {
+    RecordingBufferFactory bufferFactory = new RecordingBufferFactory();
+    MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, "/") {
+      @Override
+      public NettyDataBufferFactory bufferFactory() {
+        return bufferFactory;
+      }
+    };
+
+    StepVerifier.create(JsonBodyInserters.fromJson(new Object()).insert(request, CONTEXT))
+        .expectError(JsonProcessingException.class)
+        .verify();
+
+    assertThat(bufferFactory.allocated).hasSize(1);
+    assertThat(bufferFactory.allocated.get(0).getNativeBuffer().refCnt()).isZero();
+  }
+
+  private static class RecordingBufferFactory extends NettyDataBufferFactory {
+
+    private final List<NettyDataBuffer> allocated = new ArrayList<>();
+
+    private RecordingBufferFactory() {
+      super(UnpooledByteBufAllocator.DEFAULT);
+    }
+
+    @Override
+    public NettyDataBuffer allocateBuffer() {
+      NettyDataBuffer buffer = super.allocateBuffer();
+      allocated.add(buffer);
+      return buffer;
+    }
+  }
+}
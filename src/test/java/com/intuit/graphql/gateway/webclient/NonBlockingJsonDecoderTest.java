@@ -0,0 +1,103 @@
+package com.intuit.graphql.gateway.webclient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.intuit.graphql.gateway.Mapper;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class NonBlockingJsonDecoderTest {
+
+  private static final String JSON = "{\"data\":{\"a\":[1,2.5,\"x\",true,false,null,{\"b\":[]}],"
+      + "\"long\":12345678901,\"big\":123456789012345678901234567890,\"empty\":{}},\"errors\":null}";
+
+  private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+  private final List<NettyDataBuffer> buffers = new ArrayList<>();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void decodesLikeObjectMapperAcrossChunks() throws IOException {
+    Map<String, Object> expected = Mapper.mapper().readValue(JSON, Map.class);
+
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks(JSON, 3), -1))
+        .consumeNextWith(result -> {
+          assertThat(result).isEqualTo(expected);
+          Map<String, Object> data = (Map<String, Object>) result.get("data");
+          assertThat(data.get("long")).isEqualTo(12345678901L);
+          assertThat(data.get("big")).isEqualTo(new BigInteger("123456789012345678901234567890"));
+          assertThat(((List<Object>) data.get("a")).get(1)).isEqualTo(2.5);
+        })
+        .verifyComplete();
+
+    assertAllBuffersReleased();
+  }
+
+  @Test
+  public void completesEmptyForEmptyBody() {
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(Flux.empty(), -1)).verifyComplete();
+  }
+
+  @Test
+  public void failsOnInvalidJson() {
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks("{\"a\":}", 2), -1))
+        .expectError(DecodingException.class)
+        .verify();
+
+    assertAllBuffersReleased();
+  }
+
+  @Test
+  public void failsOnIncompleteJson() {
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks("{\"a\":[1", 2), -1))
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  @Test
+  public void failsOnNonObjectJson() {
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks("[1]", 2), -1))
+        .expectError(DecodingException.class)
+        .verify();
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks("{} {}", 2), -1))
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  @Test
+  public void failsWhenBodyExceedsLimit() {
+    StepVerifier.create(NonBlockingJsonDecoder.decodeToMap(chunks(JSON, 10), 20))
+        .expectError(DataBufferLimitException.class)
+        .verify();
+
+    assertAllBuffersReleased();
+  }
+
+  private Flux<DataBuffer> chunks(String json, int chunkSize) {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+        .map(i -> {
+          NettyDataBuffer buffer = (NettyDataBuffer) bufferFactory.wrap(
+              Arrays.copyOfRange(bytes, i * chunkSize, Math.min(bytes.length, (i + 1) * chunkSize)));
+          buffers.add(buffer);
+          return buffer;
+        });
+  }
+
+  private void assertAllBuffersReleased() {
+    assertThat(buffers).isNotEmpty().allSatisfy(buffer -> assertThat(buffer.getNativeBuffer().refCnt()).isZero());
+  }
+}
@@ -0,0 +1,154 @@
+package com.intuit.graphql.gateway.webfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.intuit.graphql.gateway.config.properties.AdmissionControlProperties;
+import com.intuit.graphql.gateway.config.properties.AdmissionControlProperties.Priority;
+import com.intuit.graphql.gateway.logging.interfaces.ImmutableTransactionContext;
+import com.intuit.graphql.gateway.logging.interfaces.TransactionContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+public class AdmissionControlFilterTest {
+
+  private final AdmissionControlProperties properties = new AdmissionControlProperties();
+  private final EventLoopLagMonitor eventLoopLagMonitor = mock(EventLoopLagMonitor.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<String> executed = new ArrayList<>();
+  private final List<Sinks.Empty<Void>> executions = new ArrayList<>();
+  private final WebFilterChain chain = exchange -> {
+    executed.add(exchange.getRequest().getHeaders().getFirst("X-Client"));
+    Sinks.Empty<Void> execution = Sinks.empty();
+    executions.add(execution);
+    return execution.asMono();
+  };
+
+  private AdmissionControlFilter admissionControlFilter;
+
+  @Before
+  public void setUp() {
+    properties.setEnabled(true);
+    properties.setMaxConcurrentRequests(1);
+    properties.setMaxQueueSize(2);
+    properties.setMaxQueueWaitMs(1000);
+    properties.setClientHeader("X-Client");
+    admissionControlFilter = new AdmissionControlFilter(properties, eventLoopLagMonitor, meterRegistry);
+  }
+
+  @Test
+  public void queuedRequestsGetTurnByPriority() {
+    properties.getClientPriorities().put("high", Priority.HIGH);
+    properties.getClientPriorities().put("low", Priority.LOW);
+
+    admissionControlFilter.filter(newExchange("/graphql", "first"), chain).subscribe();
+    admissionControlFilter.filter(newExchange("/graphql", "low"), chain).subscribe();
+    admissionControlFilter.filter(newExchange("/graphql", "high"), chain).subscribe();
+    assertThat(executed).containsExactly("first");
+    assertThat(meterRegistry.get(AdmissionControlFilter.METRIC_NAME + ".queued").gauge().value()).isEqualTo(2);
+
+    executions.get(0).tryEmitEmpty();
+    assertThat(executed).containsExactly("first", "high");
+    executions.get(1).tryEmitEmpty();
+    assertThat(executed).containsExactly("first", "high", "low");
+    assertThat(meterRegistry.get(AdmissionControlFilter.METRIC_NAME + ".inflight").gauge().value()).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsRequestsWhenQueueIsFull() {
+    properties.setMaxQueueSize(0);
+    admissionControlFilter.filter(newExchange("/graphql", "first"), chain).subscribe();
+
+    MockServerWebExchange exchange = newExchange("/graphql", "second");
+    StepVerifier.create(admissionControlFilter.filter(exchange, chain)).verifyComplete();
+
+    assertRejected(exchange, HttpStatus.SERVICE_UNAVAILABLE, "QUEUE_FULL");
+    assertThat(executed).containsExactly("first");
+    assertThat(meterRegistry.get(AdmissionControlFilter.METRIC_NAME + ".rejected").tag("reason", "queue_full")
+        .counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsQueuedRequestWithoutTurnInTime() {
+    properties.setMaxQueueWaitMs(50);
+    admissionControlFilter.filter(newExchange("/graphql", "first"), chain).subscribe();
+
+    MockServerWebExchange exchange = newExchange("/graphql", "second");
+    StepVerifier.create(admissionControlFilter.filter(exchange, chain)).expectComplete().verify(Duration.ofSeconds(1));
+
+    assertRejected(exchange, HttpStatus.SERVICE_UNAVAILABLE, "QUEUE_TIMEOUT");
+    assertThat(meterRegistry.get(AdmissionControlFilter.METRIC_NAME + ".queued").gauge().value()).isZero();
+  }
+
+  @Test
+  public void acceptsOnlyHighPriorityRequestsWhileEventLoopsLag() {
+    properties.getClientPriorities().put("high", Priority.HIGH);
+    when(eventLoopLagMonitor.getLagMillis()).thenReturn(properties.getMaxEventLoopLagMs() + 1);
+
+    MockServerWebExchange exchange = newExchange("/graphql", "normal");
+    StepVerifier.create(admissionControlFilter.filter(exchange, chain)).verifyComplete();
+    admissionControlFilter.filter(newExchange("/graphql", "high"), chain).subscribe();
+
+    assertRejected(exchange, HttpStatus.SERVICE_UNAVAILABLE, "EVENT_LOOP_LAG");
+    assertThat(executed).containsExactly("high");
+  }
+
+  @Test
+  public void limitsRequestsPerClientFromTransactionContext() {
+    properties.setClientHeader(null);
+    properties.setMaxConcurrentRequests(10);
+    properties.setMaxConcurrentRequestsPerClient(1);
+    Context context = Context.of(TransactionContext.class, ImmutableTransactionContext.builder().appId("app").build());
+
+    admissionControlFilter.filter(newExchange("/graphql", null), chain).contextWrite(context).subscribe();
+    MockServerWebExchange exchange = newExchange("/graphql", null);
+    StepVerifier.create(admissionControlFilter.filter(exchange, chain).contextWrite(context)).verifyComplete();
+    assertRejected(exchange, HttpStatus.TOO_MANY_REQUESTS, "CLIENT_LIMIT");
+
+    executions.get(0).tryEmitEmpty();
+    admissionControlFilter.filter(newExchange("/graphql", null), chain).contextWrite(context).subscribe();
+    assertThat(executed).hasSize(2);
+  }
+
+  @Test
+  public void passesThroughOtherPathsAndWhenDisabled() {
+    admissionControlFilter.filter(newExchange("/graphql", "first"), chain).subscribe();
+
+    admissionControlFilter.filter(newExchange("/health/full", "health"), chain).subscribe();
+    properties.setEnabled(false);
+    admissionControlFilter.filter(newExchange("/graphql", "disabled"), chain).subscribe();
+
+    assertThat(executed).containsExactly("first", "health", "disabled");
+  }
+
+  private static void assertRejected(MockServerWebExchange exchange, HttpStatus status, String classification) {
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(status);
+    assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    StepVerifier.create(exchange.getResponse().getBodyAsString())
+        .assertNext(body -> assertThat(body).contains("\"errors\"").contains(classification))
+        .verifyComplete();
+  }
+
+  private static MockServerWebExchange newExchange(String path, String client) {
+    MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post(path);
+    if (client != null) {
+      request.header("X-Client", client);
+    }
+    return MockServerWebExchange.from(request);
+  }
+}
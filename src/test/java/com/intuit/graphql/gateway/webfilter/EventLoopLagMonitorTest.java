@@ -0,0 +1,50 @@
+package com.intuit.graphql.gateway.webfilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class EventLoopLagMonitorTest {
+
+  private final EventLoopGroup eventLoopGroup = new DefaultEventLoopGroup(2);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final EventLoopLagMonitor eventLoopLagMonitor = new EventLoopLagMonitor(() -> eventLoopGroup,
+      Duration.ofHours(1), meterRegistry);
+
+  @After
+  public void tearDown() {
+    eventLoopLagMonitor.dispose();
+    eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void showsLagOfBlockedEventLoop() throws InterruptedException {
+    CountDownLatch blocked = new CountDownLatch(1);
+    eventLoopGroup.next().execute(() -> {
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    eventLoopLagMonitor.probe();
+    Thread.sleep(100);
+    assertThat(eventLoopLagMonitor.getLagMillis()).isGreaterThanOrEqualTo(100);
+    assertThat(meterRegistry.get(EventLoopLagMonitor.METRIC_NAME).gauge().value()).isGreaterThanOrEqualTo(100);
+
+    blocked.countDown();
+    Thread.sleep(50);
+    eventLoopLagMonitor.probe();
+    Thread.sleep(50);
+    assertThat(eventLoopLagMonitor.getLagMillis()).isLessThan(100);
+  }
+}